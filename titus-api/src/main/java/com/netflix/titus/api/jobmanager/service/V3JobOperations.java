@@ -17,6 +17,7 @@
 package com.netflix.titus.api.jobmanager.service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -80,6 +81,15 @@ public interface V3JobOperations {
      */
     Completable updateTask(String taskId, Function<Task, Optional<Task>> changeFunction, Trigger trigger, String reason);
 
+    /**
+     * Batch version of {@link #updateTask(String, Function, Trigger, String)}, which applies the update functions to
+     * multiple tasks belonging to the same job in a single reconciliation engine transaction. Tasks that are no longer
+     * part of the job are skipped.
+     *
+     * @param changeFunctions a map of task id to a pair of the task update function and the update reason
+     */
+    Completable updateTasks(String jobId, Map<String, Pair<Function<Task, Optional<Task>>, String>> changeFunctions, Trigger trigger, String reason);
+
     /**
      * Called by scheduler when a task is assigned to an agent. The new task state is written to store first, and next
      * internal models are updated.
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+
+/**
+ * A set of batch jobs with their tasks, generated with the testkit {@link JobGenerator}, to be shared by benchmarks
+ * that need a realistic job/task model. The data is fully built during construction, so it can be safely created
+ * in JMH setup methods.
+ */
+public class JobDataSet {
+
+    private final List<Job<BatchJobExt>> jobs;
+    private final Map<String, List<Task>> tasksByJobId;
+    private final List<Task> tasks;
+
+    private JobDataSet(int jobCount, int tasksPerJob) {
+        JobDescriptor<BatchJobExt> jobDescriptor = JobFunctions.changeBatchJobSize(
+                JobDescriptorGenerator.batchJobDescriptors().getValue(),
+                tasksPerJob
+        );
+
+        List<Job<BatchJobExt>> jobs = JobGenerator.batchJobs(jobDescriptor).getAndApply(jobCount).getRight();
+        Map<String, List<Task>> tasksByJobId = new HashMap<>();
+        List<Task> tasks = new ArrayList<>();
+        for (Job<BatchJobExt> job : jobs) {
+            List<BatchJobTask> jobTasks = JobGenerator.batchTasks(job).getAndApply(tasksPerJob).getRight();
+            tasksByJobId.put(job.getId(), Collections.unmodifiableList(new ArrayList<>(jobTasks)));
+            tasks.addAll(jobTasks);
+        }
+
+        this.jobs = Collections.unmodifiableList(jobs);
+        this.tasksByJobId = Collections.unmodifiableMap(tasksByJobId);
+        this.tasks = Collections.unmodifiableList(tasks);
+    }
+
+    public List<Job<BatchJobExt>> getJobs() {
+        return jobs;
+    }
+
+    public Map<String, Job<?>> getJobsById() {
+        Map<String, Job<?>> jobsById = new HashMap<>();
+        jobs.forEach(job -> jobsById.put(job.getId(), job));
+        return jobsById;
+    }
+
+    public Map<String, List<Task>> getTasksByJobId() {
+        return tasksByJobId;
+    }
+
+    public List<Task> getTasks(String jobId) {
+        return tasksByJobId.getOrDefault(jobId, Collections.emptyList());
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    public static JobDataSet batchJobs(int jobCount, int tasksPerJob) {
+        return new JobDataSet(jobCount, tasksPerJob);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.benchmark.api.jobmanager.sanitizer;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.validation.ConstraintViolation;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.archaius.ConfigProxyFactory;
+import com.netflix.archaius.DefaultDecoder;
+import com.netflix.archaius.DefaultPropertyFactory;
+import com.netflix.archaius.config.MapConfig;
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.ServiceJobTask;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.api.jobmanager.model.job.sanitizer.JobConfiguration;
+import com.netflix.titus.api.jobmanager.model.job.sanitizer.JobSanitizerBuilder;
+import com.netflix.titus.api.model.ResourceDimension;
+import com.netflix.titus.common.model.sanitizer.EntitySanitizer;
+import com.netflix.titus.common.model.sanitizer.VerifierMode;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskBatchJobDescriptor;
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskServiceJobDescriptor;
+
+/**
+ * Measures the job model validation and sanitization, which is executed for each job submitted to the master
+ * and the gateway, and for each job and task record loaded from the store during the master bootstrap.
+ * The entities are valid, so the sanitization benchmarks cover the full model walk without creating new entities.
+ * Tasks are only validated, as they are not sanitized in the control plane.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class JobSanitizerBenchmark {
+
+    private static final ResourceDimension MAX_CONTAINER_SIZE = new ResourceDimension(64, 16, 256_000_000, 256_000_000, 10_000);
+
+    private static final MapConfig CONFIG = MapConfig.from(ImmutableMap.of(
+            "titusMaster.job.configuration.defaultSecurityGroups", "sg-12345,sg-34567",
+            "titusMaster.job.configuration.defaultIamRole", "iam-12345"
+    ));
+
+    @Param({"Strict", "Permissive"})
+    private VerifierMode verifierMode;
+
+    private EntitySanitizer sanitizer;
+
+    private Job<BatchJobExt> batchJob;
+    private Job<ServiceJobExt> serviceJob;
+    private BatchJobTask batchTask;
+    private ServiceJobTask serviceTask;
+
+    @Setup
+    public void setUp() {
+        JobConfiguration jobConfiguration = new ConfigProxyFactory(CONFIG, DefaultDecoder.INSTANCE, new DefaultPropertyFactory(CONFIG))
+                .newProxy(JobConfiguration.class);
+        this.sanitizer = new JobSanitizerBuilder()
+                .withVerifierMode(verifierMode)
+                .withJobConstrainstConfiguration(jobConfiguration)
+                .withMaxContainerSizeResolver(instanceType -> MAX_CONTAINER_SIZE)
+                .build();
+
+        this.batchJob = JobGenerator.batchJobs(
+                oneTaskBatchJobDescriptor().but(jd -> jd.getContainer().but(c -> c.getContainerResources().toBuilder().withNetworkMbps(256).build()))
+        ).getValue();
+        this.serviceJob = JobGenerator.serviceJobs(
+                oneTaskServiceJobDescriptor().but(jd -> jd.getContainer().but(c -> c.getContainerResources().toBuilder().withNetworkMbps(256).build()))
+        ).getValue();
+        this.batchTask = JobGenerator.batchTasks(batchJob).getValue();
+        this.serviceTask = JobGenerator.serviceTasks(serviceJob).getValue();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Job<BatchJobExt>>> validateBatchJob() {
+        return sanitizer.validate(batchJob);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Job<ServiceJobExt>>> validateServiceJob() {
+        return sanitizer.validate(serviceJob);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<BatchJobTask>> validateBatchTask() {
+        return sanitizer.validate(batchTask);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<ServiceJobTask>> validateServiceTask() {
+        return sanitizer.validate(serviceTask);
+    }
+
+    @Benchmark
+    public Optional<Job<BatchJobExt>> sanitizeBatchJob() {
+        return sanitizer.sanitize(batchJob);
+    }
+
+    @Benchmark
+    public Optional<Job<ServiceJobExt>> sanitizeServiceJob() {
+        return sanitizer.sanitize(serviceJob);
+    }
+}
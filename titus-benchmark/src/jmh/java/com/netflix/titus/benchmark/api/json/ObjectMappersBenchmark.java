@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.benchmark.api.json;
+
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.json.ObjectMappers;
+import com.netflix.titus.benchmark.JobDataSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures JSON serialization of the core job model with the {@link ObjectMappers#storeMapper()}, which is
+ * executed on each job/task write to the store, and for each record during the master bootstrap.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ObjectMappersBenchmark {
+
+    private final ObjectMapper mapper = ObjectMappers.storeMapper();
+
+    private Job<?> job;
+    private Task task;
+    private String jobJson;
+    private String taskJson;
+
+    @Setup
+    public void setUp() {
+        JobDataSet dataSet = JobDataSet.batchJobs(1, 1);
+        this.job = dataSet.getJobs().get(0);
+        this.task = dataSet.getTasks().get(0);
+        this.jobJson = ObjectMappers.writeValueAsString(mapper, job);
+        this.taskJson = ObjectMappers.writeValueAsString(mapper, task);
+    }
+
+    @Benchmark
+    public String writeJob() {
+        return ObjectMappers.writeValueAsString(mapper, job);
+    }
+
+    @Benchmark
+    public String writeTask() {
+        return ObjectMappers.writeValueAsString(mapper, task);
+    }
+
+    @Benchmark
+    public Job readJob() {
+        return ObjectMappers.readValue(mapper, jobJson, Job.class);
+    }
+
+    @Benchmark
+    public Task readTask() {
+        return ObjectMappers.readValue(mapper, taskJson, Task.class);
+    }
+
+    @Benchmark
+    public Job jobRoundTrip() {
+        return ObjectMappers.readValue(mapper, ObjectMappers.writeValueAsString(mapper, job), Job.class);
+    }
+}
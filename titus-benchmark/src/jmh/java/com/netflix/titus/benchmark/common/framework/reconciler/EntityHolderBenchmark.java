@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.benchmark.common.framework.reconciler;
+
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the cost of producing a new version of a job-like {@link EntityHolder} hierarchy (a root with many task
+ * children), which happens on each task state change handled by the reconciliation framework.
+ * Run with '-prof gc' to see the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class EntityHolderBenchmark {
+
+    @Param({"1000", "10000"})
+    private int childCount;
+
+    private EntityHolder root;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        EntityHolder holder = EntityHolder.newRoot("job", "jobEntity");
+        for (int i = 0; i < childCount; i++) {
+            holder = holder.addChild(EntityHolder.newRoot("task" + i, "v0"));
+        }
+        this.root = holder;
+    }
+
+    @Benchmark
+    public EntityHolder updateChild() {
+        return root.addChild(EntityHolder.newRoot(nextChildId(), "v1"));
+    }
+
+    @Benchmark
+    public EntityHolder replaceChild() {
+        String childId = nextChildId();
+        EntityHolder withoutChild = root.removeChild(childId).getLeft();
+        return withoutChild.addChild(EntityHolder.newRoot(childId, "v1"));
+    }
+
+    @Benchmark
+    public EntityHolder findChild() {
+        return root.findChildById(nextChildId()).orElse(null);
+    }
+
+    @Benchmark
+    public int updateChildAndListChildren() {
+        return root.addChild(EntityHolder.newRoot(nextChildId(), "v1")).getChildren().size();
+    }
+
+    private String nextChildId() {
+        next = (next + 1) % childCount;
+        return "task" + next;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.benchmark.common.framework.reconciler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.benchmark.JobDataSet;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.framework.reconciler.internal.IndexSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the index rebuild executed by the reconciliation framework loop each time any engine's reference view
+ * changes. The job holders and the index comparator mirror those set up by the job manager.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class IndexSetBenchmark {
+
+    private static final String INDEX_ID = "statusCreationTime";
+
+    @Param({"1000", "10000"})
+    private int jobCount;
+
+    @Param({"10"})
+    private int tasksPerJob;
+
+    private List<EntityHolder> jobHolders;
+    private IndexSet<EntityHolder> indexSet;
+
+    @Setup
+    public void setUp() {
+        JobDataSet dataSet = JobDataSet.batchJobs(jobCount, tasksPerJob);
+
+        this.jobHolders = new ArrayList<>();
+        for (Job<?> job : dataSet.getJobs()) {
+            EntityHolder jobHolder = EntityHolder.newRoot(job.getId(), job);
+            for (Task task : dataSet.getTasks(job.getId())) {
+                jobHolder = jobHolder.addChild(EntityHolder.newRoot(task.getId(), task));
+            }
+            jobHolders.add(jobHolder);
+        }
+
+        Comparator<EntityHolder> comparator = Comparator.comparingLong(holder -> holder.<Job<?>>getEntity().getStatus().getTimestamp());
+        this.indexSet = IndexSet.<EntityHolder>newIndexSet(Collections.singletonMap(INDEX_ID, comparator)).apply(jobHolders);
+    }
+
+    @Benchmark
+    public IndexSet<EntityHolder> rebuildIndex() {
+        return indexSet.apply(jobHolders);
+    }
+
+    @Benchmark
+    public int rebuildIndexAndReadOrdered() {
+        return indexSet.apply(jobHolders).getOrdered(INDEX_ID).size();
+    }
+}
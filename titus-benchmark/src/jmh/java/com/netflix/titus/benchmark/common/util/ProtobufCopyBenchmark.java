@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.benchmark.common.util;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.benchmark.JobDataSet;
+import com.netflix.titus.common.util.CollectionsExt;
+import com.netflix.titus.common.util.ProtobufCopy;
+import com.netflix.titus.grpc.protogen.Job;
+import com.netflix.titus.grpc.protogen.Task;
+import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
+import com.netflix.titus.runtime.endpoint.v3.grpc.V3GrpcModelConverters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link ProtobufCopy} field filtering, applied to each job/task in query results when the client
+ * requests a subset of fields.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ProtobufCopyBenchmark {
+
+    private static final Set<String> JOB_FIELDS = CollectionsExt.asSet("id", "status", "jobDescriptor.owner", "jobDescriptor.attributes");
+    private static final Set<String> TASK_FIELDS = CollectionsExt.asSet("id", "jobId", "status.state", "taskContext");
+
+    private Job grpcJob;
+    private Task grpcTask;
+
+    @Setup
+    public void setUp() {
+        JobDataSet dataSet = JobDataSet.batchJobs(1, 1);
+        this.grpcJob = V3GrpcModelConverters.toGrpcJob(dataSet.getJobs().get(0));
+        this.grpcTask = V3GrpcModelConverters.toGrpcTask(dataSet.getTasks().get(0), EmptyLogStorageInfo.empty());
+    }
+
+    @Benchmark
+    public Job copyJob() {
+        return ProtobufCopy.copy(grpcJob, JOB_FIELDS);
+    }
+
+    @Benchmark
+    public Task copyTask() {
+        return ProtobufCopy.copy(grpcTask, TASK_FIELDS);
+    }
+}
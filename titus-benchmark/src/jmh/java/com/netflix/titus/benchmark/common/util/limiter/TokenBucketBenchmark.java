@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.benchmark.common.util.limiter;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Stopwatch;
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
+import com.netflix.titus.common.util.limiter.tokenbucket.internal.DefaultTokenBucket;
+import com.netflix.titus.common.util.limiter.tokenbucket.internal.FixedIntervalRefillStrategy;
+import com.netflix.titus.common.util.limiter.tokenbucket.internal.LockFreeTokenBucket;
+import com.netflix.titus.common.util.limiter.tokenbucket.internal.StripedTokenBucket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures {@link TokenBucket#tryTake()} latency of a single bucket shared by 1 to 64 threads. The bucket is refilled
+ * fast enough to never run out of tokens, so each call updates its state.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class TokenBucketBenchmark {
+
+    private static final long CAPACITY = 1_000_000_000;
+
+    private static final int STRIPES = 16;
+
+    @Param({"synchronized", "lockFree", "striped"})
+    private String bucketType;
+
+    private TokenBucket tokenBucket;
+
+    @Setup
+    public void setUp() {
+        switch (bucketType) {
+            case "synchronized":
+                this.tokenBucket = new DefaultTokenBucket("benchmark", CAPACITY,
+                        new FixedIntervalRefillStrategy(Stopwatch.createStarted(), CAPACITY, 1, TimeUnit.MILLISECONDS), CAPACITY);
+                break;
+            case "lockFree":
+                this.tokenBucket = new LockFreeTokenBucket("benchmark", CAPACITY, CAPACITY, Stopwatch.createStarted(),
+                        CAPACITY, 1, TimeUnit.MILLISECONDS);
+                break;
+            case "striped":
+                this.tokenBucket = new StripedTokenBucket("benchmark", STRIPES, CAPACITY, CAPACITY, Stopwatch.createStarted(),
+                        CAPACITY, 1, TimeUnit.MILLISECONDS);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown bucket type: " + bucketType);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean tryTake1Thread() {
+        return tokenBucket.tryTake();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean tryTake4Threads() {
+        return tokenBucket.tryTake();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean tryTake16Threads() {
+        return tokenBucket.tryTake();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean tryTake64Threads() {
+        return tokenBucket.tryTake();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.benchmark.common.util.proxy;
+
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.proxy.ProxyCatalog;
+import com.netflix.titus.common.util.proxy.annotation.InvocationMetrics;
+import com.netflix.titus.common.util.proxy.annotation.ObservableResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import rx.Observable;
+
+/**
+ * Measures the invocation overhead of the proxies from {@link ProxyCatalog}, relative to a direct method call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ProxyInvocationBenchmark {
+
+    private static final String MESSAGE = "abc";
+
+    private EchoApi direct;
+    private EchoApi logging;
+    private EchoApi guarding;
+    private EchoApi spectator;
+    private SampledEchoApi spectatorSampled;
+
+    @Setup
+    public void setUp() {
+        TitusRuntime titusRuntime = TitusRuntimes.internal();
+
+        this.direct = new EchoApiImpl();
+        this.logging = ProxyCatalog.createDefaultLoggingProxy(EchoApi.class, direct);
+        this.guarding = ProxyCatalog.createGuardingProxy(EchoApi.class, direct, () -> true);
+        this.spectator = ProxyCatalog.createSpectatorProxy(EchoApi.class, direct, titusRuntime);
+        this.spectatorSampled = ProxyCatalog.createSpectatorProxy(SampledEchoApi.class, new SampledEchoApiImpl(), titusRuntime);
+    }
+
+    @Benchmark
+    public String direct() {
+        return direct.echo(MESSAGE);
+    }
+
+    @Benchmark
+    public String loggingProxy() {
+        return logging.echo(MESSAGE);
+    }
+
+    @Benchmark
+    public String guardingProxy() {
+        return guarding.echo(MESSAGE);
+    }
+
+    @Benchmark
+    public String spectatorProxy() {
+        return spectator.echo(MESSAGE);
+    }
+
+    @Benchmark
+    public String spectatorProxySampled() {
+        return spectatorSampled.echo(MESSAGE);
+    }
+
+    @Benchmark
+    public String directObservable() {
+        return direct.observableEcho(MESSAGE).toBlocking().first();
+    }
+
+    @Benchmark
+    public String spectatorProxyObservable() {
+        return spectator.observableEcho(MESSAGE).toBlocking().first();
+    }
+
+    public interface EchoApi {
+
+        String echo(String message);
+
+        @ObservableResult
+        Observable<String> observableEcho(String message);
+    }
+
+    @InvocationMetrics(samplingRatio = 0.01)
+    public interface SampledEchoApi {
+
+        String echo(String message);
+    }
+
+    private static class EchoApiImpl implements EchoApi {
+
+        @Override
+        public String echo(String message) {
+            return message;
+        }
+
+        @Override
+        public Observable<String> observableEcho(String message) {
+            return Observable.just(message);
+        }
+    }
+
+    private static class SampledEchoApiImpl implements SampledEchoApi {
+
+        @Override
+        public String echo(String message) {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.benchmark.common.util.rx.batch;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.spectator.api.NoopRegistry;
+import com.netflix.titus.common.util.limiter.Limiters;
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
+import com.netflix.titus.common.util.rx.batch.Batch;
+import com.netflix.titus.common.util.rx.batch.Batchable;
+import com.netflix.titus.common.util.rx.batch.LargestPerTimeBucket;
+import com.netflix.titus.common.util.rx.batch.Priority;
+import com.netflix.titus.common.util.rx.batch.RateLimitedBatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import rx.Observable;
+import rx.observers.AssertableSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+/**
+ * Measures how fast {@link RateLimitedBatcher} can group, deduplicate and emit a burst of updates. The flush loop
+ * runs on a {@link TestScheduler}, so the result reflects the batching overhead only, not the configured delays.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class RateLimitedBatcherBenchmark {
+
+    private static final long MIN_TIME_IN_QUEUE_MS = 1_000;
+    private static final long BUCKET_SIZE_MS = 1_000;
+
+    @Param({"10000"})
+    private int itemCount;
+
+    @Param({"10", "1000"})
+    private int indexCount;
+
+    private TestScheduler testScheduler;
+    private TokenBucket tokenBucket;
+    private List<Update> updates;
+
+    @Setup
+    public void setUp() {
+        this.testScheduler = Schedulers.test();
+        this.tokenBucket = Limiters.createFixedIntervalTokenBucket(
+                "benchmark", 1_000_000_000, 1_000_000_000, 1_000_000_000, 1, TimeUnit.MILLISECONDS
+        );
+
+        // Timestamps in the past, so all items are immediately eligible for emission, spread over a few time buckets.
+        Instant start = Instant.ofEpochMilli(testScheduler.now()).minusSeconds(3_600);
+        this.updates = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            updates.add(new Update(
+                    "resource" + (i % indexCount),
+                    "sub" + i,
+                    start.plusMillis(i % (10 * BUCKET_SIZE_MS))
+            ));
+        }
+    }
+
+    @Benchmark
+    public int batchAndEmit() {
+        RateLimitedBatcher<Update, String> batcher = RateLimitedBatcher.create(
+                tokenBucket,
+                1,
+                MIN_TIME_IN_QUEUE_MS,
+                Update::getResourceId,
+                new LargestPerTimeBucket(MIN_TIME_IN_QUEUE_MS, BUCKET_SIZE_MS, testScheduler),
+                "benchmarkBatcher",
+                new NoopRegistry(),
+                testScheduler
+        );
+        AssertableSubscriber<Batch<Update, String>> subscriber = Observable.from(updates).lift(batcher).test();
+        testScheduler.advanceTimeBy(1, TimeUnit.HOURS);
+        return subscriber.getValueCount();
+    }
+
+    private static class Update implements Batchable<String> {
+
+        private final String resourceId;
+        private final String identifier;
+        private final Instant timestamp;
+
+        private Update(String resourceId, String subResourceId, Instant timestamp) {
+            this.resourceId = resourceId;
+            this.identifier = resourceId + '-' + subResourceId;
+            this.timestamp = timestamp;
+        }
+
+        private String getResourceId() {
+            return resourceId;
+        }
+
+        @Override
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        @Override
+        public Priority getPriority() {
+            return Priority.Low;
+        }
+
+        @Override
+        public Instant getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public boolean isEquivalent(Batchable<?> other) {
+            return other instanceof Update && identifier.equals(((Update) other).identifier);
+        }
+    }
+}
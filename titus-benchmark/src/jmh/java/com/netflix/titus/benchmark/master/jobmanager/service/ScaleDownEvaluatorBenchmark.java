@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.benchmark.master.jobmanager.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.ServiceJobTask;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.master.jobmanager.service.service.ScaleDownEvaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskServiceJobDescriptor;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceTasks;
+
+/**
+ * Measures the selection of tasks to terminate, when a large service job is scaled down to 20% of its size.
+ * Tasks are in Started state, and are spread over three zones, with four tasks per agent on average.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ScaleDownEvaluatorBenchmark {
+
+    private static final String[] ZONES = {"zoneA", "zoneB", "zoneC"};
+
+    private static final int TASKS_PER_AGENT = 4;
+
+    @Param({"1000", "10000", "50000"})
+    private int taskCount;
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.internal();
+
+    private List<ServiceJobTask> tasks;
+    private int expectedSize;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(123);
+        ServiceJobTask template = serviceTasks(serviceJobs(oneTaskServiceJobDescriptor()).getValue()).getValue();
+        int agentCount = Math.max(1, taskCount / TASKS_PER_AGENT);
+
+        this.tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            int agentIdx = random.nextInt(agentCount);
+            tasks.add(template.toBuilder()
+                    .withId("task#" + i)
+                    .withStatus(TaskStatus.newBuilder()
+                            .withState(TaskState.Started)
+                            .withTimestamp(random.nextInt(taskCount))
+                            .build()
+                    )
+                    .addAllToTaskContext(ImmutableMap.of(
+                            TaskAttributes.TASK_ATTRIBUTES_AGENT_ZONE, ZONES[agentIdx % ZONES.length],
+                            TaskAttributes.TASK_ATTRIBUTES_AGENT_INSTANCE_ID, "agent#" + agentIdx
+                    ))
+                    .build()
+            );
+        }
+        this.expectedSize = taskCount / 5;
+    }
+
+    @Benchmark
+    public List<ServiceJobTask> selectTasksToTerminate() {
+        return ScaleDownEvaluator.selectTasksToTerminate(tasks, expectedSize, titusRuntime);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.benchmark.master.jobmanager.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.ServiceJobTask;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.api.jobmanager.store.JobStore;
+import com.netflix.titus.common.framework.reconciler.ChangeAction;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.master.VirtualMachineMasterService;
+import com.netflix.titus.master.jobmanager.service.JobManagerConfiguration;
+import com.netflix.titus.master.jobmanager.service.TaskTimeoutWheel;
+import com.netflix.titus.master.jobmanager.service.event.JobManagerReconcilerEvent;
+import com.netflix.titus.master.jobmanager.service.service.ServiceDifferenceResolver;
+import com.netflix.titus.master.scheduler.SchedulingService;
+import com.netflix.titus.master.scheduler.constraint.ConstraintEvaluatorTransformer;
+import com.netflix.titus.master.scheduler.constraint.SystemHardConstraint;
+import com.netflix.titus.master.scheduler.constraint.SystemSoftConstraint;
+import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskServiceJobDescriptor;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceTasks;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures a single reconciliation pass of {@link ServiceDifferenceResolver} over a service job with all tasks in
+ * the Started state. Before each pass one task status is updated in all three job views, as it happens when
+ * a task status update is processed by the reconciliation engine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ServiceDifferenceResolverBenchmark {
+
+    @Param({"500", "5000"})
+    private int taskCount;
+
+    private ServiceDifferenceResolver resolver;
+    private ReconciliationEngine<JobManagerReconcilerEvent> engine;
+
+    private EntityHolder referenceView;
+    private EntityHolder runningView;
+    private EntityHolder storeView;
+
+    private List<ServiceJobTask> tasks;
+    private long updateCounter;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Job<ServiceJobExt> job = serviceJobs(JobFunctions.changeServiceJobCapacity(oneTaskServiceJobDescriptor(), taskCount)).getValue();
+        ServiceJobTask template = serviceTasks(job).getValue();
+
+        this.tasks = new ArrayList<>(taskCount);
+        EntityHolder jobHolder = EntityHolder.newRoot(job.getId(), job);
+        List<EntityHolder> taskHolders = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            ServiceJobTask task = template.toBuilder()
+                    .withId(job.getId() + "-task#" + i)
+                    .withStatus(TaskStatus.newBuilder().withState(TaskState.Started).withTimestamp(i).build())
+                    .build();
+            tasks.add(task);
+            taskHolders.add(EntityHolder.newRoot(task.getId(), task));
+        }
+        jobHolder = jobHolder.addChildren(taskHolders);
+
+        this.referenceView = jobHolder;
+        this.runningView = jobHolder;
+        this.storeView = jobHolder;
+
+        this.engine = mock(ReconciliationEngine.class);
+        when(engine.getReferenceView()).thenAnswer(invocation -> referenceView);
+        when(engine.getRunningView()).thenAnswer(invocation -> runningView);
+        when(engine.getStoreView()).thenAnswer(invocation -> storeView);
+
+        this.resolver = new ServiceDifferenceResolver(
+                mock(JobManagerConfiguration.class),
+                mock(ApplicationSlaManagementService.class),
+                mock(SchedulingService.class),
+                mock(VirtualMachineMasterService.class),
+                mock(JobStore.class),
+                mock(ConstraintEvaluatorTransformer.class),
+                mock(SystemSoftConstraint.class),
+                mock(SystemHardConstraint.class),
+                mock(TaskTimeoutWheel.class),
+                TitusRuntimes.internal()
+        );
+    }
+
+    @Benchmark
+    public List<ChangeAction> reconcileAfterTaskUpdate() {
+        updateCounter++;
+        ServiceJobTask task = tasks.get((int) (updateCounter % taskCount));
+        ServiceJobTask updated = task.toBuilder()
+                .withStatus(task.getStatus().toBuilder().withTimestamp(updateCounter).build())
+                .build();
+        EntityHolder taskHolder = EntityHolder.newRoot(updated.getId(), updated);
+
+        referenceView = referenceView.addChild(taskHolder);
+        runningView = runningView.addChild(taskHolder);
+        storeView = storeView.addChild(taskHolder);
+
+        return resolver.apply(engine);
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.benchmark.master.scheduler.constraint;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.fenzo.PreferentialNamedConsumableResourceSet;
+import com.netflix.fenzo.TaskAssignmentResult;
+import com.netflix.fenzo.TaskRequest;
+import com.netflix.fenzo.TaskTracker;
+import com.netflix.fenzo.TaskTrackerState;
+import com.netflix.fenzo.VirtualMachineCurrentState;
+import com.netflix.fenzo.VirtualMachineLease;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.model.Tier;
+import com.netflix.titus.benchmark.JobDataSet;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
+import com.netflix.titus.master.scheduler.constraint.ConstraintEvaluatorTransformer;
+import com.netflix.titus.master.scheduler.constraint.SystemHardConstraint;
+import com.netflix.titus.master.scheduler.constraint.SystemSoftConstraint;
+import com.netflix.titus.master.scheduler.constraint.TaskCache;
+import com.netflix.titus.master.scheduler.constraint.V3UniqueHostConstraint;
+import com.netflix.titus.master.scheduler.constraint.V3ZoneBalancedFitnessCalculator;
+import org.apache.mesos.Protos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures the V3 Fenzo constraint and fitness evaluators, which are invoked for each task/agent pair considered
+ * in a scheduling iteration, and the {@link TaskCache} refresh done once per iteration.
+ * Mocks are used only to build the model in the setup phase; the evaluated Fenzo state is backed by plain objects.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ConstraintEvaluatorBenchmark {
+
+    private static final String ZONE_ATTRIBUTE_NAME = "zone";
+    private static final String[] ZONES = {"zoneA", "zoneB", "zoneC"};
+
+    @Param({"1000"})
+    private int jobCount;
+
+    @Param({"10"})
+    private int tasksPerJob;
+
+    @Param({"10", "100"})
+    private int tasksOnAgent;
+
+    private TaskCache taskCache;
+    private V3UniqueHostConstraint uniqueHostConstraint;
+    private V3ZoneBalancedFitnessCalculator zoneBalancedFitnessCalculator;
+
+    private V3QueueableTask candidate;
+    private VirtualMachineCurrentState agentState;
+    private TaskTrackerState taskTrackerState;
+
+    @Setup
+    public void setUp() {
+        JobDataSet dataSet = JobDataSet.batchJobs(jobCount, tasksPerJob);
+
+        List<Pair<Job, List<Task>>> jobsAndTasks = new ArrayList<>();
+        List<V3QueueableTask> queueableTasks = new ArrayList<>();
+        for (Job<?> job : dataSet.getJobs()) {
+            List<Task> tasks = new ArrayList<>();
+            for (Task task : dataSet.getTasks(job.getId())) {
+                Task placedTask = task.toBuilder()
+                        .addToTaskContext(TaskAttributes.TASK_ATTRIBUTES_AGENT_ZONE, ZONES[tasks.size() % ZONES.length])
+                        .build();
+                tasks.add(placedTask);
+                queueableTasks.add(newQueueableTask(job, placedTask));
+            }
+            jobsAndTasks.add(Pair.of(job, tasks));
+        }
+
+        V3JobOperations jobOperations = mock(V3JobOperations.class);
+        when(jobOperations.getJobsAndTasks()).thenReturn(jobsAndTasks);
+
+        this.taskCache = new TaskCache(jobOperations);
+        taskCache.prepare();
+
+        this.uniqueHostConstraint = new V3UniqueHostConstraint();
+        this.zoneBalancedFitnessCalculator = new V3ZoneBalancedFitnessCalculator(taskCache, ZONES.length, ZONE_ATTRIBUTE_NAME);
+
+        // The candidate is the last task, and the agent runs tasks of other jobs, so the unique host constraint
+        // has to check all of them.
+        this.candidate = queueableTasks.get(queueableTasks.size() - 1);
+        List<TaskRequest> runningTasks = new ArrayList<>(queueableTasks.subList(0, Math.min(tasksOnAgent, queueableTasks.size() - tasksPerJob)));
+        this.agentState = new AgentState("agent1", ZONES[0], runningTasks);
+        this.taskTrackerState = new EmptyTaskTrackerState();
+    }
+
+    @Benchmark
+    public boolean uniqueHostConstraint() {
+        return uniqueHostConstraint.evaluate(candidate, agentState, taskTrackerState).isSuccessful();
+    }
+
+    @Benchmark
+    public double zoneBalancedFitness() {
+        return zoneBalancedFitnessCalculator.calculateFitness(candidate, agentState, taskTrackerState);
+    }
+
+    @Benchmark
+    public TaskCache prepareTaskCache() {
+        taskCache.prepare();
+        return taskCache;
+    }
+
+    private static V3QueueableTask newQueueableTask(Job<?> job, Task task) {
+        return new V3QueueableTask(
+                Tier.Flex,
+                "default",
+                job,
+                task,
+                Collections::emptySet,
+                mock(ConstraintEvaluatorTransformer.class),
+                mock(SystemSoftConstraint.class),
+                mock(SystemHardConstraint.class)
+        );
+    }
+
+    private static class AgentState implements VirtualMachineCurrentState {
+
+        private final String hostname;
+        private final VirtualMachineLease lease;
+        private final Collection<TaskRequest> runningTasks;
+
+        private AgentState(String hostname, String zone, Collection<TaskRequest> runningTasks) {
+            this.hostname = hostname;
+            this.lease = new AgentLease(hostname, Collections.singletonMap(
+                    ZONE_ATTRIBUTE_NAME,
+                    Protos.Attribute.newBuilder()
+                            .setName(ZONE_ATTRIBUTE_NAME)
+                            .setType(Protos.Value.Type.TEXT)
+                            .setText(Protos.Value.Text.newBuilder().setValue(zone))
+                            .build()
+            ));
+            this.runningTasks = runningTasks;
+        }
+
+        @Override
+        public String getHostname() {
+            return hostname;
+        }
+
+        @Override
+        public Map<String, PreferentialNamedConsumableResourceSet> getResourceSets() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public VirtualMachineLease getCurrAvailableResources() {
+            return lease;
+        }
+
+        @Override
+        public Collection<Protos.Offer> getAllCurrentOffers() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Collection<TaskAssignmentResult> getTasksCurrentlyAssigned() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Collection<TaskRequest> getRunningTasks() {
+            return runningTasks;
+        }
+
+        @Override
+        public long getDisabledUntil() {
+            return 0;
+        }
+    }
+
+    private static class AgentLease implements VirtualMachineLease {
+
+        private final String hostname;
+        private final Map<String, Protos.Attribute> attributes;
+
+        private AgentLease(String hostname, Map<String, Protos.Attribute> attributes) {
+            this.hostname = hostname;
+            this.attributes = attributes;
+        }
+
+        @Override
+        public String getId() {
+            return hostname + "-lease";
+        }
+
+        @Override
+        public long getOfferedTime() {
+            return 0;
+        }
+
+        @Override
+        public String hostname() {
+            return hostname;
+        }
+
+        @Override
+        public String getVMID() {
+            return hostname;
+        }
+
+        @Override
+        public double cpuCores() {
+            return 16;
+        }
+
+        @Override
+        public double memoryMB() {
+            return 65536;
+        }
+
+        @Override
+        public double networkMbps() {
+            return 10000;
+        }
+
+        @Override
+        public double diskMB() {
+            return 100000;
+        }
+
+        @Override
+        public List<Range> portRanges() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Protos.Offer getOffer() {
+            return null;
+        }
+
+        @Override
+        public Map<String, Protos.Attribute> getAttributeMap() {
+            return attributes;
+        }
+
+        @Override
+        public Double getScalarValue(String name) {
+            return null;
+        }
+
+        @Override
+        public Map<String, Double> getScalarValues() {
+            return Collections.emptyMap();
+        }
+    }
+
+    private static class EmptyTaskTrackerState implements TaskTrackerState {
+
+        @Override
+        public Map<String, TaskTracker.ActiveTask> getAllRunningTasks() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Map<String, TaskTracker.ActiveTask> getAllCurrentlyAssignedTasks() {
+            return Collections.emptyMap();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.benchmark.runtime.connector.jobmanager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.benchmark.JobDataSet;
+import com.netflix.titus.runtime.connector.jobmanager.JobSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the cost of applying a single job or task change to the {@link JobSnapshot} kept by the gateway and
+ * federation job data replicators, which happens on each event received from TitusMaster.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class JobSnapshotBenchmark {
+
+    @Param({"1000", "5000"})
+    private int jobCount;
+
+    @Param({"10"})
+    private int tasksPerJob;
+
+    private JobSnapshot snapshot;
+    private Job<?>[] updatedJobs;
+    private Task[] updatedTasks;
+
+    private int nextJob;
+    private int nextTask;
+
+    @Setup
+    public void setUp() {
+        JobDataSet dataSet = JobDataSet.batchJobs(jobCount, tasksPerJob);
+        this.snapshot = new JobSnapshot(dataSet.getJobsById(), dataSet.getTasksByJobId());
+
+        List<? extends Job<?>> jobs = dataSet.getJobs();
+        this.updatedJobs = new Job<?>[jobs.size()];
+        for (int i = 0; i < jobs.size(); i++) {
+            updatedJobs[i] = JobFunctions.changeJobStatus(jobs.get(i), JobState.Accepted, "benchmark");
+        }
+
+        List<Task> tasks = dataSet.getTasks();
+        this.updatedTasks = new Task[tasks.size()];
+        for (int i = 0; i < tasks.size(); i++) {
+            updatedTasks[i] = JobFunctions.changeTaskStatus(tasks.get(i), TaskState.Started, "benchmark", "benchmark");
+        }
+    }
+
+    @Benchmark
+    public JobSnapshot updateJob() {
+        Job<?> job = updatedJobs[nextJob];
+        nextJob = (nextJob + 1) % updatedJobs.length;
+        return snapshot.updateJob(job).orElse(null);
+    }
+
+    @Benchmark
+    public JobSnapshot updateTask() {
+        Task task = updatedTasks[nextTask];
+        nextTask = (nextTask + 1) % updatedTasks.length;
+        return snapshot.updateTask(task).orElse(null);
+    }
+
+    @Benchmark
+    public boolean findTaskById() {
+        Task task = updatedTasks[nextTask];
+        nextTask = (nextTask + 1) % updatedTasks.length;
+        return snapshot.findTaskById(task.getId()).isPresent();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.benchmark.runtime.endpoint.v3.grpc;
+
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.benchmark.JobDataSet;
+import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
+import com.netflix.titus.runtime.endpoint.v3.grpc.V3GrpcModelConverters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the core to GRPC model conversion (and back), executed for each job/task returned by the query API
+ * and for each event emitted by the observe API.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class V3GrpcModelConvertersBenchmark {
+
+    private Job<?> job;
+    private Task task;
+    private com.netflix.titus.grpc.protogen.Job grpcJob;
+    private com.netflix.titus.grpc.protogen.Task grpcTask;
+
+    @Setup
+    public void setUp() {
+        JobDataSet dataSet = JobDataSet.batchJobs(1, 1);
+        this.job = dataSet.getJobs().get(0);
+        this.task = dataSet.getTasks().get(0);
+        this.grpcJob = V3GrpcModelConverters.toGrpcJob(job);
+        this.grpcTask = V3GrpcModelConverters.toGrpcTask(task, EmptyLogStorageInfo.empty());
+    }
+
+    @Benchmark
+    public com.netflix.titus.grpc.protogen.Job toGrpcJob() {
+        return V3GrpcModelConverters.toGrpcJob(job);
+    }
+
+    @Benchmark
+    public com.netflix.titus.grpc.protogen.Task toGrpcTask() {
+        return V3GrpcModelConverters.toGrpcTask(task, EmptyLogStorageInfo.empty());
+    }
+
+    @Benchmark
+    public Job toCoreJob() {
+        return V3GrpcModelConverters.toCoreJob(grpcJob);
+    }
+
+    @Benchmark
+    public Task toCoreTask() {
+        return V3GrpcModelConverters.toCoreTask(grpcTask);
+    }
+}
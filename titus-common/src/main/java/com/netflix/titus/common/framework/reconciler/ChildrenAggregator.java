@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler;
+
+/**
+ * Aggregate computed over the direct children of an {@link EntityHolder}. Once an aggregate is requested from an entity
+ * holder (see {@link EntityHolder#getChildrenAggregate(ChildrenAggregator)}), it is carried over to all its subsequent
+ * versions, and updated with each child change at the cost of a single {@link #replace} call, instead of
+ * a full scan of the children. As aggregate values are shared between the entity versions, they must be immutable.
+ */
+public interface ChildrenAggregator<A> {
+
+    /**
+     * @return an aggregate value of an entity with no children
+     */
+    A empty();
+
+    /**
+     * @return a new aggregate value with the given child added
+     */
+    A add(A aggregate, EntityHolder child);
+
+    /**
+     * @return a new aggregate value with the given child removed
+     */
+    A remove(A aggregate, EntityHolder child);
+
+    /**
+     * Called when a child is replaced with its new version. Override it to avoid an aggregate update, when a child change
+     * does not affect it.
+     *
+     * @return a new aggregate value with the previous child version replaced by the new one
+     */
+    default A replace(A aggregate, EntityHolder previousChild, EntityHolder newChild) {
+        return add(remove(aggregate, previousChild), newChild);
+    }
+}
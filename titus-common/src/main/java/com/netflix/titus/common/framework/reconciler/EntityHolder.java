@@ -16,7 +16,7 @@
 
 package com.netflix.titus.common.framework.reconciler;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -24,28 +24,46 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import com.netflix.titus.common.util.collections.PersistentLinkedHashMap;
 import com.netflix.titus.common.util.tuple.Pair;
 
 /**
  * Composite entity hierarchy. The parent-child association runs from parent to child only. {@link EntityHolder} instances
  * are immutable, thus each change produces a new version of an entity. Also each child update requires update of a parent
- * entity, when the reference to the child changes (a new version is created).
+ * entity, when the reference to the child changes (a new version is created). Children are kept in a persistent
+ * collection, so a new version shares its child index with the previous one, and a single child update costs
+ * O(log(n)) instead of a full copy. For the same reason, aggregates over children are maintained incrementally
+ * (see {@link ChildrenAggregator}).
  */
 public class EntityHolder {
 
     private final String id;
     private final Object entity;
 
-    private final List<EntityHolder> children;
-    private final Map<String, EntityHolder> childrenById;
+    private final PersistentLinkedHashMap<String, EntityHolder> childrenById;
     private final Map<String, Object> attributes;
 
-    private EntityHolder(String id, Object entity, Map<String, EntityHolder> childrenById, Map<String, Object> attributes) {
+    /**
+     * Children list materialized on first access. Intermediate versions produced during a transaction, which are
+     * never asked for their children, do not pay for the list construction.
+     */
+    private volatile List<EntityHolder> children;
+
+    /**
+     * Children aggregate computed on first access, and next carried over to the subsequent versions of this entity.
+     */
+    private volatile ChildrenAggregate childrenAggregate;
+
+    private EntityHolder(String id,
+                         Object entity,
+                         PersistentLinkedHashMap<String, EntityHolder> childrenById,
+                         Map<String, Object> attributes,
+                         ChildrenAggregate childrenAggregate) {
         this.id = id;
         this.entity = entity;
         this.childrenById = childrenById;
-        this.children = new ArrayList<>(childrenById.values());
         this.attributes = attributes;
+        this.childrenAggregate = childrenAggregate;
     }
 
     public String getId() {
@@ -56,14 +74,42 @@ public class EntityHolder {
         return (E) entity;
     }
 
+    /**
+     * @return immutable list of children in the order they were first added
+     */
     public List<EntityHolder> getChildren() {
-        return children;
+        List<EntityHolder> result = children;
+        if (result == null) {
+            result = childrenById.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(childrenById.values());
+            children = result;
+        }
+        return result;
     }
 
     public Map<String, Object> getAttributes() {
         return attributes;
     }
 
+    /**
+     * Returns an aggregate value over the children of this entity. The first call computes it from all children. Next
+     * versions of this entity created with {@link #addChild(EntityHolder)}, {@link #addChildren(Collection)} or
+     * {@link #removeChild(String)} update it incrementally. Only one aggregator is tracked at a time. Requesting
+     * a different one replaces it.
+     */
+    @SuppressWarnings("unchecked")
+    public <A> A getChildrenAggregate(ChildrenAggregator<A> aggregator) {
+        ChildrenAggregate current = childrenAggregate;
+        if (current != null && current.aggregator == aggregator) {
+            return (A) current.value;
+        }
+        A value = aggregator.empty();
+        for (EntityHolder child : getChildren()) {
+            value = aggregator.add(value, child);
+        }
+        childrenAggregate = new ChildrenAggregate((ChildrenAggregator<Object>) aggregator, value);
+        return value;
+    }
+
     public Optional<EntityHolder> findById(String requestedId) {
         if (this.id.equals(requestedId)) {
             return Optional.of(this);
@@ -72,14 +118,14 @@ public class EntityHolder {
     }
 
     public Optional<EntityHolder> findChildById(String childId) {
-        if (children.isEmpty()) {
+        if (childrenById.isEmpty()) {
             return Optional.empty();
         }
         EntityHolder entityHolder = childrenById.get(childId);
         if (entityHolder != null) {
             return Optional.of(entityHolder);
         }
-        for (EntityHolder child : children) {
+        for (EntityHolder child : getChildren()) {
             Optional<EntityHolder> result = child.findChildById(childId);
             if (result.isPresent()) {
                 return result;
@@ -89,26 +135,47 @@ public class EntityHolder {
     }
 
     public EntityHolder addChild(EntityHolder child) {
-        Map<String, EntityHolder> newChildrenById = new HashMap<>(childrenById);
-        newChildrenById.put(child.getId(), child);
-        return new EntityHolder(id, entity, newChildrenById, attributes);
+        ChildrenAggregate aggregate = childrenAggregate;
+        ChildrenAggregate newAggregate = aggregate == null ? null : aggregate.put(childrenById.get(child.getId()), child);
+        return new EntityHolder(id, entity, childrenById.put(child.getId(), child), attributes, newAggregate);
+    }
+
+    /**
+     * Adds all children at once, producing a single new version of this entity. Use it when building a hierarchy in
+     * bulk (for example when restoring it from a store), to avoid creating an intermediate version per child.
+     */
+    public EntityHolder addChildren(Collection<EntityHolder> newChildren) {
+        if (newChildren.isEmpty()) {
+            return this;
+        }
+        PersistentLinkedHashMap<String, EntityHolder> newChildrenById = childrenById;
+        ChildrenAggregate newAggregate = childrenAggregate;
+        for (EntityHolder child : newChildren) {
+            if (newAggregate != null) {
+                newAggregate = newAggregate.put(newChildrenById.get(child.getId()), child);
+            }
+            newChildrenById = newChildrenById.put(child.getId(), child);
+        }
+        return new EntityHolder(id, entity, newChildrenById, attributes, newAggregate);
     }
 
     public Pair<EntityHolder, Optional<EntityHolder>> removeChild(String id) {
         if (!childrenById.containsKey(id)) {
             return Pair.of(this, Optional.empty());
         }
-        Map<String, EntityHolder> newChildrenById = new HashMap<>(childrenById);
-        EntityHolder removedChild = newChildrenById.remove(id);
+        EntityHolder removedChild = childrenById.get(id);
 
-        EntityHolder newRoot = new EntityHolder(this.id, this.entity, newChildrenById, this.attributes);
+        ChildrenAggregate aggregate = childrenAggregate;
+        ChildrenAggregate newAggregate = aggregate == null ? null : aggregate.remove(removedChild);
+
+        EntityHolder newRoot = new EntityHolder(this.id, this.entity, childrenById.remove(id), this.attributes, newAggregate);
         return Pair.of(newRoot, Optional.of(removedChild));
     }
 
     public EntityHolder addTag(String tagName, Object tagValue) {
         Map<String, Object> newTags = new HashMap<>(attributes);
         newTags.put(tagName, tagValue);
-        return new EntityHolder(id, entity, childrenById, newTags);
+        return new EntityHolder(id, entity, childrenById, newTags, childrenAggregate);
     }
 
     public EntityHolder removeTag(String tagName) {
@@ -117,19 +184,41 @@ public class EntityHolder {
         }
         Map<String, Object> newTags = new HashMap<>(attributes);
         newTags.remove(tagName);
-        return new EntityHolder(id, entity, childrenById, newTags);
+        return new EntityHolder(id, entity, childrenById, newTags, childrenAggregate);
     }
 
     public <E> EntityHolder setEntity(E entity) {
-        return new EntityHolder(id, entity, childrenById, attributes);
+        return new EntityHolder(id, entity, childrenById, attributes, childrenAggregate);
     }
 
     public void visit(Consumer<EntityHolder> visitor) {
         visitor.accept(this);
-        children.forEach(c -> c.visit(visitor));
+        childrenById.forEach((childId, child) -> child.visit(visitor));
     }
 
     public static <E> EntityHolder newRoot(String id, E entity) {
-        return new EntityHolder(id, entity, Collections.emptyMap(), Collections.emptyMap());
+        return new EntityHolder(id, entity, PersistentLinkedHashMap.empty(), Collections.emptyMap(), null);
+    }
+
+    private static class ChildrenAggregate {
+
+        private final ChildrenAggregator<Object> aggregator;
+        private final Object value;
+
+        private ChildrenAggregate(ChildrenAggregator<Object> aggregator, Object value) {
+            this.aggregator = aggregator;
+            this.value = value;
+        }
+
+        private ChildrenAggregate put(EntityHolder previousChild, EntityHolder newChild) {
+            Object newValue = previousChild == null
+                    ? aggregator.add(value, newChild)
+                    : aggregator.replace(value, previousChild, newChild);
+            return newValue == value ? this : new ChildrenAggregate(aggregator, newValue);
+        }
+
+        private ChildrenAggregate remove(EntityHolder removedChild) {
+            return new ChildrenAggregate(aggregator, aggregator.remove(value, removedChild));
+        }
     }
 }
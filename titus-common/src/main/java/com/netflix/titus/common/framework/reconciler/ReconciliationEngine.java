@@ -16,6 +16,7 @@
 
 package com.netflix.titus.common.framework.reconciler;
 
+import java.util.Collection;
 import java.util.List;
 
 import rx.Observable;
@@ -47,6 +48,13 @@ public interface ReconciliationEngine<EVENT> {
      */
     Observable<Void> changeReferenceModel(ChangeAction changeAction, String entityHolderId);
 
+    /**
+     * Change reference entities with the given ids in a single transaction. The change action can be executed in
+     * parallel with change actions for entities not overlapping with any of them. Ids of entities that no longer exist
+     * are ignored, and the change action fails only if none of them is found.
+     */
+    Observable<Void> changeReferenceModel(ChangeAction changeAction, Collection<String> entityHolderIds);
+
     /**
      * Returns immutable reference model.
      */
@@ -73,4 +73,10 @@ public interface ReconciliationFramework<EVENT> {
      * Removes an existing reconciliation engine.
      */
     Completable removeEngine(ReconciliationEngine<EVENT> engine);
+
+    /**
+     * Returns traces of the longest running transactions (queued or in progress) across all engines, ordered by
+     * their age (the oldest first).
+     */
+    List<TransactionTrace> getSlowestInFlightTransactions(int limit);
 }
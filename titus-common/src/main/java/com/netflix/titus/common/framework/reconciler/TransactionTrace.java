@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler;
+
+import java.util.Map;
+
+/**
+ * A snapshot of a change action transaction progress in a {@link ReconciliationEngine}.
+ */
+public class TransactionTrace {
+
+    /**
+     * Transaction lifecycle stages, in the order they are reached.
+     */
+    public enum Stage {
+        /**
+         * Change action added to the engine queue. For reconcile actions this is the same as {@link #Started}.
+         */
+        Enqueued,
+        /**
+         * Change action subscribed to by the engine.
+         */
+        Started,
+        /**
+         * Change action completed, including all its side effects (for example a store update).
+         */
+        StoreCommitted,
+        /**
+         * Model updates emitted by the change action applied to the engine models.
+         */
+        ModelApplied,
+        /**
+         * Change action subscriber notified about the result.
+         */
+        SubscriberCompleted
+    }
+
+    private final String rootHolderId;
+    private final String entityHolderId;
+    private final String transactionId;
+    private final boolean byReconciler;
+    private final Map<String, String> actionTags;
+    private final Stage stage;
+    private final Map<Stage, Long> stageTimestamps;
+    private final boolean blockedByOverlap;
+    private final long ageMs;
+
+    public TransactionTrace(String rootHolderId,
+                            String entityHolderId,
+                            String transactionId,
+                            boolean byReconciler,
+                            Map<String, String> actionTags,
+                            Stage stage,
+                            Map<Stage, Long> stageTimestamps,
+                            boolean blockedByOverlap,
+                            long ageMs) {
+        this.rootHolderId = rootHolderId;
+        this.entityHolderId = entityHolderId;
+        this.transactionId = transactionId;
+        this.byReconciler = byReconciler;
+        this.actionTags = actionTags;
+        this.stage = stage;
+        this.stageTimestamps = stageTimestamps;
+        this.blockedByOverlap = blockedByOverlap;
+        this.ageMs = ageMs;
+    }
+
+    public String getRootHolderId() {
+        return rootHolderId;
+    }
+
+    public String getEntityHolderId() {
+        return entityHolderId;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public boolean isByReconciler() {
+        return byReconciler;
+    }
+
+    /**
+     * @return change action tags (for example action name), as provided by the engine's change action tag resolver
+     */
+    public Map<String, String> getActionTags() {
+        return actionTags;
+    }
+
+    /**
+     * @return the last stage reached by the transaction
+     */
+    public Stage getStage() {
+        return stage;
+    }
+
+    /**
+     * @return wall clock timestamps of all stages reached so far
+     */
+    public Map<Stage, Long> getStageTimestamps() {
+        return stageTimestamps;
+    }
+
+    /**
+     * @return true if the change action start was deferred, as it was overlapping with another change action
+     */
+    public boolean isBlockedByOverlap() {
+        return blockedByOverlap;
+    }
+
+    /**
+     * @return time elapsed since the transaction was enqueued
+     */
+    public long getAgeMs() {
+        return ageMs;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionTrace{" +
+                "rootHolderId='" + rootHolderId + '\'' +
+                ", entityHolderId='" + entityHolderId + '\'' +
+                ", transactionId='" + transactionId + '\'' +
+                ", byReconciler=" + byReconciler +
+                ", actionTags=" + actionTags +
+                ", stage=" + stage +
+                ", stageTimestamps=" + stageTimestamps +
+                ", blockedByOverlap=" + blockedByOverlap +
+                ", ageMs=" + ageMs +
+                '}';
+    }
+}
@@ -16,27 +16,28 @@
 
 package com.netflix.titus.common.framework.reconciler.internal;
 
+import java.util.List;
+
 import com.netflix.titus.common.framework.reconciler.ChangeAction;
+import com.netflix.titus.common.framework.reconciler.TransactionTrace.Stage;
 import rx.Subscriber;
 
 final class ChangeActionHolder {
 
-    private final String entityHolderId;
+    private final List<String> entityHolderIds;
     private final ChangeAction changeAction;
     private final Subscriber subscriber;
-    private final String transactionId;
-    private final long createTimestamp;
+    private final InFlightTransaction inFlightTransaction;
 
-    ChangeActionHolder(String entityHolderId, ChangeAction changeAction, Subscriber subscriber, String transactionId, long createTimestamp) {
-        this.entityHolderId = entityHolderId;
+    ChangeActionHolder(List<String> entityHolderIds, ChangeAction changeAction, Subscriber subscriber, InFlightTransaction inFlightTransaction) {
+        this.entityHolderIds = entityHolderIds;
         this.changeAction = changeAction;
         this.subscriber = subscriber;
-        this.transactionId = transactionId;
-        this.createTimestamp = createTimestamp;
+        this.inFlightTransaction = inFlightTransaction;
     }
 
-    public String getEntityHolderId() {
-        return entityHolderId;
+    public List<String> getEntityHolderIds() {
+        return entityHolderIds;
     }
 
     ChangeAction getChangeAction() {
@@ -48,10 +49,14 @@ final class ChangeActionHolder {
     }
 
     String getTransactionId() {
-        return transactionId;
+        return inFlightTransaction.getTransactionId();
     }
 
     long getCreateTimestamp() {
-        return createTimestamp;
+        return inFlightTransaction.getStageTimestamp(Stage.Enqueued);
+    }
+
+    InFlightTransaction getInFlightTransaction() {
+        return inFlightTransaction;
     }
 }
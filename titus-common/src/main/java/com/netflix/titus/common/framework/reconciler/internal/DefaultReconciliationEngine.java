@@ -17,11 +17,15 @@
 package com.netflix.titus.common.framework.reconciler.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
@@ -30,6 +34,8 @@ import com.netflix.spectator.api.Tag;
 import com.netflix.titus.common.framework.reconciler.ChangeAction;
 import com.netflix.titus.common.framework.reconciler.EntityHolder;
 import com.netflix.titus.common.framework.reconciler.ReconcileEventFactory;
+import com.netflix.titus.common.framework.reconciler.TransactionTrace;
+import com.netflix.titus.common.framework.reconciler.TransactionTrace.Stage;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.rx.ObservableExt;
 import com.netflix.titus.common.util.time.Clock;
@@ -52,6 +58,8 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
 
     private final BlockingQueue<EVENT> changeActionEventQueue = new LinkedBlockingQueue<>();
     private final BlockingQueue<ChangeActionHolder> referenceChangeActions = new LinkedBlockingQueue<>();
+    private final ConcurrentMap<String, InFlightTransaction> inFlightTransactions = new ConcurrentHashMap<>();
+    private final Function<ChangeAction, List<Tag>> extraChangeActionTags;
     private final ReconciliationEngineMetrics<EVENT> metrics;
     private final TitusRuntime titusRuntime;
     private final Clock clock;
@@ -81,6 +89,7 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
         this.eventObservable = ObservableExt.protectFromMissingExceptionHandlers(eventSubject, logger);
         this.modelHolder = new ModelHolder(bootstrapModel, bootstrapModel, bootstrapModel);
         this.firstTrigger = newlyCreated;
+        this.extraChangeActionTags = extraChangeActionTags;
         this.metrics = new ReconciliationEngineMetrics<>(bootstrapModel.getId(), extraChangeActionTags, extraModelActionTags, titusRuntime.getRegistry(), clock);
         indexEntityHolder(bootstrapModel);
     }
@@ -167,14 +176,33 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
 
     @Override
     public Observable<Void> changeReferenceModel(ChangeAction referenceUpdate, String entityHolderId) {
+        return changeReferenceModel(referenceUpdate, Collections.singletonList(entityHolderId));
+    }
+
+    @Override
+    public Observable<Void> changeReferenceModel(ChangeAction referenceUpdate, Collection<String> entityHolderIds) {
+        List<String> entityHolderIdList = new ArrayList<>(entityHolderIds);
         return Observable.unsafeCreate(subscriber -> {
             String transactionId = Long.toString(nextTransactionId.getAndIncrement());
+            InFlightTransaction inFlightTransaction = newInFlightTransaction(
+                    String.join(",", entityHolderIdList), transactionId, referenceUpdate, false, clock.wallTime()
+            );
             changeActionEventQueue.add(eventFactory.newBeforeChangeEvent(this, referenceUpdate, transactionId));
-            referenceChangeActions.add(new ChangeActionHolder(entityHolderId, referenceUpdate, subscriber, transactionId, clock.wallTime()));
+            referenceChangeActions.add(new ChangeActionHolder(entityHolderIdList, referenceUpdate, subscriber, inFlightTransaction));
             metrics.updateChangeActionQueueSize(referenceChangeActions.size());
         });
     }
 
+    @Override
+    public List<TransactionTrace> getInFlightTransactions() {
+        long now = clock.wallTime();
+        List<TransactionTrace> result = new ArrayList<>(inFlightTransactions.size());
+        inFlightTransactions.values().forEach(transaction ->
+                result.add(transaction.toTrace(extraChangeActionTags.apply(transaction.getChangeAction()), now))
+        );
+        return result;
+    }
+
     @Override
     public EntityHolder getReferenceView() {
         return modelHolder.getReference();
@@ -202,6 +230,7 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
 
     void shutdown() {
         pendingTransaction.close();
+        inFlightTransactions.clear();
         eventSubject.onCompleted();
         metrics.shutdown();
     }
@@ -222,6 +251,16 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
         return titusRuntime;
     }
 
+    void transactionFinished(InFlightTransaction transaction, boolean failed) {
+        transaction.advance(Stage.SubscriberCompleted, clock.wallTime());
+        inFlightTransactions.remove(transaction.getTransactionId());
+        metrics.transactionFinished(transaction, failed);
+    }
+
+    void transactionClosed(InFlightTransaction transaction) {
+        inFlightTransactions.remove(transaction.getTransactionId());
+    }
+
     private boolean startNextReferenceChangeAction() {
         try {
             ChangeActionHolder actionHolder;
@@ -232,28 +271,31 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
                 Subscriber<Void> subscriber = actionHolder.getSubscriber();
                 if (subscriber.isUnsubscribed()) {
                     referenceChangeActions.poll();
+                    transactionClosed(actionHolder.getInFlightTransaction());
                     continue;
                 }
 
-                // Emit errors if the change point (EntityHolder for the action) not found
-                Optional<EntityHolder> changePointOpt = modelHolder.getReference().findById(actionHolder.getEntityHolderId());
-                if (!changePointOpt.isPresent()) {
+                // Emit errors if none of the change points (EntityHolders for the action) is found
+                List<EntityHolder> actionChangePoints = findChangePoints(actionHolder.getEntityHolderIds());
+                if (actionChangePoints.isEmpty()) {
                     referenceChangeActions.poll();
-                    transactions.add(new FailedTransaction<>(this, actionHolder, new IllegalStateException("Entity holder not found: id=" + actionHolder.getEntityHolderId())));
+                    transactions.add(new FailedTransaction<>(this, actionHolder, new IllegalStateException(
+                            "Entity holder not found: id=" + String.join(",", actionHolder.getEntityHolderIds())
+                    )));
                     continue;
                 }
 
                 // Check if the current item overlaps with the already taken actions
-                EntityHolder changePoint = changePointOpt.get();
-                if (!changePoints.isEmpty() && isOverlapping(changePoint, changePoints)) {
+                if (!changePoints.isEmpty() && isOverlapping(actionChangePoints, changePoints)) {
+                    actionHolder.getInFlightTransaction().markBlockedByOverlap();
                     break;
                 }
 
                 // Create transaction
-                changePoints.add(changePoint);
+                changePoints.addAll(actionChangePoints);
                 Transaction transaction;
                 try {
-                    transaction = new SingleTransaction<>(this, actionHolder.getChangeAction(), actionHolder.getCreateTimestamp(), Optional.of(actionHolder.getSubscriber()), actionHolder.getTransactionId(), false);
+                    transaction = new SingleTransaction<>(this, actionHolder.getInFlightTransaction(), Optional.of(actionHolder.getSubscriber()));
                 } catch (Exception e) {
                     transaction = new FailedTransaction<>(this, actionHolder, e);
                 }
@@ -272,6 +314,23 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
         }
     }
 
+    private List<EntityHolder> findChangePoints(List<String> entityHolderIds) {
+        List<EntityHolder> changePoints = new ArrayList<>(entityHolderIds.size());
+        for (String entityHolderId : entityHolderIds) {
+            modelHolder.getReference().findById(entityHolderId).ifPresent(changePoints::add);
+        }
+        return changePoints;
+    }
+
+    private boolean isOverlapping(List<EntityHolder> actionChangePoints, List<EntityHolder> changePoints) {
+        for (EntityHolder changePoint : actionChangePoints) {
+            if (isOverlapping(changePoint, changePoints)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean isOverlapping(EntityHolder changePoint, List<EntityHolder> changePoints) {
         for (EntityHolder next : changePoints) {
             if (next.findById(changePoint.getId()).isPresent()) {
@@ -298,12 +357,21 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
 
             emitEvent(eventFactory.newBeforeChangeEvent(this, changeAction, compositeTransactionId));
 
-            transactions.add(new SingleTransaction<>(this, changeAction, now, Optional.empty(), compositeTransactionId, true));
+            InFlightTransaction inFlightTransaction = newInFlightTransaction(modelHolder.getReference().getId(), compositeTransactionId, changeAction, true, now);
+            transactions.add(new SingleTransaction<>(this, inFlightTransaction, Optional.empty()));
         }
 
         pendingTransaction = transactions.size() == 1 ? transactions.get(0) : new CompositeTransaction(transactions);
     }
 
+    private InFlightTransaction newInFlightTransaction(String entityHolderId, String transactionId, ChangeAction changeAction, boolean byReconciler, long now) {
+        InFlightTransaction inFlightTransaction = new InFlightTransaction(
+                modelHolder.getReference().getId(), entityHolderId, transactionId, changeAction, byReconciler, now
+        );
+        inFlightTransactions.put(transactionId, inFlightTransaction);
+        return inFlightTransaction;
+    }
+
     private void indexEntityHolder(EntityHolder entityHolder) {
         indexSet = indexSet.apply(entityHolder.getChildren());
     }
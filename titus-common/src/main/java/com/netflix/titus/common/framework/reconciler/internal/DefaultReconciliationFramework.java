@@ -43,6 +43,7 @@ import com.netflix.spectator.api.patterns.PolledMeter;
 import com.netflix.titus.common.framework.reconciler.EntityHolder;
 import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
 import com.netflix.titus.common.framework.reconciler.ReconciliationFramework;
+import com.netflix.titus.common.framework.reconciler.TransactionTrace;
 import com.netflix.titus.common.util.ExceptionExt;
 import com.netflix.titus.common.util.rx.ObservableExt;
 import com.netflix.titus.common.util.tuple.Pair;
@@ -209,6 +210,16 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
         }).toCompletable();
     }
 
+    @Override
+    public List<TransactionTrace> getSlowestInFlightTransactions(int limit) {
+        List<TransactionTrace> all = new ArrayList<>();
+        engines.forEach(engine -> all.addAll(engine.getInFlightTransactions()));
+        return all.stream()
+                .sorted(Comparator.comparingLong(TransactionTrace::getAgeMs).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public Observable<EVENT> events() {
         return ObservableExt.protectFromMissingExceptionHandlers(eventsObservable, logger);
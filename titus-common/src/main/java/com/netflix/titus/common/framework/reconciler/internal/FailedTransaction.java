@@ -42,6 +42,7 @@ class FailedTransaction<EVENT> implements Transaction {
     public void close() {
         changeActionHolder.getSubscriber().unsubscribe();
         this.transactionStep = TransactionStep.SubscribersCompleted;
+        engine.transactionClosed(changeActionHolder.getInFlightTransaction());
     }
 
     @Override
@@ -72,6 +73,7 @@ class FailedTransaction<EVENT> implements Transaction {
             this.transactionStep = TransactionStep.SubscribersCompleted;
 
             changeActionHolder.getSubscriber().onError(error);
+            engine.transactionFinished(changeActionHolder.getInFlightTransaction(), true);
             return true;
         }
         return false;
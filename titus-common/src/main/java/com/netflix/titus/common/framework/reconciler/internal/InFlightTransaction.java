@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler.internal;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.netflix.spectator.api.Tag;
+import com.netflix.titus.common.framework.reconciler.ChangeAction;
+import com.netflix.titus.common.framework.reconciler.TransactionTrace;
+import com.netflix.titus.common.framework.reconciler.TransactionTrace.Stage;
+
+/**
+ * Records timestamps of a change action transaction lifecycle stages. Stages may be reached on different threads
+ * (a change action completes on its own scheduler), so all state is safely published.
+ */
+final class InFlightTransaction {
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final String rootHolderId;
+    private final String entityHolderId;
+    private final String transactionId;
+    private final ChangeAction changeAction;
+    private final boolean byReconciler;
+
+    private final AtomicLongArray stageTimestamps = new AtomicLongArray(STAGES.length);
+
+    private volatile Stage stage;
+    private volatile boolean blockedByOverlap;
+
+    InFlightTransaction(String rootHolderId,
+                        String entityHolderId,
+                        String transactionId,
+                        ChangeAction changeAction,
+                        boolean byReconciler,
+                        long enqueueTimestamp) {
+        this.rootHolderId = rootHolderId;
+        this.entityHolderId = entityHolderId;
+        this.transactionId = transactionId;
+        this.changeAction = changeAction;
+        this.byReconciler = byReconciler;
+        for (int i = 0; i < STAGES.length; i++) {
+            stageTimestamps.set(i, -1);
+        }
+        advance(Stage.Enqueued, enqueueTimestamp);
+    }
+
+    String getTransactionId() {
+        return transactionId;
+    }
+
+    ChangeAction getChangeAction() {
+        return changeAction;
+    }
+
+    boolean isByReconciler() {
+        return byReconciler;
+    }
+
+    boolean isBlockedByOverlap() {
+        return blockedByOverlap;
+    }
+
+    void markBlockedByOverlap() {
+        this.blockedByOverlap = true;
+    }
+
+    void advance(Stage stage, long timestamp) {
+        stageTimestamps.set(stage.ordinal(), timestamp);
+        this.stage = stage;
+    }
+
+    /**
+     * @return stage timestamp or -1, if the stage was not reached
+     */
+    long getStageTimestamp(Stage stage) {
+        return stageTimestamps.get(stage.ordinal());
+    }
+
+    TransactionTrace toTrace(List<Tag> actionTags, long now) {
+        Map<String, String> tags = new HashMap<>();
+        actionTags.forEach(tag -> tags.put(tag.key(), tag.value()));
+
+        Map<Stage, Long> timestamps = new EnumMap<>(Stage.class);
+        for (Stage next : STAGES) {
+            long timestamp = getStageTimestamp(next);
+            if (timestamp >= 0) {
+                timestamps.put(next, timestamp);
+            }
+        }
+        return new TransactionTrace(
+                rootHolderId,
+                entityHolderId,
+                transactionId,
+                byReconciler,
+                tags,
+                stage,
+                timestamps,
+                blockedByOverlap,
+                now - getStageTimestamp(Stage.Enqueued)
+        );
+    }
+}
@@ -16,7 +16,10 @@
 
 package com.netflix.titus.common.framework.reconciler.internal;
 
+import java.util.List;
+
 import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
+import com.netflix.titus.common.framework.reconciler.TransactionTrace;
 
 public interface InternalReconciliationEngine<EVENT>  extends ReconciliationEngine<EVENT> {
 
@@ -49,5 +52,9 @@ public interface InternalReconciliationEngine<EVENT>  extends ReconciliationEngi
      */
     boolean triggerActions();
 
+    /**
+     * @return traces of all transactions that are queued or running, including reconcile actions
+     */
+    List<TransactionTrace> getInFlightTransactions();
 
 }
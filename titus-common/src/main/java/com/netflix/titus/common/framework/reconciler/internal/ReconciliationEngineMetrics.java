@@ -27,8 +27,10 @@ import com.netflix.spectator.api.Gauge;
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spectator.api.Tag;
+import com.netflix.spectator.api.histogram.PercentileTimer;
 import com.netflix.spectator.api.patterns.PolledMeter;
 import com.netflix.titus.common.framework.reconciler.ChangeAction;
+import com.netflix.titus.common.framework.reconciler.TransactionTrace.Stage;
 import com.netflix.titus.common.util.time.Clock;
 
 class ReconciliationEngineMetrics<EVENT> {
@@ -40,6 +42,11 @@ class ReconciliationEngineMetrics<EVENT> {
     private static final String FINISHED_CHANGE_ACTIONS = ROOT_NAME + "finishedChangeActions";
     private static final String EMITTED_EVENTS = ROOT_NAME + "emittedEvents";
 
+    /**
+     * Transaction stage latencies are aggregated across all engines, to keep the number of percentile timers bounded.
+     */
+    private static final String TRANSACTION_STAGE_LATENCY = "titus.reconciliation.transaction.stageLatency";
+
     private final Function<ChangeAction, List<Tag>> extraChangeActionTags;
     private final Function<EVENT, List<Tag>> extraModelActionTags;
     private final Registry registry;
@@ -49,6 +56,7 @@ class ReconciliationEngineMetrics<EVENT> {
     private final Id startedChangeActionsId;
     private final Id finishedChangeActionId;
     private final Id emittedEventId;
+    private final Id transactionStageLatencyId;
 
     private final AtomicLong pendingChangeActions = new AtomicLong();
     private final Gauge changeActionQueueSize;
@@ -68,6 +76,7 @@ class ReconciliationEngineMetrics<EVENT> {
         this.startedChangeActionsId = registry.createId(STARTED_CHANGE_ACTIONS, commonTags);
         this.finishedChangeActionId = registry.createId(FINISHED_CHANGE_ACTIONS, commonTags);
         this.emittedEventId = registry.createId(EMITTED_EVENTS, commonTags);
+        this.transactionStageLatencyId = registry.createId(TRANSACTION_STAGE_LATENCY);
 
         this.changeActionQueueSize = registry.gauge(registry.createId(ROOT_NAME + "changeActionQueueSize", commonTags));
         PolledMeter.using(registry).withName(PENDING_CHANGE_ACTIONS).withTags(commonTags).monitorValue(pendingChangeActions);
@@ -131,6 +140,30 @@ class ReconciliationEngineMetrics<EVENT> {
         ).record(latencyNs, TimeUnit.NANOSECONDS);
     }
 
+    void transactionFinished(InFlightTransaction transaction, boolean failed) {
+        Id baseId = transactionStageLatencyId
+                .withTags(extraChangeActionTags.apply(transaction.getChangeAction()))
+                .withTag("actionType", toActionType(transaction.isByReconciler()))
+                .withTag("status", failed ? "error" : "success");
+
+        recordStageLatency(
+                baseId.withTag("blockedByOverlap", Boolean.toString(transaction.isBlockedByOverlap())),
+                "queueWait", transaction, Stage.Enqueued, Stage.Started
+        );
+        recordStageLatency(baseId, "execution", transaction, Stage.Started, Stage.StoreCommitted);
+        recordStageLatency(baseId, "modelUpdateWait", transaction, Stage.StoreCommitted, Stage.ModelApplied);
+        recordStageLatency(baseId, "completion", transaction, Stage.ModelApplied, Stage.SubscriberCompleted);
+        recordStageLatency(baseId, "total", transaction, Stage.Enqueued, Stage.SubscriberCompleted);
+    }
+
+    private void recordStageLatency(Id baseId, String stageName, InFlightTransaction transaction, Stage from, Stage to) {
+        long fromTimestamp = transaction.getStageTimestamp(from);
+        long toTimestamp = transaction.getStageTimestamp(to);
+        if (fromTimestamp >= 0 && toTimestamp >= fromTimestamp) {
+            PercentileTimer.get(registry, baseId.withTag("stage", stageName)).record(toTimestamp - fromTimestamp, TimeUnit.MILLISECONDS);
+        }
+    }
+
     private void changeActionFinished(ChangeAction actionHolder, long executionTimeNs, boolean isUnsubscribe, boolean byReconciler) {
         pendingChangeActions.decrementAndGet();
         registry.timer(finishedChangeActionId
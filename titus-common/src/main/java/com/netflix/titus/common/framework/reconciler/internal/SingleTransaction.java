@@ -27,6 +27,7 @@ import com.netflix.titus.common.framework.reconciler.ChangeAction;
 import com.netflix.titus.common.framework.reconciler.EntityHolder;
 import com.netflix.titus.common.framework.reconciler.ModelActionHolder;
 import com.netflix.titus.common.framework.reconciler.ReconcileEventFactory;
+import com.netflix.titus.common.framework.reconciler.TransactionTrace.Stage;
 import com.netflix.titus.common.util.time.Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,6 +58,7 @@ class SingleTransaction<EVENT> implements Transaction {
     private final Clock clock;
 
     private final ChangeAction changeAction;
+    private final InFlightTransaction inFlightTransaction;
     private final Optional<Subscriber<Void>> changeActionSubscriber;
     private final String transactionId;
     private final long changeActionWaitTimeMs;
@@ -72,21 +74,24 @@ class SingleTransaction<EVENT> implements Transaction {
     private final List<EVENT> modelEventQueue = new ArrayList<>();
 
     SingleTransaction(DefaultReconciliationEngine<EVENT> engine,
-                      ChangeAction changeAction,
-                      long changeActionCreateTimestamp,
-                      Optional<Subscriber<Void>> changeActionSubscriber,
-                      String transactionId,
-                      boolean byReconciler) {
+                      InFlightTransaction inFlightTransaction,
+                      Optional<Subscriber<Void>> changeActionSubscriber) {
         this.engine = engine;
         this.eventFactory = engine.getEventFactory();
         this.eventSubject = engine.getEventSubject();
         this.metrics = engine.getMetrics();
         this.clock = engine.getTitusRuntime().getClock();
 
-        this.changeAction = changeAction;
+        this.changeAction = inFlightTransaction.getChangeAction();
+        this.inFlightTransaction = inFlightTransaction;
         this.changeActionSubscriber = changeActionSubscriber;
-        this.transactionId = transactionId;
-        this.changeActionWaitTimeMs = clock.wallTime() - changeActionCreateTimestamp;
+        this.transactionId = inFlightTransaction.getTransactionId();
+
+        boolean byReconciler = inFlightTransaction.isByReconciler();
+        long changeActionCreateTimestamp = inFlightTransaction.getStageTimestamp(Stage.Enqueued);
+        long startTimestamp = clock.wallTime();
+        this.changeActionWaitTimeMs = startTimestamp - changeActionCreateTimestamp;
+        inFlightTransaction.advance(Stage.Started, startTimestamp);
 
         long startTimeNs = clock.nanoTime();
         metrics.changeActionStarted(changeAction, changeActionCreateTimestamp, byReconciler);
@@ -123,6 +128,7 @@ class SingleTransaction<EVENT> implements Transaction {
                                 this.modelActionHolders = Collections.emptyList();
                             }
                             this.changeActionExecutionTimeMs = passedMs(startTimeNs);
+                            inFlightTransaction.advance(Stage.StoreCommitted, clock.wallTime());
                             this.transactionStep = TransactionStep.ChangeActionCompleted;
                         }
                 );
@@ -134,6 +140,7 @@ class SingleTransaction<EVENT> implements Transaction {
     public void close() {
         this.changeActionSubscription.unsubscribe();
         this.transactionStep = TransactionStep.SubscribersCompleted;
+        engine.transactionClosed(inFlightTransaction);
     }
 
     @Override
@@ -148,6 +155,7 @@ class SingleTransaction<EVENT> implements Transaction {
         }
 
         this.transactionStep = TransactionStep.ModelsUpdated;
+        inFlightTransaction.advance(Stage.ModelApplied, clock.wallTime());
         if (modelActionHolders.isEmpty()) {
             return Optional.empty();
         }
@@ -200,13 +208,16 @@ class SingleTransaction<EVENT> implements Transaction {
         if (transactionStep == TransactionStep.EventsEmitted) {
             changeActionSubscriber.ifPresent(Observer::onCompleted);
             this.transactionStep = TransactionStep.SubscribersCompleted;
+            engine.transactionFinished(inFlightTransaction, false);
             return true;
         } else if (transactionStep == TransactionStep.ErrorEventsEmitted) {
             changeActionSubscriber.ifPresent(subscriber -> subscriber.onError(changeActionError));
             this.transactionStep = TransactionStep.SubscribersCompleted;
+            engine.transactionFinished(inFlightTransaction, true);
             return true;
         } else if (transactionStep == TransactionStep.ChangeActionUnsubscribed) {
             this.transactionStep = TransactionStep.SubscribersCompleted;
+            engine.transactionClosed(inFlightTransaction);
             return true;
         }
         return false;
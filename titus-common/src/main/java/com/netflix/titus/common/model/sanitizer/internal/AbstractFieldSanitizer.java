@@ -17,32 +17,62 @@
 package com.netflix.titus.common.model.sanitizer.internal;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 
 /**
+ * Base class for sanitizers walking entity fields. For each entity type a sanitization plan is computed once, which
+ * contains only the fields that a sanitizer may change. Types with an empty plan are skipped without reading any field.
  */
 abstract class AbstractFieldSanitizer<CONTEXT> implements Function<Object, Optional<Object>> {
 
     static final Object NOTHING = new Object();
 
+    private static final int[] EMPTY_PLAN = new int[0];
+
+    private final ConcurrentMap<Class<?>, int[]> sanitizationPlans = new ConcurrentHashMap<>();
+
     protected Optional<Object> apply(Object entity, CONTEXT context) {
         JavaBeanReflection javaBeanRefl = JavaBeanReflection.forType(entity.getClass());
+        int[] plan = sanitizationPlans.computeIfAbsent(entity.getClass(), type -> buildPlan(javaBeanRefl));
+        if (plan.length == 0) {
+            return Optional.empty();
+        }
 
-        Map<Field, Object> fixedValues = new HashMap<>();
-        javaBeanRefl.getFields().forEach(field -> {
-            Object fieldValue = javaBeanRefl.getFieldValue(entity, field);
-            sanitizeFieldValue(field, fieldValue, context).ifPresent(newValue -> fixedValues.put(field, newValue));
-        });
+        List<Field> fields = javaBeanRefl.getFields();
+        Object[] fixedValues = null;
+        for (int index : plan) {
+            Object fieldValue = javaBeanRefl.getFieldValue(entity, index);
+            Optional<Object> newValue = sanitizeFieldValue(fields.get(index), fieldValue, context);
+            if (newValue.isPresent()) {
+                if (fixedValues == null) {
+                    fixedValues = new Object[fields.size()];
+                }
+                fixedValues[index] = newValue.get();
+            }
+        }
 
-        if (fixedValues.isEmpty()) {
+        if (fixedValues == null) {
             return Optional.empty();
         }
 
         return Optional.of(javaBeanRefl.create(entity, fixedValues));
     }
 
+    private int[] buildPlan(JavaBeanReflection javaBeanRefl) {
+        List<Field> fields = javaBeanRefl.getFields();
+        int[] plan = fields.stream().filter(this::isSanitizable).mapToInt(fields::indexOf).toArray();
+        return plan.length == 0 ? EMPTY_PLAN : plan;
+    }
+
+    /**
+     * Returns false if {@link #sanitizeFieldValue(Field, Object, Object)} never changes a value of the given field, irrespective
+     * of its value. Such fields are excluded from the sanitization plan.
+     */
+    protected abstract boolean isSanitizable(Field field);
+
     protected abstract Optional<Object> sanitizeFieldValue(Field field, Object value, CONTEXT context);
 }
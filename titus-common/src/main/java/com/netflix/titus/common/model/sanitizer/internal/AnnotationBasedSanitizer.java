@@ -28,7 +28,6 @@ import com.netflix.titus.common.util.ReflectionExt;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
 
 import static com.netflix.titus.common.util.ReflectionExt.isNumeric;
 import static java.lang.String.format;
@@ -41,7 +40,7 @@ public class AnnotationBasedSanitizer extends AbstractFieldSanitizer<Object> {
 
     private final static ConcurrentMap<Field, SanitizerInfo> FIELD_SANITIZER_INFOS = new ConcurrentHashMap<>();
 
-    private final ExpressionParser parser = new SpelExpressionParser();
+    private final ExpressionParser parser = SpELParsers.newCompilingParser();
     private final EvaluationContext spelContext;
     private final Function<Class<?>, Boolean> innerEntityPredicate;
 
@@ -56,6 +55,15 @@ public class AnnotationBasedSanitizer extends AbstractFieldSanitizer<Object> {
         return apply(entity, NOTHING);
     }
 
+    @Override
+    protected boolean isSanitizable(Field field) {
+        if (getSanitizerInfo(field) != EMPTY_SANITIZER_INFO) {
+            return true;
+        }
+        Class<?> fieldType = field.getType();
+        return !(ReflectionExt.isStandardDataType(fieldType) || fieldType.isEnum() || ReflectionExt.isContainerType(field));
+    }
+
     @Override
     protected Optional<Object> sanitizeFieldValue(Field field, Object value, Object context) {
         // If has annotation, sanitize
@@ -23,6 +23,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import javax.validation.ConstraintValidator;
@@ -54,6 +56,10 @@ public class DefaultEntitySanitizer implements EntitySanitizer {
                                   Map<String, Object> registeredBeans,
                                   Function<Class<?>, Optional<ConstraintValidator<?, ?>>> applicationValidatorFactory) {
 
+        // The includes predicate is a chain of user supplied conditions evaluated for each nested value, so we memoize it
+        ConcurrentMap<Class<?>, Boolean> includesCache = new ConcurrentHashMap<>();
+        Function<Class<?>, Boolean> cachedIncludesPredicate = type -> includesCache.computeIfAbsent(type, includesPredicate);
+
         Supplier<EvaluationContext> spelContextFactory = () -> {
             StandardEvaluationContext context = new StandardEvaluationContext();
             registeredFunctions.forEach(context::registerFunction);
@@ -70,12 +76,12 @@ public class DefaultEntitySanitizer implements EntitySanitizer {
 
         List<Function<Object, Optional<Object>>> allSanitizers = new ArrayList<>();
         if (annotationSanitizersEnabled) {
-            allSanitizers.add(new AnnotationBasedSanitizer(spelContextFactory.get(), includesPredicate));
+            allSanitizers.add(new AnnotationBasedSanitizer(spelContextFactory.get(), cachedIncludesPredicate));
         }
         if (stdValueSanitizersEnabled) {
-            allSanitizers.add(new StdValueSanitizer(includesPredicate));
+            allSanitizers.add(new StdValueSanitizer(cachedIncludesPredicate));
         }
-        allSanitizers.add(new TemplateSanitizer(templateResolver, includesPredicate));
+        allSanitizers.add(new TemplateSanitizer(templateResolver, cachedIncludesPredicate));
         allSanitizers.addAll(sanitizers);
         this.sanitizers = allSanitizers;
     }
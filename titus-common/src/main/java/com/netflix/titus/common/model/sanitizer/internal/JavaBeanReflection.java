@@ -16,10 +16,13 @@
 
 package com.netflix.titus.common.model.sanitizer.internal;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -33,12 +36,20 @@ import static com.netflix.titus.common.util.ReflectionExt.getAllFields;
 import static java.lang.String.format;
 import static java.util.Arrays.stream;
 
+/**
+ * Reflective view of an immutable, constructor initialized entity. Field getters and the constructor are resolved
+ * once into method handles, so per entity access does not go through the reflection API.
+ */
 class JavaBeanReflection {
 
     private static final ConcurrentMap<Class<?>, JavaBeanReflection> CACHE = new ConcurrentHashMap<>();
 
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
     private final Constructor<?> constructor;
     private final List<Field> fields;
+    private final MethodHandle constructorHandle;
+    private final MethodHandle[] getters;
 
     JavaBeanReflection(Class<?> entityType) {
         Preconditions.checkArgument(entityType.getConstructors().length == 1, "Expected single constructor in class %s", entityType);
@@ -54,22 +65,44 @@ class JavaBeanReflection {
                     return field;
                 })
                 .collect(Collectors.toList());
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        int argCount = fields.size();
+        try {
+            this.constructorHandle = lookup.unreflectConstructor(constructor)
+                    .asType(MethodType.genericMethodType(argCount))
+                    .asSpreader(Object[].class, argCount);
+            this.getters = new MethodHandle[argCount];
+            for (int i = 0; i < argCount; i++) {
+                getters[i] = lookup.unreflectGetter(fields.get(i)).asType(GETTER_TYPE);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(format("Cannot build accessors for class %s", entityType), e);
+        }
     }
 
     Object create(Object entity, Map<Field, Object> overrides) {
-        List<Object> newValues = new ArrayList<>();
-        for (Field field : fields) {
-            Object newValue = overrides.get(field);
-            if (newValue != null) {
-                newValues.add(newValue);
-            } else {
-                newValues.add(getFieldValue(entity, field));
+        Object[] newValues = new Object[fields.size()];
+        for (int i = 0; i < newValues.length; i++) {
+            newValues[i] = overrides.get(fields.get(i));
+        }
+        return create(entity, newValues);
+    }
+
+    /**
+     * Creates a copy of the given entity, with field values replaced by non-null elements of the overrides array.
+     * The array is indexed in the {@link #getFields()} order, and is reused to hold the constructor arguments.
+     */
+    Object create(Object entity, Object[] overrides) {
+        for (int i = 0; i < overrides.length; i++) {
+            if (overrides[i] == null) {
+                overrides[i] = getFieldValue(entity, i);
             }
         }
         try {
-            return constructor.newInstance(newValues.toArray());
-        } catch (Exception e) {
-            throw new IllegalArgumentException(format("Cannot instantiate %s with constructor arguments %s", entity.getClass(), newValues), e);
+            return (Object) constructorHandle.invokeExact(overrides);
+        } catch (Throwable e) {
+            throw new IllegalArgumentException(format("Cannot instantiate %s with constructor arguments %s", entity.getClass(), Arrays.toString(overrides)), e);
         }
     }
 
@@ -77,11 +110,11 @@ class JavaBeanReflection {
         return fields;
     }
 
-    Object getFieldValue(Object entity, Field field) {
+    Object getFieldValue(Object entity, int index) {
         try {
-            return field.get(entity);
-        } catch (Exception e) {
-            throw new IllegalStateException(format("Cannot access value of field %s on %s", field.getName(), entity.getClass()), e);
+            return (Object) getters[index].invokeExact(entity);
+        } catch (Throwable e) {
+            throw new IllegalStateException(format("Cannot access value of field %s on %s", fields.get(index).getName(), entity.getClass()), e);
         }
     }
 
@@ -26,14 +26,13 @@ import com.netflix.titus.common.model.sanitizer.VerifierMode;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
 
 /**
  * Spring EL JavaBean validation framework class-level validator.
  */
 public class SpELClassValidator implements ConstraintValidator<ClassInvariant, Object> {
 
-    private final ExpressionParser parser = new SpelExpressionParser();
+    private final ExpressionParser parser = SpELParsers.newCompilingParser();
     private final VerifierMode verifierMode;
     private final Supplier<EvaluationContext> spelContextFactory;
 
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.model.sanitizer.internal;
+
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+/**
+ * SpEL expressions in validation annotations are parsed once, and evaluated for each validated entity. The parsers
+ * created here compile expressions to bytecode after a few interpreted runs. In the {@link SpelCompilerMode#MIXED} mode
+ * expressions that cannot be compiled (or whose compiled form fails) fall back to the interpreter.
+ */
+final class SpELParsers {
+
+    private SpELParsers() {
+    }
+
+    static ExpressionParser newCompilingParser() {
+        return new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, null));
+    }
+}
@@ -20,6 +20,8 @@ import java.lang.reflect.Field;
 import java.util.Optional;
 import java.util.function.Function;
 
+import com.netflix.titus.common.util.ReflectionExt;
+
 public class StdValueSanitizer extends AbstractFieldSanitizer<Object> {
 
     private final Function<Class<?>, Boolean> innerEntityPredicate;
@@ -33,6 +35,12 @@ public class StdValueSanitizer extends AbstractFieldSanitizer<Object> {
         return apply(entity, NOTHING);
     }
 
+    @Override
+    protected boolean isSanitizable(Field field) {
+        Class<?> fieldType = field.getType();
+        return fieldType == String.class || !(ReflectionExt.isStandardDataType(fieldType) || fieldType.isEnum());
+    }
+
     @Override
     protected Optional<Object> sanitizeFieldValue(Field field, Object fieldValue, Object context) {
         Class<?> fieldType = field.getType();
@@ -43,6 +43,12 @@ public class TemplateSanitizer extends AbstractFieldSanitizer<String> {
         return entity != null ? apply(entity, "") : Optional.empty();
     }
 
+    @Override
+    protected boolean isSanitizable(Field field) {
+        Class<?> fieldType = field.getType();
+        return isEnabled(field) || !(ReflectionExt.isStandardDataType(fieldType) || ReflectionExt.isContainerType(field));
+    }
+
     @Override
     protected Optional<Object> sanitizeFieldValue(Field field, Object value, String path) {
         String fieldPath = path.isEmpty() ? field.getName() : path + '.' + field.getName();
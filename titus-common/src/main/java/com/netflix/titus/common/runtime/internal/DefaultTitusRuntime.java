@@ -20,12 +20,14 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import com.netflix.spectator.api.BasicTag;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spectator.api.Tag;
+import com.netflix.spectator.api.patterns.PolledMeter;
 import com.netflix.titus.common.framework.fit.FitFramework;
 import com.netflix.titus.common.runtime.SystemAbortEvent;
 import com.netflix.titus.common.runtime.SystemAbortListener;
@@ -51,6 +53,7 @@ public class DefaultTitusRuntime implements TitusRuntime {
 
     private static final String METRICS_RUNTIME_ROOT = "titus.system.";
     private static final String METRICS_PERSISTENT_STREAM = METRICS_RUNTIME_ROOT + "persistentStream";
+    private static final String METRICS_REGISTRY_SIZE = METRICS_RUNTIME_ROOT + "registrySize";
 
     private static final String UNKNOWN = "UNKNOWN";
 
@@ -64,6 +67,9 @@ public class DefaultTitusRuntime implements TitusRuntime {
     private final Clock clock;
     private final FitFramework fitFramework;
 
+    private final AtomicBoolean registrySizeUpdateInProgress = new AtomicBoolean();
+    private volatile long lastRegistrySize;
+
     @Inject
     public DefaultTitusRuntime(CodeInvariants codeInvariants, SystemAbortListener systemAbortListener, Registry registry) {
         this(
@@ -87,6 +93,25 @@ public class DefaultTitusRuntime implements TitusRuntime {
         this.registry = registry;
         this.clock = clock;
         this.fitFramework = isFitEnabled ? FitFramework.newFitFramework() : FitFramework.inactiveFitFramework();
+
+        // Number of meters in the registry, to detect metrics with unbounded cardinality.
+        PolledMeter.using(registry).withName(METRICS_REGISTRY_SIZE).monitorValue(this, DefaultTitusRuntime::countRegistryMeters);
+    }
+
+    /**
+     * Iterating over the registry meters triggers an update of all polled meters, including this one. The nested
+     * invocation returns the last computed value.
+     */
+    private long countRegistryMeters() {
+        if (!registrySizeUpdateInProgress.compareAndSet(false, true)) {
+            return lastRegistrySize;
+        }
+        try {
+            this.lastRegistrySize = registry.stream().count();
+            return lastRegistrySize;
+        } finally {
+            registrySizeUpdateInProgress.set(false);
+        }
     }
 
     @Override
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.collections;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable hash map based on a hash array mapped trie (HAMT). Updates return a new map instance, which shares
+ * all but the modified path (at most 7 nodes of up to 32 entries each) with the original one. This makes
+ * the cost of a single update O(log32(n)) in both time and memory, instead of O(n) required by a full copy.
+ * <p>
+ * Keys must not be null. Null values are allowed.
+ */
+public final class PersistentHashMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = 0x1f;
+
+    @SuppressWarnings("unchecked")
+    private static final PersistentHashMap EMPTY = new PersistentHashMap(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        return (V) root.find(0, hash(key), key, null);
+    }
+
+    public boolean containsKey(K key) {
+        return root.find(0, hash(key), key, Node.NOT_FOUND) != Node.NOT_FOUND;
+    }
+
+    public PersistentHashMap<K, V> put(K key, V value) {
+        boolean[] added = new boolean[1];
+        Node newRoot = root.put(0, hash(key), key, value, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    public PersistentHashMap<K, V> remove(K key) {
+        Node newRoot = root.remove(0, hash(key), key);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot == null ? BitmapNode.EMPTY : newRoot, size - 1);
+    }
+
+    /**
+     * Visits all entries. The iteration order is unspecified.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<K, V> consumer) {
+        root.forEach((BiConsumer<Object, Object>) consumer);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("PersistentHashMap{");
+        forEach((k, v) -> {
+            if (sb.length() > "PersistentHashMap{".length()) {
+                sb.append(", ");
+            }
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static Object[] replace(Object[] array, int idx, Object value) {
+        Object[] copy = array.clone();
+        copy[idx] = value;
+        return copy;
+    }
+
+    private static Object[] replace(Object[] array, int idx1, Object value1, int idx2, Object value2) {
+        Object[] copy = array.clone();
+        copy[idx1] = value1;
+        copy[idx2] = value2;
+        return copy;
+    }
+
+    private static Object[] removePair(Object[] array, int pairIdx) {
+        Object[] copy = new Object[array.length - 2];
+        System.arraycopy(array, 0, copy, 0, 2 * pairIdx);
+        System.arraycopy(array, 2 * (pairIdx + 1), copy, 2 * pairIdx, copy.length - 2 * pairIdx);
+        return copy;
+    }
+
+    private static Object[] insertPair(Object[] array, int pairIdx, Object key, Object value) {
+        Object[] copy = new Object[array.length + 2];
+        System.arraycopy(array, 0, copy, 0, 2 * pairIdx);
+        copy[2 * pairIdx] = key;
+        copy[2 * pairIdx + 1] = value;
+        System.arraycopy(array, 2 * pairIdx, copy, 2 * (pairIdx + 1), array.length - 2 * pairIdx);
+        return copy;
+    }
+
+    private static Node createNode(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+        int hash1 = hash(key1);
+        if (hash1 == hash2) {
+            return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+        }
+        boolean[] added = new boolean[1];
+        return BitmapNode.EMPTY
+                .put(shift, hash1, key1, value1, added)
+                .put(shift, hash2, key2, value2, added);
+    }
+
+    private interface Node {
+
+        Object NOT_FOUND = new Object();
+
+        Object find(int shift, int hash, Object key, Object notFound);
+
+        Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+        /**
+         * @return this instance if the key is not found, null if the node has no entries left after the removal
+         */
+        Node remove(int shift, int hash, Object key);
+
+        void forEach(BiConsumer<Object, Object> consumer);
+    }
+
+    /**
+     * Node with up to 32 slots. Each slot is a key/value pair, or a null key and a sub-node.
+     */
+    private static final class BitmapNode implements Node {
+
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] array;
+
+        private BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key, Object notFound) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return notFound;
+            }
+            int idx = index(bit);
+            Object keyOrNull = array[2 * idx];
+            Object valueOrNode = array[2 * idx + 1];
+            if (keyOrNull == null) {
+                return ((Node) valueOrNode).find(shift + BITS, hash, key, notFound);
+            }
+            return key.equals(keyOrNull) ? valueOrNode : notFound;
+        }
+
+        @Override
+        public Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bitpos(hash, shift);
+            int idx = index(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, insertPair(array, idx, key, value));
+            }
+
+            Object keyOrNull = array[2 * idx];
+            Object valueOrNode = array[2 * idx + 1];
+            if (keyOrNull == null) {
+                Node node = ((Node) valueOrNode).put(shift + BITS, hash, key, value, added);
+                return node == valueOrNode ? this : new BitmapNode(bitmap, replace(array, 2 * idx + 1, node));
+            }
+            if (key.equals(keyOrNull)) {
+                return value == valueOrNode ? this : new BitmapNode(bitmap, replace(array, 2 * idx + 1, value));
+            }
+            added[0] = true;
+            Node subNode = createNode(shift + BITS, keyOrNull, valueOrNode, hash, key, value);
+            return new BitmapNode(bitmap, replace(array, 2 * idx, null, 2 * idx + 1, subNode));
+        }
+
+        @Override
+        public Node remove(int shift, int hash, Object key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int idx = index(bit);
+            Object keyOrNull = array[2 * idx];
+            Object valueOrNode = array[2 * idx + 1];
+            if (keyOrNull == null) {
+                Node node = ((Node) valueOrNode).remove(shift + BITS, hash, key);
+                if (node == valueOrNode) {
+                    return this;
+                }
+                if (node != null) {
+                    return new BitmapNode(bitmap, replace(array, 2 * idx + 1, node));
+                }
+            } else if (!key.equals(keyOrNull)) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            return new BitmapNode(bitmap ^ bit, removePair(array, idx));
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, Object> consumer) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null) {
+                    ((Node) array[i + 1]).forEach(consumer);
+                } else {
+                    consumer.accept(array[i], array[i + 1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Node holding entries with keys that have identical hashes.
+     */
+    private static final class CollisionNode implements Node {
+
+        private final int hash;
+        private final Object[] array;
+
+        private CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int findIndex(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i / 2;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key, Object notFound) {
+            int idx = findIndex(key);
+            return idx < 0 ? notFound : array[2 * idx + 1];
+        }
+
+        @Override
+        public Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // Nest this node under a bitmap node, and let it place the new entry.
+                return new BitmapNode(bitpos(this.hash, shift), new Object[]{null, this})
+                        .put(shift, hash, key, value, added);
+            }
+            int idx = findIndex(key);
+            if (idx >= 0) {
+                return array[2 * idx + 1] == value ? this : new CollisionNode(hash, replace(array, 2 * idx + 1, value));
+            }
+            added[0] = true;
+            return new CollisionNode(hash, insertPair(array, array.length / 2, key, value));
+        }
+
+        @Override
+        public Node remove(int shift, int hash, Object key) {
+            int idx = findIndex(key);
+            if (idx < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            return new CollisionNode(hash, removePair(array, idx));
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, Object> consumer) {
+            for (int i = 0; i < array.length; i += 2) {
+                consumer.accept(array[i], array[i + 1]);
+            }
+        }
+    }
+}
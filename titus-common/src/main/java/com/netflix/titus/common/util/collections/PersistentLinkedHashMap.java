@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import com.netflix.titus.common.util.tuple.Pair;
+
+/**
+ * Immutable map preserving the key insertion order, built from {@link PersistentHashMap} (key to position index)
+ * and {@link PersistentVector} (entries in insertion order). Replacing a value of an existing key keeps its
+ * position. Removed entries leave a gap in the vector, which is compacted once the gaps outnumber live entries,
+ * so all operations run in amortized O(log32(n)) time.
+ */
+public final class PersistentLinkedHashMap<K, V> {
+
+    private static final int MIN_COMPACTION_THRESHOLD = 32;
+
+    @SuppressWarnings("unchecked")
+    private static final PersistentLinkedHashMap EMPTY = new PersistentLinkedHashMap(PersistentHashMap.empty(), PersistentVector.empty());
+
+    private final PersistentHashMap<K, Integer> positions;
+    private final PersistentVector<Pair<K, V>> entries;
+
+    private PersistentLinkedHashMap(PersistentHashMap<K, Integer> positions, PersistentVector<Pair<K, V>> entries) {
+        this.positions = positions;
+        this.entries = entries;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentLinkedHashMap<K, V> empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    public boolean isEmpty() {
+        return positions.isEmpty();
+    }
+
+    public boolean containsKey(K key) {
+        return positions.containsKey(key);
+    }
+
+    public V get(K key) {
+        Integer position = positions.get(key);
+        return position == null ? null : entries.get(position).getRight();
+    }
+
+    public PersistentLinkedHashMap<K, V> put(K key, V value) {
+        Integer position = positions.get(key);
+        if (position == null) {
+            return new PersistentLinkedHashMap<>(positions.put(key, entries.size()), entries.append(Pair.of(key, value)));
+        }
+        return new PersistentLinkedHashMap<>(positions, entries.set(position, Pair.of(key, value)));
+    }
+
+    public PersistentLinkedHashMap<K, V> remove(K key) {
+        Integer position = positions.get(key);
+        if (position == null) {
+            return this;
+        }
+        PersistentHashMap<K, Integer> newPositions = positions.remove(key);
+        PersistentVector<Pair<K, V>> newEntries = entries.set(position, null);
+
+        int gaps = newEntries.size() - newPositions.size();
+        if (gaps > MIN_COMPACTION_THRESHOLD && gaps > newPositions.size()) {
+            return compact(newEntries);
+        }
+        return new PersistentLinkedHashMap<>(newPositions, newEntries);
+    }
+
+    /**
+     * @return values in the key insertion order
+     */
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size());
+        entries.forEach(entry -> {
+            if (entry != null) {
+                result.add(entry.getRight());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Visits all entries in the key insertion order.
+     */
+    public void forEach(BiConsumer<K, V> consumer) {
+        entries.forEach(entry -> {
+            if (entry != null) {
+                consumer.accept(entry.getLeft(), entry.getRight());
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("PersistentLinkedHashMap{");
+        forEach((k, v) -> {
+            if (sb.length() > "PersistentLinkedHashMap{".length()) {
+                sb.append(", ");
+            }
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    private static <K, V> PersistentLinkedHashMap<K, V> compact(PersistentVector<Pair<K, V>> entries) {
+        PersistentHashMap<K, Integer> newPositions = PersistentHashMap.empty();
+        PersistentVector<Pair<K, V>> newEntries = PersistentVector.empty();
+        for (int i = 0; i < entries.size(); i++) {
+            Pair<K, V> entry = entries.get(i);
+            if (entry != null) {
+                newPositions = newPositions.put(entry.getLeft(), newEntries.size());
+                newEntries = newEntries.append(entry);
+            }
+        }
+        return new PersistentLinkedHashMap<>(newPositions, newEntries);
+    }
+}
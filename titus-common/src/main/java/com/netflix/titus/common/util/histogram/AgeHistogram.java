@@ -0,0 +1,163 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.histogram;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import com.google.common.primitives.Longs;
+
+/**
+ * Histogram of the age of tracked items, where the age of an item is the time elapsed since its timestamp. The
+ * histogram is maintained incrementally. For each value bound, the number of items older than the bound is kept,
+ * and when time advances only the items that crossed a bound since the last update are visited. Items are kept
+ * ordered by their timestamps, so add/remove operations cost O(log N), and {@link #advance(long)} cost is
+ * proportional to the number of items that moved to another bucket.
+ * <p>
+ * The bucket semantic is the same as in {@link Histogram}. This class is not thread safe.
+ */
+public class AgeHistogram {
+
+    private static final Comparator<Item> ITEM_COMPARATOR = Comparator.<Item>comparingLong(item -> item.timestamp).thenComparing(item -> item.id);
+
+    private final HistogramDescriptor histogramDescriptor;
+    private final long[] valueBounds;
+
+    private final TreeSet<Item> items = new TreeSet<>(ITEM_COMPARATOR);
+    private final Map<String, Item> itemsById = new HashMap<>();
+
+    /**
+     * For each value bound, number of items which age is above it.
+     */
+    private final long[] olderThanBound;
+
+    private long now;
+
+    public AgeHistogram(HistogramDescriptor histogramDescriptor, long now) {
+        this.histogramDescriptor = histogramDescriptor;
+        this.valueBounds = Longs.toArray(histogramDescriptor.getValueBounds());
+        this.olderThanBound = new long[valueBounds.length];
+        this.now = now;
+    }
+
+    public HistogramDescriptor getHistogramDescriptor() {
+        return histogramDescriptor;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public boolean contains(String id) {
+        return itemsById.containsKey(id);
+    }
+
+    /**
+     * Adds a new item, or updates the timestamp of an existing one.
+     */
+    public void add(String id, long timestamp) {
+        remove(id);
+        Item item = new Item(id, timestamp);
+        items.add(item);
+        itemsById.put(id, item);
+        for (int i = 0; i < valueBounds.length; i++) {
+            if (isOlderThan(timestamp, i)) {
+                olderThanBound[i]++;
+            }
+        }
+    }
+
+    /**
+     * Removes an item. Returns false if the item was not tracked.
+     */
+    public boolean remove(String id) {
+        Item item = itemsById.remove(id);
+        if (item == null) {
+            return false;
+        }
+        items.remove(item);
+        for (int i = 0; i < valueBounds.length; i++) {
+            if (isOlderThan(item.timestamp, i)) {
+                olderThanBound[i]--;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the histogram reference time to the given value. Only items that crossed a value bound since the last
+     * update are visited. If time moves backwards, the counters are recomputed from scratch.
+     */
+    public void advance(long newNow) {
+        if (newNow < now) {
+            this.now = newNow;
+            for (int i = 0; i < valueBounds.length; i++) {
+                olderThanBound[i] = items.headSet(thresholdKey(now - valueBounds[i])).size();
+            }
+            return;
+        }
+        for (int i = 0; i < valueBounds.length; i++) {
+            Item from = thresholdKey(now - valueBounds[i]);
+            Item to = thresholdKey(newNow - valueBounds[i]);
+            olderThanBound[i] += items.subSet(from, true, to, false).size();
+        }
+        this.now = newNow;
+    }
+
+    /**
+     * Returns histogram counters, with the same layout as {@link Histogram#getCounters()}.
+     */
+    public List<Long> getCounters() {
+        long[] counters = histogramDescriptor.newCounters();
+        int last = valueBounds.length;
+        counters[0] = items.size() - olderThanBound[0];
+        for (int i = 1; i < last; i++) {
+            counters[i] = olderThanBound[i - 1] - olderThanBound[i];
+        }
+        counters[last] = olderThanBound[last - 1];
+        return Longs.asList(counters);
+    }
+
+    private boolean isOlderThan(long timestamp, int boundIdx) {
+        return timestamp < now - valueBounds[boundIdx];
+    }
+
+    /**
+     * Returns a key which is ordered before all items with the given timestamp.
+     */
+    private static Item thresholdKey(long timestamp) {
+        return new Item("", timestamp);
+    }
+
+    private static class Item {
+
+        private final String id;
+        private final long timestamp;
+
+        private Item(String id, long timestamp) {
+            this.id = id;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -23,6 +23,8 @@ import com.netflix.titus.common.util.limiter.tokenbucket.RefillStrategy;
 import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
 import com.netflix.titus.common.util.limiter.tokenbucket.internal.DefaultTokenBucket;
 import com.netflix.titus.common.util.limiter.tokenbucket.internal.FixedIntervalRefillStrategy;
+import com.netflix.titus.common.util.limiter.tokenbucket.internal.LockFreeTokenBucket;
+import com.netflix.titus.common.util.limiter.tokenbucket.internal.StripedTokenBucket;
 
 public class Limiters {
 
@@ -30,10 +32,16 @@ public class Limiters {
     }
 
     /**
-     * Create a {@link TokenBucket} with a fixed interval {@link RefillStrategy}.
+     * Create a {@link TokenBucket} with a fixed interval {@link RefillStrategy}. Buckets with capacity that fits into
+     * an int value are lock-free (see {@link LockFreeTokenBucket}).
      */
     public static TokenBucket createFixedIntervalTokenBucket(String name, long capacity, long initialNumberOfTokens,
                                                              long numberOfTokensPerInterval, long interval, TimeUnit unit) {
+        if (capacity <= Integer.MAX_VALUE) {
+            return new LockFreeTokenBucket(name, capacity, initialNumberOfTokens, Stopwatch.createStarted(),
+                    numberOfTokensPerInterval, interval, unit);
+        }
+
         RefillStrategy refillStrategy = new FixedIntervalRefillStrategy(Stopwatch.createStarted(),
                 numberOfTokensPerInterval, interval, unit);
         TokenBucket tokenBucket = new DefaultTokenBucket(name, capacity, refillStrategy, initialNumberOfTokens);
@@ -41,4 +49,15 @@ public class Limiters {
         return tokenBucket;
     }
 
+    /**
+     * Create a {@link TokenBucket} with a fixed interval refill, split into stripes to reduce contention between
+     * the threads taking tokens (see {@link StripedTokenBucket}). Use it only for buckets that are accessed by many
+     * threads at a very high rate, as a take may fail while there are enough tokens in other stripes.
+     */
+    public static TokenBucket createStripedFixedIntervalTokenBucket(String name, int numberOfStripes, long capacity, long initialNumberOfTokens,
+                                                                    long numberOfTokensPerInterval, long interval, TimeUnit unit) {
+        return new StripedTokenBucket(name, numberOfStripes, capacity, initialNumberOfTokens, Stopwatch.createStarted(),
+                numberOfTokensPerInterval, interval, unit);
+    }
+
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.limiter.concurrency;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+import com.netflix.titus.common.util.time.Clock;
+
+/**
+ * Concurrency limiter which adjusts its limit to the observed request latency, using a gradient algorithm (as described
+ * in Netflix concurrency-limits library). The limit is increased while the latency of individual requests stays close
+ * to its long term average, and reduced when requests start to queue up and their latency grows. A request that
+ * times out or is rejected downstream ({@link Permit#onDropped()}) reduces the limit multiplicatively.
+ * <p>
+ * Requests are admitted in two priority classes. Priority requests may use the full limit, while other requests
+ * are rejected when the number of requests in flight reaches a fraction of it. This way, under load, the low
+ * priority requests are shed first.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * Window size (in samples) of the exponential moving average of the long term latency.
+     */
+    private static final int LONG_RTT_WINDOW = 600;
+
+    private static final double DROP_BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double nonPriorityLimitFraction;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final Clock clock;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private volatile int limit;
+
+    // Guarded by this
+    private double estimatedLimit;
+    private double longRttNs;
+    private long samples;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit,
+                                      int minLimit,
+                                      int maxLimit,
+                                      double nonPriorityLimitFraction,
+                                      double rttTolerance,
+                                      double smoothing,
+                                      Clock clock) {
+        Preconditions.checkArgument(minLimit > 0, "Minimum limit must be greater than 0");
+        Preconditions.checkArgument(maxLimit >= minLimit, "Maximum limit must not be smaller than the minimum limit");
+        Preconditions.checkArgument(nonPriorityLimitFraction > 0 && nonPriorityLimitFraction <= 1, "Non priority limit fraction must be in (0, 1] range");
+        Preconditions.checkArgument(rttTolerance >= 1, "RTT tolerance must not be smaller than 1");
+        Preconditions.checkArgument(smoothing > 0 && smoothing <= 1, "Smoothing must be in (0, 1] range");
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.nonPriorityLimitFraction = nonPriorityLimitFraction;
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.clock = clock;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * @return a permit, which must be released by calling one of its methods, or {@link Optional#empty()} if
+     * the limit is reached
+     */
+    public Optional<Permit> tryAcquire(boolean priority) {
+        int currentLimit = priority ? limit : Math.max(1, (int) (limit * nonPriorityLimitFraction));
+        while (true) {
+            int current = inflight.get();
+            if (current >= currentLimit) {
+                return Optional.empty();
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return Optional.of(new Permit(clock.nanoTime(), current + 1));
+            }
+        }
+    }
+
+    private synchronized void onSample(long rttNs, int inflightAtStart, boolean dropped) {
+        if (dropped) {
+            updateLimit(estimatedLimit * DROP_BACKOFF_RATIO);
+            return;
+        }
+        double rtt = Math.max(1, rttNs);
+        samples++;
+        if (samples == 1) {
+            longRttNs = rtt;
+        } else {
+            double window = Math.min(samples, LONG_RTT_WINDOW);
+            longRttNs = longRttNs * (1 - 1 / window) + rtt / window;
+        }
+        // Recover quickly, when the latency drops significantly (for example after a load spike).
+        if (longRttNs / rtt > 2) {
+            longRttNs *= 0.95;
+        }
+
+        // The limit is not increased when it is not used, as the latency does not tell us anything about it.
+        if (inflightAtStart < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNs / rtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        updateLimit(estimatedLimit * (1 - smoothing) + newLimit * smoothing);
+    }
+
+    private void updateLimit(double newLimit) {
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * A request admitted by the limiter. Only the first call to any of its methods has an effect.
+     */
+    public class Permit {
+
+        private final long startTimeNs;
+        private final int inflightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long startTimeNs, int inflightAtStart) {
+            this.startTimeNs = startTimeNs;
+            this.inflightAtStart = inflightAtStart;
+        }
+
+        /**
+         * Request completed, and its latency should be used to adjust the limit.
+         */
+        public void onSuccess() {
+            if (release()) {
+                onSample(clock.nanoTime() - startTimeNs, inflightAtStart, false);
+            }
+        }
+
+        /**
+         * Request timed out or was rejected due to an overload, so the limit should be reduced.
+         */
+        public void onDropped() {
+            if (release()) {
+                onSample(clock.nanoTime() - startTimeNs, inflightAtStart, true);
+            }
+        }
+
+        /**
+         * Request completed, but its latency is not representative (for example it failed validation).
+         */
+        public void onIgnore() {
+            release();
+        }
+
+        private boolean release() {
+            if (released.compareAndSet(false, true)) {
+                inflight.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.limiter.tokenbucket.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.netflix.titus.common.util.limiter.tokenbucket.RefillStrategy;
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
+
+/**
+ * {@link TokenBucket} with a fixed interval refill, and the same semantics as {@link DefaultTokenBucket} combined with
+ * {@link FixedIntervalRefillStrategy}, which does not block its callers. The number of tokens and the number of
+ * the last refill interval are packed into a single {@link AtomicLong}, and all updates are made with compare-and-set.
+ * <p>
+ * The lower bits of the state hold the tokens (as many as needed to represent the capacity), and the remaining upper
+ * bits hold the refill interval number. The interval number wraps around, and it is compared with the current one
+ * as a signed value, so a bucket that was not accessed for more than 2^(63 - capacity bits) intervals
+ * (about 100 days for 1ms interval and capacity of 10^9, and much longer for smaller ones) may be refilled with fewer
+ * tokens than expected on the first access.
+ */
+public class LockFreeTokenBucket implements TokenBucket {
+
+    private final String name;
+    private final long capacity;
+    private final Stopwatch stopwatch;
+    private final long numberOfTokensPerInterval;
+    private final long intervalInNanos;
+
+    /**
+     * Number of intervals after which the bucket is full, irrespective of its previous state.
+     */
+    private final long intervalsToFill;
+
+    private final int tokenBits;
+    private final long tokenMask;
+
+    private final RefillStrategy refillStrategy;
+
+    private final AtomicLong state;
+
+    public LockFreeTokenBucket(String name,
+                               long capacity,
+                               long initialNumberOfTokens,
+                               Stopwatch stopwatch,
+                               long numberOfTokensPerInterval,
+                               long interval,
+                               TimeUnit unit) {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "Name must not be null or empty.");
+        Preconditions.checkArgument(capacity > 0, "Capacity must be greater than 0.");
+        Preconditions.checkArgument(capacity <= Integer.MAX_VALUE, "Capacity must not be greater than %s.", Integer.MAX_VALUE);
+        Preconditions.checkArgument(initialNumberOfTokens >= 0, "Capacity must not be negative.");
+        Preconditions.checkArgument(numberOfTokensPerInterval > 0, "Number of tokens per interval must be greater than 0.");
+        Preconditions.checkArgument(interval > 0, "Interval must be greater than 0.");
+
+        this.name = name;
+        this.capacity = capacity;
+        this.stopwatch = stopwatch;
+        this.numberOfTokensPerInterval = numberOfTokensPerInterval;
+        this.intervalInNanos = unit.toNanos(interval);
+        this.intervalsToFill = (capacity + numberOfTokensPerInterval - 1) / numberOfTokensPerInterval;
+
+        this.tokenBits = 64 - Long.numberOfLeadingZeros(capacity);
+        this.tokenMask = (1L << tokenBits) - 1;
+
+        this.refillStrategy = new RefillStrategy() {
+            @Override
+            public long refill() {
+                // Tokens are added to the bucket state directly, when the bucket is accessed.
+                return 0;
+            }
+
+            @Override
+            public long getTimeUntilNextRefill(TimeUnit unit) {
+                long elapsed = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+                return unit.convert(intervalInNanos - elapsed % intervalInNanos, TimeUnit.NANOSECONDS);
+            }
+        };
+
+        if (!stopwatch.isRunning()) {
+            stopwatch.start();
+        }
+
+        // Interval -1 is the last refill interval, so the first access adds tokens for the current one, as
+        // FixedIntervalRefillStrategy does.
+        this.state = new AtomicLong(pack(Math.min(capacity, initialNumberOfTokens), -1));
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getNumberOfTokens() {
+        return tokens(refillNow());
+    }
+
+    @Override
+    public boolean tryTake() {
+        return tryTake(1);
+    }
+
+    @Override
+    public boolean tryTake(long numberOfTokens) {
+        Preconditions.checkArgument(numberOfTokens > 0, "Number of tokens must be greater than 0.");
+        Preconditions.checkArgument(numberOfTokens <= capacity, "Number of tokens must not be greater than the capacity.");
+
+        long currentInterval = currentInterval();
+        while (true) {
+            long current = state.get();
+            long refilled = refill(current, currentInterval);
+            long available = tokens(refilled);
+            if (available < numberOfTokens) {
+                if (refilled == current || state.compareAndSet(current, refilled)) {
+                    return false;
+                }
+                continue;
+            }
+            if (state.compareAndSet(current, refilled - numberOfTokens)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Takes as many tokens as available, but not more than the given limit.
+     *
+     * @return the number of tokens taken
+     */
+    long tryTakeUpTo(long maxNumberOfTokens) {
+        long currentInterval = currentInterval();
+        while (true) {
+            long current = state.get();
+            long refilled = refill(current, currentInterval);
+            long taken = Math.min(maxNumberOfTokens, tokens(refilled));
+            if (taken == 0 && refilled == current) {
+                return 0;
+            }
+            if (state.compareAndSet(current, refilled - taken)) {
+                return taken;
+            }
+        }
+    }
+
+    @Override
+    public void take() {
+        take(1);
+    }
+
+    @Override
+    public void take(long numberOfTokens) {
+        Preconditions.checkArgument(numberOfTokens > 0, "Number of tokens must be greater than 0.");
+        Preconditions.checkArgument(numberOfTokens <= capacity, "Number of tokens must not be greater than the capacity.");
+
+        while (!tryTake(numberOfTokens)) {
+            Uninterruptibles.sleepUninterruptibly(refillStrategy.getTimeUntilNextRefill(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void refill(long numberOfTokens) {
+        while (true) {
+            long current = state.get();
+            long newTokens = Math.min(capacity, Math.max(0, tokens(current) + numberOfTokens));
+            if (state.compareAndSet(current, (current & ~tokenMask) | newTokens)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns {@link RefillStrategy} which reports the time until the next refill interval. Its {@link RefillStrategy#refill()}
+     * method always returns 0, as the tokens are accrued by the bucket itself.
+     */
+    @Override
+    public RefillStrategy getRefillStrategy() {
+        return refillStrategy;
+    }
+
+    private long refillNow() {
+        long currentInterval = currentInterval();
+        while (true) {
+            long current = state.get();
+            long refilled = refill(current, currentInterval);
+            if (refilled == current || state.compareAndSet(current, refilled)) {
+                return refilled;
+            }
+        }
+    }
+
+    /**
+     * Computes the bucket state with all tokens accrued up to the given interval. If another thread has already moved
+     * the state to a later interval, the state is returned unchanged.
+     */
+    private long refill(long current, long currentInterval) {
+        long lastInterval = current >>> tokenBits;
+        // Sign extend the difference of the wrapped interval numbers
+        long elapsedIntervals = ((currentInterval - lastInterval) << tokenBits) >> tokenBits;
+        if (elapsedIntervals <= 0) {
+            return current;
+        }
+        long tokens = elapsedIntervals >= intervalsToFill
+                ? capacity
+                : Math.min(capacity, tokens(current) + elapsedIntervals * numberOfTokensPerInterval);
+        return pack(tokens, currentInterval);
+    }
+
+    private long currentInterval() {
+        return stopwatch.elapsed(TimeUnit.NANOSECONDS) / intervalInNanos;
+    }
+
+    private long tokens(long state) {
+        return state & tokenMask;
+    }
+
+    private long pack(long tokens, long interval) {
+        return (interval << tokenBits) | tokens;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.limiter.tokenbucket.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.netflix.titus.common.util.limiter.tokenbucket.RefillStrategy;
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
+
+/**
+ * {@link TokenBucket} for very high contention, split into a number of {@link LockFreeTokenBucket} stripes, each with
+ * an equal share of the capacity and the refill rate. A caller takes tokens from its home stripe (selected by
+ * the thread id), and only if it does not have enough of them, it collects the remaining tokens from the other stripes.
+ * If the tokens cannot be collected, the ones already taken are returned to their stripes. As stripes are updated
+ * independently, a concurrent take may fail while the total number of tokens in the stripes is sufficient.
+ */
+public class StripedTokenBucket implements TokenBucket {
+
+    private final String name;
+    private final long capacity;
+    private final LockFreeTokenBucket[] stripes;
+
+    public StripedTokenBucket(String name,
+                              int numberOfStripes,
+                              long capacity,
+                              long initialNumberOfTokens,
+                              Stopwatch stopwatch,
+                              long numberOfTokensPerInterval,
+                              long interval,
+                              TimeUnit unit) {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "Name must not be null or empty.");
+        Preconditions.checkArgument(numberOfStripes > 0, "Number of stripes must be greater than 0.");
+        Preconditions.checkArgument(capacity > 0, "Capacity must be greater than 0.");
+        Preconditions.checkArgument(numberOfTokensPerInterval > 0, "Number of tokens per interval must be greater than 0.");
+
+        // Each stripe must get at least one token of capacity and refill
+        int stripeCount = (int) Math.min(numberOfStripes, Math.min(capacity, numberOfTokensPerInterval));
+
+        this.name = name;
+        this.capacity = capacity;
+        this.stripes = new LockFreeTokenBucket[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new LockFreeTokenBucket(
+                    name + '#' + i,
+                    share(capacity, stripeCount, i),
+                    share(initialNumberOfTokens, stripeCount, i),
+                    stopwatch,
+                    share(numberOfTokensPerInterval, stripeCount, i),
+                    interval,
+                    unit
+            );
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getNumberOfTokens() {
+        long total = 0;
+        for (LockFreeTokenBucket stripe : stripes) {
+            total += stripe.getNumberOfTokens();
+        }
+        return total;
+    }
+
+    @Override
+    public boolean tryTake() {
+        return tryTake(1);
+    }
+
+    @Override
+    public boolean tryTake(long numberOfTokens) {
+        Preconditions.checkArgument(numberOfTokens > 0, "Number of tokens must be greater than 0.");
+        Preconditions.checkArgument(numberOfTokens <= capacity, "Number of tokens must not be greater than the capacity.");
+
+        int home = (int) (Thread.currentThread().getId() % stripes.length);
+        long[] taken = null;
+        long remaining = numberOfTokens;
+        for (int i = 0; i < stripes.length && remaining > 0; i++) {
+            int idx = (home + i) % stripes.length;
+            long stripeTaken = stripes[idx].tryTakeUpTo(remaining);
+            if (stripeTaken > 0) {
+                remaining -= stripeTaken;
+                if (remaining > 0) {
+                    if (taken == null) {
+                        taken = new long[stripes.length];
+                    }
+                    taken[idx] = stripeTaken;
+                }
+            }
+        }
+        if (remaining == 0) {
+            return true;
+        }
+        if (taken != null) {
+            for (int i = 0; i < stripes.length; i++) {
+                if (taken[i] > 0) {
+                    stripes[i].refill(taken[i]);
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void take() {
+        take(1);
+    }
+
+    @Override
+    public void take(long numberOfTokens) {
+        Preconditions.checkArgument(numberOfTokens > 0, "Number of tokens must be greater than 0.");
+        Preconditions.checkArgument(numberOfTokens <= capacity, "Number of tokens must not be greater than the capacity.");
+
+        while (!tryTake(numberOfTokens)) {
+            Uninterruptibles.sleepUninterruptibly(getRefillStrategy().getTimeUntilNextRefill(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Tokens are distributed evenly between the stripes.
+     */
+    @Override
+    public void refill(long numberOfTokens) {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i].refill(share(numberOfTokens, stripes.length, i));
+        }
+    }
+
+    /**
+     * All stripes are refilled at the same time, so the refill strategy of the first one is returned.
+     */
+    @Override
+    public RefillStrategy getRefillStrategy() {
+        return stripes[0].getRefillStrategy();
+    }
+
+    /**
+     * Split the given value into equal parts, with the remainder spread over the first parts.
+     */
+    private static long share(long value, int parts, int idx) {
+        return value / parts + (idx < value % parts ? 1 : 0);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.proxy.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Tunes metrics collection for an interface or a method. Method level annotation takes precedence over the
+ * interface level one.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface InvocationMetrics {
+
+    /**
+     * If set, execution times are recorded with percentile timers, so latency distribution can be computed.
+     */
+    boolean percentiles() default false;
+
+    /**
+     * Fraction of invocations (0.0-1.0) for which execution times are recorded. Invocation counters are always
+     * updated. Use a value below 1.0 for very hot methods, to reduce the timer update overhead.
+     */
+    double samplingRatio() default 1.0;
+}
@@ -18,20 +18,29 @@ package com.netflix.titus.common.util.proxy.internal;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 import com.netflix.spectator.api.BasicTag;
+import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spectator.api.Tag;
+import com.netflix.spectator.api.Timer;
+import com.netflix.spectator.api.histogram.PercentileTimer;
 import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.proxy.annotation.InvocationMetrics;
 import com.netflix.titus.common.util.time.Clock;
 import rx.Completable;
 import rx.Observable;
 import rx.Subscription;
 
 /**
- * Method invocation metrics collector.
+ * Method invocation metrics collector. Meters for each intercepted method are resolved once, when the handler is
+ * created, so the invocation path does not pay for metric id construction and registry lookups. Metrics collection
+ * can be tuned per interface or method with {@link InvocationMetrics} annotation.
  */
 public class SpectatorInvocationHandler<API, NATIVE> extends InterceptingInvocationHandler<API, NATIVE, Long> {
 
@@ -41,6 +50,11 @@ public class SpectatorInvocationHandler<API, NATIVE> extends InterceptingInvocat
     private static final Tag TAG_CALL_STAGE_ON_METHOD_EXIT = new BasicTag("callStage", "onMethodExit");
     private static final Tag TAG_CALL_STAGE_ON_COMPLETED = new BasicTag("callStage", "onCompleted");
 
+    /**
+     * Context value for invocations excluded from execution time sampling.
+     */
+    private static final Long NOT_SAMPLED = -1L;
+
     private final Class<API> apiInterface;
     private final Registry registry;
     private final Clock clock;
@@ -50,6 +64,8 @@ public class SpectatorInvocationHandler<API, NATIVE> extends InterceptingInvocat
     private final String resultSubscriptionEmitMetricName;
     private final String resultSubscriptionTimeMetricName;
 
+    private final ConcurrentMap<Method, MethodMetrics> methodMetrics = new ConcurrentHashMap<>();
+
     public SpectatorInvocationHandler(Class<API> apiInterface, TitusRuntime titusRuntime, boolean followObservableResults) {
         super(apiInterface, followObservableResults);
         this.apiInterface = apiInterface;
@@ -61,93 +77,71 @@ public class SpectatorInvocationHandler<API, NATIVE> extends InterceptingInvocat
         this.resultSubscriptionCountMetricName = "titusMaster.api." + apiInterface.getSimpleName() + ".subscriptions";
         this.resultSubscriptionEmitMetricName = "titusMaster.api." + apiInterface.getSimpleName() + ".subscriptionEmits";
         this.resultSubscriptionTimeMetricName = "titusMaster.api." + apiInterface.getSimpleName() + ".subscriptionTime";
+
+        getIncludedMethods().forEach(method -> methodMetrics.put(method, new MethodMetrics(method)));
     }
 
     @Override
     protected Long before(Method method, Object[] args) {
-        return clock.wallTime();
+        return getMethodMetrics(method).isSampled() ? clock.wallTime() : NOT_SAMPLED;
     }
 
     @Override
     protected void after(Method method, Object result, Long startTime) {
-        registry.counter(
-                invocationCounterMetricName,
-                "class", apiInterface.getName(),
-                "method", method.getName(),
-                "status", "success"
-        ).increment();
-
-        reportExecutionTime(method, startTime, TAG_STATUS_SUCCESS, TAG_CALL_STAGE_ON_METHOD_EXIT);
-
-        if (!isAsynchronous(result)) {
-            reportExecutionTime(method, startTime, TAG_STATUS_SUCCESS, TAG_CALL_STAGE_ON_COMPLETED);
+        MethodMetrics metrics = getMethodMetrics(method);
+        metrics.successCounter.increment();
+
+        if (isSampled(startTime)) {
+            long elapsed = clock.wallTime() - startTime;
+            metrics.methodExitSuccessTimer.record(elapsed, TimeUnit.MILLISECONDS);
+            if (!isAsynchronous(result)) {
+                metrics.completedSuccessTimer.record(elapsed, TimeUnit.MILLISECONDS);
+            }
         }
     }
 
     @Override
     protected void afterException(Method method, Throwable error, Long startTime) {
-        registry.counter(
-                invocationCounterMetricName,
-                "class", apiInterface.getName(),
-                "method", method.getName(),
-                "status", "error",
-                "exception", getExceptionName(error)
-        ).increment();
-
-        reportExecutionTime(method, startTime, TAG_STATUS_ERROR, TAG_CALL_STAGE_ON_METHOD_EXIT);
+        MethodMetrics metrics = getMethodMetrics(method);
+        metrics.getErrorCounter(getExceptionName(error)).increment();
+
+        if (isSampled(startTime)) {
+            metrics.methodExitErrorTimer.record(clock.wallTime() - startTime, TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
     protected Observable<Object> afterObservable(Method method, Observable<Object> result, Long startTime) {
-        long methodExitTime = clock.wallTime();
+        MethodMetrics metrics = getMethodMetrics(method);
+        boolean sampled = isSampled(startTime);
+        long methodExitTime = sampled ? clock.wallTime() : 0;
 
         return Observable.unsafeCreate(subscriber -> {
-            long subscriptionTime = clock.wallTime();
+            long subscriptionTime = sampled ? clock.wallTime() : 0;
 
-            registry.counter(
-                    resultSubscriptionCountMetricName,
-                    "class", apiInterface.getName(),
-                    "method", method.getName(),
-                    "subscriptionStage", "subscribed"
-            ).increment();
-            reportSubscriptionExecutionTime(method, methodExitTime, subscriptionTime);
-
-            Subscription subscription = result.doOnUnsubscribe(() -> {
-                registry.counter(
-                        resultSubscriptionCountMetricName,
-                        "class", apiInterface.getName(),
-                        "method", method.getName(),
-                        "subscriptionStage", "unsubscribed"
-                ).increment();
-            }).subscribe(
+            metrics.subscribedCounter.increment();
+            if (sampled) {
+                metrics.subscriptionTimer.record(subscriptionTime - methodExitTime, TimeUnit.MILLISECONDS);
+            }
+
+            Subscription subscription = result.doOnUnsubscribe(metrics.unsubscribedCounter::increment).subscribe(
                     next -> {
-                        registry.counter(
-                                resultSubscriptionEmitMetricName,
-                                "class", apiInterface.getName(),
-                                "method", method.getName()
-                        ).increment();
+                        metrics.emitCounter.increment();
                         subscriber.onNext(next);
                     },
                     error -> {
-                        registry.counter(
-                                resultSubscriptionCountMetricName,
-                                "class", apiInterface.getName(),
-                                "method", method.getName(),
-                                "subscriptionStage", "onError",
-                                "exception", getExceptionName(error)
-                        ).increment();
-                        reportExecutionTime(method, subscriptionTime, TAG_STATUS_ERROR, TAG_CALL_STAGE_ON_COMPLETED);
+                        metrics.getSubscriptionErrorCounter(getExceptionName(error)).increment();
+                        if (sampled) {
+                            metrics.completedErrorTimer.record(clock.wallTime() - subscriptionTime, TimeUnit.MILLISECONDS);
+                        }
 
                         subscriber.onError(error);
                     },
                     () -> {
-                        registry.counter(
-                                resultSubscriptionCountMetricName,
-                                "class", apiInterface.getName(),
-                                "method", method.getName(),
-                                "subscriptionStage", "onCompleted"
-                        ).increment();
-                        reportExecutionTime(method, subscriptionTime, TAG_STATUS_SUCCESS, TAG_CALL_STAGE_ON_COMPLETED);
+                        metrics.subscriptionCompletedCounter.increment();
+                        if (sampled) {
+                            metrics.completedSuccessTimer.record(clock.wallTime() - subscriptionTime, TimeUnit.MILLISECONDS);
+                        }
 
                         subscriber.onCompleted();
                     }
@@ -158,49 +152,35 @@ public class SpectatorInvocationHandler<API, NATIVE> extends InterceptingInvocat
     }
 
     @Override
-    protected Completable afterCompletable(Method method, Completable result, Long aLong) {
-        long methodExitTime = clock.wallTime();
+    protected Completable afterCompletable(Method method, Completable result, Long startTime) {
+        MethodMetrics metrics = getMethodMetrics(method);
+        boolean sampled = isSampled(startTime);
+        long methodExitTime = sampled ? clock.wallTime() : 0;
 
         return Completable.create(subscriber -> {
-            long subscriptionTime = clock.wallTime();
+            long subscriptionTime = sampled ? clock.wallTime() : 0;
 
-            registry.counter(
-                    resultSubscriptionCountMetricName,
-                    "class", apiInterface.getName(),
-                    "method", method.getName(),
-                    "subscriptionStage", "subscribed"
-            ).increment();
-            reportSubscriptionExecutionTime(method, methodExitTime, subscriptionTime);
+            metrics.subscribedCounter.increment();
+            if (sampled) {
+                metrics.subscriptionTimer.record(subscriptionTime - methodExitTime, TimeUnit.MILLISECONDS);
+            }
 
             Subscription subscription = result
-                    .doOnUnsubscribe(() -> {
-                        registry.counter(
-                                resultSubscriptionCountMetricName,
-                                "class", apiInterface.getName(),
-                                "method", method.getName(),
-                                "subscriptionStage", "unsubscribed"
-                        ).increment();
-                    }).subscribe(
+                    .doOnUnsubscribe(metrics.unsubscribedCounter::increment)
+                    .subscribe(
                             () -> {
-                                registry.counter(
-                                        resultSubscriptionCountMetricName,
-                                        "class", apiInterface.getName(),
-                                        "method", method.getName(),
-                                        "subscriptionStage", "onCompleted"
-                                ).increment();
-                                reportExecutionTime(method, subscriptionTime, TAG_STATUS_SUCCESS, TAG_CALL_STAGE_ON_COMPLETED);
+                                metrics.subscriptionCompletedCounter.increment();
+                                if (sampled) {
+                                    metrics.completedSuccessTimer.record(clock.wallTime() - subscriptionTime, TimeUnit.MILLISECONDS);
+                                }
 
                                 subscriber.onCompleted();
                             },
                             error -> {
-                                registry.counter(
-                                        resultSubscriptionCountMetricName,
-                                        "class", apiInterface.getName(),
-                                        "method", method.getName(),
-                                        "subscriptionStage", "onError",
-                                        "exception", getExceptionName(error)
-                                ).increment();
-                                reportExecutionTime(method, subscriptionTime, TAG_STATUS_ERROR, TAG_CALL_STAGE_ON_COMPLETED);
+                                metrics.getSubscriptionErrorCounter(getExceptionName(error)).increment();
+                                if (sampled) {
+                                    metrics.completedErrorTimer.record(clock.wallTime() - subscriptionTime, TimeUnit.MILLISECONDS);
+                                }
 
                                 subscriber.onError(error);
                             }
@@ -210,20 +190,13 @@ public class SpectatorInvocationHandler<API, NATIVE> extends InterceptingInvocat
         });
     }
 
-    private void reportExecutionTime(Method method, Long startTime, Tag... tags) {
-        Id id = registry.createId(invocationTimeMetricName,
-                "class", apiInterface.getName(),
-                "method", method.getName()
-        ).withTags(tags);
-        registry.timer(id).record(clock.wallTime() - startTime, TimeUnit.MILLISECONDS);
+    private MethodMetrics getMethodMetrics(Method method) {
+        MethodMetrics metrics = methodMetrics.get(method);
+        return metrics != null ? metrics : methodMetrics.computeIfAbsent(method, MethodMetrics::new);
     }
 
-    private void reportSubscriptionExecutionTime(Method method, Long startTime, long endTime) {
-        registry.timer(
-                resultSubscriptionTimeMetricName,
-                "class", apiInterface.getName(),
-                "method", method.getName()
-        ).record(endTime - startTime, TimeUnit.MILLISECONDS);
+    private boolean isSampled(Long startTime) {
+        return startTime != null && startTime != NOT_SAMPLED.longValue();
     }
 
     private boolean isAsynchronous(Object result) {
@@ -235,4 +208,112 @@ public class SpectatorInvocationHandler<API, NATIVE> extends InterceptingInvocat
                 ? error.getCause().getClass().getName()
                 : error.getClass().getName();
     }
+
+    private class MethodMetrics {
+
+        private final Method method;
+        private final double samplingRatio;
+        private final boolean percentiles;
+
+        private final Counter successCounter;
+        private final ConcurrentMap<String, Counter> errorCounters = new ConcurrentHashMap<>();
+
+        private final Timer methodExitSuccessTimer;
+        private final Timer methodExitErrorTimer;
+        private final Timer completedSuccessTimer;
+        private final Timer completedErrorTimer;
+
+        private final Counter subscribedCounter;
+        private final Counter unsubscribedCounter;
+        private final Counter subscriptionCompletedCounter;
+        private final ConcurrentMap<String, Counter> subscriptionErrorCounters = new ConcurrentHashMap<>();
+        private final Counter emitCounter;
+        private final Timer subscriptionTimer;
+
+        private MethodMetrics(Method method) {
+            this.method = method;
+
+            InvocationMetrics config = method.getAnnotation(InvocationMetrics.class);
+            if (config == null) {
+                config = apiInterface.getAnnotation(InvocationMetrics.class);
+            }
+            this.samplingRatio = config == null ? 1.0 : Math.max(0.0, Math.min(1.0, config.samplingRatio()));
+            this.percentiles = config != null && config.percentiles();
+
+            this.successCounter = registry.counter(
+                    invocationCounterMetricName,
+                    "class", apiInterface.getName(),
+                    "method", method.getName(),
+                    "status", "success"
+            );
+
+            this.methodExitSuccessTimer = newExecutionTimer(TAG_STATUS_SUCCESS, TAG_CALL_STAGE_ON_METHOD_EXIT);
+            this.methodExitErrorTimer = newExecutionTimer(TAG_STATUS_ERROR, TAG_CALL_STAGE_ON_METHOD_EXIT);
+            this.completedSuccessTimer = newExecutionTimer(TAG_STATUS_SUCCESS, TAG_CALL_STAGE_ON_COMPLETED);
+            this.completedErrorTimer = newExecutionTimer(TAG_STATUS_ERROR, TAG_CALL_STAGE_ON_COMPLETED);
+
+            this.subscribedCounter = newSubscriptionCounter("subscribed");
+            this.unsubscribedCounter = newSubscriptionCounter("unsubscribed");
+            this.subscriptionCompletedCounter = newSubscriptionCounter("onCompleted");
+            this.emitCounter = registry.counter(
+                    resultSubscriptionEmitMetricName,
+                    "class", apiInterface.getName(),
+                    "method", method.getName()
+            );
+            this.subscriptionTimer = registry.timer(
+                    resultSubscriptionTimeMetricName,
+                    "class", apiInterface.getName(),
+                    "method", method.getName()
+            );
+        }
+
+        private boolean isSampled() {
+            return samplingRatio >= 1.0 || ThreadLocalRandom.current().nextDouble() < samplingRatio;
+        }
+
+        private Counter getErrorCounter(String exceptionName) {
+            Counter counter = errorCounters.get(exceptionName);
+            if (counter != null) {
+                return counter;
+            }
+            return errorCounters.computeIfAbsent(exceptionName, name -> registry.counter(
+                    invocationCounterMetricName,
+                    "class", apiInterface.getName(),
+                    "method", method.getName(),
+                    "status", "error",
+                    "exception", name
+            ));
+        }
+
+        private Counter getSubscriptionErrorCounter(String exceptionName) {
+            Counter counter = subscriptionErrorCounters.get(exceptionName);
+            if (counter != null) {
+                return counter;
+            }
+            return subscriptionErrorCounters.computeIfAbsent(exceptionName, name -> registry.counter(
+                    resultSubscriptionCountMetricName,
+                    "class", apiInterface.getName(),
+                    "method", method.getName(),
+                    "subscriptionStage", "onError",
+                    "exception", name
+            ));
+        }
+
+        private Timer newExecutionTimer(Tag... tags) {
+            Id id = registry.createId(invocationTimeMetricName,
+                    "class", apiInterface.getName(),
+                    "method", method.getName()
+            ).withTags(tags);
+            return percentiles ? PercentileTimer.get(registry, id) : registry.timer(id);
+        }
+
+        private Counter newSubscriptionCounter(String subscriptionStage) {
+            return registry.counter(
+                    resultSubscriptionCountMetricName,
+                    "class", apiInterface.getName(),
+                    "method", method.getName(),
+                    "subscriptionStage", subscriptionStage
+            );
+        }
+    }
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.common.util.rx;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import io.grpc.Context;
+import rx.Observable;
+import rx.Scheduler;
+
+/**
+ * Collapses concurrent executions of calls with the same key into a single execution, which result is shared
+ * by all subscribers. Once a call completes, its result can be further reused for a short period of time
+ * (the reuse window), which is useful for queries issued at the same time by many clients. Failed calls are never
+ * reused, although subscribers that joined an execution in progress receive its error.
+ * <p>
+ * The underlying call is executed once the first subscriber subscribes to the returned observable, and it is not
+ * cancelled if all subscribers unsubscribe. It runs in a fork of the first subscriber's gRPC {@link Context}, so it
+ * keeps the context values, but is not affected by the first subscriber's cancellation or deadline. Instead, each
+ * execution is bounded by its own timeout. As the context values are shared, the keys should include the caller
+ * identity if the call depends on it.
+ */
+public class SingleFlight<K, T> {
+
+    private final Supplier<Long> reuseWindowMs;
+    private final Supplier<Long> timeoutMs;
+    private final Registry registry;
+    private final Scheduler scheduler;
+    private final Scheduler.Worker worker;
+
+    private final ConcurrentMap<K, Flight> flights = new ConcurrentHashMap<>();
+
+    private final Id flightsId;
+    private final Counter executedCounter;
+    private final Counter collapsedCounter;
+    private final Counter reusedCounter;
+
+    public SingleFlight(String metricNameRoot,
+                        Supplier<Long> reuseWindowMs,
+                        Supplier<Long> timeoutMs,
+                        Registry registry,
+                        Scheduler scheduler) {
+        this.reuseWindowMs = reuseWindowMs;
+        this.timeoutMs = timeoutMs;
+        this.registry = registry;
+        this.scheduler = scheduler;
+        this.worker = scheduler.createWorker();
+
+        this.flightsId = registry.createId(metricNameRoot + ".singleFlight.flights");
+        PolledMeter.using(registry).withId(flightsId).monitorSize(flights);
+
+        Id callsId = registry.createId(metricNameRoot + ".singleFlight.calls");
+        this.executedCounter = registry.counter(callsId.withTag("outcome", "executed"));
+        this.collapsedCounter = registry.counter(callsId.withTag("outcome", "collapsed"));
+        this.reusedCounter = registry.counter(callsId.withTag("outcome", "reused"));
+    }
+
+    public void shutdown() {
+        if (!worker.isUnsubscribed()) {
+            worker.unsubscribe();
+        }
+        flights.clear();
+        PolledMeter.remove(registry, flightsId);
+    }
+
+    /**
+     * Returns an observable emitting the result of a call with the given key. The call is made only if there is no
+     * execution in progress for this key, and no completed one within the reuse window.
+     */
+    public Observable<T> execute(K key, Supplier<Observable<T>> call) {
+        return Observable.defer(() -> {
+            while (true) {
+                Flight existing = flights.get(key);
+                if (existing != null) {
+                    if (existing.isInProgress()) {
+                        collapsedCounter.increment();
+                        return existing.result;
+                    }
+                    if (existing.isReusable()) {
+                        reusedCounter.increment();
+                        return existing.result;
+                    }
+                    flights.remove(key, existing);
+                    continue;
+                }
+                Flight flight = new Flight(key, call);
+                if (flights.putIfAbsent(key, flight) == null) {
+                    executedCounter.increment();
+                    return flight.result;
+                }
+            }
+        });
+    }
+
+    private class Flight {
+
+        private final K key;
+        private final Observable<T> result;
+
+        private volatile long completedTimestamp = -1;
+
+        private Flight(K key, Supplier<Observable<T>> call) {
+            this.key = key;
+            Context flightContext = Context.current().fork();
+            this.result = Observable.<T>unsafeCreate(subscriber -> {
+                Context previous = flightContext.attach();
+                try {
+                    Observable.defer(call::get).unsafeSubscribe(subscriber);
+                } finally {
+                    flightContext.detach(previous);
+                }
+            })
+                    .timeout(timeoutMs.get(), TimeUnit.MILLISECONDS, scheduler)
+                    .doOnCompleted(this::onCompleted)
+                    .doOnError(error -> flights.remove(key, this))
+                    .cache();
+        }
+
+        private boolean isInProgress() {
+            return completedTimestamp < 0;
+        }
+
+        private boolean isReusable() {
+            return completedTimestamp >= 0 && scheduler.now() - completedTimestamp < reuseWindowMs.get();
+        }
+
+        private void onCompleted() {
+            long windowMs = reuseWindowMs.get();
+            if (windowMs <= 0) {
+                flights.remove(key, this);
+                return;
+            }
+            this.completedTimestamp = scheduler.now();
+            worker.schedule(() -> flights.remove(key, this), windowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.spectator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.common.util.StringExt;
+
+/**
+ * Metrics collector for a group of Finite State Machines (FSMs) of the same kind. Unlike {@link FsmMetricsImpl},
+ * which creates a dedicated set of meters per FSM instance, this collector reports the number of FSMs in each
+ * state, and the state transitions counted across all FSMs in the group. The number of meter ids is thus bounded
+ * by the number of states, irrespective of the number of FSM instances.
+ */
+public class AggregatedFsmMetrics<S> {
+
+    private final Function<S, String> nameOf;
+    private final Function<S, Boolean> finalStateEval;
+    private final Registry registry;
+    private final Id baseStateId;
+    private final Id baseUpdatesId;
+
+    private final ConcurrentMap<String, AtomicLong> stateCounters = new ConcurrentHashMap<>();
+
+    AggregatedFsmMetrics(Id rootId,
+                         Function<S, String> nameOf,
+                         Function<S, Boolean> finalStateEval,
+                         Registry registry) {
+        this.nameOf = nameOf;
+        this.finalStateEval = finalStateEval;
+        this.registry = registry;
+        this.baseStateId = registry.createId(rootId.name() + "currentState", rootId.tags());
+        this.baseUpdatesId = registry.createId(rootId.name() + "updates", rootId.tags());
+    }
+
+    /**
+     * Creates a new FSM instance in the given state. As in {@link FsmMetricsImpl}, callers are expected to serialize
+     * all updates of a single instance.
+     */
+    public SpectatorExt.FsmMetrics<S> newInstance(S initialState) {
+        return new FsmInstance(initialState);
+    }
+
+    /**
+     * Removes the current state gauges from the registry.
+     */
+    public void close() {
+        stateCounters.keySet().forEach(stateName -> PolledMeter.remove(registry, baseStateId.withTag("state", stateName)));
+        stateCounters.clear();
+    }
+
+    private void enter(S state, String reason) {
+        String stateName = nameOf.apply(state);
+        Id updateId = baseUpdatesId.withTag("state", stateName);
+        if (StringExt.isNotEmpty(reason)) {
+            updateId = updateId.withTag("reason", reason);
+        }
+        registry.counter(updateId).increment();
+        if (!finalStateEval.apply(state)) {
+            stateCounters.computeIfAbsent(stateName, name ->
+                    PolledMeter.using(registry).withId(baseStateId.withTag("state", name)).monitorValue(new AtomicLong())
+            ).incrementAndGet();
+        }
+    }
+
+    private void leave(S state) {
+        if (!finalStateEval.apply(state)) {
+            AtomicLong counter = stateCounters.get(nameOf.apply(state));
+            if (counter != null) {
+                counter.decrementAndGet();
+            }
+        }
+    }
+
+    private class FsmInstance implements SpectatorExt.FsmMetrics<S> {
+
+        private final AtomicReference<S> currentState;
+
+        private FsmInstance(S initialState) {
+            this.currentState = new AtomicReference<>(initialState);
+            enter(initialState, "");
+        }
+
+        @Override
+        public void transition(S nextState) {
+            transition(nextState, "");
+        }
+
+        @Override
+        public void transition(S nextState, String reason) {
+            S current = currentState.get();
+            if (finalStateEval.apply(current) || current == nextState) {
+                return;
+            }
+            currentState.set(nextState);
+            leave(current);
+            enter(nextState, reason);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.spectator;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Tag;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.common.util.time.Clock;
+
+/**
+ * Enforces an upper bound on the number of distinct metric ids created for each metric name. Only ids having at least
+ * one of the guarded (high cardinality) tags, like a job or a task id, are subject to the budget. When the budget is
+ * exhausted, the guarded tag values of new ids are replaced with {@link #OVERFLOW_TAG_VALUE}, so all of them are
+ * aggregated into a single overflow meter. Ids not used for longer than the configured expiry time, or explicitly
+ * released, give their budget back.
+ * <p>
+ * The following metrics are reported, tagged with the guarded metric name:
+ * <ul>
+ * <li>{@code <rootName>trackedIds} - number of ids within the budget</li>
+ * <li>{@code <rootName>overflows} - number of ids mapped to the overflow id</li>
+ * </ul>
+ */
+public class MetricCardinalityGuard {
+
+    public static final String OVERFLOW_TAG_VALUE = "_overflow";
+
+    private final Set<String> guardedTagKeys;
+    private final int maxIdsPerMetric;
+    private final long expiryMs;
+    private final Clock clock;
+    private final Registry registry;
+
+    private final Id trackedIdsId;
+    private final Id overflowsId;
+
+    private final ConcurrentMap<String, MetricBudget> budgets = new ConcurrentHashMap<>();
+
+    public MetricCardinalityGuard(String rootName,
+                                  Set<String> guardedTagKeys,
+                                  int maxIdsPerMetric,
+                                  long expiryMs,
+                                  Clock clock,
+                                  Registry registry) {
+        this.guardedTagKeys = guardedTagKeys;
+        this.maxIdsPerMetric = maxIdsPerMetric;
+        this.expiryMs = expiryMs;
+        this.clock = clock;
+        this.registry = registry;
+        this.trackedIdsId = registry.createId(rootName + "trackedIds");
+        this.overflowsId = registry.createId(rootName + "overflows");
+    }
+
+    /**
+     * Returns the given id if it is within the budget, or its overflow counterpart otherwise.
+     */
+    public Id guard(Id id) {
+        if (!isGuarded(id)) {
+            return id;
+        }
+        MetricBudget budget = budgets.computeIfAbsent(id.name(), MetricBudget::new);
+        if (budget.admit(id)) {
+            return id;
+        }
+        budget.overflows.increment();
+        return toOverflowId(id);
+    }
+
+    /**
+     * Returns a counter for the given id, or for its overflow counterpart if the budget is exhausted.
+     */
+    public Counter counter(Id id) {
+        return registry.counter(guard(id));
+    }
+
+    public Counter counter(String name, String... tags) {
+        return counter(registry.createId(name, tags));
+    }
+
+    /**
+     * Gives back the budget held by the given id. Returns false if the id was not within the budget (for example
+     * it was mapped to the overflow id).
+     */
+    public boolean release(Id id) {
+        MetricBudget budget = budgets.get(id.name());
+        return budget != null && budget.lastAccessTimes.remove(id) != null;
+    }
+
+    public boolean isOverflowId(Id id) {
+        for (Tag tag : id.tags()) {
+            if (guardedTagKeys.contains(tag.key()) && OVERFLOW_TAG_VALUE.equals(tag.value())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isGuarded(Id id) {
+        for (Tag tag : id.tags()) {
+            if (guardedTagKeys.contains(tag.key()) && !OVERFLOW_TAG_VALUE.equals(tag.value())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Id toOverflowId(Id id) {
+        Id overflowId = registry.createId(id.name());
+        for (Tag tag : id.tags()) {
+            overflowId = overflowId.withTag(tag.key(), guardedTagKeys.contains(tag.key()) ? OVERFLOW_TAG_VALUE : tag.value());
+        }
+        return overflowId;
+    }
+
+    private class MetricBudget {
+
+        private final ConcurrentMap<Id, Long> lastAccessTimes = new ConcurrentHashMap<>();
+        private final Counter overflows;
+
+        private MetricBudget(String metricName) {
+            this.overflows = registry.counter(overflowsId.withTag("metric", metricName));
+            PolledMeter.using(registry).withId(trackedIdsId.withTag("metric", metricName)).monitorSize(lastAccessTimes);
+        }
+
+        private boolean admit(Id id) {
+            long now = clock.wallTime();
+            if (lastAccessTimes.replace(id, now) != null) {
+                return true;
+            }
+            synchronized (this) {
+                if (lastAccessTimes.size() >= maxIdsPerMetric) {
+                    evictExpired(now);
+                }
+                if (lastAccessTimes.size() < maxIdsPerMetric) {
+                    lastAccessTimes.put(id, now);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void evictExpired(long now) {
+            Iterator<Map.Entry<Id, Long>> it = lastAccessTimes.entrySet().iterator();
+            while (it.hasNext()) {
+                if (now - it.next().getValue() > expiryMs) {
+                    it.remove();
+                }
+            }
+        }
+    }
+}
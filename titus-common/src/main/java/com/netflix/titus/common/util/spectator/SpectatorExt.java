@@ -18,11 +18,13 @@ package com.netflix.titus.common.util.spectator;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Function;
 
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spectator.api.Tag;
+import com.netflix.titus.common.util.time.Clock;
 import rx.Observable;
 
 /**
@@ -50,6 +52,30 @@ public final class SpectatorExt {
         return new FsmMetricsImpl<>(rootId, Enum::name, finalStateEval, initialState, registry);
     }
 
+    /**
+     * Metric collector for a group of Finite State Machines (FSMs). It reports the number of FSMs in each state, and
+     * the state transitions, without creating meters per FSM instance. Use it in place of {@link #fsmMetrics} when
+     * the number of FSM instances is unbounded.
+     */
+    public static <E extends Enum<E>> AggregatedFsmMetrics<E> aggregatedFsmMetrics(Id rootId,
+                                                                                 Function<E, Boolean> finalStateEval,
+                                                                                 Registry registry) {
+        return new AggregatedFsmMetrics<>(rootId, Enum::name, finalStateEval, registry);
+    }
+
+    /**
+     * Creates a guard enforcing an upper bound on the number of distinct metric ids per metric name, for ids with
+     * high cardinality tags. See {@link MetricCardinalityGuard}.
+     */
+    public static MetricCardinalityGuard cardinalityGuard(String rootName,
+                                                          Set<String> guardedTagKeys,
+                                                          int maxIdsPerMetric,
+                                                          long expiryMs,
+                                                          Clock clock,
+                                                          Registry registry) {
+        return new MetricCardinalityGuard(rootName, guardedTagKeys, maxIdsPerMetric, expiryMs, clock, registry);
+    }
+
     /**
      * Monitors a value, and a collection of buckets, each denoting a value range. If a current value is within a
      * particular bucket/range, its gauge is set to 1. All the other buckets are set to 0.
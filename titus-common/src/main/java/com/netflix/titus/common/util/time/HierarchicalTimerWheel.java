@@ -0,0 +1,225 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.time;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Hierarchical timing wheel (see G. Varghese, T. Lauck, "Hashed and Hierarchical Timing Wheels"). A timeout is
+ * placed in the bucket of the lowest level wheel whose range covers its deadline, and is moved to lower level wheels
+ * as the time advances, so scheduling, cancellation and expiry are O(1) operations, irrespective of the number of
+ * timeouts armed. Timeouts with deadlines beyond the range of the top level wheel are kept at the top level, and are
+ * re-inserted each time their bucket comes around.
+ * <p>
+ * Timeouts fire at the first tick at or after their deadline, so the expiry precision is bounded by the tick interval.
+ * The wheel does not own a thread; the time is moved forward by the {@link #advance(long, Consumer)} calls.
+ * This class is not thread safe.
+ */
+public class HierarchicalTimerWheel<T> {
+
+    private final long tickMs;
+    private final long startTimeMs;
+    private final int bitsPerLevel;
+    private final int mask;
+    private final int levels;
+
+    private final List<Timeout<T>>[][] buckets;
+    private List<Timeout<T>> due = new ArrayList<>();
+
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimerWheel(long tickMs, int wheelSize, int levels, long startTimeMs) {
+        Preconditions.checkArgument(tickMs > 0, "Tick interval must be > 0: %s", tickMs);
+        Preconditions.checkArgument(wheelSize > 1 && Integer.bitCount(wheelSize) == 1, "Wheel size must be a power of 2: %s", wheelSize);
+        Preconditions.checkArgument(levels > 0, "Number of levels must be > 0: %s", levels);
+        Preconditions.checkArgument(Integer.numberOfTrailingZeros(wheelSize) * levels < 63, "Wheel range too large: wheelSize=%s, levels=%s", wheelSize, levels);
+
+        this.tickMs = tickMs;
+        this.startTimeMs = startTimeMs;
+        this.bitsPerLevel = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.levels = levels;
+        this.buckets = new List[levels][wheelSize];
+    }
+
+    /**
+     * Number of armed (not expired and not cancelled) timeouts.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Time of the last processed tick.
+     */
+    public long getCurrentTimeMs() {
+        return startTimeMs + currentTick * tickMs;
+    }
+
+    /**
+     * Arms a new timeout. If the deadline is already due, the timeout fires on the next {@link #advance(long, Consumer)} call.
+     */
+    public Timeout<T> schedule(T item, long deadlineMs) {
+        long deadlineTick = deadlineMs <= startTimeMs ? 0 : (deadlineMs - startTimeMs + tickMs - 1) / tickMs;
+        Timeout<T> timeout = new Timeout<>(this, item, deadlineMs, deadlineTick);
+        if (!place(timeout)) {
+            due.add(timeout);
+        }
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Moves the wheel forward to the given time, and passes all timeouts with deadlines at or before that time
+     * to the consumer, in the deadline tick order.
+     *
+     * @return number of fired timeouts
+     */
+    public int advance(long nowMs, Consumer<Timeout<T>> expiredConsumer) {
+        int fired = fire(drainDue(), expiredConsumer);
+
+        long targetTick = nowMs <= startTimeMs ? 0 : (nowMs - startTimeMs) / tickMs;
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // Cascade from the highest level, so timeouts moved down are placed in already cascaded lower level buckets.
+            for (int level = levels - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (level * bitsPerLevel)) - 1)) == 0) {
+                    List<Timeout<T>> bucket = takeBucket(level, (int) ((currentTick >>> (level * bitsPerLevel)) & mask));
+                    if (bucket != null) {
+                        for (Timeout<T> timeout : bucket) {
+                            if (!timeout.cancelled && !place(timeout)) {
+                                due.add(timeout);
+                            }
+                        }
+                    }
+                }
+            }
+
+            fired += fire(drainDue(), expiredConsumer);
+            fired += fire(takeBucket(0, (int) (currentTick & mask)), expiredConsumer);
+        }
+        return fired;
+    }
+
+    /**
+     * Places the timeout in a bucket, or returns false if its deadline tick has already been reached.
+     */
+    private boolean place(Timeout<T> timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        if (delta <= 0) {
+            return false;
+        }
+        int level = 0;
+        while (level < levels - 1 && delta >= (1L << ((level + 1) * bitsPerLevel))) {
+            level++;
+        }
+        int index = (int) ((timeout.deadlineTick >>> (level * bitsPerLevel)) & mask);
+        List<Timeout<T>> bucket = buckets[level][index];
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            buckets[level][index] = bucket;
+        }
+        bucket.add(timeout);
+        return true;
+    }
+
+    private List<Timeout<T>> takeBucket(int level, int index) {
+        List<Timeout<T>> bucket = buckets[level][index];
+        buckets[level][index] = null;
+        return bucket;
+    }
+
+    private List<Timeout<T>> drainDue() {
+        if (due.isEmpty()) {
+            return null;
+        }
+        List<Timeout<T>> result = due;
+        due = new ArrayList<>();
+        return result;
+    }
+
+    private int fire(List<Timeout<T>> timeouts, Consumer<Timeout<T>> expiredConsumer) {
+        if (timeouts == null) {
+            return 0;
+        }
+        int fired = 0;
+        for (Timeout<T> timeout : timeouts) {
+            if (!timeout.cancelled) {
+                timeout.expired = true;
+                size--;
+                fired++;
+                expiredConsumer.accept(timeout);
+            }
+        }
+        return fired;
+    }
+
+    public static class Timeout<T> {
+
+        private final HierarchicalTimerWheel<T> owner;
+        private final T item;
+        private final long deadlineMs;
+        private final long deadlineTick;
+
+        private boolean cancelled;
+        private boolean expired;
+
+        private Timeout(HierarchicalTimerWheel<T> owner, T item, long deadlineMs, long deadlineTick) {
+            this.owner = owner;
+            this.item = item;
+            this.deadlineMs = deadlineMs;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public long getDeadlineMs() {
+            return deadlineMs;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isExpired() {
+            return expired;
+        }
+
+        /**
+         * Cancels the timeout. The entry is dropped lazily, when its bucket is processed.
+         *
+         * @return false if the timeout already expired or was cancelled
+         */
+        public boolean cancel() {
+            if (cancelled || expired) {
+                return false;
+            }
+            cancelled = true;
+            owner.size--;
+            return true;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.netflix.titus.common.framework.reconciler;
 
+import java.util.Collections;
 import java.util.Optional;
 
 import com.netflix.titus.common.util.tuple.Pair;
@@ -23,6 +24,7 @@ import org.junit.Test;
 
 import static com.netflix.titus.common.framework.reconciler.EntityHolder.newRoot;
 import static com.netflix.titus.common.util.CollectionsExt.first;
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class EntityHolderTest {
@@ -65,4 +67,106 @@ public class EntityHolderTest {
         assertThat(first(rootV2.getChildren()).getId()).isEqualTo("myChild2");
         assertThat(child1.getId()).isEqualTo("myChild1");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testChildrenAreOrderedByFirstInsertion() throws Exception {
+        EntityHolder root = newRoot("myRoot", "as")
+                .addChild(newRoot("c", "c1"))
+                .addChild(newRoot("a", "a1"))
+                .addChild(newRoot("b", "b1"))
+                .addChild(newRoot("a", "a2"));
+
+        assertThat(root.getChildren()).extracting(EntityHolder::getId).containsExactly("c", "a", "b");
+        assertThat((String) root.getChildren().get(1).getEntity()).isEqualTo("a2");
+    }
+
+    @Test
+    public void testAddChildren() throws Exception {
+        EntityHolder root = newRoot("myRoot", "as").addChild(newRoot("b", "b1"));
+        EntityHolder updated = root.addChildren(asList(newRoot("c", "c1"), newRoot("b", "b2"), newRoot("a", "a1")));
+
+        assertThat(updated.getChildren()).extracting(EntityHolder::getId).containsExactly("b", "c", "a");
+        assertThat((String) updated.findChildById("b").get().getEntity()).isEqualTo("b2");
+        assertThat(root.getChildren()).hasSize(1);
+        assertThat(root.addChildren(Collections.emptyList())).isSameAs(root);
+    }
+
+    @Test
+    public void testUpdatesOnLargeHierarchyDoNotAffectPreviousVersions() throws Exception {
+        EntityHolder rootV1 = newRoot("myRoot", "as");
+        for (int i = 0; i < 1_000; i++) {
+            rootV1 = rootV1.addChild(newRoot("child" + i, "v1"));
+        }
+
+        EntityHolder rootV2 = rootV1.addChild(newRoot("child500", "v2")).removeChild("child0").getLeft();
+
+        assertThat(rootV1.getChildren()).hasSize(1_000);
+        assertThat((String) rootV1.findChildById("child500").get().getEntity()).isEqualTo("v1");
+        assertThat(rootV1.findChildById("child0")).isPresent();
+
+        assertThat(rootV2.getChildren()).hasSize(999);
+        assertThat((String) rootV2.findChildById("child500").get().getEntity()).isEqualTo("v2");
+        assertThat(rootV2.findChildById("child0")).isEmpty();
+        assertThat(first(rootV2.getChildren()).getId()).isEqualTo("child1");
+    }
+
+    @Test
+    public void testChildrenAggregateIsUpdatedIncrementally() throws Exception {
+        CountingAggregator aggregator = new CountingAggregator();
+        EntityHolder rootV1 = newRoot("myRoot", "as")
+                .addChild(newRoot("a", "a1"))
+                .addChild(newRoot("b", "b1"));
+
+        assertThat(rootV1.getChildrenAggregate(aggregator)).isEqualTo(2);
+        assertThat(aggregator.adds).isEqualTo(2);
+
+        EntityHolder rootV2 = rootV1.addChild(newRoot("c", "c1"))
+                .addChild(newRoot("a", "a2"))
+                .addChildren(asList(newRoot("d", "d1"), newRoot("b", "b2")))
+                .removeChild("c").getLeft()
+                .addTag("myTag", "myValue")
+                .setEntity("as2");
+
+        assertThat(rootV2.getChildrenAggregate(aggregator)).isEqualTo(3);
+        assertThat(aggregator.adds).isEqualTo(4);
+        assertThat(aggregator.replaces).isEqualTo(2);
+        assertThat(aggregator.removes).isEqualTo(1);
+
+        // Previous versions keep their own aggregate values
+        assertThat(rootV1.getChildrenAggregate(aggregator)).isEqualTo(2);
+
+        // Entities created before the aggregate was requested compute it from scratch
+        assertThat(newRoot("other", "o").addChild(newRoot("x", "x1")).getChildrenAggregate(aggregator)).isEqualTo(1);
+        assertThat(aggregator.adds).isEqualTo(5);
+    }
+
+    private static class CountingAggregator implements ChildrenAggregator<Integer> {
+
+        private int adds;
+        private int removes;
+        private int replaces;
+
+        @Override
+        public Integer empty() {
+            return 0;
+        }
+
+        @Override
+        public Integer add(Integer aggregate, EntityHolder child) {
+            adds++;
+            return aggregate + 1;
+        }
+
+        @Override
+        public Integer remove(Integer aggregate, EntityHolder child) {
+            removes++;
+            return aggregate - 1;
+        }
+
+        @Override
+        public Integer replace(Integer aggregate, EntityHolder previousChild, EntityHolder newChild) {
+            replaces++;
+            return aggregate;
+        }
+    }
+}
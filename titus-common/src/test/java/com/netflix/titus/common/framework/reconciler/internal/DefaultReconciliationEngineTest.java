@@ -28,13 +28,19 @@ import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableMap;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
 import com.netflix.titus.common.framework.reconciler.ChangeAction;
 import com.netflix.titus.common.framework.reconciler.EntityHolder;
 import com.netflix.titus.common.framework.reconciler.ModelAction;
 import com.netflix.titus.common.framework.reconciler.ModelActionHolder;
 import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
+import com.netflix.titus.common.framework.reconciler.TransactionTrace;
+import com.netflix.titus.common.framework.reconciler.TransactionTrace.Stage;
 import com.netflix.titus.common.framework.reconciler.internal.SimpleReconcilerEvent.EventType;
+import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.testkit.rx.ExtTestSubscriber;
 import org.junit.Before;
@@ -44,12 +50,14 @@ import rx.Subscription;
 import rx.schedulers.Schedulers;
 import rx.schedulers.TestScheduler;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class DefaultReconciliationEngineTest {
 
     private final TestScheduler testScheduler = Schedulers.test();
+    private final TitusRuntime titusRuntime = TitusRuntimes.test(testScheduler);
 
     private final Map<Object, Comparator<EntityHolder>> indexComparators = ImmutableMap.<Object, Comparator<EntityHolder>>builder()
             .put("ascending", Comparator.comparing(EntityHolder::getEntity))
@@ -64,7 +72,7 @@ public class DefaultReconciliationEngineTest {
             new SimpleReconcilerEventFactory(),
             changeAction -> Collections.emptyList(),
             event -> Collections.emptyList(),
-            TitusRuntimes.test(testScheduler)
+            titusRuntime
     );
 
     private final ExtTestSubscriber<SimpleReconcilerEvent> eventSubscriber = new ExtTestSubscriber<>();
@@ -101,6 +109,38 @@ public class DefaultReconciliationEngineTest {
         assertThat(testSubscriber.isUnsubscribed()).isTrue();
     }
 
+    @Test
+    public void testTransactionTracing() {
+        ExtTestSubscriber<Void> testSubscriber = new ExtTestSubscriber<>();
+        engine.changeReferenceModel(new SlowChangeAction()).subscribe(testSubscriber);
+        assertThat(engine.getInFlightTransactions()).hasSize(1);
+        assertThat(engine.getInFlightTransactions().get(0).getStage()).isEqualTo(Stage.Enqueued);
+
+        engine.emitEvents();
+        engine.triggerActions();
+        TransactionTrace started = engine.getInFlightTransactions().get(0);
+        assertThat(started.getStage()).isEqualTo(Stage.Started);
+        assertThat(started.isByReconciler()).isFalse();
+        assertThat(started.getRootHolderId()).isEqualTo("myRoot");
+
+        testScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        assertThat(engine.getInFlightTransactions().get(0).getStage()).isEqualTo(Stage.StoreCommitted);
+        assertThat(engine.getInFlightTransactions().get(0).getAgeMs()).isEqualTo(1_000);
+
+        engine.applyModelUpdates();
+        assertThat(engine.getInFlightTransactions().get(0).getStage()).isEqualTo(Stage.ModelApplied);
+        engine.emitEvents();
+        engine.closeFinishedTransactions();
+        assertThat(engine.getInFlightTransactions()).isEmpty();
+
+        Registry registry = titusRuntime.getRegistry();
+        Id executionId = registry.createId("titus.reconciliation.transaction.stageLatency",
+                "actionType", "change", "status", "success", "stage", "execution"
+        );
+        assertThat(registry.timer(executionId).count()).isEqualTo(1);
+        assertThat(registry.timer(executionId).totalTime()).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
     @Test
     public void testChildAddRemove() {
         addChild("child1");
@@ -254,6 +294,48 @@ public class DefaultReconciliationEngineTest {
         assertThat(engine.getReferenceView().findChildById("child2").get().<String>getEntity()).isEqualTo("update2");
     }
 
+    @Test
+    public void testMultipleEntitiesChangeOverlapsWithEachOfThem() {
+        addChild("child1");
+        addChild("child2");
+        addChild("child3");
+
+        ExtTestSubscriber<Void> batchSubscriber = new ExtTestSubscriber<>();
+        ExtTestSubscriber<Void> child3Subscriber = new ExtTestSubscriber<>();
+        ExtTestSubscriber<Void> child2Subscriber = new ExtTestSubscriber<>();
+        ChangeAction batchAction = () -> Observable.zip(
+                new UpdateChildAction("child1", "batch1").apply(),
+                new UpdateChildAction("child2", "batch2").apply(),
+                (first, second) -> CollectionsExt.merge(first, second)
+        );
+        engine.changeReferenceModel(batchAction, asList("child1", "child2", "removedChild")).subscribe(batchSubscriber);
+        engine.changeReferenceModel(new UpdateChildAction("child3", "update3"), "child3").subscribe(child3Subscriber);
+        engine.changeReferenceModel(new UpdateChildAction("child2", "update2"), "child2").subscribe(child2Subscriber);
+
+        // Batch and child 3
+        engine.triggerActions();
+        assertThat(engine.applyModelUpdates()).isTrue();
+        engine.emitEvents();
+        assertThat(engine.closeFinishedTransactions()).isTrue();
+
+        batchSubscriber.assertOnCompleted();
+        child3Subscriber.assertOnCompleted();
+        child2Subscriber.assertOpen();
+
+        assertThat(engine.getReferenceView().findChildById("child1").get().<String>getEntity()).isEqualTo("batch1");
+        assertThat(engine.getReferenceView().findChildById("child2").get().<String>getEntity()).isEqualTo("batch2");
+        assertThat(engine.getReferenceView().findChildById("child3").get().<String>getEntity()).isEqualTo("update3");
+
+        // Child 2
+        engine.triggerActions();
+        assertThat(engine.applyModelUpdates()).isTrue();
+        engine.emitEvents();
+        assertThat(engine.closeFinishedTransactions()).isTrue();
+
+        child2Subscriber.assertOnCompleted();
+        assertThat(engine.getReferenceView().findChildById("child2").get().<String>getEntity()).isEqualTo("update2");
+    }
+
     @Test
     public void testReconciliationActions() {
         Subscription setupSubscription = engine.changeReferenceModel(new RootChangeAction("rootValue")).subscribe();
@@ -60,4 +60,21 @@ public class JavaBeanReflectionTest {
 
         assertThat(updatedRoot.getName()).isEqualTo("Root");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testObjectCreateWithIndexedOverrides() throws Exception {
+        JavaBeanReflection jbr = JavaBeanReflection.forType(Child.class);
+        Child child = new Child("child1", 1, 2);
+
+        int nameIndex = jbr.getFields().indexOf(getField(Child.class, "childName"));
+        assertThat(jbr.getFieldValue(child, nameIndex)).isEqualTo("child1");
+
+        Object[] overrides = new Object[jbr.getFields().size()];
+        overrides[nameIndex] = "child2";
+        Child updatedChild = (Child) jbr.create(child, overrides);
+
+        assertThat(updatedChild.getChildName()).isEqualTo("child2");
+        assertThat(updatedChild.getMin()).isEqualTo(1);
+        assertThat(updatedChild.getMax()).isEqualTo(2);
+    }
+}
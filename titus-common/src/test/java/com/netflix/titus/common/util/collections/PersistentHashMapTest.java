@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.collections;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PersistentHashMapTest {
+
+    @Test
+    public void testPutGetRemove() throws Exception {
+        PersistentHashMap<String, Integer> v1 = PersistentHashMap.<String, Integer>empty().put("a", 1).put("b", 2);
+        PersistentHashMap<String, Integer> v2 = v1.put("a", 10).remove("b");
+
+        assertThat(v1.size()).isEqualTo(2);
+        assertThat(v1.get("a")).isEqualTo(1);
+        assertThat(v1.get("b")).isEqualTo(2);
+
+        assertThat(v2.size()).isEqualTo(1);
+        assertThat(v2.get("a")).isEqualTo(10);
+        assertThat(v2.containsKey("b")).isFalse();
+        assertThat(v2.remove("b")).isSameAs(v2);
+    }
+
+    @Test
+    public void testNullValue() throws Exception {
+        PersistentHashMap<String, Integer> map = PersistentHashMap.<String, Integer>empty().put("a", null);
+        assertThat(map.containsKey("a")).isTrue();
+        assertThat(map.get("a")).isNull();
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testHashCollisions() throws Exception {
+        PersistentHashMap<CollidingKey, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 10; i++) {
+            map = map.put(new CollidingKey(i), i);
+        }
+        map = map.put(new CollidingKey(100, 7), 100);
+        assertThat(map.size()).isEqualTo(11);
+        for (int i = 0; i < 10; i++) {
+            assertThat(map.get(new CollidingKey(i))).isEqualTo(i);
+        }
+        assertThat(map.get(new CollidingKey(100, 7))).isEqualTo(100);
+
+        for (int i = 0; i < 10; i++) {
+            map = map.remove(new CollidingKey(i));
+        }
+        assertThat(map.size()).isEqualTo(1);
+        assertThat(map.get(new CollidingKey(100, 7))).isEqualTo(100);
+    }
+
+    @Test
+    public void testRandomOperationsAgainstHashMap() throws Exception {
+        Random random = new Random(123);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                expected.put(key, i);
+                map = map.put(key, i);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertThat(map.get(entry.getKey())).isEqualTo(entry.getValue());
+        }
+
+        Map<Integer, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    private static class CollidingKey {
+
+        private final int value;
+        private final int hash;
+
+        private CollidingKey(int value) {
+            this(value, 1);
+        }
+
+        private CollidingKey(int value, int hash) {
+            this.value = value;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
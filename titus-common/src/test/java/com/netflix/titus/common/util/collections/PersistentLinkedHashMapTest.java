@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.collections;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PersistentLinkedHashMapTest {
+
+    @Test
+    public void testInsertionOrderIsPreserved() throws Exception {
+        PersistentLinkedHashMap<String, Integer> map = PersistentLinkedHashMap.<String, Integer>empty()
+                .put("c", 1)
+                .put("a", 2)
+                .put("b", 3)
+                .put("a", 20);
+
+        assertThat(map.values()).containsExactly(1, 20, 3);
+        assertThat(map.remove("c").values()).containsExactly(20, 3);
+        assertThat(map.remove("c").put("c", 10).values()).containsExactly(20, 3, 10);
+    }
+
+    @Test
+    public void testOldVersionsAreNotAffectedByUpdates() throws Exception {
+        PersistentLinkedHashMap<Integer, Integer> v1 = PersistentLinkedHashMap.empty();
+        for (int i = 0; i < 1_000; i++) {
+            v1 = v1.put(i, i);
+        }
+        PersistentLinkedHashMap<Integer, Integer> v2 = v1.put(500, -1).remove(10);
+
+        assertThat(v1.size()).isEqualTo(1_000);
+        assertThat(v1.get(500)).isEqualTo(500);
+        assertThat(v1.get(10)).isEqualTo(10);
+
+        assertThat(v2.size()).isEqualTo(999);
+        assertThat(v2.get(500)).isEqualTo(-1);
+        assertThat(v2.containsKey(10)).isFalse();
+    }
+
+    @Test
+    public void testRandomOperationsAgainstLinkedHashMap() throws Exception {
+        Random random = new Random(123);
+        Map<Integer, Integer> expected = new LinkedHashMap<>();
+        PersistentLinkedHashMap<Integer, Integer> map = PersistentLinkedHashMap.empty();
+
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(2_000);
+            if (random.nextInt(2) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                expected.put(key, i);
+                map = map.put(key, i);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        assertThat(map.values()).containsExactlyElementsOf(expected.values());
+
+        List<Integer> keys = new ArrayList<>();
+        map.forEach((k, v) -> keys.add(k));
+        assertThat(keys).containsExactlyElementsOf(expected.keySet());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.histogram;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AgeHistogramTest {
+
+    private static final HistogramDescriptor DESCRIPTOR = HistogramDescriptor.histogramOf(2, 5, 30, 60);
+
+    @Test
+    public void testBucketsMatchHistogram() throws Exception {
+        AgeHistogram ageHistogram = new AgeHistogram(DESCRIPTOR, 100);
+        for (int i = 0; i <= 100; i++) {
+            ageHistogram.add("item#" + i, 100 - i);
+        }
+        assertThat(ageHistogram.getCounters()).containsExactly(3L, 3L, 25L, 30L, 40L);
+    }
+
+    @Test
+    public void testItemsMoveToOlderBucketsAsTimeAdvances() throws Exception {
+        AgeHistogram ageHistogram = new AgeHistogram(DESCRIPTOR, 0);
+        ageHistogram.add("a", 0);
+        assertThat(ageHistogram.getCounters()).containsExactly(1L, 0L, 0L, 0L, 0L);
+
+        ageHistogram.advance(3);
+        assertThat(ageHistogram.getCounters()).containsExactly(0L, 1L, 0L, 0L, 0L);
+
+        ageHistogram.advance(61);
+        assertThat(ageHistogram.getCounters()).containsExactly(0L, 0L, 0L, 0L, 1L);
+
+        // Time going backwards
+        ageHistogram.advance(10);
+        assertThat(ageHistogram.getCounters()).containsExactly(0L, 0L, 1L, 0L, 0L);
+
+        assertThat(ageHistogram.remove("a")).isTrue();
+        assertThat(ageHistogram.remove("a")).isFalse();
+        assertThat(ageHistogram.getCounters()).containsExactly(0L, 0L, 0L, 0L, 0L);
+    }
+
+    @Test
+    public void testRandomUpdatesMatchFullRecomputation() throws Exception {
+        Random random = new Random(123);
+        Map<String, Long> items = new HashMap<>();
+        long now = 1_000;
+        AgeHistogram ageHistogram = new AgeHistogram(DESCRIPTOR, now);
+
+        for (int i = 0; i < 1_000; i++) {
+            String id = "item#" + random.nextInt(50);
+            int action = random.nextInt(3);
+            if (action == 0) {
+                long timestamp = now - random.nextInt(100);
+                items.put(id, timestamp);
+                ageHistogram.add(id, timestamp);
+            } else if (action == 1) {
+                assertThat(ageHistogram.remove(id)).isEqualTo(items.remove(id) != null);
+            } else {
+                now += random.nextInt(10);
+                ageHistogram.advance(now);
+            }
+
+            Histogram.Builder expected = Histogram.newBuilder(DESCRIPTOR);
+            for (long timestamp : items.values()) {
+                expected.increment(now - timestamp);
+            }
+            assertThat(ageHistogram.getCounters()).isEqualTo(expected.build().getCounters());
+            assertThat(ageHistogram.size()).isEqualTo(items.size());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.limiter.concurrency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.common.util.time.TestClock;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private final TestClock clock = Clocks.test();
+
+    @Test
+    public void testNonPriorityRequestsAreLimitedToFractionOfLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 0.5, 1.5, 0.2, clock);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(false)).isPresent();
+        }
+        assertThat(limiter.tryAcquire(false)).isEmpty();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(true)).isPresent();
+        }
+        assertThat(limiter.tryAcquire(true)).isEmpty();
+        assertThat(limiter.getInflight()).isEqualTo(10);
+    }
+
+    @Test
+    public void testPermitIsReleasedOnlyOnce() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 1.0, 1.5, 0.2, clock);
+
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire(true).get();
+        assertThat(limiter.getInflight()).isEqualTo(1);
+
+        permit.onIgnore();
+        permit.onDropped();
+        permit.onSuccess();
+        assertThat(limiter.getInflight()).isEqualTo(0);
+        assertThat(limiter.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    public void testDroppedRequestReducesLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 1, 1000, 1.0, 1.5, 0.2, clock);
+
+        limiter.tryAcquire(true).get().onDropped();
+        assertThat(limiter.getLimit()).isEqualTo(90);
+    }
+
+    @Test
+    public void testLimitIsAdjustedToLatency() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 1000, 1.0, 1.5, 0.2, clock);
+
+        // Steady latency with the limit fully used, lets the limit grow.
+        for (int i = 0; i < 3; i++) {
+            runRound(limiter, 10);
+        }
+        int grownLimit = limiter.getLimit();
+        assertThat(grownLimit).isGreaterThan(20);
+
+        // Limit not fully used does not change it.
+        limiter.tryAcquire(true).get().onSuccess();
+        assertThat(limiter.getLimit()).isEqualTo(grownLimit);
+
+        // Latency increase reduces the limit.
+        runRound(limiter, 200);
+        assertThat(limiter.getLimit()).isLessThan(grownLimit);
+    }
+
+    private void runRound(AdaptiveConcurrencyLimiter limiter, long latencyMs) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        Optional<AdaptiveConcurrencyLimiter.Permit> next;
+        while ((next = limiter.tryAcquire(true)).isPresent()) {
+            permits.add(next.get());
+        }
+        clock.advanceTime(latencyMs, TimeUnit.MILLISECONDS);
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::onSuccess);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.limiter.tokenbucket.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Ticker;
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LockFreeTokenBucketTest {
+
+    private final TestTicker testTicker = new TestTicker();
+
+    @Test
+    public void tokensAreAddedInEachInterval() {
+        TokenBucket tokenBucket = createTokenBucket(10, 0, 2);
+
+        // First access adds tokens for the current interval
+        assertTrue(tokenBucket.tryTake(2));
+        assertFalse(tokenBucket.tryTake());
+
+        testTicker.advance(999, TimeUnit.MILLISECONDS);
+        assertFalse(tokenBucket.tryTake());
+        assertEquals(1, tokenBucket.getRefillStrategy().getTimeUntilNextRefill(TimeUnit.MILLISECONDS));
+
+        testTicker.advance(1, TimeUnit.MILLISECONDS);
+        assertEquals(2, tokenBucket.getNumberOfTokens());
+
+        testTicker.advance(3, TimeUnit.SECONDS);
+        assertEquals(8, tokenBucket.getNumberOfTokens());
+        assertTrue(tokenBucket.tryTake(8));
+        assertEquals(0, tokenBucket.getNumberOfTokens());
+    }
+
+    @Test
+    public void tokensDoNotExceedCapacity() {
+        TokenBucket tokenBucket = createTokenBucket(10, 10, 2);
+        assertEquals(10, tokenBucket.getNumberOfTokens());
+
+        testTicker.advance(365, TimeUnit.DAYS);
+        assertEquals(10, tokenBucket.getNumberOfTokens());
+        assertTrue(tokenBucket.tryTake(10));
+        assertFalse(tokenBucket.tryTake());
+    }
+
+    @Test
+    public void refillAddsTokensOutOfBand() {
+        TokenBucket tokenBucket = createTokenBucket(10, 0, 1);
+        tokenBucket.refill(5);
+        assertEquals(6, tokenBucket.getNumberOfTokens());
+
+        tokenBucket.refill(100);
+        assertEquals(10, tokenBucket.getNumberOfTokens());
+
+        tokenBucket.refill(-100);
+        assertEquals(0, tokenBucket.getNumberOfTokens());
+    }
+
+    @Test
+    public void tryTakeUpToTakesAvailableTokens() {
+        LockFreeTokenBucket tokenBucket = createTokenBucket(10, 3, 1);
+        assertEquals(4, tokenBucket.tryTakeUpTo(5));
+        assertEquals(0, tokenBucket.tryTakeUpTo(5));
+    }
+
+    @Test
+    public void concurrentTakesDoNotExceedAvailableTokens() throws Exception {
+        int capacity = 100_000;
+        TokenBucket tokenBucket = createTokenBucket(capacity, capacity - 1, 1);
+
+        AtomicLong taken = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                while (tokenBucket.tryTake()) {
+                    taken.incrementAndGet();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(capacity, taken.get());
+        assertEquals(0, tokenBucket.getNumberOfTokens());
+    }
+
+    private LockFreeTokenBucket createTokenBucket(long capacity, long initialNumberOfTokens, long numberOfTokensPerInterval) {
+        return new LockFreeTokenBucket("TestTokenBucket", capacity, initialNumberOfTokens, Stopwatch.createStarted(testTicker),
+                numberOfTokensPerInterval, 1, TimeUnit.SECONDS);
+    }
+
+    static class TestTicker extends Ticker {
+
+        private final AtomicLong nanos = new AtomicLong();
+
+        void advance(long time, TimeUnit unit) {
+            nanos.addAndGet(unit.toNanos(time));
+        }
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.limiter.tokenbucket.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Stopwatch;
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StripedTokenBucketTest {
+
+    private final LockFreeTokenBucketTest.TestTicker testTicker = new LockFreeTokenBucketTest.TestTicker();
+
+    @Test
+    public void capacityAndRefillAreSplitBetweenStripes() {
+        TokenBucket tokenBucket = createTokenBucket(4, 8, 0, 4);
+
+        // First access adds tokens for the current interval to each stripe
+        assertEquals(4, tokenBucket.getNumberOfTokens());
+
+        testTicker.advance(1, TimeUnit.SECONDS);
+        assertEquals(8, tokenBucket.getNumberOfTokens());
+        testTicker.advance(1, TimeUnit.SECONDS);
+        assertEquals(8, tokenBucket.getNumberOfTokens());
+    }
+
+    @Test
+    public void tokensAreCollectedFromAllStripes() {
+        TokenBucket tokenBucket = createTokenBucket(4, 10, 9, 1);
+
+        assertTrue(tokenBucket.tryTake(10));
+        assertEquals(0, tokenBucket.getNumberOfTokens());
+    }
+
+    @Test
+    public void tokensAreReturnedWhenNotEnoughAvailable() {
+        TokenBucket tokenBucket = createTokenBucket(4, 10, 5, 1);
+
+        assertFalse(tokenBucket.tryTake(7));
+        assertEquals(6, tokenBucket.getNumberOfTokens());
+        assertTrue(tokenBucket.tryTake(6));
+    }
+
+    @Test
+    public void concurrentTakesDoNotExceedAvailableTokens() throws Exception {
+        int capacity = 100_000;
+        TokenBucket tokenBucket = createTokenBucket(8, capacity, capacity - 8, 8);
+
+        AtomicLong taken = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                while (tokenBucket.tryTake()) {
+                    taken.incrementAndGet();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(capacity, taken.get());
+        assertEquals(0, tokenBucket.getNumberOfTokens());
+    }
+
+    private TokenBucket createTokenBucket(int numberOfStripes, long capacity, long initialNumberOfTokens, long numberOfTokensPerInterval) {
+        return new StripedTokenBucket("TestTokenBucket", numberOfStripes, capacity, initialNumberOfTokens, Stopwatch.createStarted(testTicker),
+                numberOfTokensPerInterval, 1, TimeUnit.SECONDS);
+    }
+}
@@ -16,10 +16,12 @@
 
 package com.netflix.titus.common.util.proxy.internal;
 
+import com.netflix.spectator.api.Registry;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.runtime.TitusRuntimes;
 import com.netflix.titus.common.util.proxy.MyApi;
 import com.netflix.titus.common.util.proxy.ProxyCatalog;
+import com.netflix.titus.common.util.proxy.annotation.InvocationMetrics;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -61,4 +63,40 @@ public class SpectatorInvocationHandlerTest {
     public void testFailingCompletable() {
         assertThat(myApi.failingCompletable().get()).isInstanceOf(RuntimeException.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testInvocationMetricsAreReported() {
+        for (int i = 0; i < 3; i++) {
+            myApi.echo("abc");
+        }
+        Registry registry = titusRuntime.getRegistry();
+        assertThat(registry.counter(
+                "titusMaster.api.MyApi.invocations", "class", MyApi.class.getName(), "method", "echo", "status", "success"
+        ).count()).isEqualTo(3);
+        assertThat(registry.timer(registry.createId(
+                "titusMaster.api.MyApi.executionTime", "class", MyApi.class.getName(), "method", "echo", "status", "success", "callStage", "onCompleted"
+        )).count()).isEqualTo(3);
+    }
+
+    @Test
+    public void testSampledMethodAlwaysCountsInvocations() {
+        SampledApi sampledApi = ProxyCatalog.createSpectatorProxy(SampledApi.class, () -> "ok", titusRuntime);
+        for (int i = 0; i < 10; i++) {
+            sampledApi.hot();
+        }
+        Registry registry = titusRuntime.getRegistry();
+        assertThat(registry.counter(
+                "titusMaster.api.SampledApi.invocations", "class", SampledApi.class.getName(), "method", "hot", "status", "success"
+        ).count()).isEqualTo(10);
+        assertThat(registry.timer(registry.createId(
+                "titusMaster.api.SampledApi.executionTime", "class", SampledApi.class.getName(), "method", "hot", "status", "success", "callStage", "onCompleted"
+        )).count()).isEqualTo(0);
+    }
+
+    @InvocationMetrics(percentiles = true)
+    public interface SampledApi {
+
+        @InvocationMetrics(samplingRatio = 0.0)
+        String hot();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.common.util.rx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import io.grpc.Context;
+import org.junit.Test;
+import rx.Observable;
+import rx.observers.AssertableSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SingleFlightTest {
+
+    private static final long REUSE_WINDOW_MS = 500;
+    private static final long TIMEOUT_MS = 5_000;
+
+    private final TestScheduler testScheduler = Schedulers.test();
+    private final Registry registry = new DefaultRegistry();
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final PublishSubject<String> upstream = PublishSubject.create();
+
+    @Test
+    public void testConcurrentCallsAreCollapsed() {
+        SingleFlight<String, String> singleFlight = newSingleFlight(0);
+
+        AssertableSubscriber<String> first = singleFlight.execute("key", this::call).test();
+        AssertableSubscriber<String> second = singleFlight.execute("key", this::call).test();
+        assertThat(executions).hasValue(1);
+
+        upstream.onNext("result");
+        upstream.onCompleted();
+        first.assertValue("result").assertCompleted();
+        second.assertValue("result").assertCompleted();
+
+        // Without reuse window, a next call is executed again.
+        singleFlight.execute("key", () -> Observable.just("next")).test().assertValue("next");
+        assertCounter("executed", 2);
+        assertCounter("collapsed", 1);
+    }
+
+    @Test
+    public void testCallsWithDifferentKeysAreNotCollapsed() {
+        SingleFlight<String, String> singleFlight = newSingleFlight(0);
+
+        singleFlight.execute("key1", this::call).test();
+        singleFlight.execute("key2", this::call).test();
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    public void testResultIsReusedWithinReuseWindow() {
+        SingleFlight<String, String> singleFlight = newSingleFlight(REUSE_WINDOW_MS);
+
+        singleFlight.execute("key", () -> Observable.just("first")).test().assertValue("first");
+
+        testScheduler.advanceTimeBy(REUSE_WINDOW_MS - 1, TimeUnit.MILLISECONDS);
+        singleFlight.execute("key", () -> Observable.just("second")).test().assertValue("first");
+
+        testScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        singleFlight.execute("key", () -> Observable.just("third")).test().assertValue("third");
+
+        assertCounter("executed", 2);
+        assertCounter("reused", 1);
+    }
+
+    @Test
+    public void testFailedCallIsNotReused() {
+        SingleFlight<String, String> singleFlight = newSingleFlight(REUSE_WINDOW_MS);
+
+        AssertableSubscriber<String> first = singleFlight.execute("key", this::call).test();
+        AssertableSubscriber<String> second = singleFlight.execute("key", this::call).test();
+
+        upstream.onError(new RuntimeException("simulated error"));
+        first.assertError(RuntimeException.class);
+        second.assertError(RuntimeException.class);
+
+        singleFlight.execute("key", () -> Observable.just("retry")).test().assertValue("retry");
+        assertCounter("executed", 2);
+    }
+
+    @Test
+    public void testFirstSubscriberCancellationDoesNotAffectOtherSubscribers() throws Exception {
+        SingleFlight<String, String> singleFlight = newSingleFlight(0);
+        AtomicReference<Context> callContext = new AtomicReference<>();
+
+        Context.CancellableContext firstContext = Context.current().withCancellation();
+        AssertableSubscriber<String> first = firstContext.call(() -> singleFlight.execute("key", () -> {
+            callContext.set(Context.current());
+            return call();
+        }).test());
+        AssertableSubscriber<String> second = singleFlight.execute("key", this::call).test();
+
+        firstContext.cancel(null);
+        first.unsubscribe();
+        assertThat(callContext.get().isCancelled()).isFalse();
+
+        upstream.onNext("result");
+        upstream.onCompleted();
+        second.assertValue("result").assertCompleted();
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    public void testCallIsBoundedByTimeout() {
+        SingleFlight<String, String> singleFlight = newSingleFlight(REUSE_WINDOW_MS);
+
+        AssertableSubscriber<String> first = singleFlight.execute("key", this::call).test();
+        testScheduler.advanceTimeBy(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        first.assertError(TimeoutException.class);
+
+        // Timed out calls are not reused.
+        singleFlight.execute("key", () -> Observable.just("retry")).test().assertValue("retry");
+    }
+
+    private SingleFlight<String, String> newSingleFlight(long reuseWindowMs) {
+        return new SingleFlight<>("test", () -> reuseWindowMs, () -> TIMEOUT_MS, registry, testScheduler);
+    }
+
+    private Observable<String> call() {
+        executions.incrementAndGet();
+        return upstream;
+    }
+
+    private void assertCounter(String outcome, long expected) {
+        long count = registry.counter(registry.createId("test.singleFlight.calls").withTag("outcome", outcome)).count();
+        assertThat(count).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.spectator;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Gauge;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AggregatedFsmMetricsTest {
+
+    private enum State {A, B, Done}
+
+    private final Registry registry = new DefaultRegistry();
+
+    private final AggregatedFsmMetrics<State> metrics = SpectatorExt.aggregatedFsmMetrics(
+            registry.createId("test.fsm."), state -> state == State.Done, registry
+    );
+
+    @Test
+    public void testStateCountersAggregateAllInstances() throws Exception {
+        SpectatorExt.FsmMetrics<State> fsm1 = metrics.newInstance(State.A);
+        SpectatorExt.FsmMetrics<State> fsm2 = metrics.newInstance(State.A);
+        assertThat(currentState(State.A)).isEqualTo(2);
+
+        fsm1.transition(State.B, "moved");
+        assertThat(currentState(State.A)).isEqualTo(1);
+        assertThat(currentState(State.B)).isEqualTo(1);
+        assertThat(registry.counter("test.fsm.updates", "state", "B", "reason", "moved").count()).isEqualTo(1);
+
+        fsm1.transition(State.Done);
+        fsm2.transition(State.Done);
+        assertThat(currentState(State.A)).isEqualTo(0);
+        assertThat(currentState(State.B)).isEqualTo(0);
+        assertThat(registry.counter("test.fsm.updates", "state", "Done").count()).isEqualTo(2);
+
+        // No transitions out of the final state
+        fsm1.transition(State.A);
+        assertThat(currentState(State.A)).isEqualTo(0);
+    }
+
+    private double currentState(State state) {
+        PolledMeter.update(registry);
+        Gauge gauge = registry.gauge(registry.createId("test.fsm.currentState", "state", state.name()));
+        return gauge.value();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.spectator;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.common.util.time.TestClock;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetricCardinalityGuardTest {
+
+    private static final String METRIC = "test.metric";
+
+    private final Registry registry = new DefaultRegistry();
+    private final TestClock clock = Clocks.test();
+
+    private final MetricCardinalityGuard guard = new MetricCardinalityGuard(
+            "test.cardinality.", Collections.singleton("taskId"), 2, TimeUnit.MINUTES.toMillis(1), clock, registry
+    );
+
+    @Test
+    public void testIdsAboveBudgetAreMappedToOverflowId() throws Exception {
+        guard.counter(METRIC, "taskId", "t1", "known", "true").increment();
+        guard.counter(METRIC, "taskId", "t2", "known", "true").increment();
+        guard.counter(METRIC, "taskId", "t3", "known", "true").increment();
+        guard.counter(METRIC, "taskId", "t4", "known", "true").increment();
+        // Already known id is still reported individually
+        guard.counter(METRIC, "taskId", "t1", "known", "true").increment();
+
+        assertThat(registry.counter(METRIC, "taskId", "t1", "known", "true").count()).isEqualTo(2);
+        assertThat(registry.counter(METRIC, "taskId", "t3", "known", "true").count()).isEqualTo(0);
+        assertThat(registry.counter(METRIC, "taskId", MetricCardinalityGuard.OVERFLOW_TAG_VALUE, "known", "true").count()).isEqualTo(2);
+        assertThat(registry.counter("test.cardinality.overflows", "metric", METRIC).count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testIdsWithoutGuardedTagsAreNotLimited() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            Id id = registry.createId(METRIC, "known", "v" + i);
+            assertThat(guard.guard(id)).isEqualTo(id);
+        }
+    }
+
+    @Test
+    public void testReleasedAndExpiredIdsGiveBudgetBack() throws Exception {
+        Id t1 = registry.createId(METRIC, "taskId", "t1");
+        Id t2 = registry.createId(METRIC, "taskId", "t2");
+        Id t3 = registry.createId(METRIC, "taskId", "t3");
+        Id t4 = registry.createId(METRIC, "taskId", "t4");
+
+        assertThat(guard.guard(t1)).isEqualTo(t1);
+        assertThat(guard.guard(t2)).isEqualTo(t2);
+        assertThat(guard.isOverflowId(guard.guard(t3))).isTrue();
+
+        assertThat(guard.release(t1)).isTrue();
+        assertThat(guard.release(t3)).isFalse();
+        assertThat(guard.guard(t3)).isEqualTo(t3);
+
+        clock.advanceTime(2, TimeUnit.MINUTES);
+        assertThat(guard.guard(t4)).isEqualTo(t4);
+    }
+}
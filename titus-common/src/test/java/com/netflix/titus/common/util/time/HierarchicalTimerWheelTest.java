@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.time;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.netflix.titus.common.util.time.HierarchicalTimerWheel.Timeout;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HierarchicalTimerWheelTest {
+
+    private static final long START_TIME_MS = 1_000_000;
+
+    private final HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(10, 8, 3, START_TIME_MS);
+
+    private final List<String> fired = new ArrayList<>();
+
+    @Test
+    public void testTimeoutFiresAtFirstTickAfterDeadline() {
+        wheel.schedule("a", START_TIME_MS + 25);
+
+        assertThat(wheel.advance(START_TIME_MS + 20, t -> fired.add(t.getItem()))).isEqualTo(0);
+        assertThat(wheel.size()).isEqualTo(1);
+
+        assertThat(wheel.advance(START_TIME_MS + 30, t -> fired.add(t.getItem()))).isEqualTo(1);
+        assertThat(fired).containsExactly("a");
+        assertThat(wheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDueTimeoutFiresOnNextAdvance() {
+        wheel.advance(START_TIME_MS + 100, t -> fired.add(t.getItem()));
+        wheel.schedule("a", START_TIME_MS + 50);
+
+        wheel.advance(START_TIME_MS + 100, t -> fired.add(t.getItem()));
+        assertThat(fired).containsExactly("a");
+    }
+
+    @Test
+    public void testCancel() {
+        Timeout<String> timeout = wheel.schedule("a", START_TIME_MS + 1_000);
+        wheel.schedule("b", START_TIME_MS + 1_000);
+
+        assertThat(timeout.cancel()).isTrue();
+        assertThat(timeout.cancel()).isFalse();
+        assertThat(wheel.size()).isEqualTo(1);
+
+        wheel.advance(START_TIME_MS + 1_000, t -> fired.add(t.getItem()));
+        assertThat(fired).containsExactly("b");
+        assertThat(wheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDeadlineBeyondWheelRange() {
+        // Wheel range is 10ms * 8^3 = 5120ms
+        long deadline = START_TIME_MS + 100_000;
+        wheel.schedule("a", deadline);
+
+        wheel.advance(deadline - 10, t -> fired.add(t.getItem()));
+        assertThat(fired).isEmpty();
+
+        wheel.advance(deadline, t -> fired.add(t.getItem()));
+        assertThat(fired).containsExactly("a");
+    }
+
+    @Test
+    public void testRandomDeadlines() {
+        Random random = new Random(123);
+        Map<String, Long> deadlines = new HashMap<>();
+        Map<String, Long> firedAt = new HashMap<>();
+        Map<String, Long> previousAdvanceAt = new HashMap<>();
+
+        long now = START_TIME_MS;
+        long previous = START_TIME_MS;
+        for (int i = 0; i < 2_000 || wheel.size() > 0; i++) {
+            if (i >= 2_000 || random.nextInt(4) == 0) {
+                previous = now;
+                now += 1 + random.nextInt(200);
+                long nowRef = now;
+                long previousRef = previous;
+                wheel.advance(now, t -> {
+                    firedAt.put(t.getItem(), nowRef);
+                    previousAdvanceAt.put(t.getItem(), previousRef);
+                });
+            }
+            if (i < 2_000) {
+                String id = "t" + i;
+                long deadline = now + 1 + random.nextInt(20_000);
+                deadlines.put(id, deadline);
+                wheel.schedule(id, deadline);
+            }
+        }
+
+        // Each timeout fires in the first advance call that reaches its deadline rounded up to the tick interval.
+        assertThat(firedAt).hasSize(deadlines.size());
+        deadlines.forEach((id, deadline) -> {
+            long tickDeadline = START_TIME_MS + ((deadline - START_TIME_MS + 9) / 10) * 10;
+            assertThat(firedAt.get(id)).isGreaterThanOrEqualTo(tickDeadline);
+            assertThat(previousAdvanceAt.get(id)).isLessThan(tickDeadline);
+        });
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.federation.endpoint.grpc;
+
+import java.util.Set;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.netflix.titus.federation.service.CellFanOutContext;
+import com.netflix.titus.federation.startup.CellFanOutConfiguration;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+/**
+ * Attaches {@link CellFanOutContext} to each call. The partial results policy is read from the X-Titus-Partial-Results
+ * request header ("true" or "false"), and if absent, from {@link CellFanOutConfiguration#isPartialResultsDefault()}.
+ * Cells left out of a partial result are listed in the X-Titus-Missing-Cells response trailer.
+ */
+@Singleton
+public class CellFanOutServerInterceptor implements ServerInterceptor {
+
+    public static final String X_TITUS_PARTIAL_RESULTS = "X-Titus-Partial-Results";
+    public static final String X_TITUS_MISSING_CELLS = "X-Titus-Missing-Cells";
+
+    public static final Metadata.Key<String> KEY_TITUS_PARTIAL_RESULTS = Metadata.Key.of(X_TITUS_PARTIAL_RESULTS, Metadata.ASCII_STRING_MARSHALLER);
+    public static final Metadata.Key<String> KEY_TITUS_MISSING_CELLS = Metadata.Key.of(X_TITUS_MISSING_CELLS, Metadata.ASCII_STRING_MARSHALLER);
+
+    private final CellFanOutConfiguration configuration;
+
+    @Inject
+    public CellFanOutServerInterceptor(CellFanOutConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        String partialResultsHeader = headers.get(KEY_TITUS_PARTIAL_RESULTS);
+        boolean partialResultsAllowed = partialResultsHeader == null
+                ? configuration.isPartialResultsDefault()
+                : Boolean.parseBoolean(partialResultsHeader);
+        CellFanOutContext fanOutContext = new CellFanOutContext(partialResultsAllowed);
+
+        ServerCall<ReqT, RespT> fanOutCall = new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                Set<String> missingCells = fanOutContext.getMissingCells();
+                if (!missingCells.isEmpty()) {
+                    trailers.put(KEY_TITUS_MISSING_CELLS, String.join(",", missingCells));
+                }
+                super.close(status, trailers);
+            }
+        };
+
+        Context context = Context.current().withValue(CellFanOutContext.CONTEXT_KEY, fanOutContext);
+        return Contexts.interceptCall(context, fanOutCall, headers, next);
+    }
+}
@@ -55,6 +55,7 @@ public class TitusFederationGrpcServer {
     private AutoScalingServiceImplBase autoScalingService;
     private LoadBalancerServiceImplBase loadBalancerService;
     private final EndpointConfiguration config;
+    private final CellFanOutServerInterceptor cellFanOutServerInterceptor;
 
     private final AtomicBoolean started = new AtomicBoolean();
     private Server server;
@@ -65,12 +66,14 @@ public class TitusFederationGrpcServer {
             JobManagementServiceImplBase jobManagementService,
             AutoScalingServiceImplBase autoScalingService,
             LoadBalancerServiceImplBase loadBalancerService,
-            EndpointConfiguration config) {
+            EndpointConfiguration config,
+            CellFanOutServerInterceptor cellFanOutServerInterceptor) {
         this.healthService = healthService;
         this.jobManagementService = jobManagementService;
         this.autoScalingService = autoScalingService;
         this.loadBalancerService = loadBalancerService;
         this.config = config;
+        this.cellFanOutServerInterceptor = cellFanOutServerInterceptor;
     }
 
     @PostConstruct
@@ -136,6 +139,6 @@ public class TitusFederationGrpcServer {
      * Override to add server side interceptors.
      */
     protected List<ServerInterceptor> createInterceptors(ServiceDescriptor serviceDescriptor) {
-        return Arrays.asList(new ErrorCatchingServerInterceptor(), new V3HeaderInterceptor());
+        return Arrays.asList(new ErrorCatchingServerInterceptor(), cellFanOutServerInterceptor, new V3HeaderInterceptor());
     }
 }
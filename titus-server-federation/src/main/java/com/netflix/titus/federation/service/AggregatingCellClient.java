@@ -18,6 +18,9 @@ package com.netflix.titus.federation.service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -25,12 +28,25 @@ import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
 import com.netflix.titus.api.federation.model.Cell;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.limiter.Limiters;
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
+import com.netflix.titus.common.util.time.Clock;
 import com.netflix.titus.common.util.tuple.Either;
+import com.netflix.titus.federation.startup.CellFanOutConfiguration;
+import io.grpc.Context;
 import io.grpc.ManagedChannel;
 import io.grpc.stub.AbstractStub;
 import io.grpc.stub.StreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
 
 import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createRequestObservable;
 import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createSimpleClientResponseObserver;
@@ -38,11 +54,47 @@ import static com.netflix.titus.federation.service.CellConnectorUtil.stubs;
 
 @Singleton
 class AggregatingCellClient {
+    private static final Logger logger = LoggerFactory.getLogger(AggregatingCellClient.class);
+
+    static final String METRIC_ROOT = "titus.federation.fanOut.";
+
     private final CellConnector connector;
+    private final CellFanOutConfiguration configuration;
+    private final Registry registry;
+    private final Clock clock;
+    private final Scheduler scheduler;
+    private final CellLatencyTracker latencyTracker;
+    private final TokenBucket hedgingBudget;
+
+    private final Id hedgesId;
+    private final Id hedgeWinsId;
+    private final Id hedgesRejectedId;
+    private final Id missingCellsId;
+    private final Id partialResponsesId;
 
     @Inject
-    public AggregatingCellClient(CellConnector connector) {
+    public AggregatingCellClient(CellConnector connector, CellFanOutConfiguration configuration, TitusRuntime titusRuntime) {
+        this(connector, configuration, titusRuntime, Schedulers.computation());
+    }
+
+    @VisibleForTesting
+    AggregatingCellClient(CellConnector connector, CellFanOutConfiguration configuration, TitusRuntime titusRuntime, Scheduler scheduler) {
         this.connector = connector;
+        this.configuration = configuration;
+        this.registry = titusRuntime.getRegistry();
+        this.clock = titusRuntime.getClock();
+        this.scheduler = scheduler;
+        this.latencyTracker = new CellLatencyTracker(configuration, titusRuntime);
+
+        long maxHedgesPerSecond = Math.max(1, configuration.getMaxHedgesPerSecond());
+        this.hedgingBudget = Limiters.createFixedIntervalTokenBucket("cellHedges", maxHedgesPerSecond, maxHedgesPerSecond,
+                maxHedgesPerSecond, 1, TimeUnit.SECONDS);
+
+        this.hedgesId = registry.createId(METRIC_ROOT + "hedges");
+        this.hedgeWinsId = registry.createId(METRIC_ROOT + "hedgeWins");
+        this.hedgesRejectedId = registry.createId(METRIC_ROOT + "hedgesRejected");
+        this.missingCellsId = registry.createId(METRIC_ROOT + "missingCells");
+        this.partialResponsesId = registry.createId(METRIC_ROOT + "partialResponses");
     }
 
     /**
@@ -66,6 +118,60 @@ class AggregatingCellClient {
         return Observable.merge(results);
     }
 
+    /**
+     * Call an idempotent query on all Cells and collect results, controlling the tail latency:
+     * <ul>
+     * <li>if hedging is enabled, a request that takes longer than the configured latency percentile of its cell
+     * is sent again, and the first response wins (the losing request is cancelled)</li>
+     * <li>if the request allows partial results (see {@link CellFanOutContext}), cells that fail or do not respond
+     * in time are left out, and recorded as missing; an error is propagated only if no cell responded</li>
+     * </ul>
+     * Without partial results, the first error encountered is propagated (if any), as in {@link #call}.
+     */
+    <STUB extends AbstractStub<STUB>, RespT> Observable<CellResponse<STUB, RespT>> callQuery(
+            Function<ManagedChannel, STUB> stubFactory,
+            BiConsumer<STUB, StreamObserver<RespT>> fnCall) {
+        Map<Cell, STUB> clients = stubs(connector, stubFactory);
+        Optional<CellFanOutContext> fanOutContext = CellFanOutContext.current().filter(CellFanOutContext::isPartialResultsAllowed);
+        // Hedged requests are sent from a timer thread, so the call context (call metadata) must be restored.
+        Context context = Context.current();
+        AtomicReference<Throwable> lastError = new AtomicReference<>();
+
+        List<Observable<CellResponse<STUB, RespT>>> results = clients.entrySet().stream().map(entry -> {
+            Cell cell = entry.getKey();
+            STUB client = entry.getValue();
+            Observable<CellResponse<STUB, RespT>> response = callSingleCellWithHedging(cell, client, fnCall, context)
+                    .map(result -> new CellResponse<>(cell, client, result));
+            if (!fanOutContext.isPresent()) {
+                return response;
+            }
+            return response
+                    .timeout(configuration.getPartialResultsCellTimeoutMs(), TimeUnit.MILLISECONDS, scheduler)
+                    .onErrorResumeNext(error -> {
+                        logger.debug("Leaving out cell {} from a partial result: {}", cell.getName(), error.getMessage());
+                        lastError.set(error);
+                        fanOutContext.get().addMissingCell(cell);
+                        registry.counter(missingCellsId.withTag("cell", cell.getName())).increment();
+                        return Observable.empty();
+                    });
+        }).collect(Collectors.toList());
+
+        Observable<CellResponse<STUB, RespT>> merged = Observable.merge(results);
+        if (!fanOutContext.isPresent()) {
+            return merged;
+        }
+        return merged
+                .switchIfEmpty(Observable.defer(() -> lastError.get() == null
+                        ? Observable.<CellResponse<STUB, RespT>>empty()
+                        : Observable.<CellResponse<STUB, RespT>>error(lastError.get())
+                ))
+                .doOnCompleted(() -> {
+                    if (!fanOutContext.get().getMissingCells().isEmpty()) {
+                        registry.counter(partialResponsesId).increment();
+                    }
+                });
+    }
+
     /**
      * Call services on all Cells and collect results, which can be {@link Either Either<RespT, Throwable>}. Results
      * from each {@link Cell} are emitted individually on the returned {@link Observable}.
@@ -89,6 +195,51 @@ class AggregatingCellClient {
         return Observable.merge(results);
     }
 
+    private <STUB extends AbstractStub<STUB>, RespT>
+    Observable<RespT> callSingleCellWithHedging(Cell cell, STUB client, BiConsumer<STUB, StreamObserver<RespT>> fnCall, Context context) {
+        Observable<RespT> primary = callSingleCellAndRecordLatency(cell, client, fnCall);
+        if (!configuration.isHedgingEnabled()) {
+            return primary;
+        }
+        Optional<Long> latencyMs = latencyTracker.getLatencyAtPercentile(cell, configuration.getHedgingLatencyPercentile());
+        if (!latencyMs.isPresent()) {
+            return primary;
+        }
+
+        long hedgeDelayMs = Math.max(configuration.getHedgingMinDelayMs(), latencyMs.get());
+        Observable<RespT> hedge = Observable.timer(hedgeDelayMs, TimeUnit.MILLISECONDS, scheduler).flatMap(tick -> {
+            if (!hedgingBudget.tryTake()) {
+                registry.counter(hedgesRejectedId.withTag("cell", cell.getName())).increment();
+                return Observable.never();
+            }
+            registry.counter(hedgesId.withTag("cell", cell.getName())).increment();
+            return subscribeInContext(context, callSingleCellAndRecordLatency(cell, client, fnCall))
+                    .doOnNext(next -> registry.counter(hedgeWinsId.withTag("cell", cell.getName())).increment())
+                    // A failed hedge must not override the primary request, which may still succeed.
+                    .onErrorResumeNext(error -> Observable.never());
+        });
+        return Observable.amb(primary, hedge);
+    }
+
+    private <STUB extends AbstractStub<STUB>, RespT>
+    Observable<RespT> callSingleCellAndRecordLatency(Cell cell, STUB client, BiConsumer<STUB, StreamObserver<RespT>> fnCall) {
+        return Observable.defer(() -> {
+            long startTime = clock.wallTime();
+            return callSingleCell(client, fnCall).doOnNext(next -> latencyTracker.record(cell, clock.wallTime() - startTime));
+        });
+    }
+
+    private static <T> Observable<T> subscribeInContext(Context context, Observable<T> observable) {
+        return Observable.unsafeCreate(subscriber -> {
+            Context previous = context.attach();
+            try {
+                observable.unsafeSubscribe(subscriber);
+            } finally {
+                context.detach(previous);
+            }
+        });
+    }
+
     private <STUB extends AbstractStub<STUB>, RespT>
     Observable<RespT> callSingleCell(STUB client, BiConsumer<STUB, StreamObserver<RespT>> fnCall) {
         return createRequestObservable(emitter -> {
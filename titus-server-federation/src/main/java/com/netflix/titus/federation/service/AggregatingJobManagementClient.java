@@ -24,6 +24,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -31,12 +32,15 @@ import javax.inject.Singleton;
 import com.google.protobuf.Empty;
 import com.netflix.titus.api.federation.model.Cell;
 import com.netflix.titus.api.service.TitusServiceException;
+import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.ProtobufCopy;
 import com.netflix.titus.common.util.StringExt;
 import com.netflix.titus.common.util.concurrency.CallbackCountDownLatch;
 import com.netflix.titus.common.util.rx.EmitterWithMultipleSubscriptions;
+import com.netflix.titus.common.util.rx.SingleFlight;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.federation.startup.CellFanOutConfiguration;
 import com.netflix.titus.federation.startup.GrpcConfiguration;
 import com.netflix.titus.federation.startup.TitusFederationConfiguration;
 import com.netflix.titus.grpc.protogen.Job;
@@ -60,6 +64,7 @@ import com.netflix.titus.grpc.protogen.TaskQuery;
 import com.netflix.titus.grpc.protogen.TaskQueryResult;
 import com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil;
 import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
+import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3QueryKeys;
 import com.netflix.titus.runtime.jobmanager.JobManagerCursors;
 import com.netflix.titus.runtime.connector.jobmanager.JobManagementClient;
 import io.grpc.stub.StreamObserver;
@@ -68,6 +73,7 @@ import org.slf4j.LoggerFactory;
 import rx.Completable;
 import rx.Emitter;
 import rx.Observable;
+import rx.schedulers.Schedulers;
 
 import static com.netflix.titus.api.jobmanager.JobAttributes.JOB_ATTRIBUTES_STACK;
 import static com.netflix.titus.api.jobmanager.TaskAttributes.TASK_ATTRIBUTES_STACK;
@@ -93,6 +99,9 @@ public class AggregatingJobManagementClient implements JobManagementClient {
     private AggregatingJobManagementServiceHelper jobManagementServiceHelper;
     private final CellRouter router;
     private final CallMetadataResolver callMetadataResolver;
+    private final CellFanOutConfiguration fanOutConfiguration;
+    private final SingleFlight<Pair<String, JobQuery>, JobQueryResult> jobQuerySingleFlight;
+    private final SingleFlight<Pair<String, TaskQuery>, TaskQueryResult> taskQuerySingleFlight;
 
     @Inject
     public AggregatingJobManagementClient(GrpcConfiguration grpcConfiguration,
@@ -101,7 +110,9 @@ public class AggregatingJobManagementClient implements JobManagementClient {
                                           CellRouter router,
                                           CallMetadataResolver callMetadataResolver,
                                           AggregatingCellClient aggregatingClient,
-                                          AggregatingJobManagementServiceHelper jobManagementServiceHelper) {
+                                          AggregatingJobManagementServiceHelper jobManagementServiceHelper,
+                                          CellFanOutConfiguration fanOutConfiguration,
+                                          TitusRuntime titusRuntime) {
 
         this.grpcConfiguration = grpcConfiguration;
         this.federationConfiguration = federationConfiguration;
@@ -110,6 +121,21 @@ public class AggregatingJobManagementClient implements JobManagementClient {
         this.callMetadataResolver = callMetadataResolver;
         this.aggregatingClient = aggregatingClient;
         this.jobManagementServiceHelper = jobManagementServiceHelper;
+        this.fanOutConfiguration = fanOutConfiguration;
+        this.jobQuerySingleFlight = new SingleFlight<>(
+                AggregatingCellClient.METRIC_ROOT + "findJobs",
+                fanOutConfiguration::getQueryResultReuseWindowMs,
+                grpcConfiguration::getRequestTimeoutMs,
+                titusRuntime.getRegistry(),
+                Schedulers.computation()
+        );
+        this.taskQuerySingleFlight = new SingleFlight<>(
+                AggregatingCellClient.METRIC_ROOT + "findTasks",
+                fanOutConfiguration::getQueryResultReuseWindowMs,
+                grpcConfiguration::getRequestTimeoutMs,
+                titusRuntime.getRegistry(),
+                Schedulers.computation()
+        );
     }
 
     @Override
@@ -189,14 +215,16 @@ public class AggregatingJobManagementClient implements JobManagementClient {
         }
 
         if (StringExt.isNotEmpty(request.getPage().getCursor()) || request.getPage().getPageNumber() == 0) {
-            return findJobsWithCursorPagination(request, fieldsFilter);
+            JobQuery query = request;
+            Set<String> fields = fieldsFilter;
+            return collapseIfEnabled(jobQuerySingleFlight, V3QueryKeys.callerKeyOf(callMetadataResolver, query), () -> findJobsWithCursorPagination(query, fields));
         }
         // TODO: page number pagination
         return Observable.error(TitusServiceException.invalidArgument("pageNumbers are not supported, please use cursors"));
     }
 
     private Observable<JobQueryResult> findJobsWithCursorPagination(JobQuery request, Set<String> fields) {
-        return aggregatingClient.call(JobManagementServiceGrpc::newStub, findJobsInCell(request))
+        return aggregatingClient.callQuery(JobManagementServiceGrpc::newStub, findJobsInCell(request))
                 .map(CellResponse::getResult)
                 .map(this::addStackName)
                 .reduce(this::combineJobResults)
@@ -223,6 +251,18 @@ public class AggregatingJobManagementClient implements JobManagementClient {
                 });
     }
 
+    /**
+     * Collapses identical concurrent queries into a single fan-out call, unless the request allows partial results
+     * and must collect its own missing cells.
+     */
+    private <Q, R> Observable<R> collapseIfEnabled(SingleFlight<Q, R> singleFlight, Q key, Supplier<Observable<R>> call) {
+        boolean partialResults = CellFanOutContext.current().map(CellFanOutContext::isPartialResultsAllowed).orElse(false);
+        if (!fanOutConfiguration.isQuerySingleFlightEnabled() || partialResults) {
+            return call.get();
+        }
+        return singleFlight.execute(key, call);
+    }
+
     private ClientCall<JobQueryResult> findJobsInCell(JobQuery request) {
         return (client, streamObserver) -> wrap(client).findJobs(request, streamObserver);
     }
@@ -309,14 +349,16 @@ public class AggregatingJobManagementClient implements JobManagementClient {
         }
 
         if (StringExt.isNotEmpty(request.getPage().getCursor()) || request.getPage().getPageNumber() == 0) {
-            return findTasksWithCursorPagination(request, fieldsFilter);
+            TaskQuery query = request;
+            Set<String> fields = fieldsFilter;
+            return collapseIfEnabled(taskQuerySingleFlight, V3QueryKeys.callerKeyOf(callMetadataResolver, query), () -> findTasksWithCursorPagination(query, fields));
         }
         // TODO: page number pagination
         return Observable.error(TitusServiceException.invalidArgument("pageNumbers are not supported, please use cursors"));
     }
 
     private Observable<TaskQueryResult> findTasksWithCursorPagination(TaskQuery request, Set<String> fields) {
-        return aggregatingClient.call(JobManagementServiceGrpc::newStub, findTasksInCell(request))
+        return aggregatingClient.callQuery(JobManagementServiceGrpc::newStub, findTasksInCell(request))
                 .map(CellResponse::getResult)
                 .map(this::addStackName)
                 .reduce(this::combineTaskResults)
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.federation.service;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.netflix.titus.api.federation.model.Cell;
+import io.grpc.Context;
+
+/**
+ * Per request state of a query sent to all cells, attached to the gRPC call context. It holds the partial results
+ * policy of the request, and collects the cells that were left out of the result.
+ */
+public class CellFanOutContext {
+
+    public static final Context.Key<CellFanOutContext> CONTEXT_KEY = Context.key("titus.cellFanOut");
+
+    private final boolean partialResultsAllowed;
+    private final Set<String> missingCells = Collections.synchronizedSet(new TreeSet<>());
+
+    public CellFanOutContext(boolean partialResultsAllowed) {
+        this.partialResultsAllowed = partialResultsAllowed;
+    }
+
+    public boolean isPartialResultsAllowed() {
+        return partialResultsAllowed;
+    }
+
+    public void addMissingCell(Cell cell) {
+        missingCells.add(cell.getName());
+    }
+
+    /**
+     * @return names of the cells left out of the result, in the alphabetical order
+     */
+    public Set<String> getMissingCells() {
+        synchronized (missingCells) {
+            return Collections.unmodifiableSet(new TreeSet<>(missingCells));
+        }
+    }
+
+    public static Optional<CellFanOutContext> current() {
+        return Optional.ofNullable(CONTEXT_KEY.get());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.federation.service;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.federation.model.Cell;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.federation.startup.CellFanOutConfiguration;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Tracks response latencies of each cell. Percentiles are computed from the last complete window
+ * (see {@link CellFanOutConfiguration#getLatencyWindowMs()}), so they follow changes of the cell latency.
+ */
+class CellLatencyTracker {
+
+    private static final long HIGHEST_TRACKABLE_VALUE_MS = TimeUnit.HOURS.toMillis(1);
+    private static final int NUMBER_OF_SIGNIFICANT_DIGITS = 2;
+
+    private final CellFanOutConfiguration configuration;
+    private final Registry registry;
+    private final Clock clock;
+
+    private final ConcurrentMap<Cell, CellLatency> latencies = new ConcurrentHashMap<>();
+
+    private final Id latencyId;
+
+    CellLatencyTracker(CellFanOutConfiguration configuration, TitusRuntime titusRuntime) {
+        this.configuration = configuration;
+        this.registry = titusRuntime.getRegistry();
+        this.clock = titusRuntime.getClock();
+        this.latencyId = registry.createId(AggregatingCellClient.METRIC_ROOT + "cellLatency");
+    }
+
+    void record(Cell cell, long latencyMs) {
+        long value = Math.max(0, Math.min(HIGHEST_TRACKABLE_VALUE_MS, latencyMs));
+        latencies.computeIfAbsent(cell, c -> new CellLatency()).recorder.recordValue(value);
+        registry.timer(latencyId.withTag("cell", cell.getName())).record(value, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return latency at the given percentile, or {@link Optional#empty()} if there are not enough samples
+     */
+    Optional<Long> getLatencyAtPercentile(Cell cell, double percentile) {
+        CellLatency latency = latencies.get(cell);
+        if (latency == null) {
+            return Optional.empty();
+        }
+        Histogram window = latency.getLastWindow();
+        if (window == null || window.getTotalCount() == 0 || window.getTotalCount() < configuration.getMinLatencySamples()) {
+            return Optional.empty();
+        }
+        return Optional.of(window.getValueAtPercentile(percentile));
+    }
+
+    private class CellLatency {
+
+        private final Recorder recorder = new Recorder(1, HIGHEST_TRACKABLE_VALUE_MS, NUMBER_OF_SIGNIFICANT_DIGITS);
+
+        private volatile Histogram lastWindow;
+        private volatile long windowStartTimestamp = clock.wallTime();
+
+        private Histogram getLastWindow() {
+            if (clock.wallTime() - windowStartTimestamp >= configuration.getLatencyWindowMs()) {
+                synchronized (this) {
+                    long now = clock.wallTime();
+                    if (now - windowStartTimestamp >= configuration.getLatencyWindowMs()) {
+                        // A new histogram is allocated each time, as the previous one may be still read by other threads.
+                        this.lastWindow = recorder.getIntervalHistogram();
+                        this.windowStartTimestamp = now;
+                    }
+                }
+            }
+            return lastWindow;
+        }
+    }
+}
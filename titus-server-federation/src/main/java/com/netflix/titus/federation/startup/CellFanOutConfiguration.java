@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.federation.startup;
+
+import com.netflix.archaius.api.annotations.Configuration;
+import com.netflix.archaius.api.annotations.DefaultValue;
+
+/**
+ * Tail latency control for queries sent to all cells (for example findJobs or findTasks).
+ */
+@Configuration(prefix = "titus.federation.fanOut")
+public interface CellFanOutConfiguration {
+
+    /**
+     * TODO Feature flag. If enabled, a query that takes longer than the configured latency percentile of its cell
+     * is sent to the cell again, and the first response is used.
+     */
+    @DefaultValue("false")
+    boolean isHedgingEnabled();
+
+    @DefaultValue("95")
+    double getHedgingLatencyPercentile();
+
+    @DefaultValue("20")
+    long getHedgingMinDelayMs();
+
+    /**
+     * Maximum number of hedged requests per second, across all cells. Read once during the startup.
+     */
+    @DefaultValue("20")
+    long getMaxHedgesPerSecond();
+
+    /**
+     * Cell latency percentiles are computed from requests completed in the last window.
+     */
+    @DefaultValue("60000")
+    long getLatencyWindowMs();
+
+    /**
+     * Minimum number of requests in a latency window, for its percentiles to be used.
+     */
+    @DefaultValue("100")
+    long getMinLatencySamples();
+
+    /**
+     * Partial results policy for requests that do not set the X-Titus-Partial-Results header. In the partial results
+     * mode, cells that fail, or do not respond in time, are left out, and are listed in the X-Titus-Missing-Cells
+     * response trailer.
+     */
+    @DefaultValue("false")
+    boolean isPartialResultsDefault();
+
+    /**
+     * Time after which a cell that has not responded is left out of a partial result.
+     */
+    @DefaultValue("3000")
+    long getPartialResultsCellTimeoutMs();
+
+    /**
+     * TODO Feature flag. If enabled, identical job and task queries of the same caller received at the same time
+     * are collapsed into a single fan-out call. Queries allowing partial results are never collapsed, as each of them reports its own
+     * missing cells.
+     */
+    @DefaultValue("false")
+    boolean isQuerySingleFlightEnabled();
+
+    /**
+     * @return how long the result of a collapsed query is reused by identical queries after it completes
+     */
+    @DefaultValue("0")
+    long getQueryResultReuseWindowMs();
+}
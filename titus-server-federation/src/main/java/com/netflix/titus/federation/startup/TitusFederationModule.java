@@ -89,4 +89,10 @@ public class TitusFederationModule extends AbstractModule {
     public GrpcConfiguration getGrpcConfiguration(ConfigProxyFactory factory) {
         return factory.newProxy(GrpcConfiguration.class);
     }
+
+    @Provides
+    @Singleton
+    public CellFanOutConfiguration getCellFanOutConfiguration(ConfigProxyFactory factory) {
+        return factory.newProxy(CellFanOutConfiguration.class);
+    }
 }
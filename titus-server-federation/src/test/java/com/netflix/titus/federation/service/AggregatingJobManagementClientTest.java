@@ -33,10 +33,12 @@ import com.google.common.collect.Iterables;
 import com.netflix.titus.api.federation.model.Cell;
 import com.netflix.titus.api.model.Page;
 import com.netflix.titus.api.service.TitusServiceException;
+import com.netflix.titus.common.runtime.TitusRuntimes;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.time.Clocks;
 import com.netflix.titus.common.util.time.TestClock;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.federation.startup.CellFanOutConfiguration;
 import com.netflix.titus.federation.startup.GrpcConfiguration;
 import com.netflix.titus.federation.startup.TitusFederationConfiguration;
 import com.netflix.titus.grpc.protogen.Capacity;
@@ -61,6 +63,7 @@ import com.netflix.titus.runtime.endpoint.metadata.AnonymousCallMetadataResolver
 import com.netflix.titus.runtime.endpoint.v3.grpc.V3GrpcModelConverters;
 import com.netflix.titus.runtime.jobmanager.JobManagerCursors;
 import com.netflix.titus.testkit.grpc.TestStreamObserver;
+import io.grpc.Context;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import io.grpc.testing.GrpcServerRule;
@@ -135,7 +138,7 @@ public class AggregatingJobManagementClientTest {
                         .map(GrpcServerRule::getChannel)
         );
 
-        final AggregatingCellClient aggregatingCellClient = new AggregatingCellClient(connector);
+        final AggregatingCellClient aggregatingCellClient = new AggregatingCellClient(connector, mock(CellFanOutConfiguration.class), TitusRuntimes.internal());
         final AnonymousCallMetadataResolver anonymousCallMetadataResolver = new AnonymousCallMetadataResolver();
         service = new AggregatingJobManagementClient(
                 grpcClientConfiguration,
@@ -144,7 +147,9 @@ public class AggregatingJobManagementClientTest {
                 cellRouter,
                 anonymousCallMetadataResolver,
                 aggregatingCellClient,
-                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcClientConfiguration, anonymousCallMetadataResolver)
+                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcClientConfiguration, anonymousCallMetadataResolver),
+                mock(CellFanOutConfiguration.class),
+                TitusRuntimes.internal()
         );
 
         clock = Clocks.test();
@@ -336,6 +341,37 @@ public class AggregatingJobManagementClientTest {
         testSubscriber.assertNoValues();
     }
 
+    @Test
+    public void findJobsWithFailingCellAndPartialResults() {
+        List<Job> cellTwoSnapshot = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            cellTwoSnapshot.addAll(dataGenerator.newBatchJobs(5, V3GrpcModelConverters::toGrpcJob));
+            cellTwoSnapshot.addAll(dataGenerator.newServiceJobs(5, V3GrpcModelConverters::toGrpcJob));
+            clock.advanceTime(1, TimeUnit.MINUTES);
+        }
+        cellOne.getServiceRegistry().addService(new CellWithFailingJobManagementService());
+        cellTwo.getServiceRegistry().addService(new CellWithFixedJobsService(cellTwoSnapshot, cellTwoUpdates.serialize()));
+
+        JobQuery query = JobQuery.newBuilder()
+                .setPage(toGrpcPage(Page.unlimited()))
+                .build();
+
+        CellFanOutContext fanOutContext = new CellFanOutContext(true);
+        Context context = Context.current().withValue(CellFanOutContext.CONTEXT_KEY, fanOutContext);
+        Context previous = context.attach();
+        AssertableSubscriber<JobQueryResult> testSubscriber;
+        try {
+            testSubscriber = service.findJobs(query).test();
+        } finally {
+            context.detach(previous);
+        }
+        testSubscriber.awaitTerminalEvent(1, TimeUnit.SECONDS);
+        testSubscriber.assertNoErrors();
+        testSubscriber.assertValueCount(1);
+        assertThat(testSubscriber.getOnNextEvents().get(0).getItemsList()).hasSize(cellTwoSnapshot.size());
+        assertThat(fanOutContext.getMissingCells()).containsExactly(cells.get(0).getName());
+    }
+
     @Test
     public void findJobsWithFieldFiltering() {
         Pair<List<Job>, List<Job>> cellSnapshots = generateTestJobs();
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.federation.service;
+
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.federation.model.Cell;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.federation.startup.CellFanOutConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+import rx.schedulers.TestScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CellLatencyTrackerTest {
+
+    private static final long WINDOW_MS = 10_000;
+
+    private static final Cell CELL_ONE = new Cell("one", "one:7104");
+    private static final Cell CELL_TWO = new Cell("two", "two:7104");
+
+    private final TestScheduler testScheduler = new TestScheduler();
+    private final TitusRuntime titusRuntime = TitusRuntimes.test(testScheduler);
+
+    private final CellFanOutConfiguration configuration = mock(CellFanOutConfiguration.class);
+
+    private CellLatencyTracker tracker;
+
+    @Before
+    public void setUp() {
+        when(configuration.getLatencyWindowMs()).thenReturn(WINDOW_MS);
+        when(configuration.getMinLatencySamples()).thenReturn(10L);
+        tracker = new CellLatencyTracker(configuration, titusRuntime);
+    }
+
+    @Test
+    public void testPercentileIsComputedFromLastCompleteWindow() {
+        recordRange(CELL_ONE, 1, 100);
+
+        // The first window is not complete yet.
+        assertThat(tracker.getLatencyAtPercentile(CELL_ONE, 95)).isEmpty();
+
+        advanceWindow();
+        assertThat(tracker.getLatencyAtPercentile(CELL_ONE, 95)).hasValueSatisfying(latency -> assertThat(latency).isBetween(94L, 96L));
+        assertThat(tracker.getLatencyAtPercentile(CELL_TWO, 95)).isEmpty();
+    }
+
+    @Test
+    public void testPercentileFollowsLatencyChanges() {
+        recordRange(CELL_ONE, 1, 100);
+        advanceWindow();
+        assertThat(tracker.getLatencyAtPercentile(CELL_ONE, 50)).hasValueSatisfying(latency -> assertThat(latency).isBetween(49L, 51L));
+
+        recordRange(CELL_ONE, 1001, 1100);
+        advanceWindow();
+        assertThat(tracker.getLatencyAtPercentile(CELL_ONE, 50)).hasValueSatisfying(latency -> assertThat(latency).isBetween(1040L, 1060L));
+    }
+
+    @Test
+    public void testNotEnoughSamples() {
+        recordRange(CELL_ONE, 1, 5);
+        advanceWindow();
+        assertThat(tracker.getLatencyAtPercentile(CELL_ONE, 95)).isEmpty();
+    }
+
+    private void recordRange(Cell cell, long from, long to) {
+        for (long latency = from; latency <= to; latency++) {
+            tracker.record(cell, latency);
+        }
+    }
+
+    private void advanceWindow() {
+        testScheduler.advanceTimeBy(WINDOW_MS, TimeUnit.MILLISECONDS);
+    }
+}
@@ -26,4 +26,6 @@ public class MetricConstants {
     public static final String METRIC_REWRITE = METRIC_ENDPOINT + "rewrite.";
     public static final String METRIC_PROXY = METRIC_ENDPOINT + "proxy.";
     public static final String METRIC_CLIENT_REQUEST = METRIC_ROOT + "clientRequest.";
+    public static final String METRIC_JOB_MANAGEMENT = METRIC_ROOT + "jobManagement.";
+    public static final String METRIC_REQUEST_COST = METRIC_ROOT + "requestCost.";
 }
@@ -27,6 +27,7 @@ import com.netflix.governator.providers.Advises;
 import com.netflix.titus.gateway.endpoint.v2.rest.ApiRewriteFilter;
 import com.netflix.titus.gateway.endpoint.v2.rest.TitusMasterProxyServlet;
 import com.netflix.titus.gateway.endpoint.v3.rest.AgentManagementResource;
+import com.netflix.titus.gateway.endpoint.v3.rest.RequestCostResource;
 import com.netflix.titus.runtime.endpoint.v3.rest.HealthResource;
 import com.netflix.titus.gateway.endpoint.v3.rest.SchedulerResource;
 import com.netflix.titus.runtime.endpoint.common.rest.JsonMessageReaderWriter;
@@ -86,6 +87,7 @@ public final class JerseyModule extends JerseyServletModule {
             config.getClasses().add(AutoScalingResource.class);
             config.getClasses().add(SchedulerResource.class);
             config.getClasses().add(LoadBalancerResource.class);
+            config.getClasses().add(RequestCostResource.class);
             return config;
         };
     }
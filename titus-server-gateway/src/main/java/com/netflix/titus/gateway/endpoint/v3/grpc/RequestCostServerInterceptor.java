@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.endpoint.v3.grpc;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.netflix.titus.gateway.service.v3.cost.CallerCostAccounting;
+import com.netflix.titus.gateway.service.v3.cost.RequestCost;
+import com.netflix.titus.runtime.endpoint.metadata.CallMetadata;
+import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
+import com.netflix.titus.runtime.endpoint.v3.grpc.ErrorResponses;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+/**
+ * Accounts the cost of each gRPC request to its caller (see {@link CallerCostAccounting}), and rejects requests of
+ * callers that exceeded their quota with the {@link Status#RESOURCE_EXHAUSTED} status. The rejection includes
+ * a hint, how long the caller should wait before retrying. The caller id is resolved from the call context, so this
+ * interceptor must be invoked after {@link com.netflix.titus.runtime.endpoint.metadata.V3HeaderInterceptor}.
+ */
+@Singleton
+public class RequestCostServerInterceptor implements ServerInterceptor {
+
+    public static final String X_TITUS_RETRY_AFTER_MS = "X-Titus-Retry-After-Ms";
+
+    public static final Metadata.Key<String> KEY_TITUS_RETRY_AFTER_MS = Metadata.Key.of(X_TITUS_RETRY_AFTER_MS, Metadata.ASCII_STRING_MARSHALLER);
+
+    private static final String UNKNOWN_CALLER_ID = "unknownCallerId";
+
+    private final CallerCostAccounting callerCostAccounting;
+    private final CallMetadataResolver callMetadataResolver;
+
+    @Inject
+    public RequestCostServerInterceptor(CallerCostAccounting callerCostAccounting, CallMetadataResolver callMetadataResolver) {
+        this.callerCostAccounting = callerCostAccounting;
+        this.callMetadataResolver = callMetadataResolver;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        String callerId = callMetadataResolver.resolve().map(CallMetadata::getCallerId).orElse(UNKNOWN_CALLER_ID);
+
+        if (!callerCostAccounting.tryAdmit(callerId)) {
+            long retryAfterMs = callerCostAccounting.getRetryAfterMs(callerId);
+            String message = String.format("Request quota of caller %s exceeded. Retry after %sms", callerId, retryAfterMs);
+            Metadata trailers = new Metadata();
+            trailers.put(ErrorResponses.KEY_TITUS_ERROR_REPORT, message);
+            trailers.put(KEY_TITUS_RETRY_AFTER_MS, Long.toString(retryAfterMs));
+            call.close(Status.RESOURCE_EXHAUSTED.withDescription(message), trailers);
+            return new ServerCall.Listener<ReqT>() {
+            };
+        }
+
+        RequestCost requestCost = new RequestCost();
+        // Streaming calls may last for a long time, so they are charged for each message sent.
+        boolean streaming = !call.getMethodDescriptor().getType().serverSendsOneMessage();
+        ServerCall<ReqT, RespT> accountingCall = new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
+            @Override
+            public void sendMessage(RespT message) {
+                requestCost.addResult(message);
+                if (streaming) {
+                    callerCostAccounting.charge(callerId, requestCost);
+                }
+                super.sendMessage(message);
+            }
+
+            @Override
+            public void close(Status status, Metadata trailers) {
+                callerCostAccounting.charge(callerId, requestCost);
+                super.close(status, trailers);
+            }
+        };
+
+        Context context = Context.current().withValue(RequestCost.CONTEXT_KEY, requestCost);
+        return Contexts.interceptCall(context, accountingCall, headers, next);
+    }
+}
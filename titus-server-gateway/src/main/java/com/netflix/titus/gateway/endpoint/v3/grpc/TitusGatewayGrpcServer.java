@@ -60,6 +60,7 @@ public class TitusGatewayGrpcServer {
     private final LoadBalancerServiceImplBase loadBalancerService;
     private final SchedulerServiceImplBase schedulerService;
     private final GrpcEndpointConfiguration config;
+    private final RequestCostServerInterceptor requestCostServerInterceptor;
 
     private final AtomicBoolean started = new AtomicBoolean();
     private Server server;
@@ -72,7 +73,8 @@ public class TitusGatewayGrpcServer {
             AutoScalingServiceImplBase appAutoScalingService,
             LoadBalancerServiceImplBase loadBalancerService,
             SchedulerServiceImplBase schedulerService,
-            GrpcEndpointConfiguration config) {
+            GrpcEndpointConfiguration config,
+            RequestCostServerInterceptor requestCostServerInterceptor) {
         this.healthService = healthService;
         this.jobManagementService = jobManagementService;
         this.agentManagementService = agentManagementService;
@@ -80,6 +82,7 @@ public class TitusGatewayGrpcServer {
         this.loadBalancerService = loadBalancerService;
         this.schedulerService = schedulerService;
         this.config = config;
+        this.requestCostServerInterceptor = requestCostServerInterceptor;
     }
 
     @PostConstruct
@@ -150,6 +153,7 @@ public class TitusGatewayGrpcServer {
      * Override to add server side interceptors.
      */
     protected List<ServerInterceptor> createInterceptors(ServiceDescriptor serviceDescriptor) {
-        return Arrays.asList(new ErrorCatchingServerInterceptor(), new V3HeaderInterceptor());
+        // Interceptors are invoked in the reverse order, so the request cost is accounted after the caller is resolved.
+        return Arrays.asList(new ErrorCatchingServerInterceptor(), requestCostServerInterceptor, new V3HeaderInterceptor());
     }
 }
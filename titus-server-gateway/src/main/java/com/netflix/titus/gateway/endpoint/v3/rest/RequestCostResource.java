@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.endpoint.v3.rest;
+
+import java.util.List;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.netflix.titus.gateway.service.v3.cost.CallerCost;
+import com.netflix.titus.gateway.service.v3.cost.CallerCostAccounting;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+@Api(tags = "Diagnostic")
+@Path("/diagnostic/requestCosts")
+@Singleton
+public class RequestCostResource {
+
+    private final CallerCostAccounting callerCostAccounting;
+
+    @Inject
+    public RequestCostResource(CallerCostAccounting callerCostAccounting) {
+        this.callerCostAccounting = callerCostAccounting;
+    }
+
+    @GET
+    @ApiOperation("Get request cost statistics of all callers, ordered by their total cost")
+    public List<CallerCost> getCallers() {
+        return callerCostAccounting.getCallers();
+    }
+
+    @GET
+    @ApiOperation("Get callers with the highest request cost in the last statistics refresh interval")
+    @Path("/top")
+    public List<CallerCost> getTopCallers() {
+        return callerCostAccounting.getTopCallers();
+    }
+}
@@ -37,4 +37,50 @@ public interface JobManagerConfiguration {
      */
     @DefaultValue("10000")
     int getMinDiskSizeMB();
+
+    /**
+     * @return true if job and task queries should be answered from the locally replicated job snapshot, instead of
+     * being forwarded to TitusMaster. Changing this value at runtime only switches query routing; the replicator
+     * itself is started during the gateway bootstrap if this property is set at that time.
+     */
+    @DefaultValue("false")
+    boolean isJobSnapshotQueryEnabled();
+
+    /**
+     * @return the maximum staleness of the replicated job snapshot, above which queries are forwarded to TitusMaster
+     */
+    @DefaultValue("5000")
+    long getJobSnapshotQueryMaxStalenessMs();
+
+    /**
+     * @return false if TitusMaster runs with the V2 engine disabled. As the replicated job snapshot holds V3 data only,
+     * queries not restricted to V3 job or task ids are answered locally only when this property is set to false.
+     */
+    @DefaultValue("true")
+    boolean isV2EngineEnabled();
+
+    /**
+     * @return the maximum total size (in bytes, as serialized gRPC messages) of archived jobs and tasks kept in memory
+     */
+    @DefaultValue("104857600")
+    long getArchivedEntityCacheMaxSizeBytes();
+
+    /**
+     * @return how long a lookup for an unknown job or task id is remembered, before the archive is queried again
+     */
+    @DefaultValue("60000")
+    long getArchivedEntityCacheNegativeTtlMs();
+
+    /**
+     * TODO Feature flag. If enabled, identical job and task queries of the same caller forwarded to TitusMaster at
+     * the same time are collapsed into a single call.
+     */
+    @DefaultValue("false")
+    boolean isQuerySingleFlightEnabled();
+
+    /**
+     * @return how long the result of a collapsed query is reused by identical queries after it completes
+     */
+    @DefaultValue("0")
+    long getQueryResultReuseWindowMs();
 }
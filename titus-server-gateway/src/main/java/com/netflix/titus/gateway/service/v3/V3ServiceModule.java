@@ -22,6 +22,7 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.netflix.archaius.ConfigProxyFactory;
 import com.netflix.titus.runtime.connector.agent.client.GrpcAgentManagementClient;
+import com.netflix.titus.gateway.service.v3.cost.RequestCostConfiguration;
 import com.netflix.titus.gateway.service.v3.internal.DefaultAutoScalingService;
 import com.netflix.titus.gateway.service.v3.internal.DefaultHealthService;
 import com.netflix.titus.gateway.service.v3.internal.GatewayJobManagementClient;
@@ -30,6 +31,7 @@ import com.netflix.titus.gateway.service.v3.internal.DefaultSchedulerService;
 import com.netflix.titus.gateway.service.v3.internal.DefaultTitusManagementService;
 import com.netflix.titus.runtime.connector.GrpcClientConfiguration;
 import com.netflix.titus.runtime.connector.agent.AgentManagementClient;
+import com.netflix.titus.runtime.connector.common.replicator.DataReplicatorConfiguration;
 import com.netflix.titus.runtime.service.AutoScalingService;
 import com.netflix.titus.runtime.connector.jobmanager.JobManagementClient;
 import com.netflix.titus.runtime.service.HealthService;
@@ -53,9 +55,21 @@ public class V3ServiceModule extends AbstractModule {
         return factory.newProxy(GrpcClientConfiguration.class);
     }
 
+    @Provides
+    @Singleton
+    public DataReplicatorConfiguration getDataReplicatorConfiguration(ConfigProxyFactory factory) {
+        return factory.newProxy(DataReplicatorConfiguration.class);
+    }
+
     @Provides
     @Singleton
     public JobManagerConfiguration getJobManagerConfiguration(ConfigProxyFactory factory) {
         return factory.newProxy(JobManagerConfiguration.class);
     }
+
+    @Provides
+    @Singleton
+    public RequestCostConfiguration getRequestCostConfiguration(ConfigProxyFactory factory) {
+        return factory.newProxy(RequestCostConfiguration.class);
+    }
 }
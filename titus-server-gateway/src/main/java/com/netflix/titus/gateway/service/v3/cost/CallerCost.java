@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.service.v3.cost;
+
+/**
+ * Request cost statistics of a single caller.
+ */
+public class CallerCost {
+
+    private final String callerId;
+    private final long requests;
+    private final long throttledRequests;
+    private final long resultItems;
+    private final long bytes;
+    private final long archiveLookups;
+    private final long totalCost;
+    private final long recentCost;
+    private final long quotaCapacity;
+    private final long quotaRefillPerSecond;
+    private final long availableTokens;
+
+    public CallerCost(String callerId,
+                      long requests,
+                      long throttledRequests,
+                      long resultItems,
+                      long bytes,
+                      long archiveLookups,
+                      long totalCost,
+                      long recentCost,
+                      long quotaCapacity,
+                      long quotaRefillPerSecond,
+                      long availableTokens) {
+        this.callerId = callerId;
+        this.requests = requests;
+        this.throttledRequests = throttledRequests;
+        this.resultItems = resultItems;
+        this.bytes = bytes;
+        this.archiveLookups = archiveLookups;
+        this.totalCost = totalCost;
+        this.recentCost = recentCost;
+        this.quotaCapacity = quotaCapacity;
+        this.quotaRefillPerSecond = quotaRefillPerSecond;
+        this.availableTokens = availableTokens;
+    }
+
+    public String getCallerId() {
+        return callerId;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getThrottledRequests() {
+        return throttledRequests;
+    }
+
+    public long getResultItems() {
+        return resultItems;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getArchiveLookups() {
+        return archiveLookups;
+    }
+
+    public long getTotalCost() {
+        return totalCost;
+    }
+
+    /**
+     * Cost accumulated in the last statistics refresh interval.
+     */
+    public long getRecentCost() {
+        return recentCost;
+    }
+
+    public long getQuotaCapacity() {
+        return quotaCapacity;
+    }
+
+    public long getQuotaRefillPerSecond() {
+        return quotaRefillPerSecond;
+    }
+
+    public long getAvailableTokens() {
+        return availableTokens;
+    }
+
+    @Override
+    public String toString() {
+        return "CallerCost{" +
+                "callerId='" + callerId + '\'' +
+                ", requests=" + requests +
+                ", throttledRequests=" + throttledRequests +
+                ", resultItems=" + resultItems +
+                ", bytes=" + bytes +
+                ", archiveLookups=" + archiveLookups +
+                ", totalCost=" + totalCost +
+                ", recentCost=" + recentCost +
+                ", quotaCapacity=" + quotaCapacity +
+                ", quotaRefillPerSecond=" + quotaRefillPerSecond +
+                ", availableTokens=" + availableTokens +
+                '}';
+    }
+}
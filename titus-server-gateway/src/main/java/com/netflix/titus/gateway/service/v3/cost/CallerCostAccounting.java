@@ -0,0 +1,425 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.service.v3.cost;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.limiter.Limiters;
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
+import com.netflix.titus.common.util.rx.ObservableExt;
+import com.netflix.titus.common.util.spectator.MetricCardinalityGuard;
+import com.netflix.titus.common.util.spectator.SpectatorExt;
+import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.gateway.MetricConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Completable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.schedulers.Schedulers;
+
+/**
+ * Aggregates request costs per caller, and enforces per caller token bucket quotas. A request is admitted if the
+ * caller has enough tokens for the fixed request cost. The variable part of the cost (result size, archive store
+ * lookups) is known only after the request is executed, so it is taken from the bucket afterwards. If it exceeds the
+ * available tokens, the bucket is drained, and the caller is throttled until it is refilled.
+ * <p>
+ * The highest cost callers in the last refresh interval are reported as metrics.
+ * <p>
+ * Caller ids are supplied by clients, so both the number of tracked callers, and the number of caller tagged metric
+ * ids are bounded. Callers above the limits are folded into the {@link MetricCardinalityGuard#OVERFLOW_TAG_VALUE}
+ * caller.
+ */
+@Singleton
+public class CallerCostAccounting {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallerCostAccounting.class);
+
+    private static final String METRIC_ROOT = MetricConstants.METRIC_REQUEST_COST;
+
+    private static final long REFRESH_INTERVAL_MS = 30_000;
+
+    private static final String CALLER_TAG = "caller";
+
+    private static final String QUOTA_RULE_DELIM = ";";
+    private static final String QUOTA_RULE_ASSIGN = "=";
+    private static final String QUOTA_VALUE_DELIM = ":";
+
+    private final RequestCostConfiguration configuration;
+    private final Registry registry;
+    private final Clock clock;
+
+    private final ConcurrentMap<String, CallerState> callers = new ConcurrentHashMap<>();
+
+    private volatile String quotaRulesSource;
+    private volatile List<Pair<Pattern, Quota>> quotaRules = Collections.emptyList();
+    private volatile List<CallerCost> topCallers = Collections.emptyList();
+
+    private final Id throttledId;
+    private final Id topCallerCostId;
+    private final MetricCardinalityGuard cardinalityGuard;
+    private Set<Id> reportedTopCallerIds = Collections.emptySet();
+
+    private final Subscription refreshSubscription;
+
+    @Inject
+    public CallerCostAccounting(RequestCostConfiguration configuration, TitusRuntime titusRuntime) {
+        this(configuration, titusRuntime, Schedulers.computation());
+    }
+
+    @VisibleForTesting
+    CallerCostAccounting(RequestCostConfiguration configuration, TitusRuntime titusRuntime, Scheduler scheduler) {
+        this.configuration = configuration;
+        this.registry = titusRuntime.getRegistry();
+        this.clock = titusRuntime.getClock();
+        this.throttledId = registry.createId(METRIC_ROOT + "throttled");
+        this.topCallerCostId = registry.createId(METRIC_ROOT + "topCallerCost");
+        this.cardinalityGuard = SpectatorExt.cardinalityGuard(
+                METRIC_ROOT + "cardinality.",
+                Collections.singleton(CALLER_TAG),
+                configuration.getMaxCallerMetricIds(),
+                configuration.getCallerIdleTimeoutMs(),
+                clock,
+                registry
+        );
+
+        PolledMeter.using(registry).withId(registry.createId(METRIC_ROOT + "callers")).monitorSize(callers);
+
+        this.refreshSubscription = ObservableExt.schedule(METRIC_ROOT, registry, "refresh", Completable.fromAction(this::refresh),
+                REFRESH_INTERVAL_MS, REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS, scheduler
+        ).subscribe(next -> next.ifPresent(e -> logger.warn("Request cost statistics refresh failure", e)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ObservableExt.safeUnsubscribe(refreshSubscription);
+    }
+
+    /**
+     * Takes the fixed request cost from the caller's quota.
+     *
+     * @return false if the caller has exceeded its quota, and the request should be rejected
+     */
+    public boolean tryAdmit(String callerId) {
+        CallerState state = getOrCreateCallerState(callerId);
+        TokenBucket bucket = state.bucket;
+        long requestCost = configuration.getRequestCost();
+        boolean hasTokens = bucket.tryTake(Math.min(requestCost, bucket.getCapacity()));
+        if (hasTokens || !configuration.isQuotaEnabled()) {
+            state.onRequest(requestCost);
+            return true;
+        }
+        state.throttledRequests.incrementAndGet();
+        cardinalityGuard.counter(throttledId.withTag(CALLER_TAG, state.callerId)).increment();
+        return false;
+    }
+
+    /**
+     * @return an estimate of how long the caller must wait, before its next request is admitted
+     */
+    public long getRetryAfterMs(String callerId) {
+        CallerState state = callers.get(callerId);
+        if (state == null) {
+            state = callers.get(MetricCardinalityGuard.OVERFLOW_TAG_VALUE);
+            if (state == null) {
+                return 0;
+            }
+        }
+        long missing = configuration.getRequestCost() - state.bucket.getNumberOfTokens();
+        if (missing <= 0) {
+            return 0;
+        }
+        long refillPerSecond = Math.max(1, state.quota.refillPerSecond);
+        return (missing * 1000 + refillPerSecond - 1) / refillPerSecond;
+    }
+
+    /**
+     * Charges the caller with the resources accumulated in the {@link RequestCost} instance since the previous charge.
+     */
+    public void charge(String callerId, RequestCost requestCost) {
+        long resultItems = requestCost.takeResultItems();
+        long bytes = requestCost.takeBytes();
+        long archiveLookups = requestCost.takeArchiveLookups();
+        long cost = resultItems * configuration.getResultItemCost()
+                + (bytes * configuration.getKilobyteCost()) / 1024
+                + archiveLookups * configuration.getArchiveLookupCost();
+
+        CallerState state = getOrCreateCallerState(callerId);
+        state.onCharge(resultItems, bytes, archiveLookups, cost);
+        TokenBucket bucket = state.bucket;
+        if (cost > 0 && (cost > bucket.getCapacity() || !bucket.tryTake(cost))) {
+            long available = bucket.getNumberOfTokens();
+            if (available > 0) {
+                bucket.tryTake(available);
+            }
+        }
+    }
+
+    /**
+     * @return callers with the highest cost in the last refresh interval
+     */
+    public List<CallerCost> getTopCallers() {
+        return topCallers;
+    }
+
+    /**
+     * @return current statistics of all known callers, ordered by their total cost
+     */
+    public List<CallerCost> getCallers() {
+        return callers.values().stream()
+                .map(CallerState::toCallerCost)
+                .sorted(Comparator.comparingLong(CallerCost::getTotalCost).reversed())
+                .collect(Collectors.toList());
+    }
+
+    @VisibleForTesting
+    void refresh() {
+        List<Pair<Pattern, Quota>> rules = getQuotaRules();
+        long idleDeadline = clock.wallTime() - configuration.getCallerIdleTimeoutMs();
+
+        List<CallerCost> snapshots = new ArrayList<>(callers.size());
+        callers.values().removeIf(state -> state.lastRequestTimestamp < idleDeadline);
+        callers.values().forEach(state -> {
+            state.closeRecentWindow();
+            Quota quota = resolveQuota(state.callerId, rules);
+            if (!quota.equals(state.quota)) {
+                state.updateQuota(quota);
+            }
+            snapshots.add(state.toCallerCost());
+        });
+
+        snapshots.sort(Comparator.comparingLong(CallerCost::getRecentCost).reversed());
+        this.topCallers = Collections.unmodifiableList(new ArrayList<>(
+                snapshots.subList(0, Math.min(snapshots.size(), configuration.getTopCallersCount()))
+        ));
+
+        // Top callers over the metric id budget share the overflow gauge, so their costs are summed up.
+        Map<Id, Long> reported = new HashMap<>();
+        topCallers.forEach(callerCost -> reported.merge(
+                cardinalityGuard.guard(topCallerCostId.withTag(CALLER_TAG, callerCost.getCallerId())),
+                callerCost.getRecentCost(),
+                Long::sum
+        ));
+        reported.forEach((id, cost) -> registry.gauge(id).set(cost));
+
+        // Callers that are no longer on the top list are reported as zero once, and then their gauges are not
+        // updated anymore, so they expire in the registry, and give their budget back to the guard.
+        reportedTopCallerIds.stream()
+                .filter(id -> !reported.containsKey(id))
+                .forEach(id -> {
+                    registry.gauge(id).set(0);
+                    cardinalityGuard.release(id);
+                });
+        this.reportedTopCallerIds = reported.keySet();
+    }
+
+    private CallerState getOrCreateCallerState(String callerId) {
+        CallerState state = callers.get(callerId);
+        if (state != null) {
+            return state;
+        }
+        int trackedCallers = callers.containsKey(MetricCardinalityGuard.OVERFLOW_TAG_VALUE) ? callers.size() - 1 : callers.size();
+        String effectiveId = trackedCallers < configuration.getMaxTrackedCallers()
+                ? callerId
+                : MetricCardinalityGuard.OVERFLOW_TAG_VALUE;
+        return callers.computeIfAbsent(effectiveId, id -> new CallerState(id, resolveQuota(id, getQuotaRules())));
+    }
+
+    private Quota resolveQuota(String callerId, List<Pair<Pattern, Quota>> rules) {
+        for (Pair<Pattern, Quota> rule : rules) {
+            if (rule.getLeft().matcher(callerId).matches()) {
+                return rule.getRight();
+            }
+        }
+        return new Quota(configuration.getDefaultQuotaCapacity(), configuration.getDefaultQuotaRefillPerSecond());
+    }
+
+    private List<Pair<Pattern, Quota>> getQuotaRules() {
+        String source = configuration.getQuotaOverrides();
+        if (!Objects.equals(source, quotaRulesSource)) {
+            this.quotaRules = parseQuotaRules(source);
+            this.quotaRulesSource = source;
+        }
+        return quotaRules;
+    }
+
+    /**
+     * Parses quota rules in the format: callerIdRegExp=capacity:refillPerSecond;callerIdRegExp=capacity:refillPerSecond.
+     * Invalid rules are logged, and ignored.
+     */
+    @VisibleForTesting
+    static List<Pair<Pattern, Quota>> parseQuotaRules(String source) {
+        if (source == null || source.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Pair<Pattern, Quota>> rules = new ArrayList<>();
+        for (String rule : source.split(QUOTA_RULE_DELIM)) {
+            int assignIdx = rule.lastIndexOf(QUOTA_RULE_ASSIGN);
+            String[] values = rule.substring(assignIdx + 1).split(QUOTA_VALUE_DELIM);
+            if (assignIdx <= 0 || values.length != 2) {
+                logger.warn("Ignoring invalid caller quota rule (expected callerIdRegExp=capacity:refillPerSecond): {}", rule);
+                continue;
+            }
+            try {
+                Quota quota = new Quota(Long.parseLong(values[0].trim()), Long.parseLong(values[1].trim()));
+                if (quota.capacity <= 0 || quota.refillPerSecond <= 0) {
+                    logger.warn("Ignoring caller quota rule with non positive values: {}", rule);
+                    continue;
+                }
+                rules.add(Pair.of(Pattern.compile(rule.substring(0, assignIdx).trim()), quota));
+            } catch (Exception e) {
+                logger.warn("Ignoring invalid caller quota rule {}: {}", rule, e.getMessage());
+            }
+        }
+        return rules;
+    }
+
+    @VisibleForTesting
+    static class Quota {
+
+        private final long capacity;
+        private final long refillPerSecond;
+
+        Quota(long capacity, long refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerSecond = refillPerSecond;
+        }
+
+        long getCapacity() {
+            return capacity;
+        }
+
+        long getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Quota quota = (Quota) o;
+            return capacity == quota.capacity && refillPerSecond == quota.refillPerSecond;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(capacity, refillPerSecond);
+        }
+    }
+
+    private class CallerState {
+
+        private final String callerId;
+
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong throttledRequests = new AtomicLong();
+        private final AtomicLong resultItems = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong archiveLookups = new AtomicLong();
+        private final AtomicLong totalCost = new AtomicLong();
+        private final AtomicLong windowCost = new AtomicLong();
+
+        private volatile long recentCost;
+        private volatile long lastRequestTimestamp;
+
+        private volatile Quota quota;
+        private volatile TokenBucket bucket;
+
+        private CallerState(String callerId, Quota quota) {
+            this.callerId = callerId;
+            this.quota = quota;
+            this.bucket = newBucket(quota, quota.capacity);
+            this.lastRequestTimestamp = clock.wallTime();
+        }
+
+        private void onRequest(long cost) {
+            requests.incrementAndGet();
+            addCost(cost);
+            lastRequestTimestamp = clock.wallTime();
+        }
+
+        private void onCharge(long resultItems, long bytes, long archiveLookups, long cost) {
+            this.resultItems.addAndGet(resultItems);
+            this.bytes.addAndGet(bytes);
+            this.archiveLookups.addAndGet(archiveLookups);
+            addCost(cost);
+        }
+
+        private void addCost(long cost) {
+            totalCost.addAndGet(cost);
+            windowCost.addAndGet(cost);
+        }
+
+        private void closeRecentWindow() {
+            this.recentCost = windowCost.getAndSet(0);
+        }
+
+        private void updateQuota(Quota newQuota) {
+            long tokens = Math.min(bucket.getNumberOfTokens(), newQuota.capacity);
+            this.bucket = newBucket(newQuota, tokens);
+            this.quota = newQuota;
+        }
+
+        private TokenBucket newBucket(Quota quota, long initialTokens) {
+            return Limiters.createFixedIntervalTokenBucket(
+                    "caller-" + callerId, quota.capacity, initialTokens, quota.refillPerSecond, 1, TimeUnit.SECONDS
+            );
+        }
+
+        private CallerCost toCallerCost() {
+            return new CallerCost(
+                    callerId,
+                    requests.get(),
+                    throttledRequests.get(),
+                    resultItems.get(),
+                    bytes.get(),
+                    archiveLookups.get(),
+                    totalCost.get(),
+                    recentCost,
+                    quota.capacity,
+                    quota.refillPerSecond,
+                    bucket.getNumberOfTokens()
+            );
+        }
+    }
+}
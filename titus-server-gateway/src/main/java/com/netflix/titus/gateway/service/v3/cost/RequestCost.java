@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.service.v3.cost;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Message;
+import io.grpc.Context;
+
+/**
+ * Resources consumed by a single gateway request, accumulated until they are charged to the caller with
+ * {@link CallerCostAccounting#charge(String, RequestCost)}. An instance is attached to the gRPC call context, so
+ * components that fan out to other systems while handling a request (for example the archive store) can record it.
+ */
+public class RequestCost {
+
+    public static final Context.Key<RequestCost> CONTEXT_KEY = Context.key("titus.requestCost");
+
+    private final AtomicLong resultItems = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong archiveLookups = new AtomicLong();
+
+    public void addResultItems(long count) {
+        resultItems.addAndGet(count);
+    }
+
+    public void addBytes(long count) {
+        bytes.addAndGet(count);
+    }
+
+    public void addArchiveLookups(long count) {
+        archiveLookups.addAndGet(count);
+    }
+
+    /**
+     * Records a response message. Each element of a top level repeated field (like a query result page) counts as
+     * one result item. Messages without repeated fields count as a single item.
+     */
+    public void addResult(Object response) {
+        if (!(response instanceof Message)) {
+            addResultItems(1);
+            return;
+        }
+        Message message = (Message) response;
+        long items = 0;
+        boolean hasRepeatedFields = false;
+        for (Descriptors.FieldDescriptor field : message.getDescriptorForType().getFields()) {
+            if (field.isRepeated() && !field.isMapField()) {
+                hasRepeatedFields = true;
+                items += message.getRepeatedFieldCount(field);
+            }
+        }
+        addResultItems(hasRepeatedFields ? items : 1);
+        addBytes(message.getSerializedSize());
+    }
+
+    long takeResultItems() {
+        return resultItems.getAndSet(0);
+    }
+
+    long takeBytes() {
+        return bytes.getAndSet(0);
+    }
+
+    long takeArchiveLookups() {
+        return archiveLookups.getAndSet(0);
+    }
+
+    /**
+     * @return request cost accumulator of the gRPC call executed by the current thread
+     */
+    public static Optional<RequestCost> current() {
+        return Optional.ofNullable(CONTEXT_KEY.get());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.service.v3.cost;
+
+import com.netflix.archaius.api.annotations.Configuration;
+import com.netflix.archaius.api.annotations.DefaultValue;
+
+@Configuration(prefix = "titus.gateway.requestCost")
+public interface RequestCostConfiguration {
+
+    /**
+     * TODO Feature flag. When disabled, request costs are accounted for, but callers are not throttled.
+     */
+    @DefaultValue("false")
+    boolean isQuotaEnabled();
+
+    /**
+     * Fixed cost of each request. A caller must have at least this number of tokens available, to be admitted.
+     */
+    @DefaultValue("1")
+    long getRequestCost();
+
+    @DefaultValue("1")
+    long getResultItemCost();
+
+    /**
+     * Cost of each kilobyte of serialized response data.
+     */
+    @DefaultValue("1")
+    long getKilobyteCost();
+
+    /**
+     * Cost of a single lookup in the archive store (for example loading archived tasks of a job).
+     */
+    @DefaultValue("10")
+    long getArchiveLookupCost();
+
+    @DefaultValue("10000")
+    long getDefaultQuotaCapacity();
+
+    @DefaultValue("1000")
+    long getDefaultQuotaRefillPerSecond();
+
+    /**
+     * Quotas for selected callers in the format: callerIdRegExp=capacity:refillPerSecond;callerIdRegExp=capacity:refillPerSecond.
+     * The first matching rule is used. Callers not matching any rule get the default quota.
+     */
+    @DefaultValue("")
+    String getQuotaOverrides();
+
+    /**
+     * Number of callers with the highest cost reported in metrics.
+     */
+    @DefaultValue("10")
+    int getTopCallersCount();
+
+    /**
+     * Callers with no requests for this amount of time are removed, and their statistics are reset.
+     */
+    @DefaultValue("3600000")
+    long getCallerIdleTimeoutMs();
+
+    /**
+     * Maximum number of callers tracked individually. Requests of new callers above this limit are accounted for, and
+     * throttled, jointly under the '_overflow' caller id, until some of the tracked callers become idle.
+     */
+    @DefaultValue("1000")
+    int getMaxTrackedCallers();
+
+    /**
+     * Maximum number of distinct caller tag values of each caller tagged metric. Above it, callers are reported
+     * with the '_overflow' tag value. Read at startup only.
+     */
+    @DefaultValue("100")
+    int getMaxCallerMetricIds();
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.service.v3.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.protobuf.Message;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.jobmanager.store.JobStore;
+import com.netflix.titus.api.jobmanager.store.JobStoreException;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.cache.Cache;
+import com.netflix.titus.common.util.cache.internal.InstrumentedCache;
+import com.netflix.titus.gateway.MetricConstants;
+import com.netflix.titus.gateway.service.v3.JobManagerConfiguration;
+import com.netflix.titus.grpc.protogen.Job;
+import com.netflix.titus.grpc.protogen.Task;
+import com.netflix.titus.runtime.endpoint.common.LogStorageInfo;
+import com.netflix.titus.runtime.endpoint.v3.grpc.V3GrpcModelConverters;
+import rx.Observable;
+import rx.functions.Func0;
+
+/**
+ * Archived jobs and tasks never change, so once read from {@link JobStore} and converted to the gRPC model, they
+ * can be kept in memory. The cache is bounded by the serialized size of the stored entities. Lookups of ids that
+ * are not in the archive are remembered for a short period of time ({@link JobManagerConfiguration#getArchivedEntityCacheNegativeTtlMs()}),
+ * as the entity may be archived later on.
+ * <p>
+ * The list of archived tasks of a job can grow as long as the job is running, so it is cached only after the job
+ * itself is archived.
+ */
+@Singleton
+public class ArchivedEntityCache {
+
+    private static final String METRIC_ROOT = MetricConstants.METRIC_JOB_MANAGEMENT + "archivedEntityCache";
+
+    private static final String JOB_KEY_PREFIX = "job/";
+    private static final String TASK_KEY_PREFIX = "task/";
+    private static final String JOB_TASKS_KEY_PREFIX = "jobTasks/";
+
+    private static final Comparator<Task> TASK_TIMESTAMP_COMPARATOR = Comparator.comparingLong(task -> task.getStatus().getTimestamp());
+
+    private final JobStore store;
+    private final LogStorageInfo<com.netflix.titus.api.jobmanager.model.job.Task> logStorageInfo;
+
+    private final Cache<String, Entry> cache;
+
+    private final Counter negativeHitsCounter;
+    private final Counter uncachedJobTasksCounter;
+
+    @Inject
+    public ArchivedEntityCache(JobManagerConfiguration configuration,
+                               JobStore store,
+                               LogStorageInfo<com.netflix.titus.api.jobmanager.model.job.Task> logStorageInfo,
+                               TitusRuntime titusRuntime) {
+        this.store = store;
+        this.logStorageInfo = logStorageInfo;
+
+        Registry registry = titusRuntime.getRegistry();
+        long negativeTtlNs = TimeUnit.MILLISECONDS.toNanos(configuration.getArchivedEntityCacheNegativeTtlMs());
+        this.cache = new InstrumentedCache<>(
+                METRIC_ROOT,
+                Caffeine.newBuilder()
+                        .maximumWeight(configuration.getArchivedEntityCacheMaxSizeBytes())
+                        .weigher((String key, Entry entry) -> entry.getWeight())
+                        .expireAfter(new NegativeEntryExpiry(negativeTtlNs))
+                        .ticker(() -> TimeUnit.MILLISECONDS.toNanos(titusRuntime.getClock().wallTime()))
+                        .recordStats()
+                        .build(),
+                registry
+        );
+
+        this.negativeHitsCounter = registry.counter(METRIC_ROOT + ".negativeHits");
+        this.uncachedJobTasksCounter = registry.counter(METRIC_ROOT + ".uncachedJobTasks");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cache.shutdown();
+    }
+
+    public Observable<Job> getJob(String jobId) {
+        return get(
+                JOB_KEY_PREFIX + jobId,
+                () -> store.retrieveArchivedJob(jobId).map(V3GrpcModelConverters::toGrpcJob),
+                JobStoreException.ErrorCode.JOB_DOES_NOT_EXIST,
+                () -> JobStoreException.jobDoesNotExist(jobId)
+        );
+    }
+
+    public Observable<Task> getTask(String taskId) {
+        return get(
+                TASK_KEY_PREFIX + taskId,
+                () -> store.retrieveArchivedTask(taskId).map(task -> V3GrpcModelConverters.toGrpcTask(task, logStorageInfo)),
+                JobStoreException.ErrorCode.TASK_DOES_NOT_EXIST,
+                () -> JobStoreException.taskDoesNotExist(taskId)
+        );
+    }
+
+    /**
+     * Returns all archived tasks of a job, ordered by their last status update time.
+     */
+    public Observable<List<Task>> getTasksForJob(String jobId) {
+        return Observable.defer(() -> {
+            String key = JOB_TASKS_KEY_PREFIX + jobId;
+            Entry entry = cache.getIfPresent(key);
+            if (entry != null) {
+                return Observable.just(entry.getTasks());
+            }
+            return isJobArchived(jobId).flatMap(archived -> {
+                Observable<List<Task>> tasksObservable = store.retrieveArchivedTasksForJob(jobId)
+                        .map(task -> V3GrpcModelConverters.toGrpcTask(task, logStorageInfo))
+                        .toSortedList(TASK_TIMESTAMP_COMPARATOR::compare);
+                if (!archived) {
+                    uncachedJobTasksCounter.increment();
+                    return tasksObservable;
+                }
+                return tasksObservable.doOnNext(tasks -> cache.put(key, Entry.ofTasks(key, tasks)));
+            });
+        });
+    }
+
+    /**
+     * Checks if the job is archived, bypassing the negative cache entries. This probe is made for running jobs,
+     * so a miss is not remembered, as it would hide the job from {@link #getJob(String)} once it is archived.
+     */
+    private Observable<Boolean> isJobArchived(String jobId) {
+        return Observable.defer(() -> {
+            String key = JOB_KEY_PREFIX + jobId;
+            Entry entry = cache.getIfPresent(key);
+            if (entry != null && !entry.isNegative()) {
+                return Observable.just(true);
+            }
+            return store.retrieveArchivedJob(jobId)
+                    .map(V3GrpcModelConverters::toGrpcJob)
+                    .doOnNext(job -> cache.put(key, Entry.ofEntity(key, job)))
+                    .map(job -> true)
+                    .onErrorResumeNext(e -> {
+                        if (isErrorCode(e, JobStoreException.ErrorCode.JOB_DOES_NOT_EXIST)) {
+                            return Observable.just(false);
+                        }
+                        return Observable.error(e);
+                    });
+        });
+    }
+
+    private <T extends Message> Observable<T> get(String key,
+                                                  Func0<Observable<T>> loader,
+                                                  JobStoreException.ErrorCode notFoundErrorCode,
+                                                  Func0<JobStoreException> notFoundErrorFactory) {
+        return Observable.defer(() -> {
+            Entry entry = cache.getIfPresent(key);
+            if (entry != null) {
+                if (entry.isNegative()) {
+                    negativeHitsCounter.increment();
+                    return Observable.error(notFoundErrorFactory.call());
+                }
+                return Observable.just(entry.<T>getEntity());
+            }
+            return loader.call()
+                    .doOnNext(entity -> cache.put(key, Entry.ofEntity(key, entity)))
+                    .doOnError(e -> {
+                        if (isErrorCode(e, notFoundErrorCode)) {
+                            cache.put(key, Entry.negative(key));
+                        }
+                    });
+        });
+    }
+
+    private static boolean isErrorCode(Throwable error, JobStoreException.ErrorCode errorCode) {
+        return error instanceof JobStoreException && ((JobStoreException) error).getErrorCode() == errorCode;
+    }
+
+    private static class NegativeEntryExpiry implements Expiry<String, Entry> {
+
+        private final long negativeTtlNs;
+
+        private NegativeEntryExpiry(long negativeTtlNs) {
+            this.negativeTtlNs = negativeTtlNs;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            return entry.isNegative() ? negativeTtlNs : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private static class Entry {
+
+        private static final int ENTRY_OVERHEAD = 64;
+
+        private final Object value;
+        private final int weight;
+
+        private Entry(Object value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+
+        private boolean isNegative() {
+            return value == null;
+        }
+
+        private int getWeight() {
+            return weight;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T getEntity() {
+            return (T) value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<Task> getTasks() {
+            return (List<Task>) value;
+        }
+
+        private static Entry negative(String key) {
+            return new Entry(null, ENTRY_OVERHEAD + key.length());
+        }
+
+        private static Entry ofEntity(String key, Message entity) {
+            return new Entry(entity, ENTRY_OVERHEAD + key.length() + entity.getSerializedSize());
+        }
+
+        private static Entry ofTasks(String key, List<Task> tasks) {
+            long weight = ENTRY_OVERHEAD + key.length();
+            for (Task task : tasks) {
+                weight += task.getSerializedSize();
+            }
+            return new Entry(Collections.unmodifiableList(new ArrayList<>(tasks)), (int) Math.min(Integer.MAX_VALUE, weight));
+        }
+    }
+}
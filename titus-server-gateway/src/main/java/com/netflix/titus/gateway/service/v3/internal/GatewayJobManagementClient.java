@@ -19,6 +19,7 @@ package com.netflix.titus.gateway.service.v3.internal;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
@@ -31,20 +32,25 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Sets;
 import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
 import com.netflix.titus.api.jobmanager.model.job.TaskState;
-import com.netflix.titus.api.jobmanager.store.JobStore;
 import com.netflix.titus.api.jobmanager.store.JobStoreException;
 import com.netflix.titus.api.model.Page;
 import com.netflix.titus.api.model.Pagination;
 import com.netflix.titus.api.model.PaginationUtil;
 import com.netflix.titus.api.service.TitusServiceException;
 import com.netflix.titus.common.model.sanitizer.EntitySanitizer;
+import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.ExceptionExt;
 import com.netflix.titus.common.util.StringExt;
+import com.netflix.titus.common.util.rx.SingleFlight;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.gateway.MetricConstants;
 import com.netflix.titus.gateway.service.v3.JobManagerConfiguration;
+import com.netflix.titus.gateway.service.v3.cost.RequestCost;
 import com.netflix.titus.grpc.protogen.Job;
 import com.netflix.titus.grpc.protogen.JobId;
 import com.netflix.titus.grpc.protogen.JobManagementServiceGrpc.JobManagementServiceStub;
+import com.netflix.titus.grpc.protogen.JobQuery;
+import com.netflix.titus.grpc.protogen.JobQueryResult;
 import com.netflix.titus.grpc.protogen.Task;
 import com.netflix.titus.grpc.protogen.TaskId;
 import com.netflix.titus.grpc.protogen.TaskQuery;
@@ -52,9 +58,8 @@ import com.netflix.titus.grpc.protogen.TaskQueryResult;
 import com.netflix.titus.runtime.connector.GrpcClientConfiguration;
 import com.netflix.titus.runtime.connector.jobmanager.client.GrpcJobManagementClient;
 import com.netflix.titus.runtime.connector.jobmanager.client.JobManagementClientDelegate;
-import com.netflix.titus.runtime.endpoint.common.LogStorageInfo;
 import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
-import com.netflix.titus.runtime.endpoint.v3.grpc.V3GrpcModelConverters;
+import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3QueryKeys;
 import com.netflix.titus.runtime.connector.jobmanager.JobManagementClient;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
@@ -62,6 +67,7 @@ import io.grpc.stub.StreamObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
+import rx.schedulers.Schedulers;
 
 import static com.netflix.titus.api.jobmanager.model.job.sanitizer.JobSanitizerBuilder.JOB_STRICT_SANITIZER;
 import static com.netflix.titus.runtime.endpoint.common.grpc.CommonGrpcModelConverters.toGrpcPagination;
@@ -71,6 +77,9 @@ import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createWrap
 
 /**
  * {@link JobManagementClient} implementation merging the active and the archived data sets with extra validation rules.
+ * Read queries are answered from the locally replicated job snapshot if {@link JobSnapshotQueryProcessor} can handle
+ * them, and are forwarded to TitusMaster otherwise. Identical queries of the same caller forwarded to TitusMaster at
+ * the same time may be collapsed into a single call (see {@link JobManagerConfiguration#isQuerySingleFlightEnabled()}).
  */
 @Singleton
 public class GatewayJobManagementClient extends JobManagementClientDelegate {
@@ -79,29 +88,81 @@ public class GatewayJobManagementClient extends JobManagementClientDelegate {
     private static final int MAX_CONCURRENT_JOBS_TO_RETRIEVE = 10;
 
     private final GrpcClientConfiguration configuration;
+    private final JobManagerConfiguration jobManagerConfiguration;
     private final JobManagementServiceStub client;
     private final CallMetadataResolver callMetadataResolver;
-    private final JobStore store;
-    private final LogStorageInfo<com.netflix.titus.api.jobmanager.model.job.Task> logStorageInfo;
+    private final JobSnapshotQueryProcessor jobSnapshotQueryProcessor;
+    private final ArchivedEntityCache archivedEntityCache;
+
+    private final SingleFlight<Pair<String, JobQuery>, JobQueryResult> jobQuerySingleFlight;
+    private final SingleFlight<Pair<String, TaskQuery>, TaskQueryResult> taskQuerySingleFlight;
 
     @Inject
     public GatewayJobManagementClient(GrpcClientConfiguration configuration,
                                       JobManagerConfiguration jobManagerConfiguration,
                                       JobManagementServiceStub client,
                                       CallMetadataResolver callMetadataResolver,
-                                      JobStore store,
-                                      LogStorageInfo<com.netflix.titus.api.jobmanager.model.job.Task> logStorageInfo,
-                                      @Named(JOB_STRICT_SANITIZER) EntitySanitizer entitySanitizer) {
+                                      @Named(JOB_STRICT_SANITIZER) EntitySanitizer entitySanitizer,
+                                      JobSnapshotQueryProcessor jobSnapshotQueryProcessor,
+                                      ArchivedEntityCache archivedEntityCache,
+                                      TitusRuntime titusRuntime) {
         super(new GrpcJobManagementClient(client, callMetadataResolver, new ExtendedJobSanitizer(jobManagerConfiguration, entitySanitizer), configuration));
         this.configuration = configuration;
+        this.jobManagerConfiguration = jobManagerConfiguration;
         this.client = client;
         this.callMetadataResolver = callMetadataResolver;
-        this.store = store;
-        this.logStorageInfo = logStorageInfo;
+        this.jobSnapshotQueryProcessor = jobSnapshotQueryProcessor;
+        this.archivedEntityCache = archivedEntityCache;
+        this.jobQuerySingleFlight = new SingleFlight<>(
+                MetricConstants.METRIC_JOB_MANAGEMENT + "findJobs",
+                jobManagerConfiguration::getQueryResultReuseWindowMs,
+                configuration::getRequestTimeout,
+                titusRuntime.getRegistry(),
+                Schedulers.computation()
+        );
+        this.taskQuerySingleFlight = new SingleFlight<>(
+                MetricConstants.METRIC_JOB_MANAGEMENT + "findTasks",
+                jobManagerConfiguration::getQueryResultReuseWindowMs,
+                configuration::getRequestTimeout,
+                titusRuntime.getRegistry(),
+                Schedulers.computation()
+        );
     }
 
     @Override
     public Observable<Job> findJob(String jobId) {
+        return Observable.defer(() -> {
+            Optional<Job> localResult = jobSnapshotQueryProcessor.findJob(jobId);
+            return localResult.isPresent() ? Observable.just(localResult.get()) : findJobInMaster(jobId);
+        });
+    }
+
+    @Override
+    public Observable<JobQueryResult> findJobs(JobQuery jobQuery) {
+        return Observable.defer(() -> {
+            Optional<JobQueryResult> localResult = jobSnapshotQueryProcessor.findJobs(jobQuery);
+            return localResult.isPresent() ? Observable.just(localResult.get()) : findJobsInMaster(jobQuery);
+        });
+    }
+
+    @Override
+    public Observable<Task> findTask(String taskId) {
+        return Observable.defer(() -> {
+            Optional<Task> localResult = jobSnapshotQueryProcessor.findTask(taskId);
+            return localResult.isPresent() ? Observable.just(localResult.get()) : findTaskInMaster(taskId);
+        });
+    }
+
+    @Override
+    public Observable<TaskQueryResult> findTasks(TaskQuery taskQuery) {
+        return Observable.defer(() -> {
+            Optional<TaskQueryResult> localResult = jobSnapshotQueryProcessor.findTasks(taskQuery);
+            return localResult.isPresent() ? Observable.just(localResult.get()) : findTasksInMaster(taskQuery);
+        });
+    }
+
+    private Observable<Job> findJobInMaster(String jobId) {
+        Optional<RequestCost> requestCost = RequestCost.current();
         Observable<Job> observable = createRequestObservable(emitter -> {
             StreamObserver<Job> streamObserver = createSimpleClientResponseObserver(emitter);
             createWrappedStub(client, callMetadataResolver, configuration.getRequestTimeout()).findJob(JobId.newBuilder().setId(jobId).build(), streamObserver);
@@ -110,6 +171,7 @@ public class GatewayJobManagementClient extends JobManagementClientDelegate {
         return observable.onErrorResumeNext(e -> {
             if (e instanceof StatusRuntimeException &&
                     ((StatusRuntimeException) e).getStatus().getCode() == Status.Code.NOT_FOUND) {
+                requestCost.ifPresent(cost -> cost.addArchiveLookups(1));
                 return retrieveArchivedJob(jobId);
             } else {
                 return Observable.error(e);
@@ -117,8 +179,15 @@ public class GatewayJobManagementClient extends JobManagementClientDelegate {
         }).timeout(configuration.getRequestTimeout(), TimeUnit.MILLISECONDS);
     }
 
-    @Override
-    public Observable<Task> findTask(String taskId) {
+    private Observable<JobQueryResult> findJobsInMaster(JobQuery jobQuery) {
+        if (!jobManagerConfiguration.isQuerySingleFlightEnabled()) {
+            return super.findJobs(jobQuery);
+        }
+        return jobQuerySingleFlight.execute(V3QueryKeys.callerKeyOf(callMetadataResolver, jobQuery), () -> super.findJobs(jobQuery));
+    }
+
+    private Observable<Task> findTaskInMaster(String taskId) {
+        Optional<RequestCost> requestCost = RequestCost.current();
         Observable<Task> observable = createRequestObservable(emitter -> {
             StreamObserver<Task> streamObserver = createSimpleClientResponseObserver(emitter);
             createWrappedStub(client, callMetadataResolver, configuration.getRequestTimeout()).findTask(TaskId.newBuilder().setId(taskId).build(), streamObserver);
@@ -127,6 +196,7 @@ public class GatewayJobManagementClient extends JobManagementClientDelegate {
         observable = observable.onErrorResumeNext(e -> {
             if (e instanceof StatusRuntimeException &&
                     ((StatusRuntimeException) e).getStatus().getCode() == Status.Code.NOT_FOUND) {
+                requestCost.ifPresent(cost -> cost.addArchiveLookups(1));
                 return retrieveArchivedTask(taskId);
             } else {
                 return Observable.error(e);
@@ -136,8 +206,16 @@ public class GatewayJobManagementClient extends JobManagementClientDelegate {
         return observable.timeout(configuration.getRequestTimeout(), TimeUnit.MILLISECONDS);
     }
 
-    @Override
-    public Observable<TaskQueryResult> findTasks(TaskQuery taskQuery) {
+    private Observable<TaskQueryResult> findTasksInMaster(TaskQuery taskQuery) {
+        if (!jobManagerConfiguration.isQuerySingleFlightEnabled()) {
+            return findTasksInMasterAndArchive(taskQuery);
+        }
+        return taskQuerySingleFlight.execute(V3QueryKeys.callerKeyOf(callMetadataResolver, taskQuery), () -> findTasksInMasterAndArchive(taskQuery));
+    }
+
+    private Observable<TaskQueryResult> findTasksInMasterAndArchive(TaskQuery taskQuery) {
+        // Captured here, as the archive store is queried outside of the gRPC call context.
+        Optional<RequestCost> requestCost = RequestCost.current();
         Observable<TaskQueryResult> observable = createRequestObservable(emitter -> {
             StreamObserver<TaskQueryResult> streamObserver = createSimpleClientResponseObserver(emitter);
             createWrappedStub(client, callMetadataResolver, configuration.getRequestTimeout()).findTasks(taskQuery, streamObserver);
@@ -150,6 +228,7 @@ public class GatewayJobManagementClient extends JobManagementClientDelegate {
                     .collect(Collectors.toSet());
             Set<String> taskStates = Sets.newHashSet(StringExt.splitByComma(filteringCriteriaMap.getOrDefault("taskStates", "")));
             if (!v3JobIds.isEmpty() && taskStates.contains(TaskState.Finished.name())) {
+                requestCost.ifPresent(cost -> cost.addArchiveLookups(v3JobIds.size()));
                 return retrieveArchivedTasksForJobs(v3JobIds)
                         .map(archivedTasks -> combineTaskResults(taskQuery, result.getItemsList(), archivedTasks));
             } else {
@@ -161,7 +240,7 @@ public class GatewayJobManagementClient extends JobManagementClientDelegate {
     }
 
     private Observable<Job> retrieveArchivedJob(String jobId) {
-        return store.retrieveArchivedJob(jobId)
+        return archivedEntityCache.getJob(jobId)
                 .onErrorResumeNext(e -> {
                     if (e instanceof JobStoreException) {
                         JobStoreException storeException = (JobStoreException) e;
@@ -170,14 +249,14 @@ public class GatewayJobManagementClient extends JobManagementClientDelegate {
                         }
                     }
                     return Observable.error(TitusServiceException.unexpected("Not able to retrieve the job: %s (%s)", jobId, ExceptionExt.toMessageChain(e)));
-                }).map(V3GrpcModelConverters::toGrpcJob);
+                });
     }
 
     private Observable<List<Task>> retrieveArchivedTasksForJobs(Set<String> jobIds) {
-        return Observable.fromCallable(() -> jobIds.stream().map(store::retrieveArchivedTasksForJob).collect(Collectors.toList()))
-                .flatMap(observables -> Observable.merge(observables, MAX_CONCURRENT_JOBS_TO_RETRIEVE))
+        return Observable.from(jobIds)
+                .flatMap(archivedEntityCache::getTasksForJob, MAX_CONCURRENT_JOBS_TO_RETRIEVE)
                 //TODO add filtering here but need to decide how to do this because most criteria is based on the job and not the task
-                .map(task -> V3GrpcModelConverters.toGrpcTask(task, logStorageInfo))
+                .flatMapIterable(tasks -> tasks)
                 .toSortedList((first, second) -> Long.compare(first.getStatus().getTimestamp(), second.getStatus().getTimestamp()));
     }
 
@@ -198,7 +277,7 @@ public class GatewayJobManagementClient extends JobManagementClientDelegate {
     }
 
     private Observable<Task> retrieveArchivedTask(String taskId) {
-        return store.retrieveArchivedTask(taskId)
+        return archivedEntityCache.getTask(taskId)
                 .onErrorResumeNext(e -> {
                     if (e instanceof JobStoreException) {
                         JobStoreException storeException = (JobStoreException) e;
@@ -207,7 +286,7 @@ public class GatewayJobManagementClient extends JobManagementClientDelegate {
                         }
                     }
                     return Observable.error(TitusServiceException.unexpected("Not able to retrieve the task: %s (%s)", taskId, ExceptionExt.toMessageChain(e)));
-                }).map(task -> V3GrpcModelConverters.toGrpcTask(task, logStorageInfo));
+                });
     }
 
     @VisibleForTesting
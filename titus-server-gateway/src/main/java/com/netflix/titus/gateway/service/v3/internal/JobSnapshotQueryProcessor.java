@@ -0,0 +1,372 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.service.v3.internal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.model.Pagination;
+import com.netflix.titus.api.model.PaginationUtil;
+import com.netflix.titus.common.model.sanitizer.EntitySanitizer;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.ProtobufCopy;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.gateway.MetricConstants;
+import com.netflix.titus.gateway.service.v3.JobManagerConfiguration;
+import com.netflix.titus.grpc.protogen.Job;
+import com.netflix.titus.grpc.protogen.JobDescriptor.JobSpecCase;
+import com.netflix.titus.grpc.protogen.JobManagementServiceGrpc.JobManagementServiceStub;
+import com.netflix.titus.grpc.protogen.JobQuery;
+import com.netflix.titus.grpc.protogen.JobQueryResult;
+import com.netflix.titus.grpc.protogen.JobStatus;
+import com.netflix.titus.grpc.protogen.Task;
+import com.netflix.titus.grpc.protogen.TaskQuery;
+import com.netflix.titus.grpc.protogen.TaskQueryResult;
+import com.netflix.titus.grpc.protogen.TaskStatus;
+import com.netflix.titus.runtime.connector.GrpcClientConfiguration;
+import com.netflix.titus.runtime.connector.common.replicator.StreamDataReplicator;
+import com.netflix.titus.runtime.connector.common.replicator.DataReplicatorConfiguration;
+import com.netflix.titus.runtime.connector.jobmanager.JobDataReplicator;
+import com.netflix.titus.runtime.connector.jobmanager.JobSnapshot;
+import com.netflix.titus.runtime.connector.jobmanager.client.GrpcJobManagementClient;
+import com.netflix.titus.runtime.connector.jobmanager.replicator.DefaultJobDataReplicator;
+import com.netflix.titus.runtime.endpoint.JobQueryCriteria;
+import com.netflix.titus.runtime.endpoint.common.LogStorageInfo;
+import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
+import com.netflix.titus.runtime.endpoint.v3.grpc.V3GrpcModelConverters;
+import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3JobQueryCriteriaEvaluator;
+import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3TaskQueryCriteriaEvaluator;
+import com.netflix.titus.runtime.jobmanager.JobManagerCursors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.netflix.titus.api.jobmanager.model.job.sanitizer.JobSanitizerBuilder.JOB_STRICT_SANITIZER;
+import static com.netflix.titus.runtime.connector.jobmanager.JobManagementClient.JOB_MINIMUM_FIELD_SET;
+import static com.netflix.titus.runtime.connector.jobmanager.JobManagementClient.TASK_MINIMUM_FIELD_SET;
+import static com.netflix.titus.runtime.endpoint.common.grpc.CommonGrpcModelConverters.toGrpcPagination;
+import static com.netflix.titus.runtime.endpoint.common.grpc.CommonGrpcModelConverters.toJobQueryCriteria;
+import static com.netflix.titus.runtime.endpoint.common.grpc.CommonGrpcModelConverters.toPage;
+
+/**
+ * Evaluates job and task queries against the locally replicated {@link JobSnapshot}, following the same query
+ * criteria and cursor pagination semantics as TitusMaster. Each method returns {@link Optional#empty()} if a query
+ * cannot be answered locally (the feature is disabled, the snapshot is too stale, or the query may touch data that
+ * is not replicated, like V2 jobs, finished tasks or archived entities), in which case it should be forwarded to
+ * TitusMaster.
+ */
+@Singleton
+public class JobSnapshotQueryProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobSnapshotQueryProcessor.class);
+
+    private static final String METRIC_QUERY = MetricConstants.METRIC_JOB_MANAGEMENT + "query";
+
+    static final String SERVED_LOCALLY = "local";
+    static final String SERVED_BY_MASTER = "master";
+
+    static final String REASON_NONE = "none";
+    static final String REASON_DISABLED = "disabled";
+    static final String REASON_STALE = "stale";
+    static final String REASON_UNSUPPORTED = "unsupported";
+    static final String REASON_NOT_FOUND = "notFound";
+
+    private final JobManagerConfiguration configuration;
+    private final Optional<JobDataReplicator> replicator;
+    private final LogStorageInfo<com.netflix.titus.api.jobmanager.model.job.Task> logStorageInfo;
+    private final TitusRuntime titusRuntime;
+
+    private final Registry registry;
+    private final Id queryId;
+
+    @Inject
+    public JobSnapshotQueryProcessor(JobManagerConfiguration configuration,
+                                     GrpcClientConfiguration grpcClientConfiguration,
+                                     DataReplicatorConfiguration dataReplicatorConfiguration,
+                                     JobManagementServiceStub client,
+                                     CallMetadataResolver callMetadataResolver,
+                                     @Named(JOB_STRICT_SANITIZER) EntitySanitizer entitySanitizer,
+                                     LogStorageInfo<com.netflix.titus.api.jobmanager.model.job.Task> logStorageInfo,
+                                     TitusRuntime titusRuntime) {
+        this(
+                configuration,
+                configuration.isJobSnapshotQueryEnabled()
+                        ? Optional.of(new DefaultJobDataReplicator(
+                        new GrpcJobManagementClient(client, callMetadataResolver, entitySanitizer, grpcClientConfiguration),
+                        dataReplicatorConfiguration,
+                        titusRuntime
+                ))
+                        : Optional.empty(),
+                logStorageInfo,
+                titusRuntime
+        );
+    }
+
+    @VisibleForTesting
+    JobSnapshotQueryProcessor(JobManagerConfiguration configuration,
+                              Optional<JobDataReplicator> replicator,
+                              LogStorageInfo<com.netflix.titus.api.jobmanager.model.job.Task> logStorageInfo,
+                              TitusRuntime titusRuntime) {
+        this.configuration = configuration;
+        this.replicator = replicator;
+        this.logStorageInfo = logStorageInfo;
+        this.titusRuntime = titusRuntime;
+        this.registry = titusRuntime.getRegistry();
+        this.queryId = registry.createId(METRIC_QUERY);
+
+        if (!replicator.isPresent()) {
+            logger.info("Job snapshot queries disabled; all job/task queries will be forwarded to TitusMaster");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        replicator.ifPresent(r -> {
+            if (r instanceof StreamDataReplicator) {
+                ((StreamDataReplicator) r).shutdown();
+            }
+        });
+    }
+
+    public Optional<Job> findJob(String jobId) {
+        if (JobFunctions.isV2JobId(jobId)) {
+            return servedByMaster("findJob", REASON_UNSUPPORTED);
+        }
+        return getSnapshot("findJob").flatMap(snapshot -> {
+            Optional<com.netflix.titus.api.jobmanager.model.job.Job<?>> jobOpt = snapshot.findJob(jobId);
+            if (!jobOpt.isPresent()) {
+                // Either an archived job, or a job not replicated yet.
+                return servedByMaster("findJob", REASON_NOT_FOUND);
+            }
+            return servedLocally("findJob", V3GrpcModelConverters.toGrpcJob(jobOpt.get()));
+        });
+    }
+
+    public Optional<Task> findTask(String taskId) {
+        if (JobFunctions.isV2Task(taskId)) {
+            return servedByMaster("findTask", REASON_UNSUPPORTED);
+        }
+        return getSnapshot("findTask").flatMap(snapshot -> {
+            Optional<Pair<com.netflix.titus.api.jobmanager.model.job.Job<?>, com.netflix.titus.api.jobmanager.model.job.Task>> jobAndTaskOpt =
+                    snapshot.findTaskById(taskId);
+            if (!jobAndTaskOpt.isPresent()) {
+                // Either a finished/archived task, or a task not replicated yet.
+                return servedByMaster("findTask", REASON_NOT_FOUND);
+            }
+            return servedLocally("findTask", V3GrpcModelConverters.toGrpcTask(jobAndTaskOpt.get().getRight(), logStorageInfo));
+        });
+    }
+
+    public Optional<JobQueryResult> findJobs(JobQuery jobQuery) {
+        JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria;
+        try {
+            criteria = toJobQueryCriteria(jobQuery);
+        } catch (Exception e) {
+            // Let TitusMaster produce the canonical error message.
+            return servedByMaster("findJobs", REASON_UNSUPPORTED);
+        }
+        if (!isValidPage(jobQuery.getPage()) || !isJobQuerySupported(criteria)) {
+            return servedByMaster("findJobs", REASON_UNSUPPORTED);
+        }
+        return getSnapshot("findJobs").flatMap(snapshot -> {
+            V3JobQueryCriteriaEvaluator evaluator = new V3JobQueryCriteriaEvaluator(criteria, titusRuntime);
+
+            List<Job> matching = new ArrayList<>();
+            for (Pair<com.netflix.titus.api.jobmanager.model.job.Job<?>, List<com.netflix.titus.api.jobmanager.model.job.Task>> jobAndTasks : findJobCandidates(snapshot, criteria)) {
+                if (evaluator.test(jobAndTasks)) {
+                    matching.add(V3GrpcModelConverters.toGrpcJob(jobAndTasks.getLeft()));
+                }
+            }
+
+            Pair<List<Job>, Pagination> page = PaginationUtil.takePageWithCursor(
+                    toPage(jobQuery.getPage()),
+                    matching,
+                    JobManagerCursors.jobCursorOrderComparator(),
+                    JobManagerCursors::jobIndexOf,
+                    JobManagerCursors::newCursorFrom
+            );
+
+            List<Job> jobs = page.getLeft();
+            if (!jobQuery.getFieldsList().isEmpty()) {
+                Set<String> fields = new HashSet<>(jobQuery.getFieldsList());
+                fields.addAll(JOB_MINIMUM_FIELD_SET);
+                jobs = jobs.stream().map(j -> ProtobufCopy.copy(j, fields)).collect(Collectors.toList());
+            }
+
+            return servedLocally("findJobs", JobQueryResult.newBuilder()
+                    .addAllItems(jobs)
+                    .setPagination(toGrpcPagination(page.getRight()))
+                    .build()
+            );
+        });
+    }
+
+    public Optional<TaskQueryResult> findTasks(TaskQuery taskQuery) {
+        JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria;
+        try {
+            criteria = toJobQueryCriteria(taskQuery);
+        } catch (Exception e) {
+            return servedByMaster("findTasks", REASON_UNSUPPORTED);
+        }
+        if (!isValidPage(taskQuery.getPage()) || !isTaskQuerySupported(criteria)) {
+            return servedByMaster("findTasks", REASON_UNSUPPORTED);
+        }
+        return getSnapshot("findTasks").flatMap(snapshot -> {
+            V3TaskQueryCriteriaEvaluator evaluator = new V3TaskQueryCriteriaEvaluator(criteria, titusRuntime);
+
+            List<Task> matching = new ArrayList<>();
+            for (Pair<com.netflix.titus.api.jobmanager.model.job.Job<?>, com.netflix.titus.api.jobmanager.model.job.Task> jobAndTask : findTaskCandidates(snapshot, criteria)) {
+                if (evaluator.test(jobAndTask)) {
+                    matching.add(V3GrpcModelConverters.toGrpcTask(jobAndTask.getRight(), logStorageInfo));
+                }
+            }
+
+            Pair<List<Task>, Pagination> page = PaginationUtil.takePageWithCursor(
+                    toPage(taskQuery.getPage()),
+                    matching,
+                    JobManagerCursors.taskCursorOrderComparator(),
+                    JobManagerCursors::taskIndexOf,
+                    JobManagerCursors::newCursorFrom
+            );
+
+            List<Task> tasks = page.getLeft();
+            if (!taskQuery.getFieldsList().isEmpty()) {
+                Set<String> fields = new HashSet<>(taskQuery.getFieldsList());
+                fields.addAll(TASK_MINIMUM_FIELD_SET);
+                tasks = tasks.stream().map(t -> ProtobufCopy.copy(t, fields)).collect(Collectors.toList());
+            }
+
+            return servedLocally("findTasks", TaskQueryResult.newBuilder()
+                    .addAllItems(tasks)
+                    .setPagination(toGrpcPagination(page.getRight()))
+                    .build()
+            );
+        });
+    }
+
+    private Optional<JobSnapshot> getSnapshot(String queryName) {
+        if (!replicator.isPresent() || !configuration.isJobSnapshotQueryEnabled()) {
+            return servedByMaster(queryName, REASON_DISABLED);
+        }
+        JobDataReplicator jobDataReplicator = replicator.get();
+        if (jobDataReplicator.getStalenessMs() > configuration.getJobSnapshotQueryMaxStalenessMs()) {
+            return servedByMaster(queryName, REASON_STALE);
+        }
+        return Optional.of(jobDataReplicator.getCurrent());
+    }
+
+    /**
+     * Finished jobs, and finished tasks are removed from the snapshot, but TitusMaster may still hold them, or
+     * read them from the archive. V2 jobs are not replicated at all.
+     */
+    private boolean isJobQuerySupported(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        if (criteria.isIncludeArchived() || !criteria.getTaskIds().isEmpty()) {
+            return false;
+        }
+        if (criteria.getJobState().map(state -> state == JobStatus.JobState.Finished).orElse(false)) {
+            return false;
+        }
+        if (criteria.getTaskStates().contains(TaskStatus.TaskState.Finished)) {
+            return false;
+        }
+        return isV3Only(criteria);
+    }
+
+    private boolean isTaskQuerySupported(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        if (criteria.isIncludeArchived()) {
+            return false;
+        }
+        Set<TaskStatus.TaskState> taskStates = criteria.getTaskStates();
+        if (taskStates.isEmpty() || taskStates.contains(TaskStatus.TaskState.Finished)) {
+            return false;
+        }
+        return isV3Only(criteria);
+    }
+
+    private boolean isV3Only(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        if (!criteria.getTaskIds().isEmpty()) {
+            return criteria.getTaskIds().stream().noneMatch(JobFunctions::isV2Task);
+        }
+        if (!criteria.getJobIds().isEmpty()) {
+            return criteria.getJobIds().stream().noneMatch(JobFunctions::isV2JobId);
+        }
+        return !configuration.isV2EngineEnabled();
+    }
+
+    /**
+     * Uses the snapshot job index if the query is restricted to a set of job ids.
+     */
+    private List<Pair<com.netflix.titus.api.jobmanager.model.job.Job<?>, List<com.netflix.titus.api.jobmanager.model.job.Task>>> findJobCandidates(
+            JobSnapshot snapshot,
+            JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        if (criteria.getJobIds().isEmpty()) {
+            return snapshot.getJobsAndTasks();
+        }
+        List<Pair<com.netflix.titus.api.jobmanager.model.job.Job<?>, List<com.netflix.titus.api.jobmanager.model.job.Task>>> candidates = new ArrayList<>();
+        criteria.getJobIds().forEach(jobId ->
+                snapshot.findJob(jobId).ifPresent(job -> candidates.add(Pair.of(job, snapshot.getTasks(jobId))))
+        );
+        return candidates;
+    }
+
+    /**
+     * Uses the snapshot task index if the query is restricted to a set of task ids, or the job index if it is
+     * restricted to a set of job ids.
+     */
+    private List<Pair<com.netflix.titus.api.jobmanager.model.job.Job<?>, com.netflix.titus.api.jobmanager.model.job.Task>> findTaskCandidates(
+            JobSnapshot snapshot,
+            JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        List<Pair<com.netflix.titus.api.jobmanager.model.job.Job<?>, com.netflix.titus.api.jobmanager.model.job.Task>> candidates = new ArrayList<>();
+        if (!criteria.getTaskIds().isEmpty()) {
+            criteria.getTaskIds().forEach(taskId -> snapshot.findTaskById(taskId).ifPresent(candidates::add));
+        } else if (!criteria.getJobIds().isEmpty()) {
+            criteria.getJobIds().forEach(jobId ->
+                    snapshot.findJob(jobId).ifPresent(job -> snapshot.getTasks(jobId).forEach(task -> candidates.add(Pair.of(job, task))))
+            );
+        } else {
+            snapshot.getJobsAndTasks().forEach(jobAndTasks ->
+                    jobAndTasks.getRight().forEach(task -> candidates.add(Pair.of(jobAndTasks.getLeft(), task)))
+            );
+        }
+        return candidates;
+    }
+
+    private boolean isValidPage(com.netflix.titus.grpc.protogen.Page page) {
+        return page != null && page.getPageSize() > 0 && page.getPageNumber() >= 0;
+    }
+
+    private <T> Optional<T> servedLocally(String queryName, T result) {
+        registry.counter(queryId.withTag("query", queryName).withTag("servedBy", SERVED_LOCALLY).withTag("reason", REASON_NONE)).increment();
+        return Optional.of(result);
+    }
+
+    private <T> Optional<T> servedByMaster(String queryName, String reason) {
+        registry.counter(queryId.withTag("query", queryName).withTag("servedBy", SERVED_BY_MASTER).withTag("reason", reason)).increment();
+        return Optional.empty();
+    }
+}
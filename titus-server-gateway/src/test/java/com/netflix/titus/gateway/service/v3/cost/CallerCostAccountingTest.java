@@ -0,0 +1,275 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.service.v3.cost;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.spectator.MetricCardinalityGuard;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.gateway.MetricConstants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.schedulers.TestScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CallerCostAccountingTest {
+
+    private final TestScheduler testScheduler = new TestScheduler();
+
+    private final RequestCostConfiguration configuration = mock(RequestCostConfiguration.class);
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.test(testScheduler);
+
+    private final Registry registry = titusRuntime.getRegistry();
+
+    private CallerCostAccounting accounting;
+
+    @Before
+    public void setUp() {
+        when(configuration.isQuotaEnabled()).thenReturn(true);
+        when(configuration.getRequestCost()).thenReturn(5L);
+        when(configuration.getResultItemCost()).thenReturn(1L);
+        when(configuration.getKilobyteCost()).thenReturn(1L);
+        when(configuration.getArchiveLookupCost()).thenReturn(10L);
+        when(configuration.getDefaultQuotaCapacity()).thenReturn(100L);
+        when(configuration.getDefaultQuotaRefillPerSecond()).thenReturn(1L);
+        when(configuration.getQuotaOverrides()).thenReturn("");
+        when(configuration.getTopCallersCount()).thenReturn(1);
+        when(configuration.getCallerIdleTimeoutMs()).thenReturn(3_600_000L);
+        when(configuration.getMaxTrackedCallers()).thenReturn(100);
+        when(configuration.getMaxCallerMetricIds()).thenReturn(100);
+
+        accounting = new CallerCostAccounting(configuration, titusRuntime, testScheduler);
+    }
+
+    @After
+    public void tearDown() {
+        accounting.shutdown();
+    }
+
+    @Test
+    public void testCostIsAccumulatedPerCaller() {
+        assertThat(accounting.tryAdmit("callerA")).isTrue();
+
+        RequestCost requestCost = new RequestCost();
+        requestCost.addResultItems(10);
+        requestCost.addBytes(2048);
+        requestCost.addArchiveLookups(1);
+        accounting.charge("callerA", requestCost);
+
+        assertThat(accounting.tryAdmit("callerB")).isTrue();
+
+        List<CallerCost> callers = accounting.getCallers();
+        assertThat(callers).hasSize(2);
+
+        CallerCost callerA = callers.get(0);
+        assertThat(callerA.getCallerId()).isEqualTo("callerA");
+        assertThat(callerA.getRequests()).isEqualTo(1);
+        assertThat(callerA.getResultItems()).isEqualTo(10);
+        assertThat(callerA.getBytes()).isEqualTo(2048);
+        assertThat(callerA.getArchiveLookups()).isEqualTo(1);
+        assertThat(callerA.getTotalCost()).isEqualTo(5 + 10 + 2 + 10);
+
+        assertThat(callers.get(1).getTotalCost()).isEqualTo(5);
+    }
+
+    @Test
+    public void testCallerIsThrottledWhenQuotaIsExhausted() {
+        assertThat(accounting.tryAdmit("callerA")).isTrue();
+
+        RequestCost requestCost = new RequestCost();
+        requestCost.addResultItems(1_000);
+        accounting.charge("callerA", requestCost);
+
+        assertThat(accounting.tryAdmit("callerA")).isFalse();
+        assertThat(accounting.getRetryAfterMs("callerA")).isGreaterThan(0);
+        assertThat(accounting.getCallers().get(0).getThrottledRequests()).isEqualTo(1);
+
+        // Other callers are not affected.
+        assertThat(accounting.tryAdmit("callerB")).isTrue();
+    }
+
+    @Test
+    public void testCallerIsNotThrottledWhenQuotaIsDisabled() {
+        when(configuration.isQuotaEnabled()).thenReturn(false);
+
+        RequestCost requestCost = new RequestCost();
+        requestCost.addResultItems(1_000);
+        accounting.charge("callerA", requestCost);
+
+        assertThat(accounting.tryAdmit("callerA")).isTrue();
+        assertThat(accounting.getCallers().get(0).getThrottledRequests()).isEqualTo(0);
+    }
+
+    @Test
+    public void testQuotaOverrides() {
+        when(configuration.getQuotaOverrides()).thenReturn("batch.*=1000:100");
+
+        accounting.tryAdmit("batchScheduler");
+        accounting.tryAdmit("callerA");
+
+        List<CallerCost> callers = accounting.getCallers();
+        CallerCost batchCaller = callers.stream().filter(c -> c.getCallerId().equals("batchScheduler")).findFirst().get();
+        assertThat(batchCaller.getQuotaCapacity()).isEqualTo(1000);
+        assertThat(batchCaller.getQuotaRefillPerSecond()).isEqualTo(100);
+
+        CallerCost otherCaller = callers.stream().filter(c -> c.getCallerId().equals("callerA")).findFirst().get();
+        assertThat(otherCaller.getQuotaCapacity()).isEqualTo(100);
+    }
+
+    @Test
+    public void testQuotaOverridesAreAppliedToExistingCallersOnRefresh() {
+        accounting.tryAdmit("callerA");
+        when(configuration.getQuotaOverrides()).thenReturn("caller.*=10:1");
+
+        testScheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+
+        CallerCost callerA = accounting.getCallers().get(0);
+        assertThat(callerA.getQuotaCapacity()).isEqualTo(10);
+        assertThat(callerA.getAvailableTokens()).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    public void testTopCallersAreComputedOnRefresh() {
+        accounting.tryAdmit("callerA");
+        accounting.tryAdmit("callerB");
+        RequestCost requestCost = new RequestCost();
+        requestCost.addResultItems(20);
+        accounting.charge("callerB", requestCost);
+
+        assertThat(accounting.getTopCallers()).isEmpty();
+
+        testScheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+
+        List<CallerCost> topCallers = accounting.getTopCallers();
+        assertThat(topCallers).hasSize(1);
+        assertThat(topCallers.get(0).getCallerId()).isEqualTo("callerB");
+        assertThat(topCallers.get(0).getRecentCost()).isEqualTo(25);
+    }
+
+    @Test
+    public void testIdleCallersAreRemoved() {
+        accounting.tryAdmit("callerA");
+
+        testScheduler.advanceTimeBy(2, TimeUnit.HOURS);
+
+        assertThat(accounting.getCallers()).isEmpty();
+    }
+
+    @Test
+    public void testCallersAboveLimitAreFoldedIntoOverflowCaller() {
+        when(configuration.getMaxTrackedCallers()).thenReturn(2);
+
+        accounting.tryAdmit("callerA");
+        accounting.tryAdmit("callerB");
+        accounting.tryAdmit("callerC");
+        accounting.tryAdmit("callerD");
+
+        List<CallerCost> callers = accounting.getCallers();
+        assertThat(callers).hasSize(3);
+        assertThat(callers.get(0).getCallerId()).isEqualTo(MetricCardinalityGuard.OVERFLOW_TAG_VALUE);
+        assertThat(callers.get(0).getRequests()).isEqualTo(2);
+        assertThat(accounting.getRetryAfterMs("callerE")).isEqualTo(0);
+    }
+
+    @Test
+    public void testTopCallerMetricsAreBoundedAndReleased() {
+        accounting.shutdown();
+        when(configuration.getTopCallersCount()).thenReturn(3);
+        when(configuration.getMaxCallerMetricIds()).thenReturn(1);
+        accounting = new CallerCostAccounting(configuration, titusRuntime, testScheduler);
+
+        admit("callerA", 3);
+        admit("callerB", 2);
+        admit("callerC", 1);
+        testScheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+
+        // Top callers above the metric id budget share the overflow gauge.
+        assertThat(topCallerCost("callerA")).isEqualTo(15);
+        assertThat(topCallerCost(MetricCardinalityGuard.OVERFLOW_TAG_VALUE)).isEqualTo(15);
+        assertThat(topCallerCostGaugeCount()).isEqualTo(2);
+
+        // callerA is no longer on the top list, so its gauge is reset, and its metric id budget is released.
+        when(configuration.getTopCallersCount()).thenReturn(1);
+        admit("callerC", 4);
+        testScheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+
+        assertThat(topCallerCost("callerA")).isEqualTo(0);
+        assertThat(topCallerCost(MetricCardinalityGuard.OVERFLOW_TAG_VALUE)).isEqualTo(20);
+
+        admit("callerC", 1);
+        testScheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+
+        assertThat(topCallerCost("callerC")).isEqualTo(5);
+        assertThat(topCallerCost(MetricCardinalityGuard.OVERFLOW_TAG_VALUE)).isEqualTo(0);
+        assertThat(topCallerCostGaugeCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testThrottledCounterIsBounded() {
+        when(configuration.getDefaultQuotaCapacity()).thenReturn(5L);
+        accounting.shutdown();
+        when(configuration.getMaxCallerMetricIds()).thenReturn(1);
+        accounting = new CallerCostAccounting(configuration, titusRuntime, testScheduler);
+
+        for (String callerId : new String[]{"callerA", "callerB", "callerC"}) {
+            assertThat(accounting.tryAdmit(callerId)).isTrue();
+            assertThat(accounting.tryAdmit(callerId)).isFalse();
+        }
+
+        assertThat(registry.counters().filter(c -> c.id().name().endsWith("throttled")).count()).isEqualTo(2);
+        assertThat(throttledCount(MetricCardinalityGuard.OVERFLOW_TAG_VALUE)).isEqualTo(2);
+    }
+
+    @Test
+    public void testParseQuotaRules() {
+        List<Pair<Pattern, CallerCostAccounting.Quota>> rules = CallerCostAccounting.parseQuotaRules("a.*=10:1;bad;b=x:1;c=5:0;d=20:2");
+
+        assertThat(rules).hasSize(2);
+        assertThat(rules.get(0).getLeft().pattern()).isEqualTo("a.*");
+        assertThat(rules.get(0).getRight().getCapacity()).isEqualTo(10);
+        assertThat(rules.get(0).getRight().getRefillPerSecond()).isEqualTo(1);
+        assertThat(rules.get(1).getLeft().pattern()).isEqualTo("d");
+    }
+
+    private void admit(String callerId, int times) {
+        for (int i = 0; i < times; i++) {
+            assertThat(accounting.tryAdmit(callerId)).isTrue();
+        }
+    }
+
+    private long topCallerCostGaugeCount() {
+        return registry.gauges().filter(g -> g.id().name().endsWith("topCallerCost")).count();
+    }
+
+    private double topCallerCost(String callerId) {
+        return registry.gauge(registry.createId(MetricConstants.METRIC_REQUEST_COST + "topCallerCost", "caller", callerId)).value();
+    }
+
+    private long throttledCount(String callerId) {
+        return registry.counter(registry.createId(MetricConstants.METRIC_REQUEST_COST + "throttled", "caller", callerId)).count();
+    }
+}
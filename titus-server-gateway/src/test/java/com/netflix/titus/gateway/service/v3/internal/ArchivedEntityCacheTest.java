@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.service.v3.internal;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.api.jobmanager.store.JobStore;
+import com.netflix.titus.api.jobmanager.store.JobStoreException;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.gateway.service.v3.JobManagerConfiguration;
+import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import rx.schedulers.TestScheduler;
+
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskServiceJobDescriptor;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceTasks;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ArchivedEntityCacheTest {
+
+    private static final long NEGATIVE_TTL_MS = 60_000;
+
+    private final TestScheduler testScheduler = new TestScheduler();
+    private final TitusRuntime titusRuntime = TitusRuntimes.test(testScheduler);
+
+    private final JobManagerConfiguration configuration = mock(JobManagerConfiguration.class);
+    private final JobStore store = mock(JobStore.class);
+
+    private final Job<ServiceJobExt> job = serviceJobs(oneTaskServiceJobDescriptor()).getValue();
+    private final Task task = serviceTasks(job).getValue();
+
+    private ArchivedEntityCache cache;
+
+    @Before
+    public void setUp() {
+        when(configuration.getArchivedEntityCacheMaxSizeBytes()).thenReturn(1_000_000L);
+        when(configuration.getArchivedEntityCacheNegativeTtlMs()).thenReturn(NEGATIVE_TTL_MS);
+        cache = new ArchivedEntityCache(configuration, store, EmptyLogStorageInfo.INSTANCE, titusRuntime);
+    }
+
+    @After
+    public void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    public void testArchivedEntitiesAreReadOnce() {
+        when(store.retrieveArchivedJob(job.getId())).thenReturn(Observable.just(job));
+        when(store.retrieveArchivedTask(task.getId())).thenReturn(Observable.just(task));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(cache.getJob(job.getId()).toBlocking().first().getId()).isEqualTo(job.getId());
+            assertThat(cache.getTask(task.getId()).toBlocking().first().getId()).isEqualTo(task.getId());
+        }
+        verify(store, times(1)).retrieveArchivedJob(job.getId());
+        verify(store, times(1)).retrieveArchivedTask(task.getId());
+    }
+
+    @Test
+    public void testUnknownIdsAreCachedForLimitedTime() {
+        when(store.retrieveArchivedJob("missing")).thenReturn(Observable.error(JobStoreException.jobDoesNotExist("missing")));
+
+        assertThat(cache.getJob("missing").materialize().toBlocking().first().getThrowable()).isInstanceOf(JobStoreException.class);
+        assertThat(cache.getJob("missing").materialize().toBlocking().first().getThrowable()).isInstanceOf(JobStoreException.class);
+        verify(store, times(1)).retrieveArchivedJob("missing");
+
+        testScheduler.advanceTimeBy(NEGATIVE_TTL_MS + 1, TimeUnit.MILLISECONDS);
+        cache.getJob("missing").materialize().toBlocking().first();
+        verify(store, times(2)).retrieveArchivedJob("missing");
+    }
+
+    @Test
+    public void testTaskListCachedOnlyForArchivedJobs() {
+        when(store.retrieveArchivedTasksForJob(job.getId())).thenReturn(Observable.just(task));
+
+        // Job still running, so more tasks may be archived later.
+        when(store.retrieveArchivedJob(job.getId())).thenReturn(Observable.error(JobStoreException.jobDoesNotExist(job.getId())));
+        cache.getTasksForJob(job.getId()).toBlocking().first();
+        cache.getTasksForJob(job.getId()).toBlocking().first();
+        verify(store, times(2)).retrieveArchivedTasksForJob(job.getId());
+
+        // Job archived.
+        testScheduler.advanceTimeBy(NEGATIVE_TTL_MS + 1, TimeUnit.MILLISECONDS);
+        when(store.retrieveArchivedJob(job.getId())).thenReturn(Observable.just(job));
+        List<com.netflix.titus.grpc.protogen.Task> tasks = cache.getTasksForJob(job.getId()).toBlocking().first();
+        assertThat(tasks).hasSize(1);
+        cache.getTasksForJob(job.getId()).toBlocking().first();
+        verify(store, times(3)).retrieveArchivedTasksForJob(job.getId());
+    }
+
+    @Test
+    public void testTaskQueryOfRunningJobDoesNotHideJobOnceArchived() {
+        when(store.retrieveArchivedTasksForJob(job.getId())).thenReturn(Observable.just(task));
+
+        // Finished tasks of a running job are queried.
+        when(store.retrieveArchivedJob(job.getId())).thenReturn(Observable.error(JobStoreException.jobDoesNotExist(job.getId())));
+        cache.getTasksForJob(job.getId()).toBlocking().first();
+
+        // The job finishes and is archived, and it must be found without waiting for the negative entry expiry.
+        when(store.retrieveArchivedJob(job.getId())).thenReturn(Observable.just(job));
+        assertThat(cache.getJob(job.getId()).toBlocking().first().getId()).isEqualTo(job.getId());
+    }
+}
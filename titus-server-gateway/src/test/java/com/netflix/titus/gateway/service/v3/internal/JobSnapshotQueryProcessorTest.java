@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.service.v3.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobModel;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.gateway.service.v3.JobManagerConfiguration;
+import com.netflix.titus.grpc.protogen.JobQuery;
+import com.netflix.titus.grpc.protogen.JobQueryResult;
+import com.netflix.titus.grpc.protogen.Page;
+import com.netflix.titus.grpc.protogen.TaskQuery;
+import com.netflix.titus.grpc.protogen.TaskQueryResult;
+import com.netflix.titus.runtime.connector.jobmanager.JobDataReplicator;
+import com.netflix.titus.runtime.connector.jobmanager.JobSnapshot;
+import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskServiceJobDescriptor;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceTasks;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JobSnapshotQueryProcessorTest {
+
+    private static final long MAX_STALENESS_MS = 5_000;
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.test();
+
+    private final JobManagerConfiguration configuration = mock(JobManagerConfiguration.class);
+    private final JobDataReplicator replicator = mock(JobDataReplicator.class);
+
+    private final Job<ServiceJobExt> job = serviceJobs(oneTaskServiceJobDescriptor()).getValue();
+    private final Task startedTask = JobFunctions.changeTaskStatus(
+            serviceTasks(job).getValue(),
+            JobModel.newTaskStatus().withState(TaskState.Started).withTimestamp(titusRuntime.getClock().wallTime()).build()
+    );
+
+    private JobSnapshotQueryProcessor processor;
+
+    @Before
+    public void setUp() {
+        when(configuration.isJobSnapshotQueryEnabled()).thenReturn(true);
+        when(configuration.getJobSnapshotQueryMaxStalenessMs()).thenReturn(MAX_STALENESS_MS);
+        when(configuration.isV2EngineEnabled()).thenReturn(true);
+
+        Map<String, Job<?>> jobsById = new HashMap<>();
+        jobsById.put(job.getId(), job);
+        Map<String, List<Task>> tasksByJobId = new HashMap<>();
+        tasksByJobId.put(job.getId(), Collections.singletonList(startedTask));
+
+        when(replicator.getCurrent()).thenReturn(new JobSnapshot(jobsById, tasksByJobId));
+        when(replicator.getStalenessMs()).thenReturn(0L);
+
+        processor = new JobSnapshotQueryProcessor(configuration, Optional.of(replicator), EmptyLogStorageInfo.INSTANCE, titusRuntime);
+    }
+
+    @Test
+    public void testFindJobAndTaskFromSnapshot() {
+        assertThat(processor.findJob(job.getId()).map(j -> j.getId())).contains(job.getId());
+        assertThat(processor.findTask(startedTask.getId()).map(t -> t.getId())).contains(startedTask.getId());
+
+        // Unknown entities may be archived, or not replicated yet, so they must be resolved by TitusMaster.
+        assertThat(processor.findJob("missingJob")).isEmpty();
+        assertThat(processor.findTask("missingTask")).isEmpty();
+
+        assertThat(queryCount("findJob", JobSnapshotQueryProcessor.SERVED_LOCALLY, JobSnapshotQueryProcessor.REASON_NONE)).isEqualTo(1);
+        assertThat(queryCount("findJob", JobSnapshotQueryProcessor.SERVED_BY_MASTER, JobSnapshotQueryProcessor.REASON_NOT_FOUND)).isEqualTo(1);
+    }
+
+    @Test
+    public void testFindJobsAndTasksByJobIds() {
+        Optional<JobQueryResult> jobsResult = processor.findJobs(JobQuery.newBuilder()
+                .putFilteringCriteria("jobIds", job.getId())
+                .setPage(Page.newBuilder().setPageSize(10))
+                .build()
+        );
+        assertThat(jobsResult).isPresent();
+        assertThat(jobsResult.get().getItemsCount()).isEqualTo(1);
+
+        Optional<TaskQueryResult> tasksResult = processor.findTasks(TaskQuery.newBuilder()
+                .putFilteringCriteria("jobIds", job.getId())
+                .putFilteringCriteria("taskStates", "Started")
+                .setPage(Page.newBuilder().setPageSize(10))
+                .build()
+        );
+        assertThat(tasksResult).isPresent();
+        assertThat(tasksResult.get().getItems(0).getId()).isEqualTo(startedTask.getId());
+        assertThat(tasksResult.get().getPagination().getCursor()).isNotEmpty();
+    }
+
+    @Test
+    public void testQueriesForNonReplicatedDataAreForwarded() {
+        // Finished tasks are not kept in the snapshot.
+        assertThat(processor.findTasks(TaskQuery.newBuilder()
+                .putFilteringCriteria("jobIds", job.getId())
+                .putFilteringCriteria("taskStates", "Started,Finished")
+                .setPage(Page.newBuilder().setPageSize(10))
+                .build()
+        )).isEmpty();
+
+        // With V2 engine enabled, only queries restricted to V3 ids can be answered locally.
+        assertThat(processor.findJobs(JobQuery.newBuilder().setPage(Page.newBuilder().setPageSize(10)).build())).isEmpty();
+        assertThat(processor.findJob("Titus-123")).isEmpty();
+
+        when(configuration.isV2EngineEnabled()).thenReturn(false);
+        assertThat(processor.findJobs(JobQuery.newBuilder().setPage(Page.newBuilder().setPageSize(10)).build())).isPresent();
+    }
+
+    @Test
+    public void testStaleSnapshotIsNotUsed() {
+        when(replicator.getStalenessMs()).thenReturn(MAX_STALENESS_MS + 1);
+        assertThat(processor.findJob(job.getId())).isEmpty();
+        assertThat(queryCount("findJob", JobSnapshotQueryProcessor.SERVED_BY_MASTER, JobSnapshotQueryProcessor.REASON_STALE)).isEqualTo(1);
+
+        when(replicator.getStalenessMs()).thenReturn(0L);
+        when(configuration.isJobSnapshotQueryEnabled()).thenReturn(false);
+        assertThat(processor.findJob(job.getId())).isEmpty();
+        assertThat(queryCount("findJob", JobSnapshotQueryProcessor.SERVED_BY_MASTER, JobSnapshotQueryProcessor.REASON_DISABLED)).isEqualTo(1);
+    }
+
+    private long queryCount(String queryName, String servedBy, String reason) {
+        return titusRuntime.getRegistry().counter(titusRuntime.getRegistry().createId("titusGateway.jobManagement.query")
+                .withTag("query", queryName)
+                .withTag("servedBy", servedBy)
+                .withTag("reason", reason)
+        ).count();
+    }
+}
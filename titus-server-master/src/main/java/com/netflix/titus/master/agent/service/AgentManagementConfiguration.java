@@ -28,6 +28,14 @@ public interface AgentManagementConfiguration {
     @DefaultValue("120000")
     long getFullCacheRefreshIntervalMs();
 
+    /**
+     * @return how often instance details are re-fetched for instance groups, which instance set did not change.
+     * Instance group level data is refreshed every {@link #getCacheRefreshIntervalMs()}, and details of new
+     * instances are fetched as soon as they are discovered.
+     */
+    @DefaultValue("600000")
+    long getInstanceDetailsRefreshIntervalMs();
+
     @DefaultValue(".*")
     String getAgentInstanceGroupPattern();
 
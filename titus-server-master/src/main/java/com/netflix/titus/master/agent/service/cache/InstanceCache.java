@@ -22,8 +22,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.regex.Pattern;
@@ -31,6 +33,8 @@ import java.util.stream.Collectors;
 
 import com.google.common.base.Strings;
 import com.netflix.spectator.api.BasicTag;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spectator.api.Tag;
 import com.netflix.titus.api.agent.service.AgentManagementException;
@@ -39,6 +43,7 @@ import com.netflix.titus.api.connector.cloud.InstanceCloudConnector;
 import com.netflix.titus.api.connector.cloud.InstanceGroup;
 import com.netflix.titus.api.connector.cloud.InstanceLaunchConfiguration;
 import com.netflix.titus.common.util.CollectionsExt;
+import com.netflix.titus.common.util.StringExt;
 import com.netflix.titus.common.util.rx.InstrumentedEventLoop;
 import com.netflix.titus.common.util.rx.ObservableExt;
 import com.netflix.titus.common.util.rx.RetryHandlerBuilder;
@@ -65,9 +70,16 @@ import static java.util.Collections.singletonList;
  * <h1>Periodic data refresh strategy</h1>
  * All data are refresh periodically:
  * <ul>
- * <li>Each known instance group (including instances) is refreshed every {@link AgentManagementConfiguration#getCacheRefreshIntervalMs()}</li>
+ * <li>Each known instance group is refreshed every {@link AgentManagementConfiguration#getCacheRefreshIntervalMs()}.
+ * Refresh times are jittered and spread across the interval, and instance groups that are due at the same time are
+ * fetched in batches. Instance groups that recently changed, are being resized, or were explicitly refreshed
+ * (for example after a scale action) are refreshed more often.</li>
+ * <li>Instance details are fetched only for instances that are new to an instance group. All instances of an
+ * instance group are re-fetched every {@link AgentManagementConfiguration#getInstanceDetailsRefreshIntervalMs()}.
+ * The {@link InstanceGroupFingerprint} of an instance group is used to detect changes in its instance set</li>
  * <li>List of known instance groups is refreshed every {@link AgentManagementConfiguration#getFullCacheRefreshIntervalMs()} ()}</li>
  * </ul>
+ * {@link CacheUpdateEvent}s are emitted only if the cached data changed.
  */
 class InstanceCache {
 
@@ -80,10 +92,38 @@ class InstanceCache {
     private static final long BOOT_RETRY_DELAYS_MS = 1_000;
     private static final long MAX_REFRESH_TIMEOUT = 600_000;
 
+    /**
+     * Maximum number of instance groups fetched in a single request.
+     */
+    private static final int INSTANCE_GROUP_BATCH_SIZE = 50;
+
+    /**
+     * Instance group refresh interval is divided into this number of slots, and on each slot all instance groups that
+     * are due are refreshed.
+     */
+    private static final int REFRESH_SLOTS = 10;
+
+    /**
+     * Each instance group refresh time is moved earlier by a random fraction (up to this ratio) of the refresh interval.
+     */
+    private static final double REFRESH_JITTER_RATIO = 0.2;
+
+    /**
+     * Instance groups with pending changes are refreshed this many times more often than the others.
+     */
+    private static final int HOT_REFRESH_SPEEDUP = 4;
+
+    /**
+     * How long (as a multiple of the refresh interval) an explicitly refreshed instance group is kept hot.
+     */
+    private static final int HOT_PERIOD_MULTIPLIER = 5;
+
     private final AgentManagementConfiguration configuration;
     private final InstanceCloudConnector connector;
     private final Registry registry;
+    private final Scheduler scheduler;
     private final InstrumentedEventLoop eventLoop;
+    private final Random random = new Random();
 
     private volatile InstanceCacheDataSnapshot cacheSnapshot;
 
@@ -95,6 +135,12 @@ class InstanceCache {
     private ContinuousSubscriptionMetrics fullInstanceGroupRefreshMetricsTransformer;
     private Map<String, ContinuousSubscriptionMetrics> instanceGroupRefreshMetricsTransformers = new ConcurrentHashMap<>();
 
+    private final ConcurrentMap<String, RefreshState> refreshStates = new ConcurrentHashMap<>();
+
+    private final Counter unchangedInstancesCounter;
+    private final Counter deltaInstancesRefreshCounter;
+    private final Counter fullInstancesRefreshCounter;
+
     private InstanceCache(AgentManagementConfiguration configuration,
                           InstanceCloudConnector connector,
                           Set<String> knownInstanceGroups,
@@ -103,12 +149,18 @@ class InstanceCache {
         this.configuration = configuration;
         this.connector = connector;
         this.registry = registry;
+        this.scheduler = scheduler;
         this.cacheSnapshot = InstanceCacheDataSnapshot.empty();
         this.eventLoop = ObservableExt.createEventLoop(METRIC_AGENT_CACHE + "eventLoop", registry, scheduler);
 
         List<Tag> tags = Collections.singletonList(new BasicTag("class", InstanceCache.class.getSimpleName()));
         fullInstanceGroupRefreshMetricsTransformer = continuousSubscriptionMetrics(METRIC_AGENT_CACHE + "fullInstanceGroupRefresh", tags, registry);
 
+        Id instancesRefreshId = registry.createId(METRIC_AGENT_CACHE + "instancesRefresh");
+        this.unchangedInstancesCounter = registry.counter(instancesRefreshId.withTag("mode", "unchanged"));
+        this.deltaInstancesRefreshCounter = registry.counter(instancesRefreshId.withTag("mode", "delta"));
+        this.fullInstancesRefreshCounter = registry.counter(instancesRefreshId.withTag("mode", "full"));
+
         // Synchronously refresh information about the known instance groups
         List<Completable> initialRefresh = knownInstanceGroups.stream().map(this::doInstanceGroupRefresh).collect(Collectors.toList());
         Throwable error = Completable.merge(initialRefresh).timeout(BOOT_TIMEOUT_MS, TimeUnit.MILLISECONDS).retryWhen(RetryHandlerBuilder.retryHandler()
@@ -131,9 +183,10 @@ class InstanceCache {
                 () -> logger.info("Full cache refresh process terminated")
         );
 
+        long slotIntervalMs = Math.max(1, configuration.getCacheRefreshIntervalMs() / REFRESH_SLOTS);
         this.instanceGroupRefreshSubscription = ObservableExt.schedule(
                 METRIC_AGENT_CACHE, registry, "doInstanceGroupRefresh", doInstanceGroupRefresh(),
-                0, configuration.getCacheRefreshIntervalMs(), TimeUnit.MILLISECONDS, scheduler
+                0, slotIntervalMs, TimeUnit.MILLISECONDS, scheduler
         ).subscribe(
                 next -> next.ifPresent(throwable -> logger.warn("Instance group refresh cycle failed with an error", throwable)),
                 e -> logger.error("Instance group cache refresh process terminated with an error", e),
@@ -168,7 +221,9 @@ class InstanceCache {
     void refreshInstanceGroup(String instanceGroupId) {
         InstanceGroup instanceGroup = cacheSnapshot.getInstanceGroup(instanceGroupId);
         if (instanceGroup != null) {
-            doInstanceGroupRefresh(instanceGroup).subscribe();
+            long now = scheduler.now();
+            getRefreshState(instanceGroupId, now).hotUntil = now + HOT_PERIOD_MULTIPLIER * configuration.getCacheRefreshIntervalMs();
+            doInstanceGroupRefresh(instanceGroupId).subscribe();
         }
     }
 
@@ -260,54 +315,133 @@ class InstanceCache {
         return unfiltered.stream().filter(instanceGroup -> pattern.matcher(instanceGroup.getId()).matches()).collect(Collectors.toList());
     }
 
+    /**
+     * Refreshes all instance groups which are due for refresh.
+     */
     private Completable doInstanceGroupRefresh() {
-        return ObservableExt.fromCallable(() -> cacheSnapshot.getInstanceGroups())
-                .flatMap(instanceGroup -> doInstanceGroupRefresh(instanceGroup).toObservable())
-                .toCompletable();
+        return Observable.defer(() -> {
+            long now = scheduler.now();
+            List<String> dueIds = new ArrayList<>();
+            for (InstanceGroup instanceGroup : cacheSnapshot.getInstanceGroups()) {
+                RefreshState refreshState = getRefreshState(instanceGroup.getId(), now);
+                if (refreshState.nextRefreshTime <= now) {
+                    refreshState.scheduleNext(now);
+                    dueIds.add(instanceGroup.getId());
+                }
+            }
+            return Observable.from(CollectionsExt.chop(dueIds, INSTANCE_GROUP_BATCH_SIZE))
+                    .flatMap(batch -> doInstanceGroupRefresh(batch).toObservable());
+        }).toCompletable();
     }
 
-    private Completable doInstanceGroupRefresh(InstanceGroup instanceGroup) {
-        return doInstanceGroupRefresh(instanceGroup.getId());
+    private Completable doInstanceGroupRefresh(String instanceGroupId) {
+        return doInstanceGroupRefresh(singletonList(instanceGroupId));
     }
 
     /**
-     * Refreshes single instance group, and its instances. Updates cache and emits corresponding events.
+     * Refreshes a batch of instance groups, and their instances. Updates cache and emits corresponding events.
      * Never emits error, which is instead logged.
      */
-    private Completable doInstanceGroupRefresh(String instanceGroupId) {
-        Observable<Void> updateAction = connector.getInstanceGroups(singletonList(instanceGroupId))
+    private Completable doInstanceGroupRefresh(List<String> instanceGroupIds) {
+        Observable<Void> updateAction = connector.getInstanceGroups(instanceGroupIds)
                 .flatMap(result -> {
-                    if (result.isEmpty()) {
-                        onEventLoop("removeInstanceGroup", () -> {
-                            removeInstanceGroup(instanceGroupId);
-                            logger.info("Instance group: {} has been removed", instanceGroupId);
-                        });
-                        return Observable.empty();
+                    Map<String, InstanceGroup> resultById = result.stream().collect(Collectors.toMap(InstanceGroup::getId, Function.identity()));
+                    List<Observable<Void>> instanceRefreshActions = new ArrayList<>();
+                    for (String instanceGroupId : instanceGroupIds) {
+                        InstanceGroup instanceGroup = resultById.get(instanceGroupId);
+                        if (instanceGroup == null) {
+                            onEventLoop("removeInstanceGroup", () -> {
+                                removeInstanceGroup(instanceGroupId);
+                                logger.info("Instance group: {} has been removed", instanceGroupId);
+                            });
+                        } else {
+                            instanceRefreshActions.add(doInstancesRefresh(instanceGroup));
+                        }
                     }
-
-                    InstanceGroup instanceGroup = result.get(0);
-
-                    return connector.getInstancesByInstanceGroupId(instanceGroup.getId())
-                            .doOnNext(updatedInstances -> onEventLoop("updateInstances", () -> {
-                                // update the instance ids on the instance group
-                                List<String> instanceIds = updatedInstances.stream().map(Instance::getId).sorted().collect(Collectors.toList());
-                                InstanceGroup updatedInstanceGroup = instanceGroup.toBuilder().withInstanceIds(instanceIds).build();
-                                updateCache(updatedInstanceGroup, updatedInstances);
-                            }))
-                            .ignoreElements()
-                            .cast(Void.class);
+                    return Observable.merge(instanceRefreshActions);
                 });
 
-        Completable completable = updateAction.materialize().take(1).doOnNext(
+        return updateAction.materialize().take(1).doOnNext(
                 result -> {
                     if (result.getKind() == Notification.Kind.OnError) {
-                        logger.warn("Instance group: {} refresh error", instanceGroupId, result.getThrowable());
+                        logger.warn("Instance groups: {} refresh error", instanceGroupIds, result.getThrowable());
                     }
                 }
-        ).toCompletable();
+        ).toCompletable().timeout(MAX_REFRESH_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
 
+    /**
+     * Refreshes instances of an instance group. Instance details are fetched only for the instances not in the cache,
+     * or cached in a transient state (for example still launching, or without an IP address), unless full refresh is due.
+     */
+    private Observable<Void> doInstancesRefresh(InstanceGroup instanceGroup) {
+        long now = scheduler.now();
+        String instanceGroupId = instanceGroup.getId();
+        List<String> instanceIds = instanceGroup.getInstanceIds().stream().sorted().collect(Collectors.toList());
+        InstanceGroup updatedInstanceGroup = instanceGroup.toBuilder().withInstanceIds(instanceIds).build();
+
+        RefreshState refreshState = getRefreshState(instanceGroupId, now);
+        InstanceGroup cachedInstanceGroup = cacheSnapshot.getInstanceGroup(instanceGroupId);
+        boolean fingerprintChanged = cachedInstanceGroup == null
+                || !InstanceGroupFingerprint.of(cachedInstanceGroup).equals(InstanceGroupFingerprint.of(updatedInstanceGroup));
+        refreshState.hot = fingerprintChanged || updatedInstanceGroup.getDesired() != instanceIds.size();
+
+        Observable<List<Instance>> instancesObservable;
+        boolean fullRefreshDue = cachedInstanceGroup == null
+                || refreshState.lastFullRefreshTime < 0
+                || now - refreshState.lastFullRefreshTime >= configuration.getInstanceDetailsRefreshIntervalMs();
+        if (fullRefreshDue) {
+            fullInstancesRefreshCounter.increment();
+            instancesObservable = connector.getInstances(instanceIds).doOnNext(instances -> refreshState.lastFullRefreshTime = now);
+        } else {
+            List<Instance> knownInstances = new ArrayList<>();
+            List<String> newInstanceIds = new ArrayList<>();
+            for (String instanceId : instanceIds) {
+                Instance instance = cacheSnapshot.getAgentInstance(instanceId);
+                if (instance == null || !isSettled(instance)) {
+                    newInstanceIds.add(instanceId);
+                } else {
+                    knownInstances.add(instance);
+                }
+            }
+            if (newInstanceIds.isEmpty()) {
+                unchangedInstancesCounter.increment();
+                instancesObservable = Observable.just(knownInstances);
+            } else {
+                deltaInstancesRefreshCounter.increment();
+                instancesObservable = connector.getInstances(newInstanceIds).map(newInstances -> CollectionsExt.merge(knownInstances, newInstances));
+            }
+        }
+
+        Completable completable = instancesObservable
+                .doOnNext(updatedInstances -> onEventLoop("updateInstances", () -> updateCache(updatedInstanceGroup, updatedInstances)))
+                .toCompletable();
+        // Errors are logged here, so a failure of one instance group does not affect other instance groups in the batch.
         return completable.compose(getInstanceGroupRefreshMetricsTransform(instanceGroupId))
-                .timeout(MAX_REFRESH_TIMEOUT, TimeUnit.MILLISECONDS);
+                .doOnError(e -> logger.warn("Instance group: {} refresh error", instanceGroupId, e))
+                .onErrorComplete()
+                .toObservable();
+    }
+
+    /**
+     * Instances which are running with an IP address assigned, or are stopped/terminated, change rarely, so their
+     * details are refreshed only during the full refresh.
+     */
+    private static boolean isSettled(Instance instance) {
+        switch (instance.getInstanceState()) {
+            case Running:
+                return StringExt.isNotEmpty(instance.getIpAddress());
+            case Stopped:
+            case Terminated:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private RefreshState getRefreshState(String instanceGroupId, long now) {
+        // Spread refresh times of newly discovered instance groups across the whole refresh interval.
+        return refreshStates.computeIfAbsent(instanceGroupId, id -> new RefreshState(now + (long) (random.nextDouble() * configuration.getCacheRefreshIntervalMs())));
     }
 
     private void updateCache(InstanceGroup updatedInstanceGroup, List<Instance> updatedInstances) {
@@ -369,6 +503,7 @@ class InstanceCache {
     private void removeInstanceGroup(String removedInstanceGroupId) {
         this.cacheSnapshot = cacheSnapshot.removeInstanceGroup(removedInstanceGroupId);
         eventSubject.onNext(new CacheUpdateEvent(CacheUpdateType.InstanceGroup, removedInstanceGroupId));
+        refreshStates.remove(removedInstanceGroupId);
         ContinuousSubscriptionMetrics transformer = instanceGroupRefreshMetricsTransformers.remove(removedInstanceGroupId);
         if (transformer != null) {
             transformer.remove();
@@ -386,6 +521,26 @@ class InstanceCache {
         });
     }
 
+    private class RefreshState {
+
+        private volatile long nextRefreshTime;
+        private volatile long lastFullRefreshTime = -1;
+        private volatile boolean hot;
+        private volatile long hotUntil;
+
+        private RefreshState(long nextRefreshTime) {
+            this.nextRefreshTime = nextRefreshTime;
+        }
+
+        private void scheduleNext(long now) {
+            long intervalMs = configuration.getCacheRefreshIntervalMs();
+            if (hot || now < hotUntil) {
+                intervalMs = intervalMs / HOT_REFRESH_SPEEDUP;
+            }
+            this.nextRefreshTime = now + intervalMs - (long) (random.nextDouble() * intervalMs * REFRESH_JITTER_RATIO);
+        }
+    }
+
     static InstanceCache newInstance(AgentManagementConfiguration configuration,
                                      InstanceCloudConnector connector,
                                      Set<String> knownInstanceGroups,
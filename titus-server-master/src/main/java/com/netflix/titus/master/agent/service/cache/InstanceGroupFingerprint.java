@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.agent.service.cache;
+
+import com.netflix.titus.api.connector.cloud.InstanceGroup;
+
+/**
+ * Cheap to compute summary of an instance group state. If fingerprints of two versions of an instance group are
+ * equal, the instance set did not change, and there is no need to fetch instance details.
+ */
+final class InstanceGroupFingerprint {
+
+    private final int desired;
+    private final int instanceCount;
+    private final int instanceIdsHash;
+
+    private InstanceGroupFingerprint(int desired, int instanceCount, int instanceIdsHash) {
+        this.desired = desired;
+        this.instanceCount = instanceCount;
+        this.instanceIdsHash = instanceIdsHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        InstanceGroupFingerprint that = (InstanceGroupFingerprint) o;
+        return desired == that.desired &&
+                instanceCount == that.instanceCount &&
+                instanceIdsHash == that.instanceIdsHash;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = desired;
+        result = 31 * result + instanceCount;
+        result = 31 * result + instanceIdsHash;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "InstanceGroupFingerprint{" +
+                "desired=" + desired +
+                ", instanceCount=" + instanceCount +
+                ", instanceIdsHash=" + instanceIdsHash +
+                '}';
+    }
+
+    /**
+     * Instance ids hash is order independent, so instance groups with differently ordered instance id lists have
+     * the same fingerprint.
+     */
+    static InstanceGroupFingerprint of(InstanceGroup instanceGroup) {
+        int idsHash = 0;
+        for (String instanceId : instanceGroup.getInstanceIds()) {
+            idsHash += instanceId.hashCode();
+        }
+        return new InstanceGroupFingerprint(instanceGroup.getDesired(), instanceGroup.getInstanceIds().size(), idsHash);
+    }
+}
@@ -16,129 +16,181 @@
 
 package com.netflix.titus.master.audit.service;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.Writer;
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
 import com.netflix.titus.api.audit.model.AuditLogEvent;
 import com.netflix.titus.api.audit.service.AuditLogService;
 import com.netflix.titus.api.model.event.UserRequestEvent;
-import com.netflix.titus.common.util.DateTimeExt;
-import com.netflix.titus.common.util.IOExt;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.ExecutorsExt;
 import com.netflix.titus.common.util.rx.eventbus.RxEventBus;
+import com.netflix.titus.master.MetricConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import rx.Observable;
 import rx.Scheduler;
 import rx.Subscription;
 import rx.schedulers.Schedulers;
 
 /**
- * Audit logging to a file.
+ * Audit logging to a file. Audit events are encoded on the producer side, and kept in a bounded {@link AuditRecordBuffer}.
+ * A dedicated writer thread drains the buffer as soon as new records arrive, and appends them to memory mapped
+ * segment files (see {@link MappedSegmentWriter}).
  */
 @Singleton
 public class AuditEventDiskWriter {
 
     private static final Logger logger = LoggerFactory.getLogger(AuditEventDiskWriter.class);
 
-    static final String LOG_FILE_NAME = "titus-audit.log";
+    static final String LOG_FILE_BASE_NAME = "titus-audit";
 
-    static final long WRITE_INTERVAL_MS = 1000;
+    private static final String METRIC_WRITE_ERRORS = MetricConstants.METRIC_ROOT + "audit.writeErrors";
+
+    private static final int MAX_DRAIN_BATCH = 1000;
 
     private final File auditLogFolder;
     private final RxEventBus rxEventBus;
-    private final File auditLogFile;
+    private final AuditRecordCodec codec;
+    private final AuditRecordBuffer buffer;
+    private final MappedSegmentWriter segmentWriter;
 
     private final AuditLogService auditLogService;
-    private final Scheduler ioScheduler;
+    private final Scheduler.Worker writerWorker;
 
     private final Subscription auditLogSubscription;
     private final Subscription rxEventsSubscription;
-    private final Subscription logWriterSubscription;
 
-    private final Queue<AuditLogEvent> eventQueue = new LinkedBlockingDeque<>();
-    private final Queue<UserRequestEvent> eventBusQueue = new LinkedBlockingQueue<>();
-    private volatile Writer logWriter;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Counter writeErrorCounter;
+
+    private boolean closed;
 
     @Inject
-    public AuditEventDiskWriter(AuditLogConfiguration config, AuditLogService auditLogService, RxEventBus rxEventBus) {
-        this(config, auditLogService, rxEventBus, Schedulers.io());
+    public AuditEventDiskWriter(AuditLogConfiguration config,
+                                AuditLogService auditLogService,
+                                RxEventBus rxEventBus,
+                                TitusRuntime titusRuntime) {
+        this(config, auditLogService, rxEventBus, titusRuntime,
+                Schedulers.from(ExecutorsExt.namedSingleThreadExecutor(AuditEventDiskWriter.class.getSimpleName()))
+        );
     }
 
-    public AuditEventDiskWriter(AuditLogConfiguration config, AuditLogService auditLogService, RxEventBus rxEventBus, Scheduler ioScheduler) {
+    public AuditEventDiskWriter(AuditLogConfiguration config,
+                                AuditLogService auditLogService,
+                                RxEventBus rxEventBus,
+                                TitusRuntime titusRuntime,
+                                Scheduler writerScheduler) {
+        Registry registry = titusRuntime.getRegistry();
+
         this.auditLogFolder = createAuditLogFolder(new File(config.getAuditLogFolder()));
         this.rxEventBus = rxEventBus;
-        this.auditLogFile = new File(auditLogFolder, LOG_FILE_NAME);
         this.auditLogService = auditLogService;
-        this.ioScheduler = ioScheduler;
+        this.codec = config.isBinaryFormatEnabled() ? BinaryAuditRecordCodec.INSTANCE : TextAuditRecordCodec.INSTANCE;
+        this.buffer = new AuditRecordBuffer(
+                config.getBufferCapacity(),
+                AuditRecordBuffer.parseOverflowPolicy(config.getOverflowPolicy()),
+                registry
+        );
+        this.segmentWriter = new MappedSegmentWriter(auditLogFolder, LOG_FILE_BASE_NAME, codec, config, titusRuntime.getClock(), registry);
+        this.writeErrorCounter = registry.counter(METRIC_WRITE_ERRORS);
+
+        this.writerWorker = writerScheduler.createWorker();
+        writerWorker.schedulePeriodically(this::flush, config.getFlushIntervalMs(), config.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+
         this.auditLogSubscription = enableLogging();
         this.rxEventsSubscription = enableRxEventBusLogging();
-        this.logWriterSubscription = enableLogWriter();
     }
 
     @PreDestroy
     public void shutdown() {
         auditLogSubscription.unsubscribe();
         rxEventsSubscription.unsubscribe();
-        logWriterSubscription.unsubscribe();
+        writerWorker.unsubscribe();
         shutdownInternal();
     }
 
-    private void shutdownInternal() {
+    File getActiveLogFile() {
+        return segmentWriter.getActiveFile();
+    }
+
+    private synchronized void shutdownInternal() {
+        if (closed) {
+            return;
+        }
         writeLog();
-        IOExt.closeSilently(logWriter);
+        try {
+            segmentWriter.close();
+        } catch (IOException e) {
+            logger.warn("Cannot close audit log segment ({})", e.getMessage());
+        }
+        closed = true;
     }
 
     private Subscription enableLogging() {
         return auditLogService.auditLogEvents()
                 .doOnTerminate(() -> logger.info("Terminating audit log subscription"))
-                .subscribe(eventQueue::add);
+                .subscribe(event -> enqueue(codec.encode(event)));
     }
 
     private Subscription enableRxEventBusLogging() {
         return rxEventBus.listen(getClass().getSimpleName(), UserRequestEvent.class)
                 .doOnTerminate(() -> logger.info("Terminating RxEventBus subscription"))
-                .subscribe(eventBusQueue::add);
+                .subscribe(event -> enqueue(codec.encode(event)));
     }
 
-    private Subscription enableLogWriter() {
-        return Observable.interval(0, WRITE_INTERVAL_MS, TimeUnit.MILLISECONDS, ioScheduler)
-                .doOnTerminate(() -> {
-                    logger.info("Terminating audit log writer");
-                    shutdownInternal();
-                })
-                .subscribe(tick -> writeLog());
+    private void enqueue(byte[] record) {
+        buffer.offer(record);
+        if (drainScheduled.compareAndSet(false, true)) {
+            writerWorker.schedule(() -> {
+                drainScheduled.set(false);
+                writeLog();
+            });
+        }
     }
 
-    private void writeLog() {
+    private synchronized void writeLog() {
+        if (closed) {
+            return;
+        }
         try {
-            if (logWriter == null) {
-                createAuditLogFolder(auditLogFolder);
-                logWriter = new BufferedWriter(new FileWriter(auditLogFile, true));
-            }
-            for (AuditLogEvent event = eventQueue.poll(); event != null; event = eventQueue.poll()) {
-                logWriter.write(formatEvent(event));
-                logWriter.write('\n');
+            createAuditLogFolder(auditLogFolder);
+            while (buffer.drain(MAX_DRAIN_BATCH, this::append) > 0) {
+                // Keep draining until the buffer is empty
             }
-            for (UserRequestEvent event = eventBusQueue.poll(); event != null; event = eventBusQueue.poll()) {
-                logWriter.write(formatEvent(event));
-                logWriter.write('\n');
-            }
-
-            logWriter.flush();
         } catch (Exception e) {
+            writeErrorCounter.increment();
             logger.warn("Audit log write to disk failure ({})", e.getMessage());
         }
     }
 
+    private void append(byte[] record) {
+        try {
+            segmentWriter.append(record);
+        } catch (IOException e) {
+            writeErrorCounter.increment();
+            logger.warn("Audit log write to disk failure ({})", e.getMessage());
+        }
+    }
+
+    private synchronized void flush() {
+        if (closed) {
+            return;
+        }
+        try {
+            segmentWriter.flushAndCheckRotation();
+        } catch (Exception e) {
+            writeErrorCounter.increment();
+            logger.warn("Audit log flush failure ({})", e.getMessage());
+        }
+    }
+
     private static File createAuditLogFolder(File logFolder) {
         if (!logFolder.exists()) {
             if (!logFolder.mkdirs()) {
@@ -152,28 +204,4 @@ public class AuditEventDiskWriter {
 
         return logFolder;
     }
-
-    private String formatEvent(AuditLogEvent event) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(DateTimeExt.toUtcDateTimeString(event.getTime()));
-        sb.append(",source=JobManager,");
-        sb.append(event.getType());
-        sb.append(',');
-        sb.append(event.getOperand());
-        sb.append(',');
-        sb.append(event.getData());
-        return sb.toString();
-    }
-
-    private String formatEvent(UserRequestEvent event) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(DateTimeExt.toUtcDateTimeString(event.getTimestamp()));
-        sb.append(",source=HTTP,");
-        sb.append(event.getOperation());
-        sb.append(",callerId=");
-        sb.append(event.getCallerId());
-        sb.append(',');
-        sb.append(event.getDetails());
-        return sb.toString();
-    }
 }
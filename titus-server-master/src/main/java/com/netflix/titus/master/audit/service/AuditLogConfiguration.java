@@ -30,4 +30,53 @@ public interface AuditLogConfiguration {
      */
     @DefaultValue("/logs/titus-master")
     String getAuditLogFolder();
+
+    /**
+     * Size of a single memory mapped audit log segment. When a segment is full, it is rotated.
+     */
+    @DefaultValue("67108864")
+    long getSegmentSizeBytes();
+
+    /**
+     * Maximum time a segment stays active before it is rotated, even if it is not full.
+     */
+    @DefaultValue("3600000")
+    long getSegmentMaxAgeMs();
+
+    /**
+     * Maximum number of rotated segments kept on disk. The oldest segments above this limit are removed.
+     */
+    @DefaultValue("48")
+    int getMaxRotatedSegments();
+
+    /**
+     * Maximum age of a rotated segment. Older segments are removed, irrespective of {@link #getMaxRotatedSegments()}.
+     */
+    @DefaultValue("604800000")
+    long getSegmentRetentionMs();
+
+    /**
+     * Maximum number of encoded records waiting in memory to be written to disk.
+     */
+    @DefaultValue("100000")
+    int getBufferCapacity();
+
+    /**
+     * What to do when the buffer is full. One of {@link AuditRecordBuffer.OverflowPolicy} values.
+     */
+    @DefaultValue("DropNewest")
+    String getOverflowPolicy();
+
+    /**
+     * If set to true, records are written in a compact binary format, that can be read with {@link AuditLogReader}.
+     * Otherwise a plain text format with one record per line is used.
+     */
+    @DefaultValue("false")
+    boolean isBinaryFormatEnabled();
+
+    /**
+     * Interval at which the active segment is flushed to disk, and checked for time based rotation.
+     */
+    @DefaultValue("1000")
+    long getFlushIntervalMs();
 }
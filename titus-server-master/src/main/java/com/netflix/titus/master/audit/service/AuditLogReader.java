@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.audit.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Optional;
+
+/**
+ * Command line tool converting audit log segments written in the binary format into the text format.
+ * Usage: AuditLogReader &lt;segment_file&gt; [&lt;segment_file&gt; ...]
+ */
+public class AuditLogReader {
+
+    private final PrintStream output;
+
+    public AuditLogReader(PrintStream output) {
+        this.output = output;
+    }
+
+    /**
+     * Prints all records from the given binary segment file, and returns the number of records read.
+     */
+    public int print(File segment) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            int count = 0;
+            for (Optional<String> next = BinaryAuditRecordCodec.decodeToText(buffer); next.isPresent(); next = BinaryAuditRecordCodec.decodeToText(buffer)) {
+                output.println(next.get());
+                count++;
+            }
+            return count;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: AuditLogReader <segment_file> [<segment_file> ...]");
+            System.exit(-1);
+        }
+        AuditLogReader reader = new AuditLogReader(System.out);
+        for (String fileName : args) {
+            reader.print(new File(fileName));
+        }
+    }
+}
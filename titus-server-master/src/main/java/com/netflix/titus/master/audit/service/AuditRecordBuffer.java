@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.audit.service;
+
+import java.util.function.Consumer;
+
+import com.google.common.base.Preconditions;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.master.MetricConstants;
+
+/**
+ * Fixed size ring buffer of encoded audit records. Audit event producers should never block, so when the buffer is full,
+ * records are dropped according to the configured {@link OverflowPolicy}, and the drop is recorded in a metric.
+ */
+class AuditRecordBuffer {
+
+    enum OverflowPolicy {
+        /**
+         * Reject the record being added.
+         */
+        DropNewest,
+
+        /**
+         * Remove the oldest record in the buffer to make room for the new one.
+         */
+        DropOldest
+    }
+
+    private static final String METRIC_ROOT = MetricConstants.METRIC_ROOT + "audit.buffer.";
+
+    private final byte[][] records;
+    private final OverflowPolicy overflowPolicy;
+
+    private int head;
+    private int size;
+
+    private final Counter acceptedCounter;
+    private final Counter droppedCounter;
+
+    AuditRecordBuffer(int capacity, OverflowPolicy overflowPolicy, Registry registry) {
+        Preconditions.checkArgument(capacity > 0, "Audit buffer capacity must be > 0");
+        this.records = new byte[capacity][];
+        this.overflowPolicy = overflowPolicy;
+
+        this.acceptedCounter = registry.counter(METRIC_ROOT + "records", "status", "accepted");
+        this.droppedCounter = registry.counter(METRIC_ROOT + "records", "status", "dropped", "policy", overflowPolicy.name());
+        PolledMeter.using(registry).withName(METRIC_ROOT + "size").monitorValue(this, AuditRecordBuffer::size);
+    }
+
+    /**
+     * Adds a new record to the buffer. Returns false, if the buffer was full, and some record was dropped.
+     */
+    synchronized boolean offer(byte[] record) {
+        boolean dropped = false;
+        if (size == records.length) {
+            dropped = true;
+            droppedCounter.increment();
+            if (overflowPolicy == OverflowPolicy.DropNewest) {
+                return false;
+            }
+            records[head] = null;
+            head = (head + 1) % records.length;
+            size--;
+        }
+        records[(head + size) % records.length] = record;
+        size++;
+        acceptedCounter.increment();
+        return !dropped;
+    }
+
+    /**
+     * Removes up to maxRecords records from the buffer, and passes them to the consumer in the FIFO order. The consumer
+     * is called outside of the buffer lock.
+     */
+    int drain(int maxRecords, Consumer<byte[]> consumer) {
+        byte[][] batch;
+        synchronized (this) {
+            int count = Math.min(maxRecords, size);
+            if (count == 0) {
+                return 0;
+            }
+            batch = new byte[count][];
+            for (int i = 0; i < count; i++) {
+                batch[i] = records[head];
+                records[head] = null;
+                head = (head + 1) % records.length;
+            }
+            size -= count;
+        }
+        for (byte[] record : batch) {
+            consumer.accept(record);
+        }
+        return batch.length;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    static OverflowPolicy parseOverflowPolicy(String value) {
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            if (policy.name().equalsIgnoreCase(value)) {
+                return policy;
+            }
+        }
+        return OverflowPolicy.DropNewest;
+    }
+}
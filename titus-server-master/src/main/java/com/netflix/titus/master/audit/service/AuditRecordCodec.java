@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.audit.service;
+
+import java.nio.ByteBuffer;
+
+import com.netflix.titus.api.audit.model.AuditLogEvent;
+import com.netflix.titus.api.model.event.UserRequestEvent;
+
+/**
+ * Encodes audit records into their on-disk representation. Encoding happens on the producer side, so the disk writer
+ * only copies ready to use byte arrays into the active segment.
+ */
+interface AuditRecordCodec {
+
+    /**
+     * Suffix of the audit log file names written in this format.
+     */
+    String getFileSuffix();
+
+    byte[] encode(AuditLogEvent event);
+
+    byte[] encode(UserRequestEvent event);
+
+    /**
+     * Returns the size of the records data in a memory mapped segment. Segments left over by a terminated process are
+     * not truncated, so the data is followed by zero padding.
+     */
+    int findDataSize(ByteBuffer segment);
+}
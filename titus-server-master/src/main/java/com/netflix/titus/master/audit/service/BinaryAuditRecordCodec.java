@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.audit.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import com.netflix.titus.api.audit.model.AuditLogEvent;
+import com.netflix.titus.api.model.event.UserRequestEvent;
+
+/**
+ * Compact binary audit log format. Each record is a frame with the following layout:
+ * <ul>
+ * <li>frame length (int, excluding the length field itself)</li>
+ * <li>record type (byte, {@link #JOB_MANAGER_RECORD} or {@link #HTTP_RECORD})</li>
+ * <li>timestamp (long)</li>
+ * <li>three length prefixed UTF-8 strings (-1 length for null values)</li>
+ * </ul>
+ * Memory mapped segments are zero filled, so a frame length of zero marks the end of data in a segment.
+ */
+class BinaryAuditRecordCodec implements AuditRecordCodec {
+
+    static final BinaryAuditRecordCodec INSTANCE = new BinaryAuditRecordCodec();
+
+    static final byte JOB_MANAGER_RECORD = 1;
+    static final byte HTTP_RECORD = 2;
+
+    private static final int HEADER_SIZE = 4 + 1 + 8;
+
+    @Override
+    public String getFileSuffix() {
+        return "bin";
+    }
+
+    @Override
+    public byte[] encode(AuditLogEvent event) {
+        return encode(JOB_MANAGER_RECORD, event.getTime(), String.valueOf(event.getType()), event.getOperand(), event.getData());
+    }
+
+    @Override
+    public byte[] encode(UserRequestEvent event) {
+        return encode(HTTP_RECORD, event.getTimestamp(), event.getOperation(), event.getCallerId(), event.getDetails());
+    }
+
+    private static byte[] encode(byte recordType, long timestamp, String first, String second, String third) {
+        byte[] firstBytes = toBytes(first);
+        byte[] secondBytes = toBytes(second);
+        byte[] thirdBytes = toBytes(third);
+
+        int size = HEADER_SIZE + sizeOf(firstBytes) + sizeOf(secondBytes) + sizeOf(thirdBytes);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(size - 4);
+        buffer.put(recordType);
+        buffer.putLong(timestamp);
+        putBytes(buffer, firstBytes);
+        putBytes(buffer, secondBytes);
+        putBytes(buffer, thirdBytes);
+        return buffer.array();
+    }
+
+    /**
+     * Records may end with zero bytes, so the segment is scanned frame by frame until the first zero frame length.
+     */
+    @Override
+    public int findDataSize(ByteBuffer segment) {
+        int position = 0;
+        while (segment.limit() - position >= 4) {
+            int frameLength = segment.getInt(position);
+            if (frameLength <= 0 || frameLength > segment.limit() - position - 4) {
+                break;
+            }
+            position += 4 + frameLength;
+        }
+        return position;
+    }
+
+    /**
+     * Decodes the next record from the buffer, and formats it using the {@link TextAuditRecordCodec} layout.
+     * Returns {@link Optional#empty()} if there are no more records in the buffer.
+     *
+     * @throws IllegalStateException if the record is corrupted
+     */
+    static Optional<String> decodeToText(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return Optional.empty();
+        }
+        int frameLength = buffer.getInt();
+        if (frameLength == 0) {
+            return Optional.empty();
+        }
+        if (frameLength < 0 || frameLength > buffer.remaining()) {
+            throw new IllegalStateException("Corrupted audit record frame of length " + frameLength + " at position " + (buffer.position() - 4));
+        }
+
+        byte recordType = buffer.get();
+        long timestamp = buffer.getLong();
+        String first = getString(buffer);
+        String second = getString(buffer);
+        String third = getString(buffer);
+
+        switch (recordType) {
+            case JOB_MANAGER_RECORD:
+                return Optional.of(TextAuditRecordCodec.formatJobManagerRecord(timestamp, first, second, third));
+            case HTTP_RECORD:
+                return Optional.of(TextAuditRecordCodec.formatHttpRecord(timestamp, first, second, third));
+        }
+        throw new IllegalStateException("Unrecognized audit record type " + recordType);
+    }
+
+    private static byte[] toBytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] value) {
+        return 4 + (value == null ? 0 : value.length);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
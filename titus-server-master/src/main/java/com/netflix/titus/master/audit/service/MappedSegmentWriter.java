@@ -0,0 +1,208 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.audit.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.common.util.IOExt;
+import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.master.MetricConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends encoded audit records to memory mapped segment files. The active segment is always named
+ * '&lt;baseName&gt;.&lt;suffix&gt;'. On rotation, the active segment is truncated to its actual data size, and renamed to
+ * '&lt;baseName&gt;.&lt;suffix&gt;.&lt;rotationTimestamp&gt;'. Rotated segments above the configured count or age limits are removed.
+ * An active segment left over by a terminated process is truncated to its data size found by the
+ * {@link AuditRecordCodec}, and rotated on the first write.
+ * <p>
+ * This class is not thread safe, and it is expected to be called from a single writer thread.
+ */
+class MappedSegmentWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedSegmentWriter.class);
+
+    private static final String METRIC_ROOT = MetricConstants.METRIC_ROOT + "audit.segment.";
+
+    private final File folder;
+    private final String activeFileName;
+    private final AuditRecordCodec codec;
+    private final AuditLogConfiguration configuration;
+    private final Clock clock;
+
+    private final Counter bytesWrittenCounter;
+    private final Counter rotationCounter;
+    private final Counter removedSegmentsCounter;
+
+    private RandomAccessFile activeFile;
+    private MappedByteBuffer activeBuffer;
+    private long activeSegmentStartTime;
+    private boolean dirty;
+
+    MappedSegmentWriter(File folder,
+                        String baseName,
+                        AuditRecordCodec codec,
+                        AuditLogConfiguration configuration,
+                        Clock clock,
+                        Registry registry) {
+        this.folder = folder;
+        this.activeFileName = baseName + '.' + codec.getFileSuffix();
+        this.codec = codec;
+        this.configuration = configuration;
+        this.clock = clock;
+
+        this.bytesWrittenCounter = registry.counter(METRIC_ROOT + "bytesWritten");
+        this.rotationCounter = registry.counter(METRIC_ROOT + "rotations");
+        this.removedSegmentsCounter = registry.counter(METRIC_ROOT + "removed");
+    }
+
+    File getActiveFile() {
+        return new File(folder, activeFileName);
+    }
+
+    void append(byte[] record) throws IOException {
+        if (activeBuffer == null) {
+            openSegment(record.length);
+        } else if (activeBuffer.remaining() < record.length) {
+            rotate();
+            openSegment(record.length);
+        }
+        activeBuffer.put(record);
+        bytesWrittenCounter.increment(record.length);
+        dirty = true;
+    }
+
+    /**
+     * Forces the written data to disk, and rotates the active segment if it reached its maximum age.
+     */
+    void flushAndCheckRotation() throws IOException {
+        if (activeBuffer == null) {
+            return;
+        }
+        if (clock.wallTime() - activeSegmentStartTime >= configuration.getSegmentMaxAgeMs()) {
+            rotate();
+            return;
+        }
+        if (dirty) {
+            activeBuffer.force();
+            dirty = false;
+        }
+    }
+
+    /**
+     * Flushes and truncates the active segment to its data size. The file remains the active segment, so a restarted
+     * writer will rotate it on its first write.
+     */
+    void close() throws IOException {
+        if (activeBuffer != null) {
+            closeActiveSegment();
+        }
+    }
+
+    private void openSegment(int minSize) throws IOException {
+        File file = getActiveFile();
+        if (file.exists()) {
+            // Left over from previous process run.
+            recoverLeftoverSegment(file);
+        }
+        long size = Math.max(configuration.getSegmentSizeBytes(), minSize);
+        this.activeFile = new RandomAccessFile(file, "rw");
+        this.activeBuffer = activeFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.activeSegmentStartTime = clock.wallTime();
+        this.dirty = false;
+    }
+
+    private void recoverLeftoverSegment(File file) throws IOException {
+        long dataSize;
+        try (RandomAccessFile leftoverFile = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = leftoverFile.getChannel();
+            dataSize = codec.findDataSize(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            if (dataSize < channel.size()) {
+                logger.info("Truncating audit log segment {} left over from previous run from {} to {} bytes", file, channel.size(), dataSize);
+                channel.truncate(dataSize);
+            }
+        }
+        if (dataSize > 0) {
+            moveToRotated(file);
+        } else if (!file.delete()) {
+            throw new IOException("Cannot remove empty audit log segment " + file);
+        }
+    }
+
+    private void rotate() throws IOException {
+        closeActiveSegment();
+        moveToRotated(getActiveFile());
+        rotationCounter.increment();
+        applyRetentionPolicy();
+    }
+
+    private void closeActiveSegment() throws IOException {
+        int dataSize = activeBuffer.position();
+        activeBuffer.force();
+        this.activeBuffer = null;
+        try {
+            activeFile.getChannel().truncate(dataSize);
+        } finally {
+            IOExt.closeSilently(activeFile);
+            this.activeFile = null;
+        }
+    }
+
+    private void moveToRotated(File file) throws IOException {
+        long timestamp = clock.wallTime();
+        File target = new File(folder, activeFileName + '.' + timestamp);
+        for (int i = 1; target.exists(); i++) {
+            target = new File(folder, activeFileName + '.' + timestamp + '-' + i);
+        }
+        if (!file.renameTo(target)) {
+            throw new IOException("Cannot rename audit log segment " + file + " to " + target);
+        }
+    }
+
+    private void applyRetentionPolicy() {
+        File[] rotated = folder.listFiles((dir, name) -> name.startsWith(activeFileName + '.'));
+        if (rotated == null) {
+            return;
+        }
+        List<File> newestFirst = Arrays.stream(rotated)
+                .sorted(Comparator.comparingLong(File::lastModified).reversed())
+                .collect(Collectors.toList());
+
+        long oldestAllowed = clock.wallTime() - configuration.getSegmentRetentionMs();
+        for (int i = 0; i < newestFirst.size(); i++) {
+            File segment = newestFirst.get(i);
+            if (i >= configuration.getMaxRotatedSegments() || segment.lastModified() < oldestAllowed) {
+                if (segment.delete()) {
+                    removedSegmentsCounter.increment();
+                } else {
+                    logger.warn("Cannot remove old audit log segment {}", segment);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.audit.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.netflix.titus.api.audit.model.AuditLogEvent;
+import com.netflix.titus.api.model.event.UserRequestEvent;
+import com.netflix.titus.common.util.DateTimeExt;
+
+/**
+ * Human readable audit log format, with one record per line.
+ */
+class TextAuditRecordCodec implements AuditRecordCodec {
+
+    static final TextAuditRecordCodec INSTANCE = new TextAuditRecordCodec();
+
+    @Override
+    public String getFileSuffix() {
+        return "log";
+    }
+
+    @Override
+    public byte[] encode(AuditLogEvent event) {
+        return toLine(formatJobManagerRecord(event.getTime(), String.valueOf(event.getType()), event.getOperand(), event.getData()));
+    }
+
+    @Override
+    public byte[] encode(UserRequestEvent event) {
+        return toLine(formatHttpRecord(event.getTimestamp(), event.getOperation(), event.getCallerId(), event.getDetails()));
+    }
+
+    /**
+     * Each record ends with a new line character, so the padding starts after the last non-zero byte.
+     */
+    @Override
+    public int findDataSize(ByteBuffer segment) {
+        int end = segment.limit();
+        while (end > 0 && segment.get(end - 1) == 0) {
+            end--;
+        }
+        return end;
+    }
+
+    static String formatJobManagerRecord(long timestamp, String type, String operand, String data) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(DateTimeExt.toUtcDateTimeString(timestamp));
+        sb.append(",source=JobManager,");
+        sb.append(type);
+        sb.append(',');
+        sb.append(operand);
+        sb.append(',');
+        sb.append(data);
+        return sb.toString();
+    }
+
+    static String formatHttpRecord(long timestamp, String operation, String callerId, String details) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(DateTimeExt.toUtcDateTimeString(timestamp));
+        sb.append(",source=HTTP,");
+        sb.append(operation);
+        sb.append(",callerId=");
+        sb.append(callerId);
+        sb.append(',');
+        sb.append(details);
+        return sb.toString();
+    }
+
+    private static byte[] toLine(String record) {
+        return (record + '\n').getBytes(StandardCharsets.UTF_8);
+    }
+}
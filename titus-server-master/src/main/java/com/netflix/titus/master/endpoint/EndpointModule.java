@@ -23,6 +23,7 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.netflix.archaius.ConfigProxyFactory;
 import com.netflix.titus.api.store.v2.V2WorkerMetadata;
+import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.model.sanitizer.EntitySanitizer;
 import com.netflix.titus.common.util.rx.eventbus.RxEventBus;
 import com.netflix.titus.master.ApiOperations;
@@ -35,6 +36,9 @@ import com.netflix.titus.master.jobmanager.endpoint.v3.grpc.gateway.RoutingGrpcT
 import com.netflix.titus.master.jobmanager.endpoint.v3.grpc.gateway.V2GrpcTitusServiceGateway;
 import com.netflix.titus.master.jobmanager.service.limiter.JobSubmitLimiter;
 import com.netflix.titus.runtime.endpoint.common.LogStorageInfo;
+import com.netflix.titus.runtime.endpoint.common.grpc.interceptor.ConcurrencyLimiterConfiguration;
+import com.netflix.titus.runtime.endpoint.common.grpc.interceptor.ConcurrencyLimiterServerInterceptor;
+import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
 
 import static com.netflix.titus.api.jobmanager.model.job.sanitizer.JobSanitizerBuilder.JOB_STRICT_SANITIZER;
 
@@ -50,6 +54,20 @@ public class EndpointModule extends AbstractModule {
         return factory.newProxy(GrpcEndpointConfiguration.class);
     }
 
+    @Provides
+    @Singleton
+    public ConcurrencyLimiterConfiguration getConcurrencyLimiterConfiguration(ConfigProxyFactory factory) {
+        return factory.newProxy(ConcurrencyLimiterConfiguration.class);
+    }
+
+    @Provides
+    @Singleton
+    public ConcurrencyLimiterServerInterceptor getConcurrencyLimiterServerInterceptor(ConcurrencyLimiterConfiguration configuration,
+                                                                                      CallMetadataResolver callMetadataResolver,
+                                                                                      TitusRuntime titusRuntime) {
+        return new ConcurrencyLimiterServerInterceptor(configuration, callMetadataResolver, titusRuntime);
+    }
+
     @Provides
     @Singleton
     @Named(RoutingGrpcTitusServiceGateway.NAME_V2_ENGINE_GATEWAY)
@@ -39,6 +39,8 @@ import com.netflix.titus.grpc.protogen.LoadBalancerServiceGrpc.LoadBalancerServi
 import com.netflix.titus.grpc.protogen.SchedulerServiceGrpc;
 import com.netflix.titus.grpc.protogen.SchedulerServiceGrpc.SchedulerServiceImplBase;
 import com.netflix.titus.master.endpoint.common.grpc.interceptor.LeaderServerInterceptor;
+import com.netflix.titus.master.jobmanager.endpoint.v3.grpc.JobEventStreamServerInterceptor;
+import com.netflix.titus.runtime.endpoint.common.grpc.interceptor.ConcurrencyLimiterServerInterceptor;
 import com.netflix.titus.runtime.endpoint.common.grpc.interceptor.ErrorCatchingServerInterceptor;
 import com.netflix.titus.runtime.endpoint.metadata.V3HeaderInterceptor;
 import io.grpc.Server;
@@ -62,6 +64,7 @@ public class TitusMasterGrpcServer {
     private final SchedulerServiceImplBase schedulerService;
     private final GrpcEndpointConfiguration config;
     private final LeaderServerInterceptor leaderServerInterceptor;
+    private final ConcurrencyLimiterServerInterceptor concurrencyLimiterServerInterceptor;
     private final LoadBalancerServiceImplBase loadBalancerService;
 
     private final AtomicBoolean started = new AtomicBoolean();
@@ -76,7 +79,8 @@ public class TitusMasterGrpcServer {
             LoadBalancerServiceImplBase loadBalancerService,
             SchedulerServiceImplBase schedulerService,
             GrpcEndpointConfiguration config,
-            LeaderServerInterceptor leaderServerInterceptor) {
+            LeaderServerInterceptor leaderServerInterceptor,
+            ConcurrencyLimiterServerInterceptor concurrencyLimiterServerInterceptor) {
         this.healthService = healthService;
         this.jobManagementService = jobManagementService;
         this.agentManagementService = agentManagementService;
@@ -85,6 +89,7 @@ public class TitusMasterGrpcServer {
         this.schedulerService = schedulerService;
         this.config = config;
         this.leaderServerInterceptor = leaderServerInterceptor;
+        this.concurrencyLimiterServerInterceptor = concurrencyLimiterServerInterceptor;
     }
 
     @PostConstruct
@@ -155,6 +160,13 @@ public class TitusMasterGrpcServer {
      * Override to add server side interceptors.
      */
     protected List<ServerInterceptor> createInterceptors(ServiceDescriptor serviceDescriptor) {
-        return Arrays.asList(new ErrorCatchingServerInterceptor(), leaderServerInterceptor, new V3HeaderInterceptor());
+        // Interceptors are invoked in the reverse order, so the concurrency limiter runs after the call metadata is resolved.
+        return Arrays.asList(
+                new ErrorCatchingServerInterceptor(),
+                concurrencyLimiterServerInterceptor,
+                leaderServerInterceptor,
+                new V3HeaderInterceptor(),
+                new JobEventStreamServerInterceptor()
+        );
     }
 }
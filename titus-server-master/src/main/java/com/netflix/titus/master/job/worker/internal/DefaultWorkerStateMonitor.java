@@ -32,7 +32,6 @@ import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.TaskState;
 import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
-import com.netflix.titus.api.jobmanager.service.V3JobOperations.Trigger;
 import com.netflix.titus.api.model.v2.V2JobState;
 import com.netflix.titus.api.model.v2.WorkerNaming;
 import com.netflix.titus.api.model.v2.parameter.Parameters;
@@ -46,6 +45,7 @@ import com.netflix.titus.master.job.V2JobMgrIntf;
 import com.netflix.titus.master.job.V2JobOperations;
 import com.netflix.titus.master.job.worker.WorkerStateMonitor;
 import com.netflix.titus.master.jobmanager.service.JobManagerUtil;
+import com.netflix.titus.master.jobmanager.service.TaskStatusUpdateBatcher;
 import com.netflix.titus.master.mesos.ContainerEvent;
 import com.netflix.titus.master.mesos.V3ContainerEvent;
 import org.slf4j.Logger;
@@ -94,6 +94,7 @@ public class DefaultWorkerStateMonitor implements WorkerStateMonitor {
                                      V2JobOperations jOps,
                                      V3JobOperations v3JobOperations,
                                      JobManagerConfiguration jobManagerConfiguration,
+                                     TaskStatusUpdateBatcher taskStatusUpdateBatcher,
                                      TitusRuntime titusRuntime) {
         this.vmService = vmService;
         this.jobOps = jOps;
@@ -174,10 +175,7 @@ public class DefaultWorkerStateMonitor implements WorkerStateMonitor {
 
                                 // Failures are logged only, as the reconciler will take care of it if needed.
                                 final Function<Task, Optional<Task>> updater = JobManagerUtil.newMesosTaskStateUpdater(taskStatus, args.getTitusExecutorDetails(), titusRuntime);
-                                v3JobOperations.updateTask(task.getId(), updater, Trigger.Mesos, "Mesos -> " + taskStatus).subscribe(
-                                        () -> logger.info("Changed task {} status state to {}", task.getId(), taskStatus),
-                                        e -> logger.warn("Could not update task state of {} to {} ({})", args.getTaskId(), taskStatus, e.toString())
-                                );
+                                taskStatusUpdateBatcher.submit(task.getJobId(), task.getId(), updater, "Mesos -> " + taskStatus);
                             }
                             return;
                         }
@@ -40,6 +40,7 @@ import com.netflix.titus.master.endpoint.TitusServiceGateway;
 import com.netflix.titus.master.endpoint.adapter.LegacyTitusServiceGatewayGuard;
 import com.netflix.titus.master.endpoint.grpc.GrpcEndpointConfiguration;
 import com.netflix.titus.master.jobmanager.endpoint.v3.grpc.DefaultJobManagementServiceGrpc;
+import com.netflix.titus.master.jobmanager.endpoint.v3.grpc.JobEventJournal;
 import com.netflix.titus.master.jobmanager.endpoint.v3.grpc.gateway.GrpcTitusServiceGateway;
 import com.netflix.titus.master.jobmanager.endpoint.v3.grpc.gateway.RoutingGrpcTitusServiceGateway;
 import com.netflix.titus.master.jobmanager.endpoint.v3.grpc.gateway.V2GrpcTitusServiceGateway;
@@ -64,6 +65,7 @@ public class V3EndpointModule extends AbstractModule {
         bind(GrpcTitusServiceGateway.class).to(V2GrpcTitusServiceGateway.class);
         bind(CallMetadataResolver.class).to(SimpleGrpcCallMetadataResolver.class);
         bind(JobManagementServiceImplBase.class).to(DefaultJobManagementServiceGrpc.class);
+        bind(JobEventJournal.class).asEagerSingleton();
     }
 
     @Provides
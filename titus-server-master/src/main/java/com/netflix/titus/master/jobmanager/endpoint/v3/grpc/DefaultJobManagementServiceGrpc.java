@@ -52,9 +52,11 @@ import com.netflix.titus.grpc.protogen.TaskQuery;
 import com.netflix.titus.grpc.protogen.TaskQueryResult;
 import com.netflix.titus.grpc.protogen.TaskStatus;
 import com.netflix.titus.master.endpoint.TitusServiceGateway;
+import com.netflix.titus.runtime.connector.jobmanager.JobEventStreamPosition;
 import com.netflix.titus.runtime.endpoint.JobQueryCriteria;
 import com.netflix.titus.runtime.endpoint.metadata.CallMetadata;
 import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
+import io.grpc.Metadata;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import io.grpc.stub.ServerCallStreamObserver;
@@ -79,12 +81,15 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
 
     private final TitusServiceGateway<String, JobDescriptor, JobSpecCase, Job, Task, TaskStatus.TaskState> serviceGateway;
     private final CallMetadataResolver callMetadataResolver;
+    private final JobEventJournal jobEventJournal;
 
     @Inject
     public DefaultJobManagementServiceGrpc(TitusServiceGateway<String, JobDescriptor, JobSpecCase, Job, Task, TaskStatus.TaskState> serviceGateway,
-                                           CallMetadataResolver callMetadataResolver) {
+                                           CallMetadataResolver callMetadataResolver,
+                                           JobEventJournal jobEventJournal) {
         this.serviceGateway = serviceGateway;
         this.callMetadataResolver = callMetadataResolver;
+        this.jobEventJournal = jobEventJournal;
     }
 
     @Override
@@ -255,7 +260,7 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
 
     @Override
     public void observeJobs(Empty request, StreamObserver<JobChangeNotification> responseObserver) {
-        Observable<JobChangeNotification> eventStream = serviceGateway.observeJobs();
+        Observable<JobChangeNotification> eventStream = observeJobEventJournal().orElseGet(serviceGateway::observeJobs);
         Subscription subscription = eventStream.subscribe(
                 responseObserver::onNext,
                 e -> responseObserver.onError(
@@ -288,6 +293,27 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
         serverObserver.setOnCancelHandler(subscription::unsubscribe);
     }
 
+    /**
+     * If the client asked for a resumable stream, and the event journal is active, returns the journal event stream.
+     * The stream start position is sent back to the client in the response headers.
+     */
+    private Optional<Observable<JobChangeNotification>> observeJobEventJournal() {
+        String resumeFrom = JobEventStreamServerInterceptor.RESUME_FROM_CONTEXT_KEY.get();
+        Metadata responseHeaders = JobEventStreamServerInterceptor.RESPONSE_HEADERS_CONTEXT_KEY.get();
+        if (resumeFrom == null || responseHeaders == null || !jobEventJournal.isActive()) {
+            return Optional.empty();
+        }
+        return Optional.of(jobEventJournal.observeJobs(
+                JobEventStreamPosition.decode(resumeFrom),
+                (startPosition, resumed) -> {
+                    synchronized (responseHeaders) {
+                        responseHeaders.put(JobEventStreamPosition.STREAM_START_KEY, startPosition.encode());
+                        responseHeaders.put(JobEventStreamPosition.RESUMED_KEY, Boolean.toString(resumed));
+                    }
+                }
+        ));
+    }
+
     /**
      * Helper class working as key selector for building distinct stream of Job info objects.
      * Currently we observe only number of workers and their state.
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.grpc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.guice.annotation.Activator;
+import com.netflix.titus.common.util.rx.ObservableExt;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.master.MetricConstants;
+import com.netflix.titus.master.config.MasterConfiguration;
+import com.netflix.titus.master.jobmanager.service.JobManagerConfiguration;
+import com.netflix.titus.runtime.connector.jobmanager.JobEventStreamPosition;
+import com.netflix.titus.runtime.endpoint.common.LogStorageInfo;
+import com.netflix.titus.runtime.endpoint.v3.grpc.V3GrpcModelConverters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.Subscription;
+import rx.subjects.PublishSubject;
+import rx.subjects.UnicastSubject;
+
+/**
+ * Keeps a bounded journal of the most recent V3 job and task update events, numbered with consecutive sequence
+ * numbers within an epoch assigned at the leader activation time. A client that reconnects with a position still
+ * covered by the journal gets only the events it missed, instead of a full job snapshot
+ * (see {@link JobEventStreamPosition}).
+ * <p>
+ * The job event subscription is restored automatically after an error, but the events emitted in between are lost.
+ * To avoid resuming clients over such a gap, each (re)subscription starts a new epoch with an empty journal, and
+ * terminates the live streams of the previous epoch, so their clients reconnect and fall back to a full snapshot.
+ * <p>
+ * The journal is enabled only when the V2 engine is disabled, as the V2 engine events are not numbered.
+ */
+@Singleton
+public class JobEventJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobEventJournal.class);
+
+    private static final String METRIC_ROOT = MetricConstants.METRIC_ROOT + "jobManager.eventJournal.";
+
+    private static final JobChangeNotification SNAPSHOT_END_MARKER = JobChangeNotification.newBuilder().setSnapshotEnd(
+            JobChangeNotification.SnapshotEnd.newBuilder()
+    ).build();
+
+    private final V3JobOperations jobOperations;
+    private final Observable<JobManagerEvent<?>> jobEvents;
+    private final MasterConfiguration masterConfiguration;
+    private final JobManagerConfiguration configuration;
+    private final LogStorageInfo<Task> logStorageInfo;
+
+    private final TitusRuntime titusRuntime;
+    private final Registry registry;
+    private final Id streamsId;
+
+    private final Object lock = new Object();
+    private final Deque<Pair<Long, JobChangeNotification>> journal = new ArrayDeque<>();
+    private PublishSubject<Pair<Long, JobChangeNotification>> liveSubject = PublishSubject.create();
+
+    private volatile String epoch;
+    private long lastSequence;
+
+    private Subscription eventSubscription;
+
+    @Inject
+    public JobEventJournal(V3JobOperations jobOperations,
+                           MasterConfiguration masterConfiguration,
+                           JobManagerConfiguration configuration,
+                           LogStorageInfo<Task> logStorageInfo,
+                           TitusRuntime titusRuntime) {
+        this(jobOperations,
+                Observable.defer(jobOperations::observeJobs),
+                masterConfiguration,
+                configuration,
+                logStorageInfo,
+                titusRuntime
+        );
+    }
+
+    @VisibleForTesting
+    JobEventJournal(V3JobOperations jobOperations,
+                    Observable<JobManagerEvent<?>> jobEvents,
+                    MasterConfiguration masterConfiguration,
+                    JobManagerConfiguration configuration,
+                    LogStorageInfo<Task> logStorageInfo,
+                    TitusRuntime titusRuntime) {
+        this.jobOperations = jobOperations;
+        this.jobEvents = jobEvents;
+        this.masterConfiguration = masterConfiguration;
+        this.configuration = configuration;
+        this.logStorageInfo = logStorageInfo;
+        this.titusRuntime = titusRuntime;
+        this.registry = titusRuntime.getRegistry();
+        this.streamsId = registry.createId(METRIC_ROOT + "streams");
+
+        PolledMeter.using(registry).withName(METRIC_ROOT + "size").monitorValue(this, JobEventJournal::getSize);
+    }
+
+    @Activator
+    public void enterActiveMode() {
+        if (masterConfiguration.isV2Enabled()) {
+            logger.info("V2 engine enabled; job event journal not activated");
+            return;
+        }
+        this.eventSubscription = titusRuntime.persistentStream(jobEvents.doOnSubscribe(this::startNewEpoch)).subscribe(
+                event -> append(V3GrpcModelConverters.toGrpcJobChangeNotification(event, logStorageInfo)),
+                e -> logger.error("Job event journal subscription terminated with an error", e)
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ObservableExt.safeUnsubscribe(eventSubscription);
+    }
+
+    public boolean isActive() {
+        return epoch != null;
+    }
+
+    /**
+     * Returns the job event stream starting either from the given position, or with a full snapshot if the position
+     * is not available in the journal. The stream start position is passed to the listener before the first
+     * event is emitted.
+     */
+    public Observable<JobChangeNotification> observeJobs(Optional<JobEventStreamPosition> resumeFrom,
+                                                         BiConsumer<JobEventStreamPosition, Boolean> streamStartListener) {
+        return Observable.defer(() -> {
+            if (!isActive()) {
+                return Observable.error(new IllegalStateException("Job event journal not active"));
+            }
+
+            UnicastSubject<Pair<Long, JobChangeNotification>> buffer = UnicastSubject.create();
+            Subscription liveSubscription;
+            String startEpoch;
+            long startSequence;
+            List<JobChangeNotification> head;
+
+            synchronized (lock) {
+                // Events are published outside of the lock, so we filter out those already included in the head.
+                liveSubscription = liveSubject.subscribe(buffer);
+                startEpoch = epoch;
+                startSequence = lastSequence;
+                head = resumeFrom.filter(this::canResumeFrom).map(this::getEventsAfter).orElse(null);
+            }
+
+            boolean resumed = head != null;
+            JobEventStreamPosition startPosition = resumed
+                    ? resumeFrom.get()
+                    : new JobEventStreamPosition(startEpoch, startSequence);
+            if (!resumed) {
+                head = createJobsSnapshot();
+            }
+            head.add(SNAPSHOT_END_MARKER);
+
+            registry.counter(streamsId.withTag("mode", resumed ? "resumed" : "snapshot")).increment();
+            logger.debug("Starting job event stream: position={}, resumed={}, headSize={}", startPosition, resumed, head.size());
+
+            streamStartListener.accept(startPosition, resumed);
+
+            return Observable.from(head)
+                    .concatWith(buffer.filter(event -> event.getLeft() > startSequence).map(Pair::getRight))
+                    .doOnUnsubscribe(liveSubscription::unsubscribe);
+        });
+    }
+
+    @VisibleForTesting
+    int getSize() {
+        synchronized (lock) {
+            return journal.size();
+        }
+    }
+
+    /**
+     * Called before each (re)subscription to the job event stream.
+     */
+    private void startNewEpoch() {
+        PublishSubject<Pair<Long, JobChangeNotification>> previousLiveSubject;
+        String newEpoch = UUID.randomUUID().toString();
+        synchronized (lock) {
+            journal.clear();
+            lastSequence = 0;
+            previousLiveSubject = liveSubject;
+            liveSubject = PublishSubject.create();
+            this.epoch = newEpoch;
+        }
+        previousLiveSubject.onError(new IllegalStateException("Job event journal restarted with a new epoch " + newEpoch));
+        logger.info("Job event journal started epoch {}", newEpoch);
+    }
+
+    private void append(JobChangeNotification event) {
+        Pair<Long, JobChangeNotification> entry;
+        PublishSubject<Pair<Long, JobChangeNotification>> currentLiveSubject;
+        synchronized (lock) {
+            currentLiveSubject = liveSubject;
+            entry = Pair.of(++lastSequence, event);
+            journal.addLast(entry);
+            int maxSize = Math.max(1, configuration.getJobEventJournalSize());
+            while (journal.size() > maxSize) {
+                journal.removeFirst();
+            }
+        }
+        currentLiveSubject.onNext(entry);
+    }
+
+    /**
+     * Must be called with the lock held.
+     */
+    private boolean canResumeFrom(JobEventStreamPosition position) {
+        if (!position.getEpoch().equals(epoch) || position.getSequence() > lastSequence) {
+            return false;
+        }
+        long firstAvailable = journal.isEmpty() ? lastSequence + 1 : journal.getFirst().getLeft();
+        return position.getSequence() >= firstAvailable - 1;
+    }
+
+    /**
+     * Must be called with the lock held.
+     */
+    private List<JobChangeNotification> getEventsAfter(JobEventStreamPosition position) {
+        List<JobChangeNotification> events = new ArrayList<>();
+        journal.forEach(entry -> {
+            if (entry.getLeft() > position.getSequence()) {
+                events.add(entry.getRight());
+            }
+        });
+        return events;
+    }
+
+    private List<JobChangeNotification> createJobsSnapshot() {
+        List<JobChangeNotification> snapshot = new ArrayList<>();
+        for (Job<?> job : jobOperations.getJobs()) {
+            snapshot.add(JobChangeNotification.newBuilder()
+                    .setJobUpdate(JobChangeNotification.JobUpdate.newBuilder().setJob(V3GrpcModelConverters.toGrpcJob(job)))
+                    .build()
+            );
+        }
+        for (Task task : jobOperations.getTasks()) {
+            snapshot.add(JobChangeNotification.newBuilder()
+                    .setTaskUpdate(JobChangeNotification.TaskUpdate.newBuilder().setTask(V3GrpcModelConverters.toGrpcTask(task, logStorageInfo)))
+                    .build()
+            );
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.grpc;
+
+import com.netflix.titus.runtime.connector.jobmanager.JobEventStreamPosition;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+
+/**
+ * Makes the job event stream position requested by a client available to the service implementation, and lets
+ * it return the actual stream start position in the response headers (see {@link JobEventStreamPosition}).
+ * Calls without the {@link JobEventStreamPosition#RESUME_FROM_HEADER} header are passed through unchanged.
+ */
+public class JobEventStreamServerInterceptor implements ServerInterceptor {
+
+    public static final Context.Key<String> RESUME_FROM_CONTEXT_KEY = Context.key(JobEventStreamPosition.RESUME_FROM_HEADER);
+
+    /**
+     * Headers added to the response headers when they are sent. Access must be synchronized on the metadata object.
+     */
+    public static final Context.Key<Metadata> RESPONSE_HEADERS_CONTEXT_KEY = Context.key("jobEventStreamResponseHeaders");
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        String resumeFrom = headers.get(JobEventStreamPosition.RESUME_FROM_KEY);
+        if (resumeFrom == null) {
+            return next.startCall(call, headers);
+        }
+
+        Metadata responseHeaders = new Metadata();
+        ServerCall<ReqT, RespT> wrappedCall = new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
+            @Override
+            public void sendHeaders(Metadata headers) {
+                synchronized (responseHeaders) {
+                    headers.merge(responseHeaders);
+                }
+                super.sendHeaders(headers);
+            }
+        };
+        Context wrappedContext = Context.current().withValues(
+                RESUME_FROM_CONTEXT_KEY, resumeFrom,
+                RESPONSE_HEADERS_CONTEXT_KEY, responseHeaders
+        );
+        return Contexts.interceptCall(wrappedContext, wrappedCall, headers, next);
+    }
+}
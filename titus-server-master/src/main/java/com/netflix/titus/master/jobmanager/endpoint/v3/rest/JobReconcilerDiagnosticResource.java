@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.rest;
+
+import java.util.List;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+
+import com.netflix.titus.common.framework.reconciler.TransactionTrace;
+import com.netflix.titus.master.jobmanager.service.DefaultV3JobOperations;
+
+/**
+ * Diagnostic endpoint exposing the state of the job reconciliation framework.
+ */
+@Path("/api/diagnostic/reconciler")
+@Produces(MediaType.APPLICATION_JSON)
+@Singleton
+public class JobReconcilerDiagnosticResource {
+
+    private final DefaultV3JobOperations v3JobOperations;
+
+    @Inject
+    public JobReconcilerDiagnosticResource(DefaultV3JobOperations v3JobOperations) {
+        this.v3JobOperations = v3JobOperations;
+    }
+
+    /**
+     * Returns the longest running in-flight transactions, with timestamps of all lifecycle stages reached so far.
+     */
+    @GET
+    @Path("/transactions")
+    public List<TransactionTrace> getSlowestInFlightTransactions(@QueryParam("limit") @DefaultValue("100") int limit) {
+        return v3JobOperations.getSlowestInFlightTransactions(Math.max(1, limit));
+    }
+}
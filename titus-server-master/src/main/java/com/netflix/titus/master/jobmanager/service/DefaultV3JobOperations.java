@@ -16,9 +16,13 @@
 
 package com.netflix.titus.master.jobmanager.service;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -49,6 +53,7 @@ import com.netflix.titus.common.framework.reconciler.ModelActionHolder;
 import com.netflix.titus.common.framework.reconciler.ModelActionHolder.Model;
 import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
 import com.netflix.titus.common.framework.reconciler.ReconciliationFramework;
+import com.netflix.titus.common.framework.reconciler.TransactionTrace;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.guice.ProxyType;
 import com.netflix.titus.common.util.guice.annotation.Activator;
@@ -56,12 +61,16 @@ import com.netflix.titus.common.util.guice.annotation.ProxyConfiguration;
 import com.netflix.titus.common.util.rx.ObservableExt;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.master.VirtualMachineMasterService;
+import com.netflix.titus.master.jobmanager.service.TaskTimeoutWheel.TaskStateTimeout;
+import com.netflix.titus.master.jobmanager.service.common.action.ArchivedTasks;
 import com.netflix.titus.master.jobmanager.service.common.action.JobEntityHolders;
 import com.netflix.titus.master.jobmanager.service.common.action.TitusChangeAction;
 import com.netflix.titus.master.jobmanager.service.common.action.TitusModelAction;
 import com.netflix.titus.master.jobmanager.service.common.action.task.BasicJobActions;
 import com.netflix.titus.master.jobmanager.service.common.action.task.BasicTaskActions;
 import com.netflix.titus.master.jobmanager.service.common.action.task.KillInitiatedActions;
+import com.netflix.titus.master.jobmanager.service.common.action.task.TaskArchivalActions;
+import com.netflix.titus.master.jobmanager.service.common.action.task.TaskTimeoutChangeActions;
 import com.netflix.titus.master.jobmanager.service.event.JobManagerReconcilerEvent;
 import com.netflix.titus.master.jobmanager.service.event.JobModelReconcilerEvent;
 import com.netflix.titus.master.jobmanager.service.service.action.BasicServiceJobActions;
@@ -85,6 +94,7 @@ public class DefaultV3JobOperations implements V3JobOperations {
     private final VirtualMachineMasterService vmService;
     private final JobManagerConfiguration jobManagerConfiguration;
     private final JobReconciliationFrameworkFactory jobReconciliationFrameworkFactory;
+    private final TaskTimeoutWheel taskTimeoutWheel;
     private final TitusRuntime titusRuntime;
 
     private ReconciliationFramework<JobManagerReconcilerEvent> reconciliationFramework;
@@ -92,17 +102,24 @@ public class DefaultV3JobOperations implements V3JobOperations {
 
     private final V3JobMetricsCollector jobMetricsCollector;
 
+    /**
+     * Task id to job id mapping for tasks moved to the archive tier, which are no longer indexed by the reconciliation framework.
+     */
+    private final ConcurrentMap<String, String> archivedTaskJobIds = new ConcurrentHashMap<>();
+
     @Inject
     public DefaultV3JobOperations(JobManagerConfiguration jobManagerConfiguration,
                                   JobStore store,
                                   VirtualMachineMasterService vmService,
                                   JobReconciliationFrameworkFactory jobReconciliationFrameworkFactory,
+                                  TaskTimeoutWheel taskTimeoutWheel,
                                   TitusRuntime titusRuntime) {
         this.store = store;
         this.vmService = vmService;
         this.jobManagerConfiguration = jobManagerConfiguration;
         this.jobReconciliationFrameworkFactory = jobReconciliationFrameworkFactory;
-        this.jobMetricsCollector = new V3JobMetricsCollector(titusRuntime.getRegistry());
+        this.taskTimeoutWheel = taskTimeoutWheel;
+        this.jobMetricsCollector = new V3JobMetricsCollector(jobManagerConfiguration, this::findJobHolder, titusRuntime);
         this.titusRuntime = titusRuntime;
     }
 
@@ -114,6 +131,7 @@ public class DefaultV3JobOperations implements V3JobOperations {
         reconciliationFramework.orderedView(IndexKind.StatusCreationTime).forEach(jobHolder -> {
             Job<?> job = jobHolder.getEntity();
             jobHolder.getChildren().forEach(taskHolder -> jobMetricsCollector.updateTaskMetrics(job, taskHolder.getEntity()));
+            ArchivedTasks.getArchivedTasks(jobHolder).forEach((taskId, task) -> archivedTaskJobIds.put(taskId, job.getId()));
         });
 
         // Remove finished jobs from the reconciliation framework.
@@ -122,6 +140,10 @@ public class DefaultV3JobOperations implements V3JobOperations {
                     if (event instanceof JobModelReconcilerEvent.JobModelUpdateReconcilerEvent) {
                         JobModelReconcilerEvent.JobModelUpdateReconcilerEvent jobUpdateEvent = (JobModelReconcilerEvent.JobModelUpdateReconcilerEvent) event;
                         EntityHolder changedEntityHolder = jobUpdateEvent.getChangedEntityHolder();
+                        updateTaskTimeoutTracking(jobUpdateEvent);
+                        if (isTaskArchivedEvent(jobUpdateEvent)) {
+                            archivedTaskJobIds.put(jobUpdateEvent.getChangeAction().getId(), changedEntityHolder.getId());
+                        }
                         if (handleJobCompletedEvent(changedEntityHolder)) {
                             jobMetricsCollector.removeJob(changedEntityHolder.getId());
                         } else {
@@ -134,6 +156,50 @@ public class DefaultV3JobOperations implements V3JobOperations {
         );
 
         reconciliationFramework.start();
+        taskTimeoutWheel.start(this::handleTaskStateTimeout);
+    }
+
+    private void handleTaskStateTimeout(TaskStateTimeout timeout) {
+        String taskId = timeout.getTaskId();
+        Optional<ReconciliationEngine<JobManagerReconcilerEvent>> engineOpt = reconciliationFramework.findEngineByChildId(taskId).map(Pair::getLeft);
+        if (!engineOpt.isPresent() || !TaskTimeoutChangeActions.findTimedOutTask(engineOpt.get(), timeout, titusRuntime.getClock()).isPresent()) {
+            taskTimeoutWheel.onTimeoutHandled(timeout);
+            return;
+        }
+        ReconciliationEngine<JobManagerReconcilerEvent> engine = engineOpt.get();
+        TitusChangeAction changeAction = TaskTimeoutChangeActions.onTimeout(engine, timeout, jobManagerConfiguration, vmService, store, titusRuntime);
+        engine.changeReferenceModel(changeAction, taskId)
+                .doOnUnsubscribe(() -> taskTimeoutWheel.onTimeoutHandled(timeout))
+                .subscribe(
+                        next -> {
+                        },
+                        e -> logger.warn("Could not handle timeout of task {} in state {}: {}", taskId, timeout.getTaskState(), e.getMessage())
+                );
+    }
+
+    /**
+     * Task timeout deadlines are armed and disarmed only after the model updates are applied, so a failed or repeated
+     * change action does not leave stale deadlines in the {@link TaskTimeoutWheel}.
+     */
+    private void updateTaskTimeoutTracking(JobModelReconcilerEvent.JobModelUpdateReconcilerEvent jobUpdateEvent) {
+        if (jobUpdateEvent.getModelActionHolder().getModel() != Model.Running) {
+            return;
+        }
+        EntityHolder changedEntityHolder = jobUpdateEvent.getChangedEntityHolder();
+        if (changedEntityHolder.getEntity() instanceof Task) {
+            TaskTimeoutChangeActions.updateTimeoutTracking(changedEntityHolder, taskTimeoutWheel);
+            return;
+        }
+        // Tasks removed from the job (replaced or archived) are reported as job updates.
+        jobUpdateEvent.getPreviousEntityHolder().ifPresent(previousJobHolder -> {
+            if (previousJobHolder.getChildren().size() > changedEntityHolder.getChildren().size()) {
+                previousJobHolder.getChildren().forEach(taskHolder -> {
+                    if (!changedEntityHolder.findChildById(taskHolder.getId()).isPresent()) {
+                        taskTimeoutWheel.disarm(taskHolder.getId());
+                    }
+                });
+            }
+        });
     }
 
     private boolean handleJobCompletedEvent(EntityHolder changedEntityHolder) {
@@ -143,6 +209,7 @@ public class DefaultV3JobOperations implements V3JobOperations {
                 boolean isClosed = BasicJobActions.isClosed(changedEntityHolder);
                 if (isClosed) {
                     String jobId = job.getId();
+                    ArchivedTasks.getArchivedTasks(changedEntityHolder).forEach((taskId, task) -> archivedTaskJobIds.remove(taskId));
                     reconciliationFramework.findEngineByRootId(jobId).ifPresent(engine ->
                             reconciliationFramework.removeEngine(engine).subscribe(
                                     () -> logger.info("Removed reconciliation engine of job {}", jobId),
@@ -156,6 +223,17 @@ public class DefaultV3JobOperations implements V3JobOperations {
         return false;
     }
 
+    private boolean isTaskArchivedEvent(JobModelReconcilerEvent.JobModelUpdateReconcilerEvent jobUpdateEvent) {
+        return jobUpdateEvent.getModelActionHolder().getModel() == Model.Reference
+                && TaskArchivalActions.ARCHIVE_FINISHED_TASK_ACTION.equals(jobUpdateEvent.getChangeAction().getName());
+    }
+
+    private Optional<EntityHolder> findJobHolder(String jobId) {
+        return reconciliationFramework == null
+                ? Optional.empty()
+                : reconciliationFramework.findEngineByRootId(jobId).map(ReconciliationEngine::getReferenceView);
+    }
+
     @PreDestroy
     public void shutdown() {
         ObservableExt.safeUnsubscribe(transactionLoggerSubscription);
@@ -164,6 +242,13 @@ public class DefaultV3JobOperations implements V3JobOperations {
         }
     }
 
+    /**
+     * Diagnostic view of the longest running job/task change transactions.
+     */
+    public List<TransactionTrace> getSlowestInFlightTransactions(int limit) {
+        return reconciliationFramework == null ? Collections.emptyList() : reconciliationFramework.getSlowestInFlightTransactions(limit);
+    }
+
     @Override
     public Observable<String> createJob(JobDescriptor<?> jobDescriptor) {
         return Observable.fromCallable(() -> newJob(jobDescriptor))
@@ -243,12 +328,29 @@ public class DefaultV3JobOperations implements V3JobOperations {
 
     @Override
     public Optional<Pair<Job<?>, Task>> findTaskById(String taskId) {
-        return reconciliationFramework.findEngineByChildId(taskId)
+        Optional<Pair<Job<?>, Task>> liveTask = reconciliationFramework.findEngineByChildId(taskId)
                 .map(pair -> {
                     Job<?> job = pair.getLeft().getReferenceView().getEntity();
                     Task task = pair.getRight().getEntity();
                     return Pair.of(job, task);
                 });
+        if (liveTask.isPresent()) {
+            return liveTask;
+        }
+        return findArchivedTaskById(taskId);
+    }
+
+    /**
+     * Archived tasks are returned in their compact form, without the status history.
+     */
+    private Optional<Pair<Job<?>, Task>> findArchivedTaskById(String taskId) {
+        String jobId = archivedTaskJobIds.get(taskId);
+        if (jobId == null) {
+            return Optional.empty();
+        }
+        return findJobHolder(jobId).flatMap(jobHolder ->
+                ArchivedTasks.findArchivedTask(jobHolder, taskId).map(task -> Pair.of(jobHolder.getEntity(), task))
+        );
     }
 
     @Override
@@ -262,6 +364,17 @@ public class DefaultV3JobOperations implements V3JobOperations {
         return engine.changeReferenceModel(changeAction, taskId).toCompletable();
     }
 
+    @Override
+    public Completable updateTasks(String jobId, Map<String, Pair<Function<Task, Optional<Task>>, String>> changeFunctions, Trigger trigger, String reason) {
+        Optional<ReconciliationEngine<JobManagerReconcilerEvent>> engineOpt = reconciliationFramework.findEngineByRootId(jobId);
+        if (!engineOpt.isPresent()) {
+            return Completable.error(JobManagerException.jobNotFound(jobId));
+        }
+        ReconciliationEngine<JobManagerReconcilerEvent> engine = engineOpt.get();
+        TitusChangeAction changeAction = BasicTaskActions.updateTasksInRunningModel(jobId, changeFunctions, trigger, jobManagerConfiguration, engine, reason, titusRuntime);
+        return engine.changeReferenceModel(changeAction, changeFunctions.keySet()).toCompletable();
+    }
+
     @Override
     public Completable recordTaskPlacement(String taskId, Function<Task, Task> changeFunction) {
         Optional<ReconciliationEngine<JobManagerReconcilerEvent>> engineOpt = reconciliationFramework.findEngineByChildId(taskId).map(Pair::getLeft);
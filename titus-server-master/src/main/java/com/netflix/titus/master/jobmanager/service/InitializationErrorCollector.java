@@ -16,10 +16,10 @@
 
 package com.netflix.titus.master.jobmanager.service;
 
-import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.netflix.spectator.api.Gauge;
@@ -31,7 +31,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Helper class that tracks errors during jobs loading, and initialization process.
+ * Helper class that tracks errors during jobs loading, and initialization process. The bootstrap reports errors from
+ * multiple threads, so all state is kept in concurrent collections.
  */
 class InitializationErrorCollector {
 
@@ -43,14 +44,14 @@ class InitializationErrorCollector {
     private final AtomicInteger corruptedJobRecords = new AtomicInteger();
     private final AtomicInteger corruptedTaskRecords = new AtomicInteger();
 
-    private final List<String> invalidJobs = new CopyOnWriteArrayList<>();
-    private final List<String> strictlyInvalidJobs = new CopyOnWriteArrayList<>();
-    private final List<String> invalidTasks = new CopyOnWriteArrayList<>();
-    private final List<String> strictlyInvalidTasks = new CopyOnWriteArrayList<>();
-    private final List<String> failedToAddToFenzoTask = new CopyOnWriteArrayList<>();
-    private final List<String> inconsistentTasks = new CopyOnWriteArrayList<>();
-    private final List<String> launchedTasksWithUnidentifiedAgents = new CopyOnWriteArrayList<>();
-    private final List<Pair<String, Map<String, Set<String>>>> eniOverlaps = new CopyOnWriteArrayList<>();
+    private final Queue<String> invalidJobs = new ConcurrentLinkedQueue<>();
+    private final Queue<String> strictlyInvalidJobs = new ConcurrentLinkedQueue<>();
+    private final Queue<String> invalidTasks = new ConcurrentLinkedQueue<>();
+    private final Queue<String> strictlyInvalidTasks = new ConcurrentLinkedQueue<>();
+    private final Queue<String> failedToAddToFenzoTask = new ConcurrentLinkedQueue<>();
+    private final Queue<String> inconsistentTasks = new ConcurrentLinkedQueue<>();
+    private final Queue<String> launchedTasksWithUnidentifiedAgents = new ConcurrentLinkedQueue<>();
+    private final Queue<Pair<String, Map<String, Set<String>>>> eniOverlaps = new ConcurrentLinkedQueue<>();
 
     private final Gauge corruptedJobRecordsGauge;
     private final Gauge corruptedTaskRecordsGauge;
@@ -49,6 +49,13 @@ public interface JobManagerConfiguration {
     @DefaultValue("600000")
     long getTaskInKillInitiatedStateTimeoutMs();
 
+    /**
+     * @return the tick interval of the timer wheel tracking task state timeouts (Launched, StartInitiated, KillInitiated).
+     * A timed out task is detected at most this amount of time after its deadline.
+     */
+    @DefaultValue("100")
+    long getTaskStateTimeoutTickMs();
+
     /**
      * Minimum amount of time a task should stay in Started state, before the retryer that is associated with it is
      * restarted.
@@ -80,9 +87,54 @@ public interface JobManagerConfiguration {
     @DefaultValue("0")
     long getMaxFailedTasks();
 
+    /**
+     * @return the number of threads used during the bootstrap to validate the loaded jobs and tasks, and to build
+     * their reconciliation engines
+     */
+    @DefaultValue("8")
+    int getBootstrapParallelism();
+
     @DefaultValue("10000")
     long getTaskLivenessPollerIntervalMs();
 
+    /**
+     * @return the maximum number of jobs for which task state metrics are reported individually. Task state metrics
+     * of jobs above this limit are aggregated into a single overflow series.
+     */
+    @DefaultValue("2000")
+    int getMaxJobsWithTaskStateMetrics();
+
+    /**
+     * @return the maximum number of job and task update events kept in the job event journal. Clients disconnected
+     * for longer than it takes to produce this number of events must reload the full job snapshot.
+     */
+    @DefaultValue("100000")
+    int getJobEventJournalSize();
+
+    /**
+     * TODO Feature flag. Set to a positive value to enable batching.
+     *
+     * @return the time window during which Mesos task status updates are accumulated, and applied in a single
+     * transaction per job. Multiple updates of the same task within the window are coalesced. Set to 0 (the default)
+     * to apply each update individually.
+     */
+    @DefaultValue("0")
+    long getTaskStatusUpdateBatchWindowMs();
+
+    /**
+     * TODO Feature flag. If enabled, finished batch tasks, which are not going to be retried, are moved out of the job
+     * reconciliation model into the task archive, once they are finished for longer than {@link #getFinishedTaskArchivalRetentionMs()}.
+     * Archived tasks are no longer returned by the active task queries, and are not included in the task event streams.
+     */
+    @DefaultValue("false")
+    boolean isFinishedTaskArchivalEnabled();
+
+    /**
+     * @return the amount of time a finished task is kept in the job reconciliation model, before it is archived
+     */
+    @DefaultValue("600000")
+    long getFinishedTaskArchivalRetentionMs();
+
     /**
      * Feature flag controlling job/task validation process.
      */
@@ -26,17 +26,24 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.validation.ConstraintViolation;
 
+import com.netflix.fenzo.queues.QueuableTask;
 import com.netflix.spectator.api.BasicTag;
 import com.netflix.spectator.api.Gauge;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spectator.api.Tag;
 import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
 import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
@@ -65,7 +72,9 @@ import com.netflix.titus.common.util.time.Clock;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.master.MetricConstants;
 import com.netflix.titus.master.jobmanager.service.DefaultV3JobOperations.IndexKind;
+import com.netflix.titus.master.jobmanager.service.common.DifferenceResolverUtils;
 import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
+import com.netflix.titus.master.jobmanager.service.common.action.ArchivedTasks;
 import com.netflix.titus.master.jobmanager.service.common.action.TitusChangeAction;
 import com.netflix.titus.master.jobmanager.service.common.action.task.TaskTimeoutChangeActions;
 import com.netflix.titus.master.jobmanager.service.event.JobEventFactory;
@@ -118,6 +127,7 @@ public class JobReconciliationFrameworkFactory {
     private final ConstraintEvaluatorTransformer<Pair<String, String>> constraintEvaluatorTransformer;
     private final EntitySanitizer permissiveEntitySanitizer;
     private final EntitySanitizer strictEntitySanitizer;
+    private final TaskTimeoutWheel taskTimeoutWheel;
     private final InitializationErrorCollector errorCollector; // Keep reference so it is not garbage collected (it holds metrics)
     private final TitusRuntime titusRuntime;
     private final Registry registry;
@@ -127,6 +137,10 @@ public class JobReconciliationFrameworkFactory {
     private final Gauge loadedJobs;
     private final Gauge loadedTasks;
     private final Gauge storeLoadTimeMs;
+    private final Gauge consistencyCheckTimeMs;
+    private final Gauge engineInitTimeMs;
+    private final Gauge fenzoInitTimeMs;
+    private final Gauge bootstrapTimeMs;
 
     @Inject
     public JobReconciliationFrameworkFactory(JobManagerConfiguration jobManagerConfiguration,
@@ -140,10 +154,11 @@ public class JobReconciliationFrameworkFactory {
                                              ConstraintEvaluatorTransformer<Pair<String, String>> constraintEvaluatorTransformer,
                                              @Named(JOB_PERMISSIVE_SANITIZER) EntitySanitizer permissiveEntitySanitizer,
                                              @Named(JOB_STRICT_SANITIZER) EntitySanitizer strictEntitySanitizer,
+                                             TaskTimeoutWheel taskTimeoutWheel,
                                              TitusRuntime titusRuntime) {
         this(jobManagerConfiguration, batchDifferenceResolver, serviceDifferenceResolver, store, schedulingService, capacityGroupService,
                 systemSoftConstraint, systemHardConstraint, constraintEvaluatorTransformer, permissiveEntitySanitizer, strictEntitySanitizer,
-                titusRuntime, Optional.empty());
+                taskTimeoutWheel, titusRuntime, Optional.empty());
     }
 
     public JobReconciliationFrameworkFactory(JobManagerConfiguration jobManagerConfiguration,
@@ -157,6 +172,7 @@ public class JobReconciliationFrameworkFactory {
                                              ConstraintEvaluatorTransformer<Pair<String, String>> constraintEvaluatorTransformer,
                                              EntitySanitizer permissiveEntitySanitizer,
                                              EntitySanitizer strictEntitySanitizer,
+                                             TaskTimeoutWheel taskTimeoutWheel,
                                              TitusRuntime titusRuntime,
                                              Optional<Scheduler> optionalScheduler) {
         this.jobManagerConfiguration = jobManagerConfiguration;
@@ -168,6 +184,7 @@ public class JobReconciliationFrameworkFactory {
         this.constraintEvaluatorTransformer = constraintEvaluatorTransformer;
         this.permissiveEntitySanitizer = permissiveEntitySanitizer;
         this.strictEntitySanitizer = strictEntitySanitizer;
+        this.taskTimeoutWheel = taskTimeoutWheel;
         this.optionalScheduler = optionalScheduler;
         this.errorCollector = new InitializationErrorCollector(jobManagerConfiguration, titusRuntime);
         this.titusRuntime = titusRuntime;
@@ -177,6 +194,10 @@ public class JobReconciliationFrameworkFactory {
         this.loadedJobs = registry.gauge(ROOT_METRIC_NAME + "loadedJobs");
         this.loadedTasks = registry.gauge(ROOT_METRIC_NAME + "loadedTasks");
         this.storeLoadTimeMs = registry.gauge(ROOT_METRIC_NAME + "storeLoadTimeMs");
+        this.consistencyCheckTimeMs = registry.gauge(ROOT_METRIC_NAME + "consistencyCheckTimeMs");
+        this.engineInitTimeMs = registry.gauge(ROOT_METRIC_NAME + "engineInitTimeMs");
+        this.fenzoInitTimeMs = registry.gauge(ROOT_METRIC_NAME + "fenzoInitTimeMs");
+        this.bootstrapTimeMs = registry.gauge(ROOT_METRIC_NAME + "bootstrapTimeMs");
 
         this.dispatchingResolver = DifferenceResolvers.dispatcher(rootModel -> {
             Job<?> job = rootModel.getEntity();
@@ -192,53 +213,144 @@ public class JobReconciliationFrameworkFactory {
     }
 
     ReconciliationFramework<JobManagerReconcilerEvent> newInstance() {
-        List<Pair<Job, List<Task>>> jobsAndTasks = checkGlobalConsistency(loadJobsAndTasksFromStore(errorCollector));
-
-        // initialize fenzo with running tasks
-        List<InternalReconciliationEngine<JobManagerReconcilerEvent>> engines = new ArrayList<>();
-        for (Pair<Job, List<Task>> pair : jobsAndTasks) {
-            Job job = pair.getLeft();
-            List<Task> tasks = pair.getRight();
-            InternalReconciliationEngine<JobManagerReconcilerEvent> engine = newRestoredEngine(job, tasks);
-            engines.add(engine);
-            for (Task task : tasks) {
-                Optional<Task> validatedTask = validateTask(task);
-                if (validatedTask.isPresent()) {
-                    TaskFenzoCheck check = addTaskToFenzo(engine, job, task);
+        long bootstrapStartTime = clock.wallTime();
+        ForkJoinPool bootstrapPool = new ForkJoinPool(Math.max(1, jobManagerConfiguration.getBootstrapParallelism()));
+        try {
+            ConcurrentMap<String, List<Task>> archivedTasksByJobId = new ConcurrentHashMap<>();
+            List<Pair<Job, List<Task>>> loaded = loadJobsAndTasksFromStore(errorCollector, bootstrapPool, archivedTasksByJobId);
+
+            long startTime = clock.wallTime();
+            List<Pair<Job, List<Task>>> jobsAndTasks = checkGlobalConsistency(loaded);
+            consistencyCheckTimeMs.set(clock.wallTime() - startTime);
+
+            // Validate tasks and build the engines in parallel. The result order matches the store load order.
+            startTime = clock.wallTime();
+            List<RestoredJob> restoredJobs = runInPool(bootstrapPool, () -> jobsAndTasks.parallelStream()
+                    .map(pair -> restoreJob(pair.getLeft(), pair.getRight(), archivedTasksByJobId.getOrDefault(pair.getLeft().getId(), Collections.emptyList())))
+                    .collect(Collectors.toList())
+            );
+            engineInitTimeMs.set(clock.wallTime() - startTime);
+
+            // Fenzo is initialized from a single thread, with all Accepted tasks added in one batch.
+            startTime = clock.wallTime();
+            List<InternalReconciliationEngine<JobManagerReconcilerEvent>> engines = new ArrayList<>(restoredJobs.size());
+            List<QueuableTask> acceptedTasks = new ArrayList<>();
+            for (RestoredJob restoredJob : restoredJobs) {
+                engines.add(restoredJob.getEngine());
+                for (RestoredTask restoredTask : restoredJob.getTasks()) {
+                    Task task = restoredTask.getTask();
+                    TaskFenzoCheck check = restoredTask.getFenzoCheck();
+                    if (check == TaskFenzoCheck.AddedToFenzo) {
+                        if (task.getStatus().getState() == TaskState.Accepted) {
+                            acceptedTasks.add(restoredTask.getQueueableTask());
+                        } else {
+                            check = initRunningTaskInFenzo(restoredTask.getQueueableTask());
+                        }
+                    }
                     if (check == TaskFenzoCheck.FenzoAddError) {
                         errorCollector.taskAddToFenzoError(task.getId());
                     } else if (check == TaskFenzoCheck.Inconsistent) {
                         errorCollector.inconsistentTask(task.getId());
                     }
-                } else {
-                    errorCollector.invalidTaskRecord(task.getId());
                 }
             }
+            if (!acceptedTasks.isEmpty()) {
+                try {
+                    schedulingService.addTasks(acceptedTasks);
+                } catch (Exception e) {
+                    logger.error("Failed to add {} Accepted tasks to Fenzo queue with error:", acceptedTasks.size(), e);
+                    acceptedTasks.forEach(task -> errorCollector.taskAddToFenzoError(task.getId()));
+                }
+            }
+            fenzoInitTimeMs.set(clock.wallTime() - startTime);
+
+            errorCollector.failIfTooManyBadRecords();
+
+            logger.info("Job manager bootstrap completed in {}ms: storeLoad={}ms, consistencyCheck={}ms, engineInit={}ms, fenzoInit={}ms",
+                    clock.wallTime() - bootstrapStartTime, (long) storeLoadTimeMs.value(), (long) consistencyCheckTimeMs.value(),
+                    (long) engineInitTimeMs.value(), (long) fenzoInitTimeMs.value()
+            );
+
+            return new DefaultReconciliationFramework<>(
+                    engines,
+                    bootstrapModel -> newEngine(bootstrapModel, true),
+                    jobManagerConfiguration.getReconcilerIdleTimeoutMs(),
+                    jobManagerConfiguration.getReconcilerActiveTimeoutMs(),
+                    INDEX_COMPARATORS,
+                    registry,
+                    optionalScheduler
+            );
+        } finally {
+            bootstrapPool.shutdown();
+            bootstrapTimeMs.set(clock.wallTime() - bootstrapStartTime);
         }
+    }
 
-        errorCollector.failIfTooManyBadRecords();
-
-        return new DefaultReconciliationFramework<>(
-                engines,
-                bootstrapModel -> newEngine(bootstrapModel, true),
-                jobManagerConfiguration.getReconcilerIdleTimeoutMs(),
-                jobManagerConfiguration.getReconcilerActiveTimeoutMs(),
-                INDEX_COMPARATORS,
-                registry,
-                optionalScheduler
-        );
+    /**
+     * Validates the job tasks, builds the job reconciliation engine, and prepares the Fenzo queueable tasks. Invoked
+     * concurrently for different jobs, so it must not call Fenzo directly.
+     */
+    private RestoredJob restoreJob(Job job, List<Task> tasks, List<Task> archivedTasks) {
+        InternalReconciliationEngine<JobManagerReconcilerEvent> engine = newRestoredEngine(job, tasks, archivedTasks);
+        List<RestoredTask> restoredTasks = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (validateTask(task).isPresent()) {
+                restoredTasks.add(prepareFenzoTask(engine, job, task));
+            } else {
+                errorCollector.invalidTaskRecord(task.getId());
+            }
+        }
+        return new RestoredJob(engine, restoredTasks);
     }
 
-    private InternalReconciliationEngine<JobManagerReconcilerEvent> newRestoredEngine(Job job, List<Task> tasks) {
-        EntityHolder jobHolder = EntityHolder.newRoot(job.getId(), job);
+    private InternalReconciliationEngine<JobManagerReconcilerEvent> newRestoredEngine(Job job, List<Task> tasks, List<Task> archivedTasks) {
+        List<EntityHolder> taskHolders = new ArrayList<>(tasks.size());
         for (Task task : tasks) {
             EntityHolder taskHolder = EntityHolder.newRoot(task.getId(), task);
-            EntityHolder decorated = TaskTimeoutChangeActions.setTimeoutOnRestoreFromStore(jobManagerConfiguration, taskHolder, clock);
-            jobHolder = jobHolder.addChild(decorated);
+            taskHolders.add(TaskTimeoutChangeActions.setTimeoutOnRestoreFromStore(jobManagerConfiguration, taskHolder, clock, taskTimeoutWheel));
+        }
+        EntityHolder jobHolder = EntityHolder.newRoot(job.getId(), job).addChildren(taskHolders);
+        if (JobFunctions.isBatchJob(job)) {
+            jobHolder = restoreArchivedTasks(jobHolder, tasks, archivedTasks);
         }
         return newEngine(jobHolder, false);
     }
 
+    /**
+     * Finished batch tasks moved to the archive tier are not in the active task table, but their indexes must not be
+     * rescheduled. For each index without a live task, the latest archived task is restored into the archive tier, if
+     * it is not going to be retried. The archived tasks are loaded together with the active ones
+     * (see {@link #isMissingBatchTasks(Job, List)}).
+     */
+    private EntityHolder restoreArchivedTasks(EntityHolder jobHolder, List<Task> tasks, List<Task> archivedTasks) {
+        Job<BatchJobExt> job = jobHolder.getEntity();
+        if (archivedTasks.isEmpty()) {
+            return jobHolder;
+        }
+
+        Set<Integer> liveIndexes = tasks.stream().map(task -> ((BatchJobTask) task).getIndex()).collect(Collectors.toSet());
+        Map<Integer, BatchJobTask> latestArchivedByIndex = new HashMap<>();
+        for (Task task : archivedTasks) {
+            BatchJobTask batchTask = (BatchJobTask) task;
+            if (!liveIndexes.contains(batchTask.getIndex())) {
+                latestArchivedByIndex.merge(batchTask.getIndex(), batchTask,
+                        (first, second) -> first.getResubmitNumber() >= second.getResubmitNumber() ? first : second
+                );
+            }
+        }
+
+        EntityHolder result = jobHolder;
+        for (BatchJobTask task : latestArchivedByIndex.values()) {
+            if (DifferenceResolverUtils.isDone(job, task)) {
+                result = ArchivedTasks.addArchivedTask(result, task);
+            }
+        }
+        if (result != jobHolder) {
+            logger.info("Restored {} archived tasks of job {}", ArchivedTasks.countArchivedTasks(result), job.getId());
+        }
+        return result;
+    }
+
     private InternalReconciliationEngine<JobManagerReconcilerEvent> newEngine(EntityHolder bootstrapModel, boolean newlyCreated) {
         return new DefaultReconciliationEngine<>(bootstrapModel,
                 newlyCreated,
@@ -270,42 +382,23 @@ public class JobReconciliationFrameworkFactory {
      * <li>task ok, and should not be added to Fenzo</li>
      * <li>task has inconsistent state, and because of that should not be added</li>
      * </ul>
+     * For tasks that should be added to Fenzo, the {@link V3QueueableTask} is created here, but the actual Fenzo update
+     * is done later by the bootstrap thread.
      */
-    private TaskFenzoCheck addTaskToFenzo(ReconciliationEngine<JobManagerReconcilerEvent> engine, Job job, Task task) {
+    private RestoredTask prepareFenzoTask(ReconciliationEngine<JobManagerReconcilerEvent> engine, Job job, Task task) {
         TaskState taskState = task.getStatus().getState();
-        if (taskState == TaskState.Accepted) {
-            try {
-                Pair<Tier, String> tierAssignment = JobManagerUtil.getTierAssignment(job, capacityGroupService);
-                V3QueueableTask queueableTask = new V3QueueableTask(
-                        tierAssignment.getLeft(),
-                        tierAssignment.getRight(),
-                        job,
-                        task,
-                        () -> JobManagerUtil.filterActiveTaskIds(engine),
-                        constraintEvaluatorTransformer,
-                        systemSoftConstraint,
-                        systemHardConstraint
-                );
-                schedulingService.addTask(queueableTask);
-            } catch (Exception e) {
-                logger.error("Failed to add Accepted task to Fenzo queue: {} with error:", task.getId(), e);
-                return TaskFenzoCheck.FenzoAddError;
+        if (taskState != TaskState.Accepted) {
+            if (isTaskEffectivelyFinished(task)) {
+                return new RestoredTask(task, TaskFenzoCheck.EffectivelyFinished, null);
+            }
+            if (!hasPlacedTaskConsistentState(task)) {
+                return new RestoredTask(task, TaskFenzoCheck.Inconsistent, null);
             }
-            return TaskFenzoCheck.AddedToFenzo;
-        }
-
-        if (isTaskEffectivelyFinished(task)) {
-            return TaskFenzoCheck.EffectivelyFinished;
-        }
-
-        if (!hasPlacedTaskConsistentState(task)) {
-            return TaskFenzoCheck.Inconsistent;
         }
 
         try {
             Pair<Tier, String> tierAssignment = JobManagerUtil.getTierAssignment(job, capacityGroupService);
-            String host = task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_AGENT_HOST);
-            schedulingService.initRunningTask(new V3QueueableTask(
+            V3QueueableTask queueableTask = new V3QueueableTask(
                     tierAssignment.getLeft(),
                     tierAssignment.getRight(),
                     job,
@@ -314,7 +407,19 @@ public class JobReconciliationFrameworkFactory {
                     constraintEvaluatorTransformer,
                     systemSoftConstraint,
                     systemHardConstraint
-            ), host);
+            );
+            return new RestoredTask(task, TaskFenzoCheck.AddedToFenzo, queueableTask);
+        } catch (Exception e) {
+            logger.error("Failed to create Fenzo queueable task: {} with error:", task.getId(), e);
+            return new RestoredTask(task, TaskFenzoCheck.FenzoAddError, null);
+        }
+    }
+
+    private TaskFenzoCheck initRunningTaskInFenzo(V3QueueableTask queueableTask) {
+        Task task = queueableTask.getTask();
+        try {
+            String host = task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_AGENT_HOST);
+            schedulingService.initRunningTask(queueableTask, host);
         } catch (Exception e) {
             logger.error("Failed to initialize running task in Fenzo: {} with error:", task.getId(), e);
             return TaskFenzoCheck.FenzoAddError;
@@ -344,7 +449,9 @@ public class JobReconciliationFrameworkFactory {
         return true;
     }
 
-    private List<Pair<Job, List<Task>>> loadJobsAndTasksFromStore(InitializationErrorCollector errorCollector) {
+    private List<Pair<Job, List<Task>>> loadJobsAndTasksFromStore(InitializationErrorCollector errorCollector,
+                                                                 ForkJoinPool bootstrapPool,
+                                                                 ConcurrentMap<String, List<Task>> archivedTasksByJobId) {
         long startTime = clock.wallTime();
 
         // load all job/task pairs
@@ -353,23 +460,40 @@ public class JobReconciliationFrameworkFactory {
             jobTasksPairs = store.init().andThen(store.retrieveJobs().flatMap(retrievedJobsAndErrors -> {
                 errorCollector.corruptedJobRecords(retrievedJobsAndErrors.getRight());
 
-                List<Job<?>> retrievedJobs = retrievedJobsAndErrors.getLeft();
-                List<Observable<Pair<Job, Pair<List<Task>, Integer>>>> retrieveTasksObservables = new ArrayList<>();
-                for (Job job : retrievedJobs) {
-
+                List<Job> activeJobs = new ArrayList<>();
+                for (Job job : retrievedJobsAndErrors.getLeft()) {
                     // TODO Finished jobs that were not archived immediately should be moved by background archive process
                     if (job.getStatus().getState() == JobState.Finished) {
                         logger.info("Not loading finished job: {}", job.getId());
-                        continue;
+                    } else {
+                        activeJobs.add(job);
                     }
+                }
+
+                List<Pair<Job, Optional<Job>>> validatedJobs = runInPool(bootstrapPool, () -> activeJobs.parallelStream()
+                        .map(job -> Pair.of(job, validateJob(job)))
+                        .collect(Collectors.toList())
+                );
 
-                    Optional<Job> validatedJob = validateJob(job);
+                List<Observable<Pair<Job, Pair<List<Task>, Integer>>>> retrieveTasksObservables = new ArrayList<>();
+                for (Pair<Job, Optional<Job>> jobAndValidated : validatedJobs) {
+                    Optional<Job> validatedJob = jobAndValidated.getRight();
                     if (validatedJob.isPresent()) {
+                        Job job = validatedJob.get();
                         Observable<Pair<Job, Pair<List<Task>, Integer>>> retrieveTasksObservable = store.retrieveTasksForJob(job.getId())
-                                .map(taskList -> new Pair<>(validatedJob.get(), taskList));
+                                .flatMap(taskList -> {
+                                    if (!isMissingBatchTasks(job, taskList.getLeft())) {
+                                        return Observable.just(new Pair<>(job, taskList));
+                                    }
+                                    // Archived tasks are needed only by batch jobs with tasks moved to the archive tier.
+                                    return store.retrieveArchivedTasksForJob(job.getId()).toList().map(archivedTasks -> {
+                                        archivedTasksByJobId.put(job.getId(), archivedTasks);
+                                        return new Pair<>(job, taskList);
+                                    });
+                                });
                         retrieveTasksObservables.add(retrieveTasksObservable);
                     } else {
-                        errorCollector.invalidJob(job.getId());
+                        errorCollector.invalidJob(jobAndValidated.getLeft().getId());
                     }
                 }
                 return Observable.merge(retrieveTasksObservables, MAX_RETRIEVE_TASK_CONCURRENCY);
@@ -392,6 +516,13 @@ public class JobReconciliationFrameworkFactory {
         return jobTasksPairs.stream().map(p -> Pair.of(p.getLeft(), p.getRight().getLeft())).collect(Collectors.toList());
     }
 
+    private static boolean isMissingBatchTasks(Job<?> job, List<Task> tasks) {
+        if (!JobFunctions.isBatchJob(job)) {
+            return false;
+        }
+        return tasks.size() < ((BatchJobExt) job.getJobDescriptor().getExtensions()).getSize();
+    }
+
     private Optional<Job> validateJob(Job job) {
         // Perform strict validation for reporting purposes
         Set<ConstraintViolation<Job>> strictViolations = strictEntitySanitizer.validate(job);
@@ -489,6 +620,25 @@ public class JobReconciliationFrameworkFactory {
         return eniSGs.size() == 1 ? Optional.of(task) : Optional.empty();
     }
 
+    /**
+     * Runs a parallel stream computation in the given pool, so the bootstrap does not compete with other users of
+     * the common fork-join pool, and its parallelism is bounded.
+     */
+    private static <T> T runInPool(ForkJoinPool pool, Callable<T> computation) {
+        try {
+            return pool.submit(computation).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Job manager bootstrap interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Job manager bootstrap failure", cause);
+        }
+    }
+
     private static int compareByStatusCreationTime(EntityHolder holder1, EntityHolder holder2) {
         if (holder1.getEntity() instanceof Job) {
             Job job1 = holder1.getEntity();
@@ -499,4 +649,48 @@ public class JobReconciliationFrameworkFactory {
         Task task2 = holder2.getEntity();
         return Long.compare(task1.getStatus().getTimestamp(), task2.getStatus().getTimestamp());
     }
+
+    private static class RestoredJob {
+
+        private final InternalReconciliationEngine<JobManagerReconcilerEvent> engine;
+        private final List<RestoredTask> tasks;
+
+        private RestoredJob(InternalReconciliationEngine<JobManagerReconcilerEvent> engine, List<RestoredTask> tasks) {
+            this.engine = engine;
+            this.tasks = tasks;
+        }
+
+        private InternalReconciliationEngine<JobManagerReconcilerEvent> getEngine() {
+            return engine;
+        }
+
+        private List<RestoredTask> getTasks() {
+            return tasks;
+        }
+    }
+
+    private static class RestoredTask {
+
+        private final Task task;
+        private final TaskFenzoCheck fenzoCheck;
+        private final V3QueueableTask queueableTask;
+
+        private RestoredTask(Task task, TaskFenzoCheck fenzoCheck, V3QueueableTask queueableTask) {
+            this.task = task;
+            this.fenzoCheck = fenzoCheck;
+            this.queueableTask = queueableTask;
+        }
+
+        private Task getTask() {
+            return task;
+        }
+
+        private TaskFenzoCheck getFenzoCheck() {
+            return fenzoCheck;
+        }
+
+        private V3QueueableTask getQueueableTask() {
+            return queueableTask;
+        }
+    }
 }
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -30,12 +31,15 @@ import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.netflix.spectator.api.Gauge;
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.api.model.ApplicationSLA;
 import com.netflix.titus.api.model.Tier;
@@ -43,27 +47,34 @@ import com.netflix.titus.api.model.v2.V2JobState;
 import com.netflix.titus.api.model.v2.parameter.Parameters;
 import com.netflix.titus.api.store.v2.V2JobMetadata;
 import com.netflix.titus.api.store.v2.V2WorkerMetadata;
+import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.DateTimeExt;
 import com.netflix.titus.common.util.StringExt;
 import com.netflix.titus.common.util.guice.annotation.Activator;
-import com.netflix.titus.common.util.histogram.Histogram;
+import com.netflix.titus.common.util.histogram.AgeHistogram;
 import com.netflix.titus.common.util.histogram.HistogramDescriptor;
 import com.netflix.titus.common.util.rx.ObservableExt;
+import com.netflix.titus.common.util.time.Clock;
 import com.netflix.titus.master.MetricConstants;
+import com.netflix.titus.master.Status;
 import com.netflix.titus.master.job.V2JobMgrIntf;
 import com.netflix.titus.master.job.V2JobOperations;
+import com.netflix.titus.master.job.worker.WorkerStateMonitor;
 import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Completable;
+import rx.Observable;
+import rx.Scheduler;
 import rx.Subscription;
 import rx.schedulers.Schedulers;
 
 /**
- * Supplementary metrics based on both job/task state, and elapsed time. These metrics cannot be computed only
- * in response to system state change events. Instead, they are recomputed at regular interval.
- * <p>
+ * Supplementary metrics based on both job/task state, and elapsed time. Task state changes are applied incrementally
+ * from the job manager event streams to per capacity group/task state {@link AgeHistogram}s. At regular interval
+ * the histograms are advanced to the current time (which only touches tasks that moved to another bucket), and the
+ * gauges are updated. A full state reload is done at startup, and each time the set of capacity groups changes.
  */
 @Singleton
 public class TaskLivenessMetrics {
@@ -73,7 +84,8 @@ public class TaskLivenessMetrics {
     private static final String ROOT_METRIC_NAME = MetricConstants.METRIC_ROOT + "jobManager.taskLiveness.";
     private static final String TASK_METRIC_NAME = ROOT_METRIC_NAME + "duration";
 
-    private static final List<String> TRACKED_STATES = Arrays.asList(
+    @VisibleForTesting
+    static final List<String> TRACKED_STATES = Arrays.asList(
             TaskState.Accepted.name(),
             TaskState.Launched.name(),
             TaskState.StartInitiated.name(),
@@ -81,7 +93,8 @@ public class TaskLivenessMetrics {
             TaskState.KillInitiated.name()
     );
 
-    private static final HistogramDescriptor HISTOGRAM_DESCRIPTOR = HistogramDescriptor.histogramOf(
+    @VisibleForTesting
+    static final HistogramDescriptor HISTOGRAM_DESCRIPTOR = HistogramDescriptor.histogramOf(
             TimeUnit.MINUTES.toMillis(1),
             TimeUnit.MINUTES.toMillis(15),
             TimeUnit.MINUTES.toMillis(30),
@@ -99,31 +112,79 @@ public class TaskLivenessMetrics {
     private final V2JobOperations v2JobOperations;
     private final V3JobOperations v3JobOperations;
     private final JobManagerConfiguration configuration;
+    private final Observable<JobManagerEvent<?>> v3JobEvents;
+    private final Observable<Status> v2WorkerEvents;
     private final Registry registry;
+    private final Clock clock;
+    private final Scheduler scheduler;
 
     private final Map<String, Map<String, List<Gauge>>> capacityGroupsMetrics = new HashMap<>();
 
+    /**
+     * Capacity group name -> task state -> histogram.
+     */
+    private final Map<String, Map<String, AgeHistogram>> capacityGroupsHistograms = new HashMap<>();
+    private final Map<String, TrackedTask> trackedTasks = new HashMap<>();
+    private final Map<String, Set<String>> v2JobTaskIds = new HashMap<>();
+    private Map<String, Tier> tierMap = Collections.emptyMap();
+
     private Subscription subscription;
+    private Subscription v3EventSubscription;
+    private Subscription v2EventSubscription;
 
     @Inject
     public TaskLivenessMetrics(ApplicationSlaManagementService applicationSlaManagementService,
                                V2JobOperations v2JobOperations,
                                V3JobOperations v3JobOperations,
+                               WorkerStateMonitor workerStateMonitor,
                                JobManagerConfiguration configuration,
-                               Registry registry) {
+                               TitusRuntime titusRuntime) {
+        this(applicationSlaManagementService,
+                v2JobOperations,
+                v3JobOperations,
+                titusRuntime.persistentStream(Observable.defer(v3JobOperations::observeJobs)),
+                titusRuntime.persistentStream(Observable.defer(workerStateMonitor::getAllStatusObservable)),
+                configuration,
+                titusRuntime,
+                Schedulers.computation()
+        );
+    }
+
+    @VisibleForTesting
+    TaskLivenessMetrics(ApplicationSlaManagementService applicationSlaManagementService,
+                        V2JobOperations v2JobOperations,
+                        V3JobOperations v3JobOperations,
+                        Observable<JobManagerEvent<?>> v3JobEvents,
+                        Observable<Status> v2WorkerEvents,
+                        JobManagerConfiguration configuration,
+                        TitusRuntime titusRuntime,
+                        Scheduler scheduler) {
         this.applicationSlaManagementService = applicationSlaManagementService;
         this.v2JobOperations = v2JobOperations;
         this.v3JobOperations = v3JobOperations;
+        this.v3JobEvents = v3JobEvents;
+        this.v2WorkerEvents = v2WorkerEvents;
         this.configuration = configuration;
-        this.registry = registry;
+        this.registry = titusRuntime.getRegistry();
+        this.clock = titusRuntime.getClock();
+        this.scheduler = scheduler;
     }
 
     @Activator
     public void enterActiveMode() {
+        // Subscribe first, so no change is lost between the initial state load and the event stream subscription.
+        this.v3EventSubscription = v3JobEvents.subscribe(this::apply);
+        this.v2EventSubscription = v2WorkerEvents.subscribe(status -> {
+            if (status.getJobId() != null) {
+                applyV2JobChange(status.getJobId());
+            }
+        });
+        resync();
+
         long intervalMs = Math.max(1_000, configuration.getTaskLivenessPollerIntervalMs());
         this.subscription = ObservableExt.schedule(
                 ROOT_METRIC_NAME + "scheduler", registry, "TaskLivenessRefreshAction",
-                Completable.fromAction(this::refresh), intervalMs, intervalMs, TimeUnit.MILLISECONDS, Schedulers.computation()
+                Completable.fromAction(this::refresh), intervalMs, intervalMs, TimeUnit.MILLISECONDS, scheduler
         ).subscribe(result ->
                 result.ifPresent(error -> logger.warn("Task liveness metrics refresh error", error))
         );
@@ -131,14 +192,139 @@ public class TaskLivenessMetrics {
 
     @PreDestroy
     public void shutdown() {
-        ObservableExt.safeUnsubscribe(subscription);
+        ObservableExt.safeUnsubscribe(subscription, v3EventSubscription, v2EventSubscription);
+    }
+
+    @VisibleForTesting
+    synchronized void refresh() {
+        Map<String, Tier> newTierMap = buildTierMap();
+        if (!newTierMap.keySet().equals(tierMap.keySet())) {
+            // Capacity group assignment depends on the set of known capacity groups, so it must be recomputed.
+            resync(newTierMap);
+        } else {
+            this.tierMap = newTierMap;
+        }
+
+        long now = clock.wallTime();
+        capacityGroupsHistograms.values().forEach(histograms -> histograms.values().forEach(h -> h.advance(now)));
+
+        resetDroppedCapacityGroups(tierMap.keySet());
+        updateCapacityGroupCounters();
+    }
+
+    /**
+     * Returns the current histogram counters, advanced to the current time (mapOf(capacityGroupName -> mapOf(taskState, counters))).
+     */
+    @VisibleForTesting
+    synchronized Map<String, Map<String, List<Long>>> getCounters() {
+        long now = clock.wallTime();
+        Map<String, Map<String, List<Long>>> result = new HashMap<>();
+        capacityGroupsHistograms.forEach((capacityGroup, histograms) -> histograms.forEach((state, histogram) -> {
+            histogram.advance(now);
+            if (!histogram.isEmpty()) {
+                result.computeIfAbsent(capacityGroup, g -> new HashMap<>()).put(state, histogram.getCounters());
+            }
+        }));
+        return result;
     }
 
-    private void refresh() {
-        Map<String, Tier> tierMap = buildTierMap();
-        Map<String, Map<String, Histogram.Builder>> capacityGroupsHistograms = buildCapacityGroupsHistograms(tierMap.keySet());
-        resetDroppedCapacityGroups(capacityGroupsHistograms.keySet());
-        updateCapacityGroupCounters(capacityGroupsHistograms, tierMap);
+    private synchronized void resync() {
+        resync(buildTierMap());
+    }
+
+    private void resync(Map<String, Tier> newTierMap) {
+        this.tierMap = newTierMap;
+        capacityGroupsHistograms.clear();
+        trackedTasks.clear();
+        v2JobTaskIds.clear();
+
+        v2JobOperations.getAllJobMgrs().forEach(jmgr -> {
+            V2JobMetadata jobMetadata = jmgr.getJobMetadata();
+            if (jobMetadata != null) {
+                updateV2Job(jobMetadata.getJobId(), jmgr);
+            }
+        });
+        v3JobOperations.getJobs().forEach(job -> {
+            List<Task> tasks;
+            try {
+                tasks = v3JobOperations.getTasks(job.getId());
+            } catch (Exception e) {
+                // We work on live data, which may be removed at any point in time.
+                return;
+            }
+            String capacityGroup = resolveCapacityGroup(job);
+            tasks.forEach(task -> updateV3Task(capacityGroup, task));
+        });
+    }
+
+    private synchronized void apply(JobManagerEvent<?> event) {
+        if (event instanceof TaskUpdateEvent) {
+            TaskUpdateEvent taskEvent = (TaskUpdateEvent) event;
+            updateV3Task(resolveCapacityGroup(taskEvent.getCurrentJob()), taskEvent.getCurrentTask());
+        }
+    }
+
+    private synchronized void applyV2JobChange(String jobId) {
+        updateV2Job(jobId, v2JobOperations.getJobMgr(jobId));
+    }
+
+    private void updateV3Task(String capacityGroup, Task task) {
+        track(task.getId(), capacityGroup, task.getStatus().getState().name(), task.getStatus().getTimestamp());
+    }
+
+    private void updateV2Job(String jobId, V2JobMgrIntf jmgr) {
+        Set<String> previousTaskIds = v2JobTaskIds.remove(jobId);
+        Set<String> currentTaskIds = new HashSet<>();
+        Optional<String> capacityGroup = jmgr == null ? Optional.empty() : resolveCapacityGroup(jmgr);
+        if (capacityGroup.isPresent()) {
+            jmgr.getWorkers().forEach(worker -> {
+                String taskId = worker.getWorkerInstanceId();
+                if (track(taskId, capacityGroup.get(), V2JobState.toV3TaskState(worker.getState()).name(), getTimestamp(worker))) {
+                    currentTaskIds.add(taskId);
+                }
+            });
+        }
+        if (previousTaskIds != null) {
+            CollectionsExt.copyAndRemove(previousTaskIds, currentTaskIds).forEach(this::untrack);
+        }
+        if (!currentTaskIds.isEmpty()) {
+            v2JobTaskIds.put(jobId, currentTaskIds);
+        }
+    }
+
+    /**
+     * Records a task in a histogram for the given capacity group/state. Returns false if the task is not in a tracked
+     * state, in which case it is removed from the histograms it was previously in.
+     */
+    private boolean track(String taskId, String capacityGroup, String state, long timestamp) {
+        if (timestamp <= 0 || !TRACKED_STATES.contains(state)) {
+            untrack(taskId);
+            return false;
+        }
+        TrackedTask previous = trackedTasks.get(taskId);
+        if (previous != null && (!previous.capacityGroup.equals(capacityGroup) || !previous.state.equals(state))) {
+            untrack(taskId);
+        }
+        capacityGroupsHistograms
+                .computeIfAbsent(capacityGroup, g -> new HashMap<>())
+                .computeIfAbsent(state, s -> new AgeHistogram(HISTOGRAM_DESCRIPTOR, clock.wallTime()))
+                .add(taskId, timestamp);
+        trackedTasks.put(taskId, new TrackedTask(capacityGroup, state));
+        return true;
+    }
+
+    private void untrack(String taskId) {
+        TrackedTask tracked = trackedTasks.remove(taskId);
+        if (tracked == null) {
+            return;
+        }
+        Map<String, AgeHistogram> histograms = capacityGroupsHistograms.get(tracked.capacityGroup);
+        if (histograms != null) {
+            AgeHistogram histogram = histograms.get(tracked.state);
+            if (histogram != null) {
+                histogram.remove(taskId);
+            }
+        }
     }
 
     private void resetDroppedCapacityGroups(Set<String> knownCapacityGroups) {
@@ -148,18 +334,19 @@ public class TaskLivenessMetrics {
         });
     }
 
-    private void updateCapacityGroupCounters(Map<String, Map<String, Histogram.Builder>> capacityGroupsHistograms, Map<String, Tier> tierMap) {
-        capacityGroupsHistograms.forEach((capacityGroup, histograms) -> {
+    private void updateCapacityGroupCounters() {
+        tierMap.forEach((capacityGroup, tier) -> {
+            Map<String, AgeHistogram> histograms = capacityGroupsHistograms.getOrDefault(capacityGroup, Collections.emptyMap());
             Id baseId = registry.createId(
                     TASK_METRIC_NAME,
-                    "tier", tierMap.get(capacityGroup).name(),
+                    "tier", tier.name(),
                     "capacityGroup", capacityGroup
             );
             Map<String, List<Gauge>> capacityMetricsByState = capacityGroupsMetrics.computeIfAbsent(capacityGroup, k -> new HashMap<>());
             for (String state : TRACKED_STATES) {
                 List<Gauge> updatedGauges = updateStateCounters(baseId, state, histograms.get(state), capacityMetricsByState.get(state));
                 if (updatedGauges.isEmpty()) {
-                    capacityMetricsByState.remove(capacityGroup);
+                    capacityMetricsByState.remove(state);
                 } else {
                     capacityMetricsByState.put(state, updatedGauges);
                 }
@@ -167,8 +354,8 @@ public class TaskLivenessMetrics {
         });
     }
 
-    private List<Gauge> updateStateCounters(Id baseId, String state, Histogram.Builder histogramBuilder, List<Gauge> gauges) {
-        if (histogramBuilder == null) {
+    private List<Gauge> updateStateCounters(Id baseId, String state, AgeHistogram histogram, List<Gauge> gauges) {
+        if (histogram == null || histogram.isEmpty()) {
             // Nothing running for this state, reset gauges
             if (gauges != null) {
                 gauges.forEach(g -> g.set(0));
@@ -176,7 +363,7 @@ public class TaskLivenessMetrics {
             return Collections.emptyList();
         }
 
-        List<Long> counters = histogramBuilder.build().getCounters();
+        List<Long> counters = histogram.getCounters();
 
         // First time we have data for this capacity group.
         if (gauges == null) {
@@ -205,62 +392,7 @@ public class TaskLivenessMetrics {
         return gauges;
     }
 
-    /**
-     * Traverse all active tasks and collect their state and the time they stayed in this state (the latter in form of histogram).
-     *
-     * @return mapOf(capacityGroupName - > mapOf ( taskState, histogram))
-     */
-    private Map<String, Map<String, Histogram.Builder>> buildCapacityGroupsHistograms(Set<String> capacityGroups) {
-        Map<String, Map<String, Histogram.Builder>> capacityGroupsHistograms = newCapacityHistograms(capacityGroups);
-        v2JobOperations.getAllJobMgrs()
-                .forEach(jmgr -> resolveCapacityGroup(jmgr, capacityGroupsHistograms).ifPresent(capacityGroup ->
-                        buildCapacityGroupHistogram(jmgr, capacityGroup, capacityGroupsHistograms)
-                ));
-        v3JobOperations.getJobs()
-                .forEach(job -> resolveCapacityGroup(job, capacityGroupsHistograms).ifPresent(capacityGroup ->
-                        buildCapacityGroupHistogram(job, capacityGroup, capacityGroupsHistograms)
-                ));
-        return capacityGroupsHistograms;
-    }
-
-    private void buildCapacityGroupHistogram(V2JobMgrIntf jmgr, String capacityGroup, Map<String, Map<String, Histogram.Builder>> capacityGroupsHistograms) {
-        // 'capacityGroupsHistograms' is pre-initialized, but to avoid race condition we make extra check here.
-        Map<String, Histogram.Builder> capacityGroupHistograms = capacityGroupsHistograms.computeIfAbsent(capacityGroup, k -> new HashMap<>());
-        jmgr.getWorkers().forEach(worker -> {
-            long timestamp = getTimestamp(worker);
-            if (timestamp > 0) {
-                long durationMs = System.currentTimeMillis() - timestamp;
-                capacityGroupHistograms.computeIfAbsent(
-                        V2JobState.toV3TaskState(worker.getState()).name(),
-                        name -> Histogram.newBuilder(HISTOGRAM_DESCRIPTOR)
-                ).increment(durationMs);
-            }
-        });
-    }
-
-    private void buildCapacityGroupHistogram(Job<?> job, String capacityGroup, Map<String, Map<String, Histogram.Builder>> capacityGroupsHistograms) {
-        // 'capacityGroupsHistograms' is pre-initialized, but to avoid race condition we make extra check here.
-        Map<String, Histogram.Builder> capacityGroupHistograms = capacityGroupsHistograms.computeIfAbsent(capacityGroup, k -> new HashMap<>());
-        List<Task> tasks;
-        try {
-            tasks = v3JobOperations.getTasks(job.getId());
-        } catch (Exception e) {
-            // We work on live data, which may be removed at any point in time.
-            return;
-        }
-        tasks.forEach(task -> {
-            long timestamp = task.getStatus().getTimestamp();
-            if (timestamp > 0) {
-                long durationMs = System.currentTimeMillis() - timestamp;
-                capacityGroupHistograms.computeIfAbsent(
-                        task.getStatus().getState().name(),
-                        name -> Histogram.newBuilder(HISTOGRAM_DESCRIPTOR)
-                ).increment(durationMs);
-            }
-        });
-    }
-
-    private Optional<String> resolveCapacityGroup(V2JobMgrIntf jmgr, Map<String, Map<String, Histogram.Builder>> capacityHistograms) {
+    private Optional<String> resolveCapacityGroup(V2JobMgrIntf jmgr) {
         V2JobMetadata jobMetadata = jmgr.getJobMetadata();
         if (jobMetadata == null) {
             return Optional.empty();
@@ -272,18 +404,18 @@ public class TaskLivenessMetrics {
         if (capacityGroup == null) {
             return Optional.of(ApplicationSlaManagementService.DEFAULT_APPLICATION);
         }
-        return Optional.of(capacityHistograms.containsKey(capacityGroup) ? capacityGroup : ApplicationSlaManagementService.DEFAULT_APPLICATION);
+        return Optional.of(tierMap.containsKey(capacityGroup) ? capacityGroup : ApplicationSlaManagementService.DEFAULT_APPLICATION);
     }
 
-    private Optional<String> resolveCapacityGroup(Job<?> job, Map<String, Map<String, Histogram.Builder>> capacityHistograms) {
+    private String resolveCapacityGroup(Job<?> job) {
         String capacityGroup = job.getJobDescriptor().getCapacityGroup();
         if (StringExt.isEmpty(capacityGroup)) {
             capacityGroup = job.getJobDescriptor().getApplicationName();
         }
         if (StringExt.isEmpty(capacityGroup)) {
-            return Optional.of(ApplicationSlaManagementService.DEFAULT_APPLICATION);
+            return ApplicationSlaManagementService.DEFAULT_APPLICATION;
         }
-        return Optional.of(capacityHistograms.containsKey(capacityGroup) ? capacityGroup : ApplicationSlaManagementService.DEFAULT_APPLICATION);
+        return tierMap.containsKey(capacityGroup) ? capacityGroup : ApplicationSlaManagementService.DEFAULT_APPLICATION;
     }
 
     private Map<String, Tier> buildTierMap() {
@@ -291,10 +423,6 @@ public class TaskLivenessMetrics {
                 .collect(Collectors.toMap(ApplicationSLA::getAppName, ApplicationSLA::getTier));
     }
 
-    private Map<String, Map<String, Histogram.Builder>> newCapacityHistograms(Set<String> capacityGroups) {
-        return capacityGroups.stream().collect(Collectors.toMap(name -> name, name -> new HashMap<>()));
-    }
-
     private long getTimestamp(V2WorkerMetadata worker) {
         V2JobState state = worker.getState();
         long timestamp;
@@ -319,4 +447,15 @@ public class TaskLivenessMetrics {
         }
         return timestamp;
     }
+
+    private static class TrackedTask {
+
+        private final String capacityGroup;
+        private final String state;
+
+        private TrackedTask(String capacityGroup, String state) {
+            this.capacityGroup = capacityGroup;
+            this.state = state;
+        }
+    }
 }
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.DistributionSummary;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations.Trigger;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.guice.annotation.Activator;
+import com.netflix.titus.common.util.rx.ObservableExt;
+import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.MetricConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Completable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.schedulers.Schedulers;
+
+/**
+ * Accumulates Mesos task status updates, and applies them periodically in a single reconciliation engine transaction
+ * per job. This way a burst of status updates (for example after an agent failure, or a large job scale up) results in
+ * one change action per job, instead of one per status update. Multiple updates of the same task received within a
+ * batching window are coalesced by composing their update functions in the order they arrived, so no intermediate
+ * state transition is lost from the task status history. The transaction covers only the updated tasks, so it is
+ * not serialized with the change actions of the job or its other tasks.
+ * <p>
+ * Until the component is activated, or if batching is disabled (window set to 0), each update is applied immediately.
+ */
+@Singleton
+public class TaskStatusUpdateBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskStatusUpdateBatcher.class);
+
+    private static final String ROOT_METRIC_NAME = MetricConstants.METRIC_ROOT + "jobManager.statusIngestion.";
+
+    private final V3JobOperations v3JobOperations;
+    private final JobManagerConfiguration configuration;
+    private final Registry registry;
+    private final Clock clock;
+    private final Scheduler scheduler;
+
+    private final Counter eventsReceivedCounter;
+    private final Counter taskUpdatesCounter;
+    private final DistributionSummary batchSizeSummary;
+    private final Timer ingestionLagTimer;
+    private final AtomicInteger pendingCount;
+
+    private final Object lock = new Object();
+
+    /**
+     * Job id -> task id -> pending update. Modified under {@link #lock}.
+     */
+    private Map<String, Map<String, PendingUpdate>> pendingUpdates = new HashMap<>();
+
+    private volatile boolean active;
+    private Subscription subscription;
+
+    @Inject
+    public TaskStatusUpdateBatcher(V3JobOperations v3JobOperations,
+                                   JobManagerConfiguration configuration,
+                                   TitusRuntime titusRuntime) {
+        this(v3JobOperations, configuration, titusRuntime, Schedulers.computation());
+    }
+
+    @VisibleForTesting
+    TaskStatusUpdateBatcher(V3JobOperations v3JobOperations,
+                            JobManagerConfiguration configuration,
+                            TitusRuntime titusRuntime,
+                            Scheduler scheduler) {
+        this.v3JobOperations = v3JobOperations;
+        this.configuration = configuration;
+        this.registry = titusRuntime.getRegistry();
+        this.clock = titusRuntime.getClock();
+        this.scheduler = scheduler;
+
+        this.eventsReceivedCounter = registry.counter(ROOT_METRIC_NAME + "eventsReceived");
+        this.taskUpdatesCounter = registry.counter(ROOT_METRIC_NAME + "taskUpdates");
+        this.batchSizeSummary = registry.distributionSummary(ROOT_METRIC_NAME + "batchSize");
+        this.ingestionLagTimer = registry.timer(ROOT_METRIC_NAME + "ingestionLag");
+        this.pendingCount = registry.gauge(ROOT_METRIC_NAME + "pending", new AtomicInteger());
+    }
+
+    @Activator
+    public void enterActiveMode() {
+        long windowMs = configuration.getTaskStatusUpdateBatchWindowMs();
+        if (windowMs <= 0) {
+            logger.info("Task status update batching disabled");
+            return;
+        }
+        this.subscription = ObservableExt.schedule(
+                ROOT_METRIC_NAME + "scheduler", registry, "TaskStatusUpdateBatcher",
+                Completable.fromAction(this::flush), windowMs, windowMs, TimeUnit.MILLISECONDS, scheduler
+        ).subscribe(result ->
+                result.ifPresent(error -> logger.warn("Task status update batch processing error", error))
+        );
+        this.active = true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.active = false;
+        ObservableExt.safeUnsubscribe(subscription);
+        flush();
+    }
+
+    /**
+     * Submits a task update to be applied in the next batch.
+     */
+    public void submit(String jobId, String taskId, Function<Task, Optional<Task>> changeFunction, String reason) {
+        eventsReceivedCounter.increment();
+        long receivedTimestamp = clock.wallTime();
+
+        if (!active) {
+            taskUpdatesCounter.increment();
+            batchSizeSummary.record(1);
+            v3JobOperations.updateTask(taskId, changeFunction, Trigger.Mesos, reason).subscribe(
+                    () -> {
+                        recordIngestionLag(receivedTimestamp);
+                        logger.info("Applied task {} update: {}", taskId, reason);
+                    },
+                    e -> logger.warn("Could not apply task {} update: {} ({})", taskId, reason, e.toString())
+            );
+            return;
+        }
+
+        synchronized (lock) {
+            Map<String, PendingUpdate> jobUpdates = pendingUpdates.computeIfAbsent(jobId, id -> new HashMap<>());
+            PendingUpdate previous = jobUpdates.get(taskId);
+            if (previous == null) {
+                jobUpdates.put(taskId, new PendingUpdate(changeFunction, reason, receivedTimestamp));
+                pendingCount.incrementAndGet();
+            } else {
+                jobUpdates.put(taskId, previous.andThen(changeFunction, reason));
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void flush() {
+        Map<String, Map<String, PendingUpdate>> batch;
+        synchronized (lock) {
+            if (pendingUpdates.isEmpty()) {
+                return;
+            }
+            batch = pendingUpdates;
+            pendingUpdates = new HashMap<>();
+            pendingCount.set(0);
+        }
+        batch.forEach(this::applyJobUpdates);
+    }
+
+    private void applyJobUpdates(String jobId, Map<String, PendingUpdate> jobUpdates) {
+        Map<String, Pair<Function<Task, Optional<Task>>, String>> changeFunctions = new HashMap<>();
+        List<Long> receivedTimestamps = new ArrayList<>(jobUpdates.size());
+        jobUpdates.forEach((taskId, update) -> {
+            changeFunctions.put(taskId, Pair.of(update.getChangeFunction(), update.getReason()));
+            receivedTimestamps.add(update.getReceivedTimestamp());
+        });
+
+        taskUpdatesCounter.increment(changeFunctions.size());
+        batchSizeSummary.record(changeFunctions.size());
+
+        String summary = "Mesos -> " + changeFunctions.size() + " task status update(s)";
+        v3JobOperations.updateTasks(jobId, changeFunctions, Trigger.Mesos, summary).subscribe(
+                () -> {
+                    receivedTimestamps.forEach(this::recordIngestionLag);
+                    logger.info("Applied status updates of tasks {} in job {}", changeFunctions.keySet(), jobId);
+                },
+                e -> logger.warn("Could not apply status updates of tasks {} in job {} ({})", changeFunctions.keySet(), jobId, e.toString())
+        );
+    }
+
+    private void recordIngestionLag(long receivedTimestamp) {
+        ingestionLagTimer.record(Math.max(0, clock.wallTime() - receivedTimestamp), TimeUnit.MILLISECONDS);
+    }
+
+    private static class PendingUpdate {
+
+        private final Function<Task, Optional<Task>> changeFunction;
+        private final String reason;
+        private final long receivedTimestamp;
+
+        private PendingUpdate(Function<Task, Optional<Task>> changeFunction, String reason, long receivedTimestamp) {
+            this.changeFunction = changeFunction;
+            this.reason = reason;
+            this.receivedTimestamp = receivedTimestamp;
+        }
+
+        private Function<Task, Optional<Task>> getChangeFunction() {
+            return changeFunction;
+        }
+
+        private String getReason() {
+            return reason;
+        }
+
+        private long getReceivedTimestamp() {
+            return receivedTimestamp;
+        }
+
+        /**
+         * Composes this update with the next one. The next update function is applied to the result of this one,
+         * or to the original task if this update was a no-op.
+         */
+        private PendingUpdate andThen(Function<Task, Optional<Task>> nextChangeFunction, String nextReason) {
+            Function<Task, Optional<Task>> composed = task -> {
+                Optional<Task> first = changeFunction.apply(task);
+                Optional<Task> second = nextChangeFunction.apply(first.orElse(task));
+                return second.isPresent() ? second : first;
+            };
+            return new PendingUpdate(composed, reason + "; " + nextReason, receivedTimestamp);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.rx.ObservableExt;
+import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.common.util.time.HierarchicalTimerWheel;
+import com.netflix.titus.master.MetricConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Completable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.schedulers.Schedulers;
+
+/**
+ * Tracks deadlines of tasks in transient states (Launched, StartInitiated, KillInitiated), shared by all reconciliation
+ * engines. A deadline is armed when the corresponding timeout tag is set on a task, and when it elapses, the
+ * registered handler is called, which requests the timeout handling in the task's reconciliation engine. This way
+ * timeouts are detected within a timer tick from their deadline, without scanning all tasks on each reconciliation cycle.
+ * <p>
+ * At most one deadline is armed per task. An elapsed deadline stays in flight until its handling completes (see
+ * {@link #onTimeoutHandled(TaskStateTimeout)}), so it is not armed again while the timeout action is queued in
+ * the engine. Deadlines are disarmed when tasks leave the armed state, but a state change may race with the timer,
+ * so the handler must still verify that the task is in the armed state.
+ */
+@Singleton
+public class TaskTimeoutWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskTimeoutWheel.class);
+
+    private static final String ROOT_METRIC_NAME = MetricConstants.METRIC_ROOT + "jobManager.taskTimeouts.";
+
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 4;
+
+    private final JobManagerConfiguration configuration;
+    private final Registry registry;
+    private final Clock clock;
+    private final Scheduler scheduler;
+
+    private final Counter firedCounter;
+    private final Timer firingLagTimer;
+    private final AtomicInteger armedCount;
+
+    private final Object lock = new Object();
+
+    /**
+     * Modified under {@link #lock}.
+     */
+    private final HierarchicalTimerWheel<TaskStateTimeout> wheel;
+    private final Map<String, HierarchicalTimerWheel.Timeout<TaskStateTimeout>> timeoutsByTaskId = new HashMap<>();
+    private final Map<String, TaskStateTimeout> inFlightByTaskId = new HashMap<>();
+
+    private volatile Consumer<TaskStateTimeout> timeoutHandler;
+    private Subscription subscription;
+
+    @Inject
+    public TaskTimeoutWheel(JobManagerConfiguration configuration, TitusRuntime titusRuntime) {
+        this(configuration, titusRuntime, Schedulers.computation());
+    }
+
+    @VisibleForTesting
+    public TaskTimeoutWheel(JobManagerConfiguration configuration, TitusRuntime titusRuntime, Scheduler scheduler) {
+        this.configuration = configuration;
+        this.registry = titusRuntime.getRegistry();
+        this.clock = titusRuntime.getClock();
+        this.scheduler = scheduler;
+
+        this.wheel = new HierarchicalTimerWheel<>(Math.max(1, configuration.getTaskStateTimeoutTickMs()), WHEEL_SIZE, WHEEL_LEVELS, clock.wallTime());
+
+        this.firedCounter = registry.counter(ROOT_METRIC_NAME + "fired");
+        this.firingLagTimer = registry.timer(ROOT_METRIC_NAME + "firingLag");
+        this.armedCount = registry.gauge(ROOT_METRIC_NAME + "armed", new AtomicInteger());
+    }
+
+    /**
+     * Starts the timer. Elapsed deadlines are passed to the given handler on the timer thread.
+     */
+    public void start(Consumer<TaskStateTimeout> timeoutHandler) {
+        Preconditions.checkState(this.timeoutHandler == null, "Task timeout wheel already started");
+        this.timeoutHandler = timeoutHandler;
+
+        long tickMs = Math.max(1, configuration.getTaskStateTimeoutTickMs());
+        this.subscription = ObservableExt.schedule(
+                ROOT_METRIC_NAME + "scheduler", registry, "TaskTimeoutWheel",
+                Completable.fromAction(this::advance), tickMs, tickMs, TimeUnit.MILLISECONDS, scheduler
+        ).subscribe(result ->
+                result.ifPresent(error -> logger.warn("Task timeout processing error", error))
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ObservableExt.safeUnsubscribe(subscription);
+    }
+
+    /**
+     * Arms a deadline for a task in the given state, replacing the previously armed one, if any.
+     */
+    public void arm(String taskId, TaskState taskState, long deadlineMs) {
+        synchronized (lock) {
+            HierarchicalTimerWheel.Timeout<TaskStateTimeout> previous = timeoutsByTaskId.remove(taskId);
+            if (previous != null) {
+                previous.cancel();
+            }
+            inFlightByTaskId.remove(taskId);
+            timeoutsByTaskId.put(taskId, wheel.schedule(new TaskStateTimeout(taskId, taskState, deadlineMs), deadlineMs));
+            armedCount.set(wheel.size());
+        }
+    }
+
+    /**
+     * Returns true if the given deadline is armed for the task, and has not fired yet.
+     */
+    public boolean isArmed(String taskId, TaskState taskState, long deadlineMs) {
+        synchronized (lock) {
+            HierarchicalTimerWheel.Timeout<TaskStateTimeout> timeout = timeoutsByTaskId.get(taskId);
+            return timeout != null
+                    && timeout.getItem().getTaskState() == taskState
+                    && timeout.getDeadlineMs() == deadlineMs;
+        }
+    }
+
+    /**
+     * Returns true if the given deadline is armed for the task, or it elapsed and its handling is not completed yet.
+     */
+    public boolean isTracked(String taskId, TaskState taskState, long deadlineMs) {
+        synchronized (lock) {
+            if (isArmed(taskId, taskState, deadlineMs)) {
+                return true;
+            }
+            TaskStateTimeout inFlight = inFlightByTaskId.get(taskId);
+            return inFlight != null
+                    && inFlight.getTaskState() == taskState
+                    && inFlight.getDeadlineMs() == deadlineMs;
+        }
+    }
+
+    /**
+     * Called when handling of an elapsed deadline completes, successfully or not. If the task is still timed out after
+     * that, the deadline can be armed again.
+     */
+    public void onTimeoutHandled(TaskStateTimeout timeout) {
+        synchronized (lock) {
+            inFlightByTaskId.remove(timeout.getTaskId(), timeout);
+        }
+    }
+
+    public void disarm(String taskId) {
+        synchronized (lock) {
+            inFlightByTaskId.remove(taskId);
+            HierarchicalTimerWheel.Timeout<TaskStateTimeout> timeout = timeoutsByTaskId.remove(taskId);
+            if (timeout != null) {
+                timeout.cancel();
+                armedCount.set(wheel.size());
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void advance() {
+        long now = clock.wallTime();
+        List<TaskStateTimeout> elapsed = new ArrayList<>();
+        synchronized (lock) {
+            wheel.advance(now, timeout -> {
+                timeoutsByTaskId.remove(timeout.getItem().getTaskId(), timeout);
+                inFlightByTaskId.put(timeout.getItem().getTaskId(), timeout.getItem());
+                elapsed.add(timeout.getItem());
+            });
+            armedCount.set(wheel.size());
+        }
+        if (elapsed.isEmpty()) {
+            return;
+        }
+
+        firedCounter.increment(elapsed.size());
+        Consumer<TaskStateTimeout> handler = timeoutHandler;
+        for (TaskStateTimeout timeout : elapsed) {
+            firingLagTimer.record(Math.max(0, now - timeout.getDeadlineMs()), TimeUnit.MILLISECONDS);
+            try {
+                handler.accept(timeout);
+            } catch (Exception e) {
+                logger.warn("Cannot handle timeout of task {} in state {}", timeout.getTaskId(), timeout.getTaskState(), e);
+                onTimeoutHandled(timeout);
+            }
+        }
+    }
+
+    public static class TaskStateTimeout {
+
+        private final String taskId;
+        private final TaskState taskState;
+        private final long deadlineMs;
+
+        public TaskStateTimeout(String taskId, TaskState taskState, long deadlineMs) {
+            this.taskId = taskId;
+            this.taskState = taskState;
+            this.deadlineMs = deadlineMs;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        public TaskState getTaskState() {
+            return taskState;
+        }
+
+        public long getDeadlineMs() {
+            return deadlineMs;
+        }
+
+        @Override
+        public String toString() {
+            return "TaskStateTimeout{" +
+                    "taskId='" + taskId + '\'' +
+                    ", taskState=" + taskState +
+                    ", deadlineMs=" + deadlineMs +
+                    '}';
+        }
+    }
+}
@@ -53,6 +53,7 @@ public class V3JobManagerModule extends AbstractModule {
         }).to(DefaultV3TaskInfoFactory.class);
 
         bind(TaskLivenessMetrics.class).asEagerSingleton();
+        bind(TaskStatusUpdateBatcher.class).asEagerSingleton();
     }
 
     @Provides
@@ -16,33 +16,69 @@
 
 package com.netflix.titus.master.jobmanager.service;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.TaskState;
 import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
 import com.netflix.titus.common.framework.reconciler.ModelActionHolder;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.spectator.AggregatedFsmMetrics;
+import com.netflix.titus.common.util.spectator.MetricCardinalityGuard;
 import com.netflix.titus.common.util.spectator.SpectatorExt;
+import com.netflix.titus.master.jobmanager.service.common.action.ArchivedTasks;
 import com.netflix.titus.master.jobmanager.service.event.JobModelReconcilerEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static com.netflix.titus.master.MetricConstants.METRIC_SCHEDULING_JOB;
 
+/**
+ * Task state metrics. Task states are aggregated per job (number of tasks in each state, and state transition counts),
+ * so the number of meter ids does not depend on the number of tasks. The number of jobs reported individually is
+ * bounded by {@link JobManagerConfiguration#getMaxJobsWithTaskStateMetrics()}, with the remaining ones aggregated
+ * into an overflow series. For individually reported jobs, the size of the job reconciliation model (live and archived
+ * tasks) is also exposed.
+ */
 class V3JobMetricsCollector {
 
     private static final Logger logger = LoggerFactory.getLogger(V3JobMetricsCollector.class);
 
+    private static final String JOB_ID_TAG = "t.jobId";
+
+    private static final String METRIC_LIVE_MODEL = METRIC_SCHEDULING_JOB + "liveModel";
+
     private final Registry registry;
+    private final MetricCardinalityGuard cardinalityGuard;
+    private final Function<String, Optional<EntityHolder>> jobHolderResolver;
 
     private final ConcurrentMap<String, JobMetrics> jobMetricsMap = new ConcurrentHashMap<>();
-
-    V3JobMetricsCollector(Registry registry) {
-        this.registry = registry;
+    private final ConcurrentMap<Id, AggregatedFsmMetrics<TaskStateReport>> taskStateMetrics = new ConcurrentHashMap<>();
+
+    V3JobMetricsCollector(JobManagerConfiguration configuration,
+                          Function<String, Optional<EntityHolder>> jobHolderResolver,
+                          TitusRuntime titusRuntime) {
+        this.registry = titusRuntime.getRegistry();
+        this.jobHolderResolver = jobHolderResolver;
+        this.cardinalityGuard = SpectatorExt.cardinalityGuard(
+                METRIC_SCHEDULING_JOB + "cardinality.",
+                Collections.singleton(JOB_ID_TAG),
+                configuration.getMaxJobsWithTaskStateMetrics(),
+                Long.MAX_VALUE, // Job ids are released explicitly when a job is removed.
+                titusRuntime.getClock(),
+                registry
+        );
     }
 
     void updateTaskMetrics(Job<?> job, Task task) {
@@ -71,13 +107,29 @@ class V3JobMetricsCollector {
     private class JobMetrics {
 
         private final Id taskRootId;
+        private final AggregatedFsmMetrics<TaskStateReport> stateMetrics;
+        private final List<Id> liveModelIds;
 
-        private final ConcurrentMap<String, TaskMetricHolder> taskMetrics = new ConcurrentHashMap<>();
-        private final String capacityGroup;
+        private final ConcurrentMap<String, SpectatorExt.FsmMetrics<TaskStateReport>> taskMetrics = new ConcurrentHashMap<>();
 
         private JobMetrics(Job<?> job) {
-            this.capacityGroup = job.getJobDescriptor().getCapacityGroup();
-            this.taskRootId = buildTaskRootId(job.getId(), job.getJobDescriptor().getApplicationName());
+            this.taskRootId = cardinalityGuard.guard(buildTaskRootId(job));
+            this.stateMetrics = taskStateMetrics.computeIfAbsent(taskRootId,
+                    id -> SpectatorExt.aggregatedFsmMetrics(id, TaskStateReport::isTerminalState, registry)
+            );
+            this.liveModelIds = cardinalityGuard.isOverflowId(taskRootId) ? Collections.emptyList() : registerLiveModelMetrics(job.getId());
+        }
+
+        private List<Id> registerLiveModelMetrics(String jobId) {
+            Id liveTasksId = registry.createId(METRIC_LIVE_MODEL, taskRootId.tags()).withTag("kind", "liveTasks");
+            Id archivedTasksId = registry.createId(METRIC_LIVE_MODEL, taskRootId.tags()).withTag("kind", "archivedTasks");
+            PolledMeter.using(registry).withId(liveTasksId).monitorValue(this,
+                    self -> jobHolderResolver.apply(jobId).map(jobHolder -> jobHolder.getChildren().size()).orElse(0)
+            );
+            PolledMeter.using(registry).withId(archivedTasksId).monitorValue(this,
+                    self -> jobHolderResolver.apply(jobId).map(ArchivedTasks::countArchivedTasks).orElse(0)
+            );
+            return Arrays.asList(liveTasksId, archivedTasksId);
         }
 
         private void updateTaskMetrics(Task task) {
@@ -88,40 +140,31 @@ class V3JobMetricsCollector {
                 return;
             }
 
-            TaskMetricHolder taskMetricH = taskMetrics.computeIfAbsent(task.getId(), myTask -> new TaskMetricHolder(task));
+            SpectatorExt.FsmMetrics<TaskStateReport> taskFsm = taskMetrics.computeIfAbsent(
+                    task.getId(), myTask -> stateMetrics.newInstance(TaskStateReport.of(task.getStatus()))
+            );
             logger.debug("State transition change for task {}: {}", task.getId(), taskState);
-            taskMetricH.transition(TaskStateReport.of(status), status.getReasonCode());
+            taskFsm.transition(TaskStateReport.of(status), status.getReasonCode());
         }
 
         private void finish() {
             taskMetrics.forEach((key, value) -> value.transition(TaskStateReport.Finished, ""));
             taskMetrics.clear();
+            liveModelIds.forEach(id -> PolledMeter.remove(registry, id));
+
+            // The overflow series is shared by many jobs, so it is never removed.
+            if (cardinalityGuard.release(taskRootId)) {
+                taskStateMetrics.remove(taskRootId);
+                stateMetrics.close();
+            }
         }
 
-        private Id buildTaskRootId(String jobId, String applicationName) {
-            Id id = registry.createId(METRIC_SCHEDULING_JOB, "t.application", applicationName);
-            id = id.withTag("t.jobId", jobId);
+        private Id buildTaskRootId(Job<?> job) {
+            Id id = registry.createId(METRIC_SCHEDULING_JOB, "t.application", job.getJobDescriptor().getApplicationName());
+            id = id.withTag(JOB_ID_TAG, job.getId());
             id = id.withTag("t.engine", "V3");
+            id = id.withTag("t.capacityGroup", job.getJobDescriptor().getCapacityGroup());
             return id;
         }
-
-        private Id stateIdOf(Task task) {
-            return taskRootId
-                    .withTag("t.capacityGroup", capacityGroup)
-                    .withTag("t.taskOriginalId", task.getOriginalId())
-                    .withTag("t.taskId", task.getId());
-        }
-
-        private class TaskMetricHolder {
-            private final SpectatorExt.FsmMetrics<TaskStateReport> stateMetrics;
-
-            private TaskMetricHolder(Task task) {
-                this.stateMetrics = SpectatorExt.fsmMetrics(stateIdOf(task), TaskStateReport::isTerminalState, TaskStateReport.of(task.getStatus()), registry);
-            }
-
-            private void transition(TaskStateReport state, String reason) {
-                stateMetrics.transition(state, reason);
-            }
-        }
     }
 }
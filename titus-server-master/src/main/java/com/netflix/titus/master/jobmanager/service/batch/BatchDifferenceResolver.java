@@ -31,7 +31,6 @@ import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.JobState;
 import com.netflix.titus.api.jobmanager.model.job.Task;
-import com.netflix.titus.api.jobmanager.model.job.TaskState;
 import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
 import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
 import com.netflix.titus.api.jobmanager.store.JobStore;
@@ -44,13 +43,16 @@ import com.netflix.titus.common.util.time.Clock;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.master.VirtualMachineMasterService;
 import com.netflix.titus.master.jobmanager.service.JobManagerConfiguration;
+import com.netflix.titus.master.jobmanager.service.TaskTimeoutWheel;
 import com.netflix.titus.master.jobmanager.service.JobManagerUtil;
 import com.netflix.titus.master.jobmanager.service.common.DifferenceResolverUtils;
+import com.netflix.titus.master.jobmanager.service.common.action.ArchivedTasks;
 import com.netflix.titus.master.jobmanager.service.common.action.TaskRetryers;
 import com.netflix.titus.master.jobmanager.service.common.action.TitusChangeAction;
 import com.netflix.titus.master.jobmanager.service.common.action.task.BasicJobActions;
 import com.netflix.titus.master.jobmanager.service.common.action.task.BasicTaskActions;
 import com.netflix.titus.master.jobmanager.service.common.action.task.KillInitiatedActions;
+import com.netflix.titus.master.jobmanager.service.common.action.task.TaskArchivalActions;
 import com.netflix.titus.master.jobmanager.service.common.interceptor.RetryActionInterceptor;
 import com.netflix.titus.master.jobmanager.service.event.JobManagerReconcilerEvent;
 import com.netflix.titus.master.scheduler.SchedulingService;
@@ -79,6 +81,7 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
     private final ConstraintEvaluatorTransformer<Pair<String, String>> constraintEvaluatorTransformer;
     private final SystemSoftConstraint systemSoftConstraint;
     private final SystemHardConstraint systemHardConstraint;
+    private final TaskTimeoutWheel taskTimeoutWheel;
 
     private final RetryActionInterceptor storeWriteRetryInterceptor;
 
@@ -95,9 +98,10 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
             ConstraintEvaluatorTransformer<Pair<String, String>> constraintEvaluatorTransformer,
             SystemSoftConstraint systemSoftConstraint,
             SystemHardConstraint systemHardConstraint,
+            TaskTimeoutWheel taskTimeoutWheel,
             TitusRuntime titusRuntime) {
         this(configuration, capacityGroupService, schedulingService, vmService, jobStore, constraintEvaluatorTransformer,
-                systemSoftConstraint, systemHardConstraint, titusRuntime, Schedulers.computation());
+                systemSoftConstraint, systemHardConstraint, taskTimeoutWheel, titusRuntime, Schedulers.computation());
     }
 
     public BatchDifferenceResolver(
@@ -109,6 +113,7 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
             ConstraintEvaluatorTransformer<Pair<String, String>> constraintEvaluatorTransformer,
             SystemSoftConstraint systemSoftConstraint,
             SystemHardConstraint systemHardConstraint,
+            TaskTimeoutWheel taskTimeoutWheel,
             TitusRuntime titusRuntime,
             Scheduler scheduler) {
         this.configuration = configuration;
@@ -119,6 +124,7 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
         this.constraintEvaluatorTransformer = constraintEvaluatorTransformer;
         this.systemSoftConstraint = systemSoftConstraint;
         this.systemHardConstraint = systemHardConstraint;
+        this.taskTimeoutWheel = taskTimeoutWheel;
         this.titusRuntime = titusRuntime;
         this.clock = titusRuntime.getClock();
 
@@ -158,7 +164,7 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
                     engine, vmService, jobStore, TaskStatus.REASON_TASK_KILLED, "Killing task as its job is in KillInitiated state", titusRuntime
             );
             if (killInitiatedActions.isEmpty()) {
-                return DifferenceResolverUtils.findTaskStateTimeouts(engine, runningJobView, configuration, vmService, jobStore, titusRuntime);
+                return DifferenceResolverUtils.findTaskStateTimeouts(engine, runningJobView, configuration, vmService, jobStore, taskTimeoutWheel, titusRuntime);
             }
             return killInitiatedActions;
         } else if (DifferenceResolverUtils.hasJobState(referenceModel, JobState.Finished)) {
@@ -170,7 +176,7 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
         if (numberOfTaskAdjustingActions.isEmpty()) {
             actions.addAll(findMissingRunningTasks(engine, refJobView, runningJobView));
         }
-        actions.addAll(DifferenceResolverUtils.findTaskStateTimeouts(engine, runningJobView, configuration, vmService, jobStore, titusRuntime));
+        actions.addAll(DifferenceResolverUtils.findTaskStateTimeouts(engine, runningJobView, configuration, vmService, jobStore, taskTimeoutWheel, titusRuntime));
 
         return actions;
     }
@@ -180,12 +186,13 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
      */
     private List<ChangeAction> findJobSizeInconsistencies(BatchJobView refJobView, EntityHolder storeModel, AtomicInteger allowedNewTasks) {
         boolean canUpdateStore = storeWriteRetryInterceptor.executionLimits(storeModel);
-        if (canUpdateStore && refJobView.getTasks().size() < refJobView.getRequiredSize()) {
+        int taskCount = refJobView.getAggregate().getTaskCount();
+        if (canUpdateStore && taskCount + refJobView.getArchivedTaskCount() < refJobView.getRequiredSize()) {
             List<ChangeAction> missingTasks = new ArrayList<>();
             for (int i = 0; i < refJobView.getRequiredSize() && allowedNewTasks.get() > 0; i++) {
-                if (!refJobView.getIndexes().contains(i)) {
+                if (!refJobView.hasTaskWithIndex(i)) {
                     allowedNewTasks.decrementAndGet();
-                    logger.info("Adding missing task: jobId={}, index={}, requiredSize={}, currentSize={}", refJobView.getJob().getId(), i, refJobView.getRequiredSize(), refJobView.getTasks().size());
+                    logger.info("Adding missing task: jobId={}, index={}, requiredSize={}, currentSize={}", refJobView.getJob().getId(), i, refJobView.getRequiredSize(), taskCount);
                     createNewTaskAction(refJobView, i).ifPresent(missingTasks::add);
                 }
             }
@@ -196,9 +203,7 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
 
     private Optional<TitusChangeAction> createNewTaskAction(BatchJobView refJobView, int taskIndex) {
         // Safety check
-        long numberOfNotFinishedTasks = refJobView.getJobHolder().getChildren().stream()
-                .filter(holder -> TaskState.isRunning(((Task) holder.getEntity()).getStatus().getState()))
-                .count();
+        long numberOfNotFinishedTasks = refJobView.getAggregate().getNotFinishedTaskCount();
         if (numberOfNotFinishedTasks >= refJobView.getRequiredSize()) {
             titusRuntime.getCodeInvariants().inconsistent(
                     "Batch job reconciler attempts to create too many tasks: jobId=%s, requiredSize=%s, current=%s",
@@ -217,6 +222,9 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
      * Check that for each reference job task, there is a corresponding running task.
      */
     private List<ChangeAction> findMissingRunningTasks(ReconciliationEngine<JobManagerReconcilerEvent> engine, BatchJobView refJobView, BatchJobView runningJobView) {
+        if (refJobView.getAggregate().hasSameTaskIds(runningJobView.getAggregate())) {
+            return Collections.emptyList();
+        }
         List<ChangeAction> missingTasks = new ArrayList<>();
         List<BatchJobTask> tasks = refJobView.getTasks();
         for (BatchJobTask refTask : tasks) {
@@ -250,6 +258,8 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
             actions.add(storeWriteRetryInterceptor.apply(BasicJobActions.updateJobInStore(engine, jobStore)));
         }
         boolean isJobTerminating = refJob.getStatus().getState() == JobState.KillInitiated;
+        boolean archivalEnabled = configuration.isFinishedTaskArchivalEnabled();
+        long archivalRetentionMs = configuration.getFinishedTaskArchivalRetentionMs();
         for (EntityHolder referenceTask : refJobHolder.getChildren()) {
 
             Optional<EntityHolder> storeHolder = storeJob.findById(referenceTask.getId());
@@ -262,6 +272,8 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
                 if (shouldRetry && TaskRetryers.shouldRetryNow(referenceTask, clock)) {
                     logger.info("Retrying task: oldTaskId={}, index={}", referenceTask.getId(), storeTask.getIndex());
                     createNewTaskAction(refJobView, storeTask.getIndex()).ifPresent(actions::add);
+                } else if (archivalEnabled && ArchivedTasks.isReadyForArchival(refJob, referenceTask, archivalRetentionMs, clock)) {
+                    actions.add(storeWriteRetryInterceptor.apply(TaskArchivalActions.archiveFinishedTask(jobStore, storeTask)));
                 }
             } else {
                 Task task = referenceTask.getEntity();
@@ -290,23 +302,34 @@ public class BatchDifferenceResolver implements ReconciliationEngine.DifferenceR
 
     static class BatchJobView extends DifferenceResolverUtils.JobView<BatchJobExt, BatchJobTask> {
 
-        private final Set<Integer> indexes;
+        private final int archivedTaskCount;
+
+        private Set<Integer> archivedIndexes;
 
         BatchJobView(EntityHolder jobHolder) {
             super(jobHolder);
-            this.indexes = collectIndexes();
+            this.archivedTaskCount = ArchivedTasks.countArchivedTasks(jobHolder);
+        }
+
+        /**
+         * Returns true if there is either a live or an archived task with the given index. Indexes of the live tasks are
+         * kept in the job aggregate, and the archived ones are collected on first use.
+         */
+        boolean hasTaskWithIndex(int index) {
+            return getAggregate().hasTaskWithIndex(index) || getArchivedIndexes().contains(index);
         }
 
-        Set<Integer> getIndexes() {
-            return indexes;
+        int getArchivedTaskCount() {
+            return archivedTaskCount;
         }
 
-        private Set<Integer> collectIndexes() {
-            Set<Integer> indexes = new HashSet<>();
-            for (BatchJobTask task : getTasks()) {
-                indexes.add(task.getIndex());
+        private Set<Integer> getArchivedIndexes() {
+            if (archivedIndexes == null) {
+                Set<Integer> indexes = new HashSet<>();
+                ArchivedTasks.getArchivedTasks(getJobHolder()).forEach((taskId, task) -> indexes.add(((BatchJobTask) task).getIndex()));
+                archivedIndexes = indexes;
             }
-            return indexes;
+            return archivedIndexes;
         }
     }
 }
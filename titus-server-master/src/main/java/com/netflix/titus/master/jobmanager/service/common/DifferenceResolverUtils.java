@@ -17,11 +17,8 @@
 package com.netflix.titus.master.jobmanager.service.common;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
-import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -35,7 +32,6 @@ import com.netflix.titus.api.jobmanager.model.job.TaskState;
 import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
 import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
 import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
-import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.api.jobmanager.store.JobStore;
 import com.netflix.titus.common.framework.reconciler.ChangeAction;
 import com.netflix.titus.common.framework.reconciler.EntityHolder;
@@ -44,7 +40,7 @@ import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.time.Clock;
 import com.netflix.titus.master.VirtualMachineMasterService;
 import com.netflix.titus.master.jobmanager.service.JobManagerConfiguration;
-import com.netflix.titus.master.jobmanager.service.common.action.task.BasicTaskActions;
+import com.netflix.titus.master.jobmanager.service.TaskTimeoutWheel;
 import com.netflix.titus.master.jobmanager.service.common.action.task.KillInitiatedActions;
 import com.netflix.titus.master.jobmanager.service.common.action.task.TaskTimeoutChangeActions;
 import com.netflix.titus.master.jobmanager.service.event.JobManagerReconcilerEvent;
@@ -121,14 +117,21 @@ public class DifferenceResolverUtils {
     }
 
     /**
-     * Find all tasks that are stuck in a specific state
+     * Find all batch tasks that exceeded their runtime limit, and set timeouts for tasks in transient states.
+     * Timeouts of tasks stuck in a transient state are not detected here, but by the {@link TaskTimeoutWheel}, which
+     * requests their handling in the owning engine, when their deadlines elapse (see {@link TaskTimeoutChangeActions#onTimeout}).
      */
     public static List<ChangeAction> findTaskStateTimeouts(ReconciliationEngine<JobManagerReconcilerEvent> engine,
                                                            JobView runningJobView,
                                                            JobManagerConfiguration configuration,
                                                            VirtualMachineMasterService vmService,
                                                            JobStore jobStore,
+                                                           TaskTimeoutWheel timeoutWheel,
                                                            TitusRuntime titusRuntime) {
+        if (!hasTasksWithTimeouts(runningJobView)) {
+            return Collections.emptyList();
+        }
+
         Clock clock = titusRuntime.getClock();
 
         List<ChangeAction> actions = new ArrayList<>();
@@ -176,70 +179,42 @@ public class DifferenceResolverUtils {
                     }
                     break;
                 case TimedOut:
-                    if (task.getStatus().getState() == TaskState.KillInitiated) {
-                        int attempts = TaskTimeoutChangeActions.getKillInitiatedAttempts(taskHolder) + 1;
-                        if (attempts >= configuration.getTaskKillAttempts()) {
-                            actions.add(
-                                    BasicTaskActions.updateTaskInRunningModel(task.getId(),
-                                            V3JobOperations.Trigger.Reconciler,
-                                            configuration,
-                                            engine,
-                                            taskParam -> Optional.of(taskParam.toBuilder()
-                                                    .withStatus(taskParam.getStatus().toBuilder()
-                                                            .withState(TaskState.Finished)
-                                                            .withReasonCode(TaskStatus.REASON_STUCK_IN_KILLING_STATE)
-                                                            .withReasonMessage("stuck in " + taskState + "state")
-                                                            .build()
-                                                    )
-                                                    .build()
-                                            ),
-                                            "TimedOut in KillInitiated state",
-                                            titusRuntime
-                                    )
-                            );
-                        } else {
-                            actions.add(TaskTimeoutChangeActions.incrementTaskKillAttempt(task.getId(), configuration.getTaskInKillInitiatedStateTimeoutMs(), clock));
-                            actions.add(KillInitiatedActions.reconcilerInitiatedTaskKillInitiated(engine, task, vmService, jobStore, TaskStatus.REASON_STUCK_IN_KILLING_STATE,
-                                    "Another kill attempt (" + (attempts + 1) + ')', titusRuntime));
-                        }
-                    } else {
-                        actions.add(KillInitiatedActions.reconcilerInitiatedTaskKillInitiated(engine, task, vmService, jobStore, TaskStatus.REASON_STUCK_IN_STATE,
-                                "Task stuck in " + taskState + " state", titusRuntime));
-                    }
+                    TaskTimeoutChangeActions.armIfNotTracked(taskHolder, timeoutWheel);
                     break;
             }
         });
         return actions;
     }
 
-    public static int countActiveNotStartedTasks(EntityHolder refJobHolder, EntityHolder runningJobHolder) {
-        Set<String> pendingTaskIds = new HashSet<>();
-
-        Consumer<EntityHolder> countingFun = jobHolder -> jobHolder.getChildren().forEach(taskHolder -> {
-            TaskState state = ((Task) taskHolder.getEntity()).getStatus().getState();
-            if (state != TaskState.Started && state != TaskState.Finished) {
-                pendingTaskIds.add(taskHolder.getId());
-            }
-        });
-        countingFun.accept(refJobHolder);
-        countingFun.accept(runningJobHolder);
+    private static boolean hasTasksWithTimeouts(JobView runningJobView) {
+        JobTasksAggregate aggregate = runningJobView.getAggregate();
+        int count = aggregate.getTaskCount(TaskState.Launched)
+                + aggregate.getTaskCount(TaskState.StartInitiated)
+                + aggregate.getTaskCount(TaskState.KillInitiated);
+        if (JobFunctions.isBatchJob(runningJobView.getJob())) {
+            count += aggregate.getTaskCount(TaskState.Started);
+        }
+        return count > 0;
+    }
 
-        return pendingTaskIds.size();
+    public static int countActiveNotStartedTasks(EntityHolder refJobHolder, EntityHolder runningJobHolder) {
+        return JobTasksAggregate.countActiveNotStartedTasks(JobTasksAggregate.of(refJobHolder), JobTasksAggregate.of(runningJobHolder));
     }
 
     public static class JobView<EXT extends JobDescriptor.JobDescriptorExt, TASK extends Task> {
 
         private final Job<EXT> job;
         private final EntityHolder jobHolder;
-        private final List<TASK> tasks;
+        private final JobTasksAggregate aggregate;
         private final int requiredSize;
 
-        @SuppressWarnings("unchecked")
+        private List<TASK> tasks;
+
         public JobView(EntityHolder jobHolder) {
             this.job = jobHolder.getEntity();
             this.jobHolder = jobHolder;
+            this.aggregate = JobTasksAggregate.of(jobHolder);
             this.requiredSize = apply(job, BatchJobExt::getSize, service -> service.getCapacity().getDesired());
-            this.tasks = jobHolder.getChildren().stream().map(h -> (TASK) h.getEntity()).collect(Collectors.toList());
         }
 
         public EntityHolder getJobHolder() {
@@ -250,7 +225,19 @@ public class DifferenceResolverUtils {
             return job;
         }
 
+        /**
+         * Task aggregates, which should be used instead of {@link #getTasks()} whenever possible, as they do not require
+         * a scan of all job tasks.
+         */
+        public JobTasksAggregate getAggregate() {
+            return aggregate;
+        }
+
+        @SuppressWarnings("unchecked")
         public List<TASK> getTasks() {
+            if (tasks == null) {
+                tasks = jobHolder.getChildren().stream().map(h -> (TASK) h.getEntity()).collect(Collectors.toList());
+            }
             return tasks;
         }
 
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.common;
+
+import java.util.Arrays;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.common.framework.reconciler.ChildrenAggregator;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.util.collections.PersistentHashMap;
+
+/**
+ * Task counts and indexes of a job, which the difference resolvers would otherwise compute by scanning all job tasks
+ * in each reconciliation cycle. An aggregate is attached to a job {@link EntityHolder} the first time it is requested,
+ * and from that point on it is updated by each task change made in the job's model (see {@link ChildrenAggregator}).
+ * As the reference, running and store views are separate entity hierarchies, each has its own aggregate.
+ */
+public class JobTasksAggregate {
+
+    private static final TaskState[] STATES = TaskState.values();
+
+    private static final HashFunction TASK_ID_HASH = Hashing.murmur3_128();
+
+    private static final JobTasksAggregate EMPTY = new JobTasksAggregate(
+            0, new int[STATES.length], PersistentHashMap.empty(), PersistentHashMap.empty(), 0
+    );
+
+    private static final ChildrenAggregator<JobTasksAggregate> AGGREGATOR = new ChildrenAggregator<JobTasksAggregate>() {
+        @Override
+        public JobTasksAggregate empty() {
+            return EMPTY;
+        }
+
+        @Override
+        public JobTasksAggregate add(JobTasksAggregate aggregate, EntityHolder taskHolder) {
+            return aggregate.add(taskHolder.getEntity());
+        }
+
+        @Override
+        public JobTasksAggregate remove(JobTasksAggregate aggregate, EntityHolder taskHolder) {
+            return aggregate.remove(taskHolder.getEntity());
+        }
+
+        @Override
+        public JobTasksAggregate replace(JobTasksAggregate aggregate, EntityHolder previousTaskHolder, EntityHolder newTaskHolder) {
+            Task previousTask = previousTaskHolder.getEntity();
+            Task newTask = newTaskHolder.getEntity();
+            if (previousTask.getStatus().getState() == newTask.getStatus().getState() && getIndex(previousTask) == getIndex(newTask)) {
+                return aggregate;
+            }
+            return aggregate.remove(previousTask).add(newTask);
+        }
+    };
+
+    private final int taskCount;
+    private final int[] stateCounts;
+    private final PersistentHashMap<String, String> activeNotStartedTaskIds;
+    private final PersistentHashMap<Integer, Integer> taskCountsByIndex;
+    private final long taskIdsFingerprint;
+
+    private JobTasksAggregate(int taskCount,
+                              int[] stateCounts,
+                              PersistentHashMap<String, String> activeNotStartedTaskIds,
+                              PersistentHashMap<Integer, Integer> taskCountsByIndex,
+                              long taskIdsFingerprint) {
+        this.taskCount = taskCount;
+        this.stateCounts = stateCounts;
+        this.activeNotStartedTaskIds = activeNotStartedTaskIds;
+        this.taskCountsByIndex = taskCountsByIndex;
+        this.taskIdsFingerprint = taskIdsFingerprint;
+    }
+
+    public int getTaskCount() {
+        return taskCount;
+    }
+
+    public int getTaskCount(TaskState state) {
+        return stateCounts[state.ordinal()];
+    }
+
+    /**
+     * @return number of tasks for which {@link TaskState#isRunning(TaskState)} is true
+     */
+    public int getNotFinishedTaskCount() {
+        int count = 0;
+        for (TaskState state : STATES) {
+            if (TaskState.isRunning(state)) {
+                count += stateCounts[state.ordinal()];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return true if there is a batch task with the given index
+     */
+    public boolean hasTaskWithIndex(int index) {
+        return taskCountsByIndex.containsKey(index);
+    }
+
+    /**
+     * Returns true if both aggregates were computed for the same set of task ids. Task ids are compared by their counts
+     * and an order independent sum of their 64-bit hashes, so two different sets of task ids are reported as the same
+     * with a negligible probability of 2^-64.
+     */
+    public boolean hasSameTaskIds(JobTasksAggregate other) {
+        return taskCount == other.taskCount && taskIdsFingerprint == other.taskIdsFingerprint;
+    }
+
+    /**
+     * Counts tasks that are not in the {@link TaskState#Started} or the {@link TaskState#Finished} state in either of
+     * the two aggregates. A task present in both is counted once.
+     */
+    public static int countActiveNotStartedTasks(JobTasksAggregate first, JobTasksAggregate second) {
+        boolean firstIsSmaller = first.activeNotStartedTaskIds.size() <= second.activeNotStartedTaskIds.size();
+        PersistentHashMap<String, String> smaller = firstIsSmaller ? first.activeNotStartedTaskIds : second.activeNotStartedTaskIds;
+        PersistentHashMap<String, String> larger = firstIsSmaller ? second.activeNotStartedTaskIds : first.activeNotStartedTaskIds;
+        int[] count = {larger.size()};
+        smaller.forEach((taskId, ignored) -> {
+            if (!larger.containsKey(taskId)) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    public static JobTasksAggregate of(EntityHolder jobHolder) {
+        return jobHolder.getChildrenAggregate(AGGREGATOR);
+    }
+
+    private JobTasksAggregate add(Task task) {
+        return update(task, 1);
+    }
+
+    private JobTasksAggregate remove(Task task) {
+        return update(task, -1);
+    }
+
+    private JobTasksAggregate update(Task task, int delta) {
+        TaskState state = task.getStatus().getState();
+
+        int[] newStateCounts = Arrays.copyOf(stateCounts, stateCounts.length);
+        newStateCounts[state.ordinal()] += delta;
+
+        PersistentHashMap<String, String> newActiveNotStartedTaskIds = activeNotStartedTaskIds;
+        if (state != TaskState.Started && state != TaskState.Finished) {
+            newActiveNotStartedTaskIds = delta > 0
+                    ? activeNotStartedTaskIds.put(task.getId(), task.getId())
+                    : activeNotStartedTaskIds.remove(task.getId());
+        }
+
+        PersistentHashMap<Integer, Integer> newTaskCountsByIndex = taskCountsByIndex;
+        int index = getIndex(task);
+        if (index >= 0) {
+            Integer current = taskCountsByIndex.get(index);
+            int newCount = (current == null ? 0 : current) + delta;
+            newTaskCountsByIndex = newCount > 0 ? taskCountsByIndex.put(index, newCount) : taskCountsByIndex.remove(index);
+        }
+
+        long taskIdHash = TASK_ID_HASH.hashUnencodedChars(task.getId()).asLong();
+
+        return new JobTasksAggregate(
+                taskCount + delta,
+                newStateCounts,
+                newActiveNotStartedTaskIds,
+                newTaskCountsByIndex,
+                taskIdsFingerprint + delta * taskIdHash
+        );
+    }
+
+    private static int getIndex(Task task) {
+        return task instanceof BatchJobTask ? ((BatchJobTask) task).getIndex() : -1;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.common.action;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.util.collections.PersistentHashMap;
+import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.jobmanager.service.common.DifferenceResolverUtils;
+
+/**
+ * A set of primitive functions for dealing with archived tasks. Finished tasks that are not going to be retried are
+ * moved after some retention time from the job's children to the archive tier, so they are no longer visited by the
+ * difference resolvers, indexes or task queries. The archive tier is kept as a job holder attribute, and holds
+ * a compact version of each task (without the status history, which is available in the task archive of the job store).
+ */
+public class ArchivedTasks {
+
+    public static final String ATTR_ARCHIVED_TASKS = "archivedTasks";
+
+    @SuppressWarnings("unchecked")
+    public static PersistentHashMap<String, Task> getArchivedTasks(EntityHolder jobHolder) {
+        PersistentHashMap<String, Task> archived = (PersistentHashMap<String, Task>) jobHolder.getAttributes().get(ATTR_ARCHIVED_TASKS);
+        return archived == null ? PersistentHashMap.empty() : archived;
+    }
+
+    public static int countArchivedTasks(EntityHolder jobHolder) {
+        return getArchivedTasks(jobHolder).size();
+    }
+
+    public static Optional<Task> findArchivedTask(EntityHolder jobHolder, String taskId) {
+        return Optional.ofNullable(getArchivedTasks(jobHolder).get(taskId));
+    }
+
+    /**
+     * Returns true if a task can be moved to the archive tier. Only tasks in the Finished state for at least the
+     * retention time, which are not going to be retried, qualify.
+     */
+    public static boolean isReadyForArchival(Job<?> job, EntityHolder taskHolder, long retentionMs, Clock clock) {
+        if (job.getStatus().getState() != JobState.Accepted) {
+            return false;
+        }
+        Task task = taskHolder.getEntity();
+        if (task.getStatus().getState() != TaskState.Finished || !DifferenceResolverUtils.isDone(job, task)) {
+            return false;
+        }
+        return task.getStatus().getTimestamp() + retentionMs <= clock.wallTime();
+    }
+
+    /**
+     * Removes a task from the job children, and adds its compact version to the archive tier.
+     *
+     * @return updated job holder, or {@link Optional#empty()} if the task is not a child of the given job
+     */
+    public static Optional<EntityHolder> archiveTask(EntityHolder jobHolder, String taskId) {
+        Pair<EntityHolder, Optional<EntityHolder>> result = jobHolder.removeChild(taskId);
+        return result.getRight().map(removed -> {
+            Task task = removed.getEntity();
+            return addArchivedTask(result.getLeft(), task);
+        });
+    }
+
+    /**
+     * Adds a task to the archive tier, without touching the job children. Used when restoring the archive tier from
+     * the job store.
+     */
+    public static EntityHolder addArchivedTask(EntityHolder jobHolder, Task task) {
+        return jobHolder.addTag(ATTR_ARCHIVED_TASKS, getArchivedTasks(jobHolder).put(task.getId(), compact(task)));
+    }
+
+    private static Task compact(Task task) {
+        return task.getStatusHistory().isEmpty()
+                ? task
+                : task.toBuilder().withStatusHistory(Collections.emptyList()).build();
+    }
+}
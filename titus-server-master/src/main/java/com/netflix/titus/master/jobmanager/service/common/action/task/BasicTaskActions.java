@@ -19,6 +19,7 @@ package com.netflix.titus.master.jobmanager.service.common.action.task;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
@@ -144,48 +145,90 @@ public class BasicTaskActions {
                             if (!taskOptional.isPresent()) {
                                 return Collections.emptyList();
                             }
-                            EntityHolder taskHolder = taskOptional.get();
-                            Task oldTask = taskHolder.getEntity();
-                            Optional<Task> maybeNewTask = changeFunction.apply(oldTask);
-                            if (!maybeNewTask.isPresent()) {
-                                return Collections.emptyList();
-                            }
-                            Task newTask = maybeNewTask.get();
+                            return updateTaskModels(taskOptional.get(), changeFunction, () -> TitusModelAction.newModelUpdate(self), configuration, titusRuntime);
+                        }
+                );
+    }
 
-                            // Handle separately reference and runtime models, as only reference model gets retry attributes.
+    /**
+     * Batch version of {@link #updateTaskInRunningModel}, which updates multiple tasks of the same job in a single
+     * change action. Tasks that no longer exist in the reference model are skipped.
+     *
+     * @param changeFunctions a map of task id to a pair of the task change function and the change reason
+     */
+    public static TitusChangeAction updateTasksInRunningModel(String jobId,
+                                                              Map<String, Pair<Function<Task, Optional<Task>>, String>> changeFunctions,
+                                                              Trigger trigger,
+                                                              JobManagerConfiguration configuration,
+                                                              ReconciliationEngine<JobManagerReconcilerEvent> engine,
+                                                              String reason,
+                                                              TitusRuntime titusRuntime) {
+        return TitusChangeAction.newAction("updateTasksInRunningModel")
+                .id(jobId)
+                .trigger(trigger)
+                .summary(reason)
+                .applyModelUpdates(self -> {
                             List<ModelActionHolder> modelActionHolders = new ArrayList<>();
-
-                            // Add retryer data to task context.
-                            EntityHolder newTaskHolder;
-                            if (newTask.getStatus().getState() == TaskState.Finished) {
-                                long retryDelayMs = TaskRetryers.getCurrentRetryerDelayMs(
-                                        taskHolder, configuration.getMinRetryIntervalMs(), configuration.getTaskRetryerResetTimeMs(), titusRuntime.getClock()
-                                );
-                                String retryDelayString = DateTimeExt.toTimeUnitString(retryDelayMs);
-
-                                newTask = newTask.toBuilder()
-                                        .addToTaskContext(TaskAttributes.TASK_ATTRIBUTES_RETRY_DELAY, retryDelayString)
-                                        .build();
-                                newTaskHolder = taskHolder.
-                                        setEntity(newTask)
-                                        .addTag(TaskRetryers.ATTR_TASK_RETRY_DELAY_MS, retryDelayMs);
-
-                                modelActionHolders.add(
-                                        ModelActionHolder.reference(TitusModelAction.newModelUpdate(self)
-                                                .summary("Setting retry delay on task in Finished state: %s", retryDelayString)
-                                                .addTaskHolder(newTaskHolder))
-                                );
-                            } else {
-                                modelActionHolders.add(ModelActionHolder.reference(TitusModelAction.newModelUpdate(self).taskUpdate(newTask)));
-                            }
-
-                            modelActionHolders.add(ModelActionHolder.running(TitusModelAction.newModelUpdate(self).taskUpdate(newTask)));
-
+                            changeFunctions.forEach((taskId, changeFunctionAndReason) ->
+                                    engine.getReferenceView().findById(taskId).ifPresent(taskHolder ->
+                                            modelActionHolders.addAll(updateTaskModels(
+                                                    taskHolder,
+                                                    changeFunctionAndReason.getLeft(),
+                                                    () -> TitusModelAction.newModelUpdate(self).task(taskHolder.getEntity()).summary(changeFunctionAndReason.getRight()),
+                                                    configuration,
+                                                    titusRuntime
+                                            ))
+                                    )
+                            );
                             return modelActionHolders;
                         }
                 );
     }
 
+    private static List<ModelActionHolder> updateTaskModels(EntityHolder taskHolder,
+                                                            Function<Task, Optional<Task>> changeFunction,
+                                                            Supplier<TitusModelAction.Builder> modelUpdateFactory,
+                                                            JobManagerConfiguration configuration,
+                                                            TitusRuntime titusRuntime) {
+        Task oldTask = taskHolder.getEntity();
+        Optional<Task> maybeNewTask = changeFunction.apply(oldTask);
+        if (!maybeNewTask.isPresent()) {
+            return Collections.emptyList();
+        }
+        Task newTask = maybeNewTask.get();
+
+        // Handle separately reference and runtime models, as only reference model gets retry attributes.
+        List<ModelActionHolder> modelActionHolders = new ArrayList<>();
+
+        // Add retryer data to task context.
+        EntityHolder newTaskHolder;
+        if (newTask.getStatus().getState() == TaskState.Finished) {
+            long retryDelayMs = TaskRetryers.getCurrentRetryerDelayMs(
+                    taskHolder, configuration.getMinRetryIntervalMs(), configuration.getTaskRetryerResetTimeMs(), titusRuntime.getClock()
+            );
+            String retryDelayString = DateTimeExt.toTimeUnitString(retryDelayMs);
+
+            newTask = newTask.toBuilder()
+                    .addToTaskContext(TaskAttributes.TASK_ATTRIBUTES_RETRY_DELAY, retryDelayString)
+                    .build();
+            newTaskHolder = taskHolder.
+                    setEntity(newTask)
+                    .addTag(TaskRetryers.ATTR_TASK_RETRY_DELAY_MS, retryDelayMs);
+
+            modelActionHolders.add(
+                    ModelActionHolder.reference(modelUpdateFactory.get()
+                            .summary("Setting retry delay on task in Finished state: %s", retryDelayString)
+                            .addTaskHolder(newTaskHolder))
+            );
+        } else {
+            modelActionHolders.add(ModelActionHolder.reference(modelUpdateFactory.get().taskUpdate(newTask)));
+        }
+
+        modelActionHolders.add(ModelActionHolder.running(modelUpdateFactory.get().taskUpdate(newTask)));
+
+        return modelActionHolders;
+    }
+
     /**
      * Add a task to {@link SchedulingService}, and create runtime entity holder for it.
      */
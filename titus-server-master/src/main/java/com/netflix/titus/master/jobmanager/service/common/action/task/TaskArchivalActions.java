@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.common.action.task;
+
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations.Trigger;
+import com.netflix.titus.api.jobmanager.store.JobStore;
+import com.netflix.titus.common.framework.reconciler.ModelActionHolder;
+import com.netflix.titus.master.jobmanager.service.common.action.ArchivedTasks;
+import com.netflix.titus.master.jobmanager.service.common.action.TitusChangeAction;
+import com.netflix.titus.master.jobmanager.service.common.action.TitusModelAction;
+import rx.Observable;
+
+/**
+ * Change actions moving finished tasks from the job reconciliation model to the archive tier.
+ */
+public class TaskArchivalActions {
+
+    public static final String ARCHIVE_FINISHED_TASK_ACTION = "archiveFinishedTask";
+
+    /**
+     * Move a finished task to the job store archive, and replace it in all models with its compact archived version.
+     */
+    public static TitusChangeAction archiveFinishedTask(JobStore jobStore, Task task) {
+        return TitusChangeAction.newAction(ARCHIVE_FINISHED_TASK_ACTION)
+                .task(task)
+                .trigger(Trigger.Reconciler)
+                .summary("Moving finished task to the archive tier")
+                .changeWithModelUpdates(self ->
+                        jobStore.deleteTask(task).andThen(
+                                Observable.just(ModelActionHolder.allModels(
+                                        TitusModelAction.newModelUpdate(self).jobMaybeUpdate(jobHolder -> ArchivedTasks.archiveTask(jobHolder, task.getId()))
+                                ))
+                        ));
+    }
+}
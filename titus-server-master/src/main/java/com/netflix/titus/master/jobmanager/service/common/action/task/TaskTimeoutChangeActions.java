@@ -16,22 +16,36 @@
 
 package com.netflix.titus.master.jobmanager.service.common.action.task;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations.Trigger;
+import com.netflix.titus.api.jobmanager.store.JobStore;
+import com.netflix.titus.common.framework.reconciler.ChangeAction;
 import com.netflix.titus.common.framework.reconciler.EntityHolder;
 import com.netflix.titus.common.framework.reconciler.ModelActionHolder;
+import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
+import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.DateTimeExt;
 import com.netflix.titus.common.util.time.Clock;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.VirtualMachineMasterService;
 import com.netflix.titus.master.jobmanager.service.JobManagerConfiguration;
+import com.netflix.titus.master.jobmanager.service.TaskTimeoutWheel;
+import com.netflix.titus.master.jobmanager.service.TaskTimeoutWheel.TaskStateTimeout;
 import com.netflix.titus.master.jobmanager.service.common.action.TitusChangeAction;
 import com.netflix.titus.master.jobmanager.service.common.action.TitusModelAction;
+import com.netflix.titus.master.jobmanager.service.event.JobManagerReconcilerEvent;
+import rx.Observable;
 
 /**
  * Associates a timeout with transient task states (Launched|StartInitiated). If task does not move out of this state
@@ -42,6 +56,12 @@ import com.netflix.titus.master.jobmanager.service.common.action.TitusModelActio
  * kill tasks that progressed their state, but we are not aware of this, due to a delay in the reconciliation process.
  * This could be solved by doing Mesos reconciliation during system bootstrap, before job reconciliation process starts
  * (a possible improvement in the future).
+ * <p>
+ * <h1>Timeout detection</h1>
+ * Each deadline stored in a task tag is also armed in the {@link TaskTimeoutWheel}, once the model update setting it
+ * is applied (see {@link #updateTimeoutTracking(EntityHolder, TaskTimeoutWheel)}). When it elapses, the timeout
+ * handling action ({@link #onTimeout}) is submitted to the task's reconciliation engine, so a task is not checked
+ * again until its deadline.
  */
 public class TaskTimeoutChangeActions {
 
@@ -71,7 +91,8 @@ public class TaskTimeoutChangeActions {
                     TitusModelAction modelAction = TitusModelAction.newModelUpdate(self)
                             .taskMaybeUpdate(jobHolder ->
                                     jobHolder.findById(taskId).map(taskHolder -> {
-                                        EntityHolder newTaskHolder = taskHolder.addTag(tagName, clock.wallTime() + timeoutMs);
+                                        long deadline = clock.wallTime() + timeoutMs;
+                                        EntityHolder newTaskHolder = taskHolder.addTag(tagName, deadline);
                                         if (taskState == TaskState.KillInitiated) {
                                             newTaskHolder = newTaskHolder.addTag(KILL_INITIATED_ATTEMPT_TAG, 0);
                                         }
@@ -81,19 +102,27 @@ public class TaskTimeoutChangeActions {
                 });
     }
 
-    public static EntityHolder setTimeoutOnRestoreFromStore(JobManagerConfiguration configuration, EntityHolder taskHolder, Clock clock) {
+    public static EntityHolder setTimeoutOnRestoreFromStore(JobManagerConfiguration configuration, EntityHolder taskHolder, Clock clock, TaskTimeoutWheel timeoutWheel) {
         Task task = taskHolder.getEntity();
-        switch (task.getStatus().getState()) {
+        TaskState taskState = task.getStatus().getState();
+        long deadline;
+        switch (taskState) {
             case Launched:
-                return taskHolder.addTag(LAUNCHED_STATE_TIMEOUT_TAG, clock.wallTime() + configuration.getTaskInLaunchedStateTimeoutMs());
+                deadline = clock.wallTime() + configuration.getTaskInLaunchedStateTimeoutMs();
+                timeoutWheel.arm(task.getId(), taskState, deadline);
+                return taskHolder.addTag(LAUNCHED_STATE_TIMEOUT_TAG, deadline);
             case StartInitiated:
                 long timeoutMs = JobFunctions.isServiceTask(task)
                         ? configuration.getServiceTaskInStartInitiatedStateTimeoutMs()
                         : configuration.getBatchTaskInStartInitiatedStateTimeoutMs();
-                return taskHolder.addTag(START_INITIATED_TIMEOUT_TAG, clock.wallTime() + timeoutMs);
+                deadline = clock.wallTime() + timeoutMs;
+                timeoutWheel.arm(task.getId(), taskState, deadline);
+                return taskHolder.addTag(START_INITIATED_TIMEOUT_TAG, deadline);
             case KillInitiated:
+                deadline = clock.wallTime() + configuration.getTaskInKillInitiatedStateTimeoutMs();
+                timeoutWheel.arm(task.getId(), taskState, deadline);
                 return taskHolder
-                        .addTag(KILL_INITIATED_TIMEOUT_TAG, clock.wallTime() + configuration.getTaskInKillInitiatedStateTimeoutMs())
+                        .addTag(KILL_INITIATED_TIMEOUT_TAG, deadline)
                         .addTag(KILL_INITIATED_ATTEMPT_TAG, 0);
         }
         return taskHolder;
@@ -109,8 +138,9 @@ public class TaskTimeoutChangeActions {
                             .taskMaybeUpdate(jobHolder ->
                                     jobHolder.findById(taskId).map(taskHolder -> {
                                         int attempt = (int) taskHolder.getAttributes().getOrDefault(KILL_INITIATED_ATTEMPT_TAG, 0);
+                                        long deadline = clock.wallTime() + deadlineMs;
                                         EntityHolder newTaskHolder = taskHolder
-                                                .addTag(KILL_INITIATED_TIMEOUT_TAG, clock.wallTime() + deadlineMs)
+                                                .addTag(KILL_INITIATED_TIMEOUT_TAG, deadline)
                                                 .addTag(KILL_INITIATED_ATTEMPT_TAG, attempt + 1);
                                         return Pair.of(jobHolder.addChild(newTaskHolder), newTaskHolder);
                                     }));
@@ -118,6 +148,88 @@ public class TaskTimeoutChangeActions {
                 });
     }
 
+    /**
+     * Handles an elapsed deadline armed in the {@link TaskTimeoutWheel}. The task state and its timeout tag are
+     * evaluated again when the action is executed, and if the task is no longer timed out in the armed state, nothing is done.
+     */
+    public static TitusChangeAction onTimeout(ReconciliationEngine<JobManagerReconcilerEvent> engine,
+                                              TaskStateTimeout timeout,
+                                              JobManagerConfiguration configuration,
+                                              VirtualMachineMasterService vmService,
+                                              JobStore jobStore,
+                                              TitusRuntime titusRuntime) {
+        return TitusChangeAction.newAction("taskStateTimeout")
+                .id(timeout.getTaskId())
+                .trigger(Trigger.Reconciler)
+                .summary("Timeout of task in state %s", timeout.getTaskState())
+                .changeWithModelUpdates(self -> {
+                    Optional<EntityHolder> taskHolderOpt = findTimedOutTask(engine, timeout, titusRuntime.getClock());
+                    if (!taskHolderOpt.isPresent()) {
+                        return Observable.just(Collections.emptyList());
+                    }
+                    EntityHolder taskHolder = taskHolderOpt.get();
+
+                    List<ChangeAction> actions = newTimedOutTaskActions(engine, taskHolder, configuration, vmService, jobStore, titusRuntime);
+                    return Observable.from(actions)
+                            .concatMap(ChangeAction::apply)
+                            .collect(() -> new ArrayList<ModelActionHolder>(), List::addAll)
+                            .map(Collections::unmodifiableList);
+                });
+    }
+
+    /**
+     * Returns the task holder from the running view, if the task is still in the state for which the timeout was armed,
+     * and its deadline elapsed. Most deadlines fire after the task has already moved to another state, so this check
+     * is done before a timeout action is submitted to the engine as well.
+     */
+    public static Optional<EntityHolder> findTimedOutTask(ReconciliationEngine<JobManagerReconcilerEvent> engine, TaskStateTimeout timeout, Clock clock) {
+        return engine.getRunningView().findById(timeout.getTaskId()).filter(taskHolder -> {
+            Task task = taskHolder.getEntity();
+            return task.getStatus().getState() == timeout.getTaskState() && getTimeoutStatus(taskHolder, clock) == TimeoutStatus.TimedOut;
+        });
+    }
+
+    private static List<ChangeAction> newTimedOutTaskActions(ReconciliationEngine<JobManagerReconcilerEvent> engine,
+                                                             EntityHolder taskHolder,
+                                                             JobManagerConfiguration configuration,
+                                                             VirtualMachineMasterService vmService,
+                                                             JobStore jobStore,
+                                                             TitusRuntime titusRuntime) {
+        Task task = taskHolder.getEntity();
+        TaskState taskState = task.getStatus().getState();
+        if (taskState != TaskState.KillInitiated) {
+            return Collections.singletonList(KillInitiatedActions.reconcilerInitiatedTaskKillInitiated(engine, task, vmService, jobStore, TaskStatus.REASON_STUCK_IN_STATE,
+                    "Task stuck in " + taskState + " state", titusRuntime));
+        }
+
+        int attempts = getKillInitiatedAttempts(taskHolder) + 1;
+        if (attempts >= configuration.getTaskKillAttempts()) {
+            return Collections.singletonList(
+                    BasicTaskActions.updateTaskInRunningModel(task.getId(),
+                            Trigger.Reconciler,
+                            configuration,
+                            engine,
+                            taskParam -> Optional.of(taskParam.toBuilder()
+                                    .withStatus(taskParam.getStatus().toBuilder()
+                                            .withState(TaskState.Finished)
+                                            .withReasonCode(TaskStatus.REASON_STUCK_IN_KILLING_STATE)
+                                            .withReasonMessage("stuck in " + taskState + "state")
+                                            .build()
+                                    )
+                                    .build()
+                            ),
+                            "TimedOut in KillInitiated state",
+                            titusRuntime
+                    )
+            );
+        }
+        List<ChangeAction> actions = new ArrayList<>();
+        actions.add(incrementTaskKillAttempt(task.getId(), configuration.getTaskInKillInitiatedStateTimeoutMs(), titusRuntime.getClock()));
+        actions.add(KillInitiatedActions.reconcilerInitiatedTaskKillInitiated(engine, task, vmService, jobStore, TaskStatus.REASON_STUCK_IN_KILLING_STATE,
+                "Another kill attempt (" + (attempts + 1) + ')', titusRuntime));
+        return actions;
+    }
+
     public static TimeoutStatus getTimeoutStatus(EntityHolder taskHolder, Clock clock) {
         Task task = taskHolder.getEntity();
         TaskState state = task.getStatus().getState();
@@ -132,6 +244,38 @@ public class TaskTimeoutChangeActions {
         return clock.wallTime() < deadline ? TimeoutStatus.Pending : TimeoutStatus.TimedOut;
     }
 
+    /**
+     * Arms the task timeout deadline in the {@link TaskTimeoutWheel}, unless it is already armed, or it elapsed and
+     * its handling is still in progress. Used to recover deadlines that elapsed, but were not handled (for example
+     * if the timeout handling action failed).
+     */
+    public static void armIfNotTracked(EntityHolder taskHolder, TaskTimeoutWheel timeoutWheel) {
+        Task task = taskHolder.getEntity();
+        TaskState state = task.getStatus().getState();
+        String tagName = STATE_TAGS.get(state);
+        if (tagName == null) {
+            return;
+        }
+        Long deadline = (Long) taskHolder.getAttributes().get(tagName);
+        if (deadline != null && !timeoutWheel.isTracked(task.getId(), state, deadline)) {
+            timeoutWheel.arm(task.getId(), state, deadline);
+        }
+    }
+
+    /**
+     * Synchronizes the {@link TaskTimeoutWheel} with a task holder from an applied running model update. The deadline
+     * of a task in a transient state is armed, and a task in any other state is disarmed.
+     */
+    public static void updateTimeoutTracking(EntityHolder taskHolder, TaskTimeoutWheel timeoutWheel) {
+        Task task = taskHolder.getEntity();
+        String tagName = STATE_TAGS.get(task.getStatus().getState());
+        if (tagName != null && taskHolder.getAttributes().containsKey(tagName)) {
+            armIfNotTracked(taskHolder, timeoutWheel);
+        } else {
+            timeoutWheel.disarm(task.getId());
+        }
+    }
+
     public static int getKillInitiatedAttempts(EntityHolder taskHolder) {
         return (int) taskHolder.getAttributes().getOrDefault(KILL_INITIATED_ATTEMPT_TAG, 0);
     }
@@ -23,7 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.PriorityQueue;
 
 import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.jobmanager.model.job.ServiceJobTask;
@@ -65,6 +65,8 @@ import com.netflix.titus.common.util.tuple.Pair;
  * <p>
  * The selection process described below is applied repeatedly until the desired number of tasks is terminated. At each
  * step a subset of tasks is selected. The last step ('Terminate oldest task first'), makes final selection.
+ * Zones and agent task groups are kept in priority queues ordered according to these rules, and tasks running on
+ * an agent are sorted by their age, so a single selection costs O(log n), and the whole evaluation O(n log n).
  *
  * <h2>Scale down largest groups of tasks on an agent</h2>
  * To maximize availability we should eliminate large groups of tasks running on the same agent.
@@ -77,9 +79,9 @@ import com.netflix.titus.common.util.tuple.Pair;
  * From the given collection of tasks, select the task with the oldest creation timestamp and terminate it.
  * If there are more tasks to terminate, restart the evaluation process.
  */
-class ScaleDownEvaluator {
+public class ScaleDownEvaluator {
 
-    static List<ServiceJobTask> selectTasksToTerminate(List<ServiceJobTask> allTasks, int expectedSize, TitusRuntime titusRuntime) {
+    public static List<ServiceJobTask> selectTasksToTerminate(List<ServiceJobTask> allTasks, int expectedSize, TitusRuntime titusRuntime) {
         int targetTerminateCount = allTasks.size() - expectedSize;
         if (targetTerminateCount <= 0) {
             return Collections.emptyList();
@@ -155,76 +157,85 @@ class ScaleDownEvaluator {
         Region region = new Region(allTasks);
 
         while (tasksToKill.size() < targetTerminateCount && region.hasMoreTasks()) {
-            // Step 1: select largest groups of tasks to scale down
-            int largestGroup = region.getLargestTaskGroup();
-
-            // Step 2: kill tasks from the largest groups, trying to maintain zone balancing
-            boolean hasMore = true;
-            while (tasksToKill.size() < targetTerminateCount && hasMore) {
-                Optional<Zone> zoneOpt = region.getLargestZoneWithTaskGroupSize(largestGroup);
-                if (hasMore = zoneOpt.isPresent()) {
-                    // Step 3: remove oldest task
-                    Optional<ServiceJobTask> removedTask = zoneOpt.get().removeOldestTaskFromLargestTaskGroup();
-                    removedTask.ifPresent(tasksToKill::add);
-                    if (!removedTask.isPresent()) {
-                        titusRuntime.getCodeInvariants().inconsistent("Expected task, but found nothing. Terminating evaluation loop of job %s", allTasks.get(0).getJobId());
-                        return tasksToKill;
-                    }
-                }
+            Optional<ServiceJobTask> removedTask = region.removeNextTask();
+            if (!removedTask.isPresent()) {
+                titusRuntime.getCodeInvariants().inconsistent("Expected task, but found nothing. Terminating evaluation loop of job %s", allTasks.get(0).getJobId());
+                return tasksToKill;
             }
+            tasksToKill.add(removedTask.get());
         }
 
         return tasksToKill;
     }
 
+    /**
+     * Zones ordered by their largest task group size, and next by their task count (both descending). Zones that
+     * are equal according to these criteria are ordered by the zone map iteration order.
+     */
     static class Region {
 
-        private final Map<String, Zone> zones;
+        private static final Comparator<Zone> ZONE_COMPARATOR = Comparator.comparingInt(Zone::getLargestTaskGroupSize).reversed()
+                .thenComparing(Comparator.comparingInt(Zone::getTaskCount).reversed())
+                .thenComparingInt(Zone::getOrder);
+
+        private final PriorityQueue<Zone> zones = new PriorityQueue<>(ZONE_COMPARATOR);
 
         Region(List<ServiceJobTask> allTasks) {
             Map<String, List<ServiceJobTask>> byZone = new HashMap<>();
             allTasks.forEach(task -> byZone.computeIfAbsent(toZoneId(task), t -> new ArrayList<>()).add(task));
-            this.zones = byZone.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> new Zone(e.getValue())));
+
+            int order = 0;
+            for (List<ServiceJobTask> zoneTasks : byZone.values()) {
+                zones.add(new Zone(order++, zoneTasks));
+            }
         }
 
         String toZoneId(Task task) {
             return task.getTaskContext().getOrDefault(TaskAttributes.TASK_ATTRIBUTES_AGENT_ZONE, "default");
         }
 
-        int getLargestTaskGroup() {
-            return zones.values().stream().mapToInt(Zone::getLargestTaskGroupSize).max().orElse(0);
-        }
-
-        Optional<Zone> getLargestZoneWithTaskGroupSize(int largestGroup) {
-            Zone selectedZone = null;
-            for (Zone zone : zones.values()) {
-                if (zone.getLargestTaskGroupSize() >= largestGroup) {
-                    if (selectedZone == null) {
-                        selectedZone = zone;
-                    } else {
-                        if (selectedZone.getTaskCount() < zone.getTaskCount()) {
-                            selectedZone = zone;
-                        }
-                    }
-                }
+        /**
+         * Removes the oldest task from the largest task group. If there is more than one zone with a task group of
+         * this size, the zone with the highest number of tasks is selected. Only the selected zone changes its
+         * position in the queue, so it is removed from the queue, and added back after the update.
+         */
+        Optional<ServiceJobTask> removeNextTask() {
+            Zone zone = zones.poll();
+            if (zone == null) {
+                return Optional.empty();
             }
-            return Optional.ofNullable(selectedZone);
+            Optional<ServiceJobTask> removedTask = zone.removeOldestTaskFromLargestTaskGroup();
+            if (zone.getTaskCount() > 0) {
+                zones.add(zone);
+            }
+            return removedTask;
         }
 
         boolean hasMoreTasks() {
-            return zones.values().stream().anyMatch(z -> z.getTaskCount() > 0);
+            return !zones.isEmpty();
         }
     }
 
     static class Zone {
 
-        private final Map<String, List<ServiceJobTask>> tasksByAgentId;
+        private static final Comparator<AgentTaskGroup> TASK_GROUP_COMPARATOR = Comparator.comparingInt(AgentTaskGroup::getTaskCount).reversed()
+                .thenComparingInt(AgentTaskGroup::getOrder);
+
+        private final int order;
+        private final PriorityQueue<AgentTaskGroup> taskGroups = new PriorityQueue<>(TASK_GROUP_COMPARATOR);
         private int taskCount;
 
-        Zone(List<ServiceJobTask> tasks) {
+        Zone(int order, List<ServiceJobTask> tasks) {
+            this.order = order;
             this.taskCount = tasks.size();
-            this.tasksByAgentId = new HashMap<>();
+
+            Map<String, List<ServiceJobTask>> tasksByAgentId = new HashMap<>();
             tasks.forEach(task -> tasksByAgentId.computeIfAbsent(toAgentId(task), t -> new ArrayList<>()).add(task));
+
+            int groupOrder = 0;
+            for (List<ServiceJobTask> agentTasks : tasksByAgentId.values()) {
+                taskGroups.add(new AgentTaskGroup(groupOrder++, agentTasks));
+            }
         }
 
         String toAgentId(Task task) {
@@ -232,36 +243,58 @@ class ScaleDownEvaluator {
         }
 
         int getLargestTaskGroupSize() {
-            return tasksByAgentId.values().stream().mapToInt(List::size).max().orElse(0);
+            AgentTaskGroup largestGroup = taskGroups.peek();
+            return largestGroup == null ? 0 : largestGroup.getTaskCount();
         }
 
         Optional<ServiceJobTask> removeOldestTaskFromLargestTaskGroup() {
-            if (taskCount == 0) {
+            AgentTaskGroup largestGroup = taskGroups.poll();
+            if (largestGroup == null) {
                 return Optional.empty();
             }
-            return tasksByAgentId.entrySet().stream()
-                    .max(Comparator.comparingInt(l -> l.getValue().size()))
-                    .map(largestGroupEntry -> {
-                                List<ServiceJobTask> tasks = largestGroupEntry.getValue();
-
-                                int bestIdx = 0;
-                                long bestTimestamp = tasks.get(0).getStatus().getTimestamp();
-
-                                for (int i = 1; i < tasks.size(); i++) {
-                                    long currentTimestamp = tasks.get(i).getStatus().getTimestamp();
-                                    if (currentTimestamp < bestTimestamp) {
-                                        bestIdx = i;
-                                        bestTimestamp = currentTimestamp;
-                                    }
-                                }
-                                taskCount--;
-                                return tasks.remove(bestIdx);
-                            }
-                    );
+            ServiceJobTask oldestTask = largestGroup.removeOldestTask();
+            if (largestGroup.getTaskCount() > 0) {
+                taskGroups.add(largestGroup);
+            }
+            taskCount--;
+            return Optional.of(oldestTask);
         }
 
         int getTaskCount() {
             return taskCount;
         }
+
+        int getOrder() {
+            return order;
+        }
+    }
+
+    /**
+     * Tasks running on the same agent, sorted by their status timestamp (oldest first). Tasks with the same
+     * timestamp keep their original order.
+     */
+    static class AgentTaskGroup {
+
+        private final int order;
+        private final List<ServiceJobTask> tasksByAge;
+        private int next;
+
+        AgentTaskGroup(int order, List<ServiceJobTask> tasks) {
+            this.order = order;
+            this.tasksByAge = new ArrayList<>(tasks);
+            tasksByAge.sort(Comparator.comparingLong(task -> task.getStatus().getTimestamp()));
+        }
+
+        ServiceJobTask removeOldestTask() {
+            return tasksByAge.get(next++);
+        }
+
+        int getTaskCount() {
+            return tasksByAge.size() - next;
+        }
+
+        int getOrder() {
+            return order;
+        }
     }
 }
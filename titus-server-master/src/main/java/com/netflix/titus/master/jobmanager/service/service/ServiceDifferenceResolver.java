@@ -44,6 +44,7 @@ import com.netflix.titus.common.util.time.Clock;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.master.VirtualMachineMasterService;
 import com.netflix.titus.master.jobmanager.service.JobManagerConfiguration;
+import com.netflix.titus.master.jobmanager.service.TaskTimeoutWheel;
 import com.netflix.titus.master.jobmanager.service.JobManagerUtil;
 import com.netflix.titus.master.jobmanager.service.common.DifferenceResolverUtils;
 import com.netflix.titus.master.jobmanager.service.common.action.TaskRetryers;
@@ -80,6 +81,7 @@ public class ServiceDifferenceResolver implements ReconciliationEngine.Differenc
     private final ConstraintEvaluatorTransformer<Pair<String, String>> constraintEvaluatorTransformer;
     private final SystemSoftConstraint systemSoftConstraint;
     private final SystemHardConstraint systemHardConstraint;
+    private final TaskTimeoutWheel taskTimeoutWheel;
 
     private final RetryActionInterceptor storeWriteRetryInterceptor;
 
@@ -96,9 +98,10 @@ public class ServiceDifferenceResolver implements ReconciliationEngine.Differenc
             ConstraintEvaluatorTransformer<Pair<String, String>> constraintEvaluatorTransformer,
             SystemSoftConstraint systemSoftConstraint,
             SystemHardConstraint systemHardConstraint,
+            TaskTimeoutWheel taskTimeoutWheel,
             TitusRuntime titusRuntime) {
         this(configuration, capacityGroupService, schedulingService, vmService, jobStore, constraintEvaluatorTransformer,
-                systemSoftConstraint, systemHardConstraint, titusRuntime, Schedulers.computation());
+                systemSoftConstraint, systemHardConstraint, taskTimeoutWheel, titusRuntime, Schedulers.computation());
     }
 
     public ServiceDifferenceResolver(
@@ -110,6 +113,7 @@ public class ServiceDifferenceResolver implements ReconciliationEngine.Differenc
             ConstraintEvaluatorTransformer<Pair<String, String>> constraintEvaluatorTransformer,
             SystemSoftConstraint systemSoftConstraint,
             SystemHardConstraint systemHardConstraint,
+            TaskTimeoutWheel taskTimeoutWheel,
             TitusRuntime titusRuntime,
             Scheduler scheduler) {
         this.configuration = configuration;
@@ -120,6 +124,7 @@ public class ServiceDifferenceResolver implements ReconciliationEngine.Differenc
         this.constraintEvaluatorTransformer = constraintEvaluatorTransformer;
         this.systemSoftConstraint = systemSoftConstraint;
         this.systemHardConstraint = systemHardConstraint;
+        this.taskTimeoutWheel = taskTimeoutWheel;
         this.titusRuntime = titusRuntime;
         this.clock = titusRuntime.getClock();
 
@@ -157,7 +162,7 @@ public class ServiceDifferenceResolver implements ReconciliationEngine.Differenc
                     engine, vmService, jobStore, TaskStatus.REASON_TASK_KILLED, "Killing task as its job is in KillInitiated state", titusRuntime
             );
             if (killInitiatedActions.isEmpty()) {
-                return findTaskStateTimeouts(engine, runningJobView, configuration, vmService, jobStore, titusRuntime);
+                return findTaskStateTimeouts(engine, runningJobView, configuration, vmService, jobStore, taskTimeoutWheel, titusRuntime);
             }
             return killInitiatedActions;
         } else if (hasJobState(referenceModel, JobState.Finished)) {
@@ -170,7 +175,7 @@ public class ServiceDifferenceResolver implements ReconciliationEngine.Differenc
         if (numberOfTaskAdjustingActions.isEmpty()) {
             actions.addAll(findMissingRunningTasks(engine, refJobView, runningJobView));
         }
-        actions.addAll(findTaskStateTimeouts(engine, runningJobView, configuration, vmService, jobStore, titusRuntime));
+        actions.addAll(findTaskStateTimeouts(engine, runningJobView, configuration, vmService, jobStore, taskTimeoutWheel, titusRuntime));
 
         return actions;
     }
@@ -180,8 +185,7 @@ public class ServiceDifferenceResolver implements ReconciliationEngine.Differenc
      */
     private List<ChangeAction> findJobSizeInconsistencies(ReconciliationEngine<JobManagerReconcilerEvent> engine, ServiceJobView refJobView, EntityHolder storeModel, AtomicInteger allowedNewTasks) {
         boolean canUpdateStore = storeWriteRetryInterceptor.executionLimits(storeModel);
-        List<ServiceJobTask> tasks = refJobView.getTasks();
-        int missing = refJobView.getRequiredSize() - tasks.size();
+        int missing = refJobView.getRequiredSize() - refJobView.getAggregate().getTaskCount();
         if (canUpdateStore && missing > 0) {
             List<ChangeAction> missingTasks = new ArrayList<>();
             for (int i = 0; i < missing && allowedNewTasks.get() > 0; i++) {
@@ -191,9 +195,10 @@ public class ServiceDifferenceResolver implements ReconciliationEngine.Differenc
             return missingTasks;
         } else if (missing < 0) {
             // Too many tasks (job was scaled down)
-            int finishedCount = (int) tasks.stream().filter(t -> t.getStatus().getState() == TaskState.Finished).count();
+            int finishedCount = refJobView.getAggregate().getTaskCount(TaskState.Finished);
             int toRemoveCount = -missing - finishedCount;
             if (toRemoveCount > 0) {
+                List<ServiceJobTask> tasks = refJobView.getTasks();
                 List<ServiceJobTask> tasksToRemove = ScaleDownEvaluator.selectTasksToTerminate(tasks, tasks.size() - toRemoveCount, titusRuntime);
                 return tasksToRemove.stream()
                         .filter(t -> !isTerminating(t))
@@ -226,6 +231,9 @@ public class ServiceDifferenceResolver implements ReconciliationEngine.Differenc
      * Check that for each reference job task, there is a corresponding running task.
      */
     private List<ChangeAction> findMissingRunningTasks(ReconciliationEngine<JobManagerReconcilerEvent> engine, ServiceJobView refJobView, ServiceJobView runningJobView) {
+        if (refJobView.getAggregate().hasSameTaskIds(runningJobView.getAggregate())) {
+            return Collections.emptyList();
+        }
         List<ChangeAction> missingTasks = new ArrayList<>();
         List<ServiceJobTask> tasks = refJobView.getTasks();
         for (ServiceJobTask refTask : tasks) {
@@ -294,9 +302,7 @@ public class ServiceDifferenceResolver implements ReconciliationEngine.Differenc
     }
 
     private long getNumberOfNotFinishedTasks(ServiceJobView refJobView) {
-        return refJobView.getJobHolder().getChildren().stream()
-                .filter(holder -> TaskState.isRunning(((Task) holder.getEntity()).getStatus().getState()))
-                .count();
+        return refJobView.getAggregate().getNotFinishedTaskCount();
     }
 
     private boolean hasEnoughTasksRunning(ServiceJobView refJobView) {
@@ -43,6 +43,13 @@ public interface MesosConfiguration {
     @DefaultValue("false")
     boolean isAllowReconcilerUpdatesForUnknownTasks();
 
+    /**
+     * @return the maximum number of task ids for which reconciler updates are counted individually. Updates for the
+     * remaining tasks are counted under an overflow task id.
+     */
+    @DefaultValue("200")
+    int getMaxReconcilerUpdateMetricsTaskIds();
+
     /**
      * @return whether or not the nested containers should be allowed.
      */
@@ -51,6 +51,8 @@ import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.RegExpExt;
 import com.netflix.titus.common.util.StringExt;
+import com.netflix.titus.common.util.spectator.MetricCardinalityGuard;
+import com.netflix.titus.common.util.spectator.SpectatorExt;
 import com.netflix.titus.master.MetricConstants;
 import com.netflix.titus.master.Status;
 import com.netflix.titus.master.config.MasterConfiguration;
@@ -91,6 +93,11 @@ public class MesosSchedulerCallbackHandler implements Scheduler {
     private Observer<String> vmLeaseRescindedObserver;
     private Observer<ContainerEvent> vmTaskStatusObserver;
     private static final Logger logger = LoggerFactory.getLogger(MesosSchedulerCallbackHandler.class);
+
+    /**
+     * Task ids not seen in reconciler updates for this long give back their metric budget.
+     */
+    private static final long RECONCILER_UPDATE_METRICS_EXPIRY_MS = TimeUnit.MINUTES.toMillis(15);
     private final V2JobOperations v2JobOperations;
     private final V3JobOperations v3JobOperations;
     private volatile ScheduledFuture reconcilerFuture = null;
@@ -99,6 +106,7 @@ public class MesosSchedulerCallbackHandler implements Scheduler {
     private final Registry registry;
     private final Optional<FitInjection> taskStatusUpdateFitInjection;
     private final MesosStateTracker mesosStateTracker;
+    private final MetricCardinalityGuard reconcilerUpdateMetricsGuard;
 
     private AtomicLong lastOfferReceivedAt = new AtomicLong(System.currentTimeMillis());
     private AtomicLong lastValidOfferReceivedAt = new AtomicLong(System.currentTimeMillis());
@@ -152,6 +160,14 @@ public class MesosSchedulerCallbackHandler implements Scheduler {
         this.mesosConfiguration = mesosConfiguration;
         this.registry = titusRuntime.getRegistry();
         this.mesosStateTracker = new MesosStateTracker(config, titusRuntime);
+        this.reconcilerUpdateMetricsGuard = SpectatorExt.cardinalityGuard(
+                MetricConstants.METRIC_MESOS + "cardinality.",
+                Collections.singleton("taskId"),
+                mesosConfiguration.getMaxReconcilerUpdateMetricsTaskIds(),
+                RECONCILER_UPDATE_METRICS_EXPIRY_MS,
+                titusRuntime.getClock(),
+                registry
+        );
 
         numMesosRegistered = registry.counter(MetricConstants.METRIC_MESOS + "numMesosRegistered");
         numMesosDisconnects = registry.counter(MetricConstants.METRIC_MESOS + "numMesosDisconnects");
@@ -440,7 +456,7 @@ public class MesosSchedulerCallbackHandler implements Scheduler {
         String taskId = taskStatus.getTaskId().getValue();
         boolean known = isKnown(taskId);
 
-        registry.counter(
+        reconcilerUpdateMetricsGuard.counter(
                 MetricConstants.METRIC_MESOS + "reconcilerUpdates",
                 "taskId", taskId,
                 "known", Boolean.toString(known)
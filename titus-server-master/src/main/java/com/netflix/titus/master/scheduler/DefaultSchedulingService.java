@@ -679,6 +679,15 @@ public class DefaultSchedulingService implements SchedulingService {
         taskQueue.queueTask(queuableTask);
     }
 
+    @Override
+    public void addTasks(Collection<QueuableTask> queuableTasks) {
+        logger.info("Adding {} tasks to Fenzo", queuableTasks.size());
+        for (QueuableTask queuableTask : queuableTasks) {
+            logger.debug("Adding task to Fenzo: taskId={}, qAttributes={}", queuableTask.getId(), queuableTask.getQAttributes());
+            taskQueue.queueTask(queuableTask);
+        }
+    }
+
     @Override
     public void removeTask(String taskId, QAttributes qAttributes, String hostname) {
         logger.info("Removing task from Fenzo: taskId={}, qAttributes={}, hostname={}", taskId, qAttributes, hostname);
@@ -50,6 +50,11 @@ public interface SchedulingService {
 
     void addTask(QueuableTask queuableTask);
 
+    /**
+     * Adds a batch of tasks to the Fenzo queue. Used during the bootstrap, when all Accepted tasks are queued at once.
+     */
+    void addTasks(Collection<QueuableTask> queuableTasks);
+
     void removeTask(String taskid, QAttributes qAttributes, String hostname);
 
     void initRunningTask(QueuableTask task, String hostname);
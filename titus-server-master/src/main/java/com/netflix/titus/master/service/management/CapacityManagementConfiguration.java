@@ -65,4 +65,11 @@ public interface CapacityManagementConfiguration {
      */
     @DefaultValue("0.05")
     double getFlexTierBuffer();
-}
\ No newline at end of file
+
+    /**
+     * Resource consumption is tracked incrementally. This is the interval at which a full evaluation is run to
+     * cross-check the incremental state.
+     */
+    @DefaultValue("60000")
+    long getFullConsumptionEvaluationIntervalMs();
+}
@@ -24,19 +24,26 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Gauge;
 import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.guice.ProxyType;
 import com.netflix.titus.common.util.guice.annotation.Activator;
 import com.netflix.titus.common.util.guice.annotation.ProxyConfiguration;
 import com.netflix.titus.common.util.rx.ObservableExt;
 import com.netflix.titus.master.MetricConstants;
+import com.netflix.titus.master.Status;
 import com.netflix.titus.master.job.V2JobOperations;
+import com.netflix.titus.master.job.worker.WorkerStateMonitor;
 import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
 import com.netflix.titus.master.service.management.CapacityManagementConfiguration;
 import com.netflix.titus.master.service.management.CompositeResourceConsumption;
@@ -59,9 +66,11 @@ import rx.subjects.PublishSubject;
 import static com.netflix.titus.common.util.CollectionsExt.copyAndRemove;
 
 /**
- * Periodically checks for SLA violations, and a pre-configured interval.
- *
- * @TODO Improve this implementation by immediately reacting to state changes in the system.
+ * Tracks resource consumption per capacity group and application. Consumption aggregates are updated incrementally
+ * from V3 job/task events and V2 worker state changes (see {@link IncrementalResourceConsumptionEvaluator}), and
+ * {@link ResourceConsumptionEvent}s are emitted as soon as a capacity group consumption changes. A full evaluation is
+ * run periodically to cross-check the incremental state. Any detected drift is reported as a metric, and the
+ * incremental state is rebuilt from scratch.
  */
 @Singleton
 @ProxyConfiguration(types = ProxyType.ActiveGuard)
@@ -74,11 +83,21 @@ public class DefaultResourceConsumptionService implements ResourceConsumptionSer
     static final long UPDATE_INTERVAL_MS = 5000;
 
     private final Supplier<ConsumptionEvaluationResult> evaluator;
+    private final IncrementalResourceConsumptionEvaluator incrementalEvaluator;
+    private final Observable<JobManagerEvent<?>> v3JobEvents;
+    private final Observable<Status> v2WorkerEvents;
+    private final long fullEvaluationIntervalMs;
     private final Registry registry;
     private final Scheduler.Worker worker;
 
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+    private final Counter driftCounter;
+    private final Gauge driftedCapacityGroupsGauge;
+
     private ResourceConsumptionServiceMetrics metrics;
     private Subscription subscription;
+    private Subscription v3EventSubscription;
+    private Subscription v2EventSubscription;
 
     private final PublishSubject<ResourceConsumptionEvent> eventsSubject = PublishSubject.create();
 
@@ -88,24 +107,63 @@ public class DefaultResourceConsumptionService implements ResourceConsumptionSer
     public DefaultResourceConsumptionService(ApplicationSlaManagementService applicationSlaManagementService,
                                              V2JobOperations v2JobOperations,
                                              V3JobOperations v3JobOperations,
+                                             WorkerStateMonitor workerStateMonitor,
                                              CapacityManagementConfiguration config,
-                                             Registry registry) {
-        this(ResourceConsumptionEvaluator.newEvaluator(applicationSlaManagementService, v2JobOperations, v3JobOperations, config), registry, Schedulers.computation());
+                                             TitusRuntime titusRuntime) {
+        this(
+                ResourceConsumptionEvaluator.newEvaluator(applicationSlaManagementService, v2JobOperations, v3JobOperations, config),
+                new IncrementalResourceConsumptionEvaluator(applicationSlaManagementService, v2JobOperations, v3JobOperations, config),
+                titusRuntime.persistentStream(Observable.defer(v3JobOperations::observeJobs)),
+                titusRuntime.persistentStream(Observable.defer(workerStateMonitor::getAllStatusObservable)),
+                config.getFullConsumptionEvaluationIntervalMs(),
+                titusRuntime.getRegistry(),
+                Schedulers.computation()
+        );
     }
 
+    /**
+     * Creates a service instance which does not track changes incrementally, but runs the provided evaluator every
+     * {@link #UPDATE_INTERVAL_MS}.
+     */
     /* For testing */ DefaultResourceConsumptionService(Supplier<ConsumptionEvaluationResult> evaluator,
                                                         Registry registry,
                                                         Scheduler scheduler) {
+        this(evaluator, null, Observable.never(), Observable.never(), UPDATE_INTERVAL_MS, registry, scheduler);
+    }
+
+    /* For testing */ DefaultResourceConsumptionService(Supplier<ConsumptionEvaluationResult> evaluator,
+                                                        IncrementalResourceConsumptionEvaluator incrementalEvaluator,
+                                                        Observable<JobManagerEvent<?>> v3JobEvents,
+                                                        Observable<Status> v2WorkerEvents,
+                                                        long fullEvaluationIntervalMs,
+                                                        Registry registry,
+                                                        Scheduler scheduler) {
         this.evaluator = evaluator;
+        this.incrementalEvaluator = incrementalEvaluator;
+        this.v3JobEvents = v3JobEvents;
+        this.v2WorkerEvents = v2WorkerEvents;
+        this.fullEvaluationIntervalMs = fullEvaluationIntervalMs;
         this.registry = registry;
         this.worker = scheduler.createWorker();
+        this.driftCounter = registry.counter(METRIC_CONSUMPTION + "drift");
+        this.driftedCapacityGroupsGauge = registry.gauge(METRIC_CONSUMPTION + "driftedCapacityGroups");
     }
 
     @Activator
     public Observable<Void> enterActiveMode() {
         logger.info("Entering active mode");
         this.metrics = new ResourceConsumptionServiceMetrics(registry.createId(METRIC_CONSUMPTION), registry);
-        this.subscription = worker.schedulePeriodically(this::updateInfo, 0, UPDATE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (incrementalEvaluator == null) {
+            this.subscription = worker.schedulePeriodically(() -> updateInfo(evaluator.get()), 0, UPDATE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        } else {
+            // Subscribe first, so no change is lost between the initial state load and the event stream subscription.
+            // Events received before the resync are applied to the empty evaluator state, and replaced by the resync.
+            subscribeToV3Events();
+            subscribeToV2Events();
+            incrementalEvaluator.resync();
+            worker.schedule(() -> updateInfo(incrementalEvaluator.getEvaluation()));
+            this.subscription = worker.schedulePeriodically(this::crossCheck, fullEvaluationIntervalMs, fullEvaluationIntervalMs, TimeUnit.MILLISECONDS);
+        }
         return Observable.empty();
     }
 
@@ -114,6 +172,12 @@ public class DefaultResourceConsumptionService implements ResourceConsumptionSer
         if (subscription != null) {
             subscription.unsubscribe();
         }
+        if (v3EventSubscription != null) {
+            v3EventSubscription.unsubscribe();
+        }
+        if (v2EventSubscription != null) {
+            v2EventSubscription.unsubscribe();
+        }
         worker.unsubscribe();
         eventsSubject.onCompleted();
     }
@@ -152,9 +216,91 @@ public class DefaultResourceConsumptionService implements ResourceConsumptionSer
         }));
     }
 
-    private void updateInfo() {
+    private void subscribeToV3Events() {
+        this.v3EventSubscription = v3JobEvents.subscribe(
+                event -> applyChange(() -> incrementalEvaluator.apply(event)),
+                e -> onEventStreamError("V3 job", e, this::subscribeToV3Events)
+        );
+    }
+
+    private void subscribeToV2Events() {
+        this.v2EventSubscription = v2WorkerEvents.subscribe(
+                status -> applyChange(() -> status.getJobId() != null && incrementalEvaluator.applyV2JobChange(status.getJobId())),
+                e -> onEventStreamError("V2 worker", e, this::subscribeToV2Events)
+        );
+    }
+
+    /**
+     * A failure of a single change must not terminate the event stream subscription, so it is logged, and the
+     * incremental state is rebuilt from scratch.
+     */
+    private void applyChange(Supplier<Boolean> change) {
+        try {
+            if (change.get()) {
+                scheduleIncrementalUpdate();
+            }
+        } catch (Exception e) {
+            logger.warn("Cannot apply resource consumption change; rebuilding incremental state", e);
+            scheduleResync();
+        }
+    }
+
+    /**
+     * Changes emitted while the event stream is down are lost, so the incremental state is rebuilt after resubscribing.
+     */
+    private void onEventStreamError(String streamName, Throwable error, Runnable resubscribe) {
+        logger.warn("{} event stream terminated with an error; resubscribing in {}ms", streamName, UPDATE_INTERVAL_MS, error);
+        worker.schedule(() -> {
+            resubscribe.run();
+            resync();
+        }, UPDATE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void scheduleResync() {
+        worker.schedule(this::resync);
+    }
+
+    private void resync() {
+        try {
+            incrementalEvaluator.resync();
+            updateInfo(incrementalEvaluator.getEvaluation());
+        } catch (Exception e) {
+            logger.warn("Resource consumption incremental state rebuild failure", e);
+        }
+    }
+
+    /**
+     * Coalesces bursts of changes into a single evaluation, executed on the service worker thread.
+     */
+    private void scheduleIncrementalUpdate() {
+        if (updateScheduled.compareAndSet(false, true)) {
+            worker.schedule(() -> {
+                updateScheduled.set(false);
+                updateInfo(incrementalEvaluator.getEvaluation());
+            });
+        }
+    }
+
+    private void crossCheck() {
+        try {
+            ConsumptionEvaluationResult fullEvaluation = evaluator.get();
+            ConsumptionEvaluationResult incrementalEvaluation = incrementalEvaluator.getEvaluation();
+
+            int drifted = IncrementalResourceConsumptionEvaluator.countDriftedCapacityGroups(incrementalEvaluation, fullEvaluation);
+            driftedCapacityGroupsGauge.set(drifted);
+            if (drifted > 0) {
+                logger.info("Incremental resource consumption state drifted for {} capacity group(s); rebuilding it", drifted);
+                driftCounter.increment(drifted);
+                incrementalEvaluator.resync();
+            }
+            updateInfo(incrementalEvaluator.getEvaluation());
+        } catch (Exception e) {
+            logger.warn("Resource consumption cross-check failure", e);
+        }
+    }
+
+    private void updateInfo(ConsumptionEvaluationResult evaluationResult) {
         try {
-            ConsumptionEvaluationResult evaluationResult = evaluator.get();
             metrics.update(evaluationResult);
 
             ConsumptionEvaluationResult oldEvaluation = latestEvaluation;
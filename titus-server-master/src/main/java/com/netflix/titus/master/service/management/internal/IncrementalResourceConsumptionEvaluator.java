@@ -0,0 +1,471 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.service.management.internal;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.model.ApplicationSLA;
+import com.netflix.titus.api.model.ResourceDimension;
+import com.netflix.titus.api.model.v2.V2JobState;
+import com.netflix.titus.api.model.v2.parameter.Parameters;
+import com.netflix.titus.api.store.v2.V2JobMetadata;
+import com.netflix.titus.api.store.v2.V2StageMetadata;
+import com.netflix.titus.api.store.v2.V2WorkerMetadata;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.job.V2JobMgrIntf;
+import com.netflix.titus.master.job.V2JobOperations;
+import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
+import com.netflix.titus.master.service.management.CapacityManagementConfiguration;
+import com.netflix.titus.master.service.management.CompositeResourceConsumption;
+import com.netflix.titus.master.service.management.ResourceConsumption;
+import com.netflix.titus.master.service.management.ResourceConsumption.ConsumptionLevel;
+import com.netflix.titus.master.service.management.ResourceConsumptions;
+
+import static com.netflix.titus.master.service.management.ApplicationSlaManagementService.DEFAULT_APPLICATION;
+
+/**
+ * Maintains resource consumption aggregates per capacity group and application, updated from job and task change
+ * events. Each job contributes to exactly one application aggregate, and a task state change is applied by removing
+ * the job contribution, updating the job state, and adding it back, so the update cost does not depend on the number
+ * of jobs or tasks in the system. {@link CompositeResourceConsumption} values are rebuilt lazily, only for capacity
+ * groups that changed since the last {@link #getEvaluation()} call.
+ * <p>
+ * Unlike {@link ResourceConsumptionEvaluator}, finished tasks are not counted in the task state attributes, as there
+ * is no event emitted when a finished task is removed from the job.
+ * <p>
+ * All methods are synchronized, as events from the V2 and V3 engines arrive on different threads.
+ */
+class IncrementalResourceConsumptionEvaluator {
+
+    private static final int STATE_COUNT = V2JobState.values().length;
+
+    private final ApplicationSlaManagementService applicationSlaManagementService;
+    private final V2JobOperations v2JobOperations;
+    private final V3JobOperations v3JobOperations;
+    private final CapacityManagementConfiguration config;
+
+    // Empty until the first resync, so events received before it can be applied safely.
+    private Set<String> definedCapacityGroups = Collections.emptySet();
+    private Map<String, ApplicationSLA> applicationSlaMap = Collections.emptyMap();
+
+    private final Map<String, JobEntry> jobs = new HashMap<>();
+    private final Map<String, Map<String, AppAccumulator>> accumulators = new HashMap<>();
+    private final Map<String, Integer> undefinedCapacityGroupJobCounts = new HashMap<>();
+    private final Map<String, CompositeResourceConsumption> capacityGroupConsumptions = new HashMap<>();
+    private final Set<String> dirtyCapacityGroups = new HashSet<>();
+
+    IncrementalResourceConsumptionEvaluator(ApplicationSlaManagementService applicationSlaManagementService,
+                                            V2JobOperations v2JobOperations,
+                                            V3JobOperations v3JobOperations,
+                                            CapacityManagementConfiguration config) {
+        this.applicationSlaManagementService = applicationSlaManagementService;
+        this.v2JobOperations = v2JobOperations;
+        this.v3JobOperations = v3JobOperations;
+        this.config = config;
+    }
+
+    /**
+     * Discards the current state, and rebuilds it from scratch by reading all V2 and V3 jobs. Capacity group
+     * definitions are reloaded as well.
+     */
+    synchronized void resync() {
+        Collection<ApplicationSLA> applicationSLAs = applicationSlaManagementService.getApplicationSLAs();
+        this.definedCapacityGroups = applicationSLAs.stream().map(ApplicationSLA::getAppName).collect(Collectors.toSet());
+        this.applicationSlaMap = applicationSLAs.stream().collect(Collectors.toMap(ApplicationSLA::getAppName, Function.identity()));
+
+        jobs.clear();
+        accumulators.clear();
+        undefinedCapacityGroupJobCounts.clear();
+        capacityGroupConsumptions.clear();
+        dirtyCapacityGroups.clear();
+        dirtyCapacityGroups.addAll(definedCapacityGroups);
+
+        v2JobOperations.getAllJobMgrs().forEach(jobMgr -> {
+            V2JobMetadata jobMetadata = jobMgr.getJobMetadata();
+            if (jobMetadata != null) {
+                updateV2Job(jobMetadata.getJobId(), jobMgr);
+            }
+        });
+        v3JobOperations.getJobsAndTasks().forEach(jobAndTasks -> {
+            JobEntry entry = updateV3Job(jobAndTasks.getLeft());
+            if (entry != null) {
+                removeContribution(entry);
+                jobAndTasks.getRight().forEach(entry::updateTask);
+                addContribution(entry);
+            }
+        });
+    }
+
+    /**
+     * Applies a V3 job or task change. Returns true if the current or maximum consumption of any capacity group changed.
+     */
+    synchronized boolean apply(JobManagerEvent<?> event) {
+        if (event instanceof JobUpdateEvent) {
+            Job<?> job = ((JobUpdateEvent) event).getCurrent();
+            JobEntry before = jobs.get(job.getId());
+            Pair<ResourceDimension, ResourceDimension> beforeConsumption = before == null ? null : before.getConsumption();
+            String beforeGroup = before == null ? null : before.capacityGroup;
+
+            JobEntry after = updateV3Job(job);
+            if (after == null) {
+                return before != null;
+            }
+            return before == null || !after.capacityGroup.equals(beforeGroup) || !after.getConsumption().equals(beforeConsumption);
+        }
+        if (event instanceof TaskUpdateEvent) {
+            TaskUpdateEvent taskEvent = (TaskUpdateEvent) event;
+            Task task = taskEvent.getCurrentTask();
+            JobEntry entry = jobs.get(task.getJobId());
+            if (entry == null) {
+                entry = updateV3Job(taskEvent.getCurrentJob());
+                if (entry == null) {
+                    return false;
+                }
+            }
+            int runningBefore = entry.running;
+            removeContribution(entry);
+            entry.updateTask(task);
+            addContribution(entry);
+            return runningBefore != entry.running;
+        }
+        return false;
+    }
+
+    /**
+     * Re-evaluates a V2 job, after one of its workers changed state. Returns true if the current or maximum consumption
+     * of any capacity group changed.
+     */
+    synchronized boolean applyV2JobChange(String jobId) {
+        JobEntry before = jobs.get(jobId);
+        Pair<ResourceDimension, ResourceDimension> beforeConsumption = before == null ? null : before.getConsumption();
+        String beforeGroup = before == null ? null : before.capacityGroup;
+
+        JobEntry after = updateV2Job(jobId, v2JobOperations.getJobMgr(jobId));
+        if (after == null) {
+            return before != null;
+        }
+        return before == null || !after.capacityGroup.equals(beforeGroup) || !after.getConsumption().equals(beforeConsumption);
+    }
+
+    synchronized Set<String> getDefinedCapacityGroups() {
+        return definedCapacityGroups;
+    }
+
+    synchronized DefaultResourceConsumptionService.ConsumptionEvaluationResult getEvaluation() {
+        for (String capacityGroup : dirtyCapacityGroups) {
+            ApplicationSLA sla = applicationSlaMap.get(capacityGroup);
+            if (sla == null) {
+                continue;
+            }
+            Map<String, ResourceConsumption> appConsumptions = new HashMap<>();
+            accumulators.getOrDefault(capacityGroup, Collections.emptyMap()).forEach((appName, accumulator) ->
+                    appConsumptions.put(appName, accumulator.toResourceConsumption(appName))
+            );
+            capacityGroupConsumptions.put(
+                    capacityGroup,
+                    ResourceConsumptionEvaluator.buildCapacityGroupConsumption(sla, ResourceConsumptionEvaluator.getBuffer(config, sla.getTier()), appConsumptions)
+            );
+        }
+        dirtyCapacityGroups.clear();
+
+        return new DefaultResourceConsumptionService.ConsumptionEvaluationResult(
+                definedCapacityGroups,
+                new HashSet<>(undefinedCapacityGroupJobCounts.keySet()),
+                ResourceConsumptionEvaluator.buildSystemConsumption(capacityGroupConsumptions.values(), applicationSlaMap)
+        );
+    }
+
+    private JobEntry updateV3Job(Job<?> job) {
+        JobEntry entry = jobs.get(job.getId());
+        if (job.getStatus().getState() == JobState.Finished) {
+            if (entry != null) {
+                removeJob(entry);
+            }
+            return null;
+        }
+
+        String appName = job.getJobDescriptor().getApplicationName();
+        Pair<String, String> capacityGroup = resolveCapacityGroup(job.getJobDescriptor().getCapacityGroup(), appName);
+        ResourceDimension taskResources = ResourceConsumptionEvaluator.toResourceDimension(job);
+        int max = ResourceConsumptionEvaluator.getMaxJobSize(job);
+
+        if (entry == null) {
+            entry = new JobEntry(job.getId());
+            jobs.put(job.getId(), entry);
+        } else {
+            removeContribution(entry);
+        }
+        entry.update(appName == null ? DEFAULT_APPLICATION : appName, capacityGroup.getLeft(), capacityGroup.getRight(), taskResources, max);
+        addContribution(entry);
+        return entry;
+    }
+
+    private JobEntry updateV2Job(String jobId, V2JobMgrIntf jobMgr) {
+        JobEntry entry = jobs.get(jobId);
+        V2JobMetadata jobMetadata = jobMgr == null ? null : jobMgr.getJobMetadata();
+        if (jobMetadata == null) {
+            if (entry != null) {
+                removeJob(entry);
+            }
+            return null;
+        }
+
+        V2StageMetadata stageMetadata = jobMetadata.getStageMetadata(1);
+        String appName = Parameters.getAppName(jobMetadata.getParameters());
+        Pair<String, String> capacityGroup = resolveCapacityGroup(Parameters.getCapacityGroup(jobMetadata.getParameters()), appName);
+
+        if (entry == null) {
+            entry = new JobEntry(jobId);
+            jobs.put(jobId, entry);
+        } else {
+            removeContribution(entry);
+        }
+        entry.update(
+                appName == null ? DEFAULT_APPLICATION : appName,
+                capacityGroup.getLeft(),
+                capacityGroup.getRight(),
+                ResourceConsumptionEvaluator.toResourceDimension(stageMetadata),
+                ResourceConsumptionEvaluator.getMaxJobSize(jobMetadata, stageMetadata)
+        );
+        entry.setV2Workers(stageMetadata.getAllWorkers());
+        addContribution(entry);
+        return entry;
+    }
+
+    /**
+     * Returns a pair of (effective capacity group, undefined capacity group name or null).
+     */
+    private Pair<String, String> resolveCapacityGroup(String capacityGroup, String appName) {
+        if (capacityGroup == null) {
+            if (appName != null && definedCapacityGroups.contains(appName)) {
+                return Pair.of(appName, null);
+            }
+            return Pair.of(DEFAULT_APPLICATION, null);
+        }
+        if (!definedCapacityGroups.contains(capacityGroup)) {
+            return Pair.of(DEFAULT_APPLICATION, capacityGroup);
+        }
+        return Pair.of(capacityGroup, null);
+    }
+
+    private void removeJob(JobEntry entry) {
+        removeContribution(entry);
+        jobs.remove(entry.jobId);
+    }
+
+    private void addContribution(JobEntry entry) {
+        accumulators.computeIfAbsent(entry.capacityGroup, g -> new HashMap<>())
+                .computeIfAbsent(entry.appName, a -> new AppAccumulator())
+                .add(entry, 1);
+        if (entry.undefinedCapacityGroup != null) {
+            undefinedCapacityGroupJobCounts.merge(entry.undefinedCapacityGroup, 1, Integer::sum);
+        }
+        dirtyCapacityGroups.add(entry.capacityGroup);
+    }
+
+    private void removeContribution(JobEntry entry) {
+        Map<String, AppAccumulator> groupAccumulators = accumulators.get(entry.capacityGroup);
+        if (groupAccumulators != null) {
+            AppAccumulator accumulator = groupAccumulators.get(entry.appName);
+            if (accumulator != null) {
+                accumulator.add(entry, -1);
+                if (accumulator.jobCount <= 0) {
+                    groupAccumulators.remove(entry.appName);
+                }
+            }
+            if (groupAccumulators.isEmpty()) {
+                accumulators.remove(entry.capacityGroup);
+            }
+        }
+        if (entry.undefinedCapacityGroup != null) {
+            undefinedCapacityGroupJobCounts.computeIfPresent(entry.undefinedCapacityGroup, (k, count) -> count <= 1 ? null : count - 1);
+        }
+        dirtyCapacityGroups.add(entry.capacityGroup);
+    }
+
+    private static class JobEntry {
+
+        private final String jobId;
+        private final Map<String, TaskState> taskStates = new HashMap<>();
+        private final int[] stateCounts = new int[STATE_COUNT];
+
+        private String appName;
+        private String capacityGroup;
+        private String undefinedCapacityGroup;
+        private ResourceDimension taskResources;
+        private int max;
+        private int running;
+
+        private JobEntry(String jobId) {
+            this.jobId = jobId;
+        }
+
+        private void update(String appName, String capacityGroup, String undefinedCapacityGroup, ResourceDimension taskResources, int max) {
+            this.appName = appName;
+            this.capacityGroup = capacityGroup;
+            this.undefinedCapacityGroup = undefinedCapacityGroup;
+            this.taskResources = taskResources;
+            this.max = max;
+        }
+
+        private void updateTask(Task task) {
+            TaskState newState = task.getStatus().getState();
+            TaskState oldState = newState == TaskState.Finished
+                    ? taskStates.remove(task.getId())
+                    : taskStates.put(task.getId(), newState);
+            if (oldState != null) {
+                stateCounts[toV2JobState(oldState).ordinal()]--;
+                if (TaskState.isRunning(oldState)) {
+                    running--;
+                }
+            }
+            if (newState != TaskState.Finished) {
+                stateCounts[toV2JobState(newState).ordinal()]++;
+                if (TaskState.isRunning(newState)) {
+                    running++;
+                }
+            }
+        }
+
+        private void setV2Workers(Collection<V2WorkerMetadata> workers) {
+            Arrays.fill(stateCounts, 0);
+            running = 0;
+            for (V2WorkerMetadata worker : workers) {
+                stateCounts[worker.getState().ordinal()]++;
+                if (V2JobState.isRunningState(worker.getState())) {
+                    running++;
+                }
+            }
+        }
+
+        private Pair<ResourceDimension, ResourceDimension> getConsumption() {
+            return Pair.of(multiply(taskResources, running), multiply(taskResources, max));
+        }
+
+        private static V2JobState toV2JobState(TaskState taskState) {
+            return taskState == TaskState.Disconnected ? V2JobState.Started : JobFunctions.toV2JobState(taskState);
+        }
+    }
+
+    private static class AppAccumulator {
+
+        private final long[] current = new long[4];
+        private final long[] max = new long[4];
+        private final int[] stateCounts = new int[STATE_COUNT];
+        private double currentCpu;
+        private double maxCpu;
+        private int jobCount;
+
+        private void add(JobEntry entry, int sign) {
+            ResourceDimension resources = entry.taskResources;
+            long running = sign * entry.running;
+            long maxSize = sign * entry.max;
+
+            currentCpu += resources.getCpu() * running;
+            maxCpu += resources.getCpu() * maxSize;
+            addScaled(current, resources, running);
+            addScaled(max, resources, maxSize);
+            for (int i = 0; i < STATE_COUNT; i++) {
+                stateCounts[i] += sign * entry.stateCounts[i];
+            }
+            jobCount += sign;
+        }
+
+        private ResourceConsumption toResourceConsumption(String appName) {
+            Map<String, Object> attributes = ResourceConsumptionEvaluator.newTaskStateMap();
+            for (V2JobState state : V2JobState.values()) {
+                attributes.put(state.name(), stateCounts[state.ordinal()]);
+            }
+            return new ResourceConsumption(
+                    appName,
+                    ConsumptionLevel.Application,
+                    new ResourceDimension(Math.max(0, currentCpu), current[0], current[1], current[2], current[3]),
+                    new ResourceDimension(Math.max(0, maxCpu), max[0], max[1], max[2], max[3]),
+                    attributes
+            );
+        }
+
+        private static void addScaled(long[] values, ResourceDimension resources, long multiplier) {
+            values[0] += resources.getGpu() * multiplier;
+            values[1] += resources.getMemoryMB() * multiplier;
+            values[2] += resources.getDiskMB() * multiplier;
+            values[3] += resources.getNetworkMbs() * multiplier;
+        }
+    }
+
+    private static ResourceDimension multiply(ResourceDimension resources, int multiplier) {
+        return new ResourceDimension(
+                resources.getCpu() * multiplier,
+                resources.getGpu() * multiplier,
+                resources.getMemoryMB() * multiplier,
+                resources.getDiskMB() * multiplier,
+                resources.getNetworkMbs() * multiplier
+        );
+    }
+
+    /**
+     * Returns the number of capacity groups for which current or maximum consumption differs between the two
+     * evaluations. If the capacity group definitions changed, all groups are counted as drifted.
+     */
+    static int countDriftedCapacityGroups(DefaultResourceConsumptionService.ConsumptionEvaluationResult incremental,
+                                          DefaultResourceConsumptionService.ConsumptionEvaluationResult full) {
+        if (!incremental.getDefinedCapacityGroups().equals(full.getDefinedCapacityGroups())) {
+            return full.getDefinedCapacityGroups().size();
+        }
+        Map<String, ResourceConsumption> incrementalGroups = ResourceConsumptions.groupBy(
+                incremental.getSystemConsumption(), ConsumptionLevel.CapacityGroup
+        );
+        Map<String, ResourceConsumption> fullGroups = ResourceConsumptions.groupBy(
+                full.getSystemConsumption(), ConsumptionLevel.CapacityGroup
+        );
+        int drifted = 0;
+        for (Map.Entry<String, ResourceConsumption> entry : fullGroups.entrySet()) {
+            ResourceConsumption other = incrementalGroups.get(entry.getKey());
+            if (other == null
+                    || !isSame(entry.getValue().getCurrentConsumption(), other.getCurrentConsumption())
+                    || !isSame(entry.getValue().getMaxConsumption(), other.getMaxConsumption())) {
+                drifted++;
+            }
+        }
+        return drifted;
+    }
+
+    private static boolean isSame(ResourceDimension first, ResourceDimension second) {
+        return Math.abs(first.getCpu() - second.getCpu()) < 0.001
+                && first.getGpu() == second.getGpu()
+                && first.getMemoryMB() == second.getMemoryMB()
+                && first.getDiskMB() == second.getDiskMB()
+                && first.getNetworkMbs() == second.getNetworkMbs();
+    }
+}
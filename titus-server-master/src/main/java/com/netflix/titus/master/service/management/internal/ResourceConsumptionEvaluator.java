@@ -111,25 +111,38 @@ class ResourceConsumptionEvaluator {
 
     private CompositeResourceConsumption buildSystemConsumption(Map<String, Map<String, ResourceConsumption>> capacityGroupConsumptionMap) {
         // Capacity group level
-        Map<Tier, List<CompositeResourceConsumption>> tierConsumptions = new HashMap<>();
+        List<CompositeResourceConsumption> capacityGroupConsumptions = new ArrayList<>();
         capacityGroupConsumptionMap.forEach((capacityGroup, appConsumptions) -> {
-
             ApplicationSLA sla = applicationSlaMap.get(capacityGroup);
-            double buffer = getBuffer(sla.getTier());
-            ResourceDimension allowedConsumption = ResourceDimensions.multiply(sla.getResourceDimension(), sla.getInstanceCount() * (1 + buffer));
-            ResourceDimension maxConsumption = ResourceConsumptions.addMaxConsumptions(appConsumptions.values());
-
-            List<Map<String, Object>> attrsList = appConsumptions.values().stream().map(ResourceConsumption::getAttributes).collect(Collectors.toList());
-            CompositeResourceConsumption capacityGroupConsumption = new CompositeResourceConsumption(
-                    capacityGroup,
-                    ConsumptionLevel.CapacityGroup,
-                    ResourceConsumptions.addCurrentConsumptions(appConsumptions.values()),
-                    maxConsumption,
-                    allowedConsumption, ResourceConsumptions.mergeAttributes(attrsList),
-                    appConsumptions,
-                    !ResourceDimensions.isBigger(allowedConsumption, maxConsumption)
-            );
-            tierConsumptions.computeIfAbsent(sla.getTier(), t -> new ArrayList<>()).add(capacityGroupConsumption);
+            capacityGroupConsumptions.add(buildCapacityGroupConsumption(sla, getBuffer(config, sla.getTier()), appConsumptions));
+        });
+        return buildSystemConsumption(capacityGroupConsumptions, applicationSlaMap);
+    }
+
+    static CompositeResourceConsumption buildCapacityGroupConsumption(ApplicationSLA sla,
+                                                                      double buffer,
+                                                                      Map<String, ResourceConsumption> appConsumptions) {
+        ResourceDimension allowedConsumption = ResourceDimensions.multiply(sla.getResourceDimension(), sla.getInstanceCount() * (1 + buffer));
+        ResourceDimension maxConsumption = ResourceConsumptions.addMaxConsumptions(appConsumptions.values());
+
+        List<Map<String, Object>> attrsList = appConsumptions.values().stream().map(ResourceConsumption::getAttributes).collect(Collectors.toList());
+        return new CompositeResourceConsumption(
+                sla.getAppName(),
+                ConsumptionLevel.CapacityGroup,
+                ResourceConsumptions.addCurrentConsumptions(appConsumptions.values()),
+                maxConsumption,
+                allowedConsumption, ResourceConsumptions.mergeAttributes(attrsList),
+                appConsumptions,
+                !ResourceDimensions.isBigger(allowedConsumption, maxConsumption)
+        );
+    }
+
+    static CompositeResourceConsumption buildSystemConsumption(Collection<CompositeResourceConsumption> capacityGroupConsumptions,
+                                                               Map<String, ApplicationSLA> applicationSlaMap) {
+        Map<Tier, List<CompositeResourceConsumption>> tierConsumptions = new HashMap<>();
+        capacityGroupConsumptions.forEach(capacityGroupConsumption -> {
+            Tier tier = applicationSlaMap.get(capacityGroupConsumption.getConsumerName()).getTier();
+            tierConsumptions.computeIfAbsent(tier, t -> new ArrayList<>()).add(capacityGroupConsumption);
         });
 
         // Tier level
@@ -220,7 +233,7 @@ class ResourceConsumptionEvaluator {
         }
     }
 
-    private int getMaxJobSize(V2JobMetadata jobMetadata, V2StageMetadata stageMetadata) {
+    static int getMaxJobSize(V2JobMetadata jobMetadata, V2StageMetadata stageMetadata) {
         String jobId = jobMetadata.getJobId();
         int max;
         Parameters.JobType jobType = Parameters.getJobType(jobMetadata.getParameters());
@@ -240,13 +253,13 @@ class ResourceConsumptionEvaluator {
         return max;
     }
 
-    private int getMaxJobSize(Job<?> job) {
+    static int getMaxJobSize(Job<?> job) {
         return JobFunctions.isServiceJob(job)
                 ? ((Job<ServiceJobExt>) job).getJobDescriptor().getExtensions().getCapacity().getMax()
                 : ((Job<BatchJobExt>) job).getJobDescriptor().getExtensions().getSize();
     }
 
-    private Map<String, Object> getWorkerStateMap(V2StageMetadata stageMetadata) {
+    static Map<String, Object> getWorkerStateMap(V2StageMetadata stageMetadata) {
         List<V2WorkerMetadata> allWorkers = new ArrayList<>(stageMetadata.getAllWorkers());
         Map<String, Object> tasksStates = newTaskStateMap();
         allWorkers.forEach(w -> tasksStates.put(w.getState().name(), (int) tasksStates.get(w.getState().name()) + 1));
@@ -261,7 +274,7 @@ class ResourceConsumptionEvaluator {
         return tasksStates;
     }
 
-    private Map<String, Object> newTaskStateMap() {
+    static Map<String, Object> newTaskStateMap() {
         Map<String, Object> tasksStates = new HashMap<>();
         for (V2JobState state : V2JobState.values()) {
             tasksStates.put(state.name(), 0);
@@ -334,7 +347,7 @@ class ResourceConsumptionEvaluator {
         );
     }
 
-    private static ResourceDimension toResourceDimension(Job<?> job) {
+    static ResourceDimension toResourceDimension(Job<?> job) {
         ContainerResources containerResources = job.getJobDescriptor().getContainer().getContainerResources();
         return new ResourceDimension(
                 containerResources.getCpu(),
@@ -345,7 +358,7 @@ class ResourceConsumptionEvaluator {
         );
     }
 
-    private List<? extends V2WorkerMetadata> getRunningWorkers(Collection<V2WorkerMetadata> allWorkers) {
+    static List<? extends V2WorkerMetadata> getRunningWorkers(Collection<V2WorkerMetadata> allWorkers) {
         return allWorkers.stream().filter(t -> V2JobState.isRunningState(t.getState())).collect(Collectors.toList());
     }
 
@@ -353,7 +366,7 @@ class ResourceConsumptionEvaluator {
         return tasks.stream().filter(t -> TaskState.isRunning(t.getStatus().getState())).collect(Collectors.toList());
     }
 
-    private double getBuffer(Tier tier) {
+    static double getBuffer(CapacityManagementConfiguration config, Tier tier) {
         double buffer = 0.0;
         if (tier == Tier.Critical) {
             buffer = config.getCriticalTierBuffer();
@@ -41,6 +41,7 @@ import static com.netflix.titus.master.agent.service.cache.InstanceTestUtils.FUL
 import static com.netflix.titus.master.agent.service.cache.InstanceTestUtils.expectInstanceGroupUpdateEvent;
 import static com.netflix.titus.master.agent.service.cache.InstanceTestUtils.mockedAgentManagementConfiguration;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
 
 public class InstanceCacheTest {
 
@@ -157,6 +158,100 @@ public class InstanceCacheTest {
         expectInstanceGroupUpdateEvent(eventSubscriber, instanceGroupId);
     }
 
+    @Test
+    public void testNewInstanceDetailsAreFetchedIncrementally() throws Exception {
+        when(configuration.getInstanceDetailsRefreshIntervalMs()).thenReturn(TimeUnit.HOURS.toMillis(1));
+        String instanceGroupId = testConnector.takeInstanceGroup(0).getId();
+        testConnector.resetApiCallCounters();
+
+        instanceGenerator1 = instanceGenerator1.apply(testConnector::addInstance);
+        testScheduler.advanceTimeBy(CACHE_REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        assertThat(cache.getInstanceGroup(instanceGroupId).getInstanceIds()).hasSize(6);
+        expectInstanceGroupUpdateEvent(eventSubscriber, instanceGroupId);
+        assertThat(eventSubscriber.takeNext()).isNull();
+        assertThat(testConnector.getApiCallCount("getInstances")).isEqualTo(1);
+        assertThat(testConnector.getApiCallCount("getInstancesByInstanceGroupId")).isZero();
+    }
+
+    @Test
+    public void testLaunchingInstanceDetailsAreRefreshedUntilRunning() throws Exception {
+        when(configuration.getInstanceDetailsRefreshIntervalMs()).thenReturn(TimeUnit.HOURS.toMillis(1));
+        String instanceGroupId = testConnector.takeInstanceGroup(0).getId();
+
+        Instance runningInstance = instanceGenerator1.getValue();
+        instanceGenerator1 = instanceGenerator1.apply();
+        Instance launchingInstance = runningInstance.toBuilder()
+                .withInstanceState(Instance.InstanceState.Starting)
+                .withIpAddress(null)
+                .build();
+        testConnector.addInstance(launchingInstance);
+
+        testScheduler.advanceTimeBy(CACHE_REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        assertThat(cache.getAgentInstance(launchingInstance.getId()).getInstanceState()).isEqualTo(Instance.InstanceState.Starting);
+        expectInstanceGroupUpdateEvent(eventSubscriber, instanceGroupId);
+
+        testConnector.addInstance(runningInstance);
+        testConnector.resetApiCallCounters();
+        testScheduler.advanceTimeBy(CACHE_REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        Instance cachedInstance = cache.getAgentInstance(runningInstance.getId());
+        assertThat(cachedInstance.getInstanceState()).isEqualTo(Instance.InstanceState.Running);
+        assertThat(cachedInstance.getIpAddress()).isEqualTo(runningInstance.getIpAddress());
+        expectInstanceGroupUpdateEvent(eventSubscriber, instanceGroupId);
+
+        // Once running with an IP address, the instance is no longer fetched between full refreshes.
+        testConnector.resetApiCallCounters();
+        testScheduler.advanceTimeBy(CACHE_REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        assertThat(testConnector.getApiCallCount("getInstances")).isZero();
+    }
+
+    @Test
+    public void testInstanceDetailsAreRefreshedPeriodically() throws Exception {
+        long detailsRefreshIntervalMs = 10 * CACHE_REFRESH_INTERVAL_MS;
+        when(configuration.getInstanceDetailsRefreshIntervalMs()).thenReturn(detailsRefreshIntervalMs);
+
+        Instance updatedInstance = testConnector.takeInstance(0, 0).toBuilder()
+                .withInstanceState(Instance.InstanceState.Terminated)
+                .build();
+        testConnector.addInstance(updatedInstance);
+
+        testScheduler.advanceTimeBy(detailsRefreshIntervalMs + CACHE_REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        assertThat(cache.getAgentInstance(updatedInstance.getId()).getInstanceState()).isEqualTo(Instance.InstanceState.Terminated);
+        expectInstanceGroupUpdateEvent(eventSubscriber, testConnector.takeInstanceGroup(0).getId());
+    }
+
+    @Test
+    public void testApiCallsPerHourWithoutChanges() throws Exception {
+        int instanceGroupCount = 20;
+        when(configuration.getInstanceDetailsRefreshIntervalMs()).thenReturn(10 * CACHE_REFRESH_INTERVAL_MS);
+
+        TestableInstanceCloudConnector connector = new TestableInstanceCloudConnector();
+        InstanceGenerators.instanceGroups(5).apply(connector::addInstanceGroup, instanceGroupCount);
+        for (int i = 0; i < instanceGroupCount; i++) {
+            InstanceGenerators.instances(connector.takeInstanceGroup(i)).apply(connector::addInstance, 10);
+        }
+        InstanceCache largeCache = InstanceCache.newInstance(configuration, connector, Collections.emptySet(), registry, testScheduler);
+        testScheduler.advanceTimeBy(CACHE_REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        ExtTestSubscriber<CacheUpdateEvent> largeCacheSubscriber = new ExtTestSubscriber<>();
+        largeCache.events().subscribe(largeCacheSubscriber);
+        connector.resetApiCallCounters();
+
+        long hourMs = TimeUnit.HOURS.toMillis(1);
+        testScheduler.advanceTimeBy(hourMs, TimeUnit.MILLISECONDS);
+        largeCache.shutdown();
+
+        assertThat(largeCacheSubscriber.takeNext()).isNull();
+
+        // Each instance group refreshed at least once per refresh interval, with instance details fetched
+        // only every instance details refresh interval.
+        long refreshCycles = hourMs / CACHE_REFRESH_INTERVAL_MS;
+        long previousImplementationCalls = 2 * instanceGroupCount * refreshCycles;
+        assertThat(connector.getApiCallCount("getInstancesByInstanceGroupId")).isZero();
+        assertThat(connector.getApiCallCount("getInstances")).isLessThanOrEqualTo(instanceGroupCount * (refreshCycles / 10 + 1));
+        assertThat(connector.getTotalApiCallCount()).isLessThan(previousImplementationCalls / 2);
+    }
+
     private static List<String> instanceGroupIds(Collection<InstanceGroup> instanceGroups) {
         return instanceGroups.stream().map(InstanceGroup::getId).collect(Collectors.toList());
     }
@@ -16,7 +16,10 @@
 
 package com.netflix.titus.master.audit.service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -24,6 +27,7 @@ import com.netflix.titus.api.audit.model.AuditLogEvent;
 import com.netflix.titus.api.audit.model.AuditLogEvent.Type;
 import com.netflix.titus.api.audit.service.AuditLogService;
 import com.netflix.titus.api.model.event.UserRequestEvent;
+import com.netflix.titus.common.runtime.TitusRuntimes;
 import com.netflix.titus.common.util.IOExt;
 import com.netflix.titus.common.util.rx.eventbus.RxEventBus;
 import org.junit.After;
@@ -33,8 +37,6 @@ import rx.schedulers.Schedulers;
 import rx.schedulers.TestScheduler;
 import rx.subjects.PublishSubject;
 
-import static com.netflix.titus.master.audit.service.AuditEventDiskWriter.LOG_FILE_NAME;
-import static com.netflix.titus.master.audit.service.AuditEventDiskWriter.WRITE_INTERVAL_MS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -42,7 +44,8 @@ import static org.mockito.Mockito.when;
 public class AuditEventDiskWriterTest {
 
     private static final String LOG_FOLDER = "build/auditLogs";
-    private static final File LOG_FILE = new File(LOG_FOLDER, LOG_FILE_NAME);
+
+    private static final long SEGMENT_MAX_AGE_MS = 60_000;
 
     private TestScheduler testScheduler = Schedulers.test();
 
@@ -56,30 +59,144 @@ public class AuditEventDiskWriterTest {
 
     @Before
     public void setUp() throws Exception {
-        LOG_FILE.delete();
-        assertThat(LOG_FILE.exists()).isFalse();
+        cleanLogFolder();
 
         when(config.getAuditLogFolder()).thenReturn(LOG_FOLDER);
+        when(config.getSegmentSizeBytes()).thenReturn(64 * 1024L);
+        when(config.getSegmentMaxAgeMs()).thenReturn(SEGMENT_MAX_AGE_MS);
+        when(config.getMaxRotatedSegments()).thenReturn(2);
+        when(config.getSegmentRetentionMs()).thenReturn(Long.MAX_VALUE / 2);
+        when(config.getBufferCapacity()).thenReturn(1000);
+        when(config.getOverflowPolicy()).thenReturn("DropNewest");
+        when(config.getFlushIntervalMs()).thenReturn(1000L);
         when(auditLogService.auditLogEvents()).thenReturn(eventSubject);
         when(rxEventBus.listen(AuditEventDiskWriter.class.getSimpleName(), UserRequestEvent.class)).thenReturn(rxEventSubject);
-        auditEventDiskWriter = new AuditEventDiskWriter(config, auditLogService, rxEventBus, testScheduler);
     }
 
     @After
     public void tearDown() throws Exception {
-        auditEventDiskWriter.shutdown();
+        if (auditEventDiskWriter != null) {
+            auditEventDiskWriter.shutdown();
+        }
     }
 
     @Test
     public void testLogWrite() throws Exception {
+        auditEventDiskWriter = newWriter();
+
         eventSubject.onNext(createEvent());
         rxEventSubject.onNext(createHttpEvent());
-        testScheduler.advanceTimeBy(WRITE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        testScheduler.triggerActions();
+        auditEventDiskWriter.shutdown();
 
-        List<String> lines = IOExt.readLines(LOG_FILE);
+        List<String> lines = IOExt.readLines(auditEventDiskWriter.getActiveLogFile());
         assertThat(lines).hasSize(2);
     }
 
+    @Test
+    public void testTimeBasedRotation() throws Exception {
+        auditEventDiskWriter = newWriter();
+
+        eventSubject.onNext(createEvent());
+        testScheduler.triggerActions();
+        testScheduler.advanceTimeBy(SEGMENT_MAX_AGE_MS, TimeUnit.MILLISECONDS);
+
+        eventSubject.onNext(createEvent());
+        testScheduler.triggerActions();
+        auditEventDiskWriter.shutdown();
+
+        assertThat(IOExt.readLines(auditEventDiskWriter.getActiveLogFile())).hasSize(1);
+        assertThat(rotatedSegments()).hasSize(1);
+    }
+
+    @Test
+    public void testBinaryFormatCanBeReadBack() throws Exception {
+        when(config.isBinaryFormatEnabled()).thenReturn(true);
+        auditEventDiskWriter = newWriter();
+
+        eventSubject.onNext(createEvent());
+        rxEventSubject.onNext(createHttpEvent());
+        testScheduler.triggerActions();
+        auditEventDiskWriter.shutdown();
+
+        File activeFile = auditEventDiskWriter.getActiveLogFile();
+        assertThat(activeFile.getName()).endsWith(".bin");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int count = new AuditLogReader(new PrintStream(output)).print(activeFile);
+        assertThat(count).isEqualTo(2);
+        assertThat(output.toString()).contains("source=JobManager,JOB_SUBMIT,operand,data").contains("callerId=userX");
+    }
+
+    @Test
+    public void testLeftoverTextSegmentIsTruncatedBeforeRotation() throws Exception {
+        byte[] record = TextAuditRecordCodec.INSTANCE.encode(createEvent());
+        writeLeftoverSegment("log", record);
+
+        auditEventDiskWriter = newWriter();
+        eventSubject.onNext(createEvent());
+        testScheduler.triggerActions();
+        auditEventDiskWriter.shutdown();
+
+        File[] rotated = rotatedSegments("log");
+        assertThat(rotated).hasSize(1);
+        assertThat(rotated[0].length()).isEqualTo(record.length);
+        assertThat(IOExt.readLines(rotated[0])).hasSize(1);
+        assertThat(IOExt.readLines(auditEventDiskWriter.getActiveLogFile())).hasSize(1);
+    }
+
+    @Test
+    public void testLeftoverBinarySegmentIsTruncatedBeforeRotation() throws Exception {
+        when(config.isBinaryFormatEnabled()).thenReturn(true);
+
+        // Record with an empty last field ends with zero bytes, which must not be taken for padding.
+        byte[] record = BinaryAuditRecordCodec.INSTANCE.encode(new AuditLogEvent(Type.JOB_SUBMIT, "operand", "", System.currentTimeMillis()));
+        writeLeftoverSegment("bin", record);
+
+        auditEventDiskWriter = newWriter();
+        eventSubject.onNext(createEvent());
+        testScheduler.triggerActions();
+        auditEventDiskWriter.shutdown();
+
+        File[] rotated = rotatedSegments("bin");
+        assertThat(rotated).hasSize(1);
+        assertThat(rotated[0].length()).isEqualTo(record.length);
+        assertThat(new AuditLogReader(new PrintStream(new ByteArrayOutputStream())).print(rotated[0])).isEqualTo(1);
+    }
+
+    /**
+     * Writes a segment as left by a terminated process, with the data followed by zero padding up to the segment size.
+     */
+    private void writeLeftoverSegment(String suffix, byte[] record) throws Exception {
+        File folder = new File(LOG_FOLDER);
+        folder.mkdirs();
+        try (RandomAccessFile file = new RandomAccessFile(new File(folder, AuditEventDiskWriter.LOG_FILE_BASE_NAME + '.' + suffix), "rw")) {
+            file.setLength(config.getSegmentSizeBytes());
+            file.write(record);
+        }
+    }
+
+    private AuditEventDiskWriter newWriter() {
+        return new AuditEventDiskWriter(config, auditLogService, rxEventBus, TitusRuntimes.test(testScheduler), testScheduler);
+    }
+
+    private File[] rotatedSegments() {
+        return rotatedSegments("log");
+    }
+
+    private File[] rotatedSegments(String suffix) {
+        return new File(LOG_FOLDER).listFiles((dir, name) -> name.startsWith(AuditEventDiskWriter.LOG_FILE_BASE_NAME + '.' + suffix + '.'));
+    }
+
+    private void cleanLogFolder() {
+        File[] files = new File(LOG_FOLDER).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
     private AuditLogEvent createEvent() {
         return new AuditLogEvent(Type.JOB_SUBMIT, "operand", "data", System.currentTimeMillis());
     }
@@ -87,4 +204,4 @@ public class AuditEventDiskWriterTest {
     private UserRequestEvent createHttpEvent() {
         return new UserRequestEvent("POST /api/v2/jobs", "userX", "jobId=123", System.currentTimeMillis());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.audit.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.titus.master.audit.service.AuditRecordBuffer.OverflowPolicy;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuditRecordBufferTest {
+
+    @Test
+    public void testDropNewest() throws Exception {
+        AuditRecordBuffer buffer = new AuditRecordBuffer(2, OverflowPolicy.DropNewest, new DefaultRegistry());
+        assertThat(buffer.offer(record(1))).isTrue();
+        assertThat(buffer.offer(record(2))).isTrue();
+        assertThat(buffer.offer(record(3))).isFalse();
+
+        assertThat(drainAll(buffer)).containsExactly(1, 2);
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        AuditRecordBuffer buffer = new AuditRecordBuffer(2, OverflowPolicy.DropOldest, new DefaultRegistry());
+        buffer.offer(record(1));
+        buffer.offer(record(2));
+        assertThat(buffer.offer(record(3))).isFalse();
+
+        assertThat(drainAll(buffer)).containsExactly(2, 3);
+    }
+
+    @Test
+    public void testWrapAround() throws Exception {
+        AuditRecordBuffer buffer = new AuditRecordBuffer(3, OverflowPolicy.DropNewest, new DefaultRegistry());
+        buffer.offer(record(1));
+        buffer.offer(record(2));
+        assertThat(buffer.drain(1, r -> {
+        })).isEqualTo(1);
+        buffer.offer(record(3));
+        buffer.offer(record(4));
+
+        assertThat(drainAll(buffer)).containsExactly(2, 3, 4);
+        assertThat(buffer.size()).isZero();
+    }
+
+    private byte[] record(int value) {
+        return new byte[]{(byte) value};
+    }
+
+    private List<Integer> drainAll(AuditRecordBuffer buffer) {
+        List<Integer> result = new ArrayList<>();
+        buffer.drain(Integer.MAX_VALUE, r -> result.add((int) r[0]));
+        return result;
+    }
+}
@@ -66,7 +66,9 @@ public class GatewayJobManagementClientGrpcTest {
 
     private final CallMetadataResolver callMetadataResolver = mock(CallMetadataResolver.class);
 
-    private final DefaultJobManagementServiceGrpc service = new DefaultJobManagementServiceGrpc(gateway, callMetadataResolver);
+    private final JobEventJournal jobEventJournal = mock(JobEventJournal.class);
+
+    private final DefaultJobManagementServiceGrpc service = new DefaultJobManagementServiceGrpc(gateway, callMetadataResolver, jobEventJournal);
 
     @Before
     public void setUp() throws Exception {
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.grpc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.grpc.protogen.JobChangeNotification.NotificationCase;
+import com.netflix.titus.master.config.MasterConfiguration;
+import com.netflix.titus.master.jobmanager.service.JobManagerConfiguration;
+import com.netflix.titus.runtime.connector.jobmanager.JobEventStreamPosition;
+import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import com.netflix.titus.testkit.rx.ExtTestSubscriber;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import rx.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JobEventJournalTest {
+
+    private final V3JobOperations jobOperations = mock(V3JobOperations.class);
+    private final MasterConfiguration masterConfiguration = mock(MasterConfiguration.class);
+    private final JobManagerConfiguration configuration = mock(JobManagerConfiguration.class);
+
+    private volatile PublishSubject<JobManagerEvent<?>> jobEvents = PublishSubject.create();
+
+    private final Job<ServiceJobExt> job = JobGenerator.serviceJobs(JobDescriptorGenerator.oneTaskServiceJobDescriptor()).getValue();
+    private final Task task = JobGenerator.serviceTasks(job).getValue();
+
+    private final JobEventJournal journal = new JobEventJournal(
+            jobOperations, Observable.defer(() -> jobEvents), masterConfiguration, configuration, new EmptyLogStorageInfo<>(), TitusRuntimes.test()
+    );
+
+    @Before
+    public void setUp() throws Exception {
+        when(masterConfiguration.isV2Enabled()).thenReturn(false);
+        when(configuration.getJobEventJournalSize()).thenReturn(3);
+        when(jobOperations.getJobs()).thenReturn(Collections.singletonList(job));
+        when(jobOperations.getTasks()).thenReturn(Collections.singletonList(task));
+        journal.enterActiveMode();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        journal.shutdown();
+    }
+
+    @Test
+    public void testSnapshotStream() throws Exception {
+        emitTaskUpdate(TaskState.Launched);
+
+        AtomicReference<Pair<JobEventStreamPosition, Boolean>> startRef = new AtomicReference<>();
+        ExtTestSubscriber<JobChangeNotification> testSubscriber = new ExtTestSubscriber<>();
+        journal.observeJobs(Optional.empty(), (position, resumed) -> startRef.set(Pair.of(position, resumed))).subscribe(testSubscriber);
+
+        assertThat(startRef.get().getLeft().getSequence()).isEqualTo(1);
+        assertThat(startRef.get().getRight()).isFalse();
+        assertThat(notificationCases(testSubscriber.takeNext(3))).containsExactly(
+                NotificationCase.JOBUPDATE, NotificationCase.TASKUPDATE, NotificationCase.SNAPSHOTEND
+        );
+
+        // Live events
+        emitTaskUpdate(TaskState.StartInitiated);
+        assertThat(testSubscriber.takeNext().getNotificationCase()).isEqualTo(NotificationCase.TASKUPDATE);
+    }
+
+    @Test
+    public void testResumedStream() throws Exception {
+        emitJobUpdate();
+        JobEventStreamPosition position = startPosition();
+
+        emitTaskUpdate(TaskState.Launched);
+        emitTaskUpdate(TaskState.StartInitiated);
+
+        AtomicReference<Pair<JobEventStreamPosition, Boolean>> startRef = new AtomicReference<>();
+        ExtTestSubscriber<JobChangeNotification> testSubscriber = new ExtTestSubscriber<>();
+        journal.observeJobs(Optional.of(position), (p, resumed) -> startRef.set(Pair.of(p, resumed))).subscribe(testSubscriber);
+
+        assertThat(startRef.get()).isEqualTo(Pair.of(position, true));
+
+        List<JobChangeNotification> events = testSubscriber.takeNext(3);
+        assertThat(notificationCases(events)).containsExactly(
+                NotificationCase.TASKUPDATE, NotificationCase.TASKUPDATE, NotificationCase.SNAPSHOTEND
+        );
+        assertThat(events.get(1).getTaskUpdate().getTask().getStatus().getState()).isEqualTo(com.netflix.titus.grpc.protogen.TaskStatus.TaskState.StartInitiated);
+        assertThat(testSubscriber.takeNext()).isNull();
+    }
+
+    @Test
+    public void testFallbackToSnapshotWhenPositionNotInJournal() throws Exception {
+        JobEventStreamPosition position = startPosition();
+        for (int i = 0; i < 5; i++) {
+            emitTaskUpdate(TaskState.Launched);
+        }
+        assertThat(journal.getSize()).isEqualTo(3);
+
+        AtomicReference<Boolean> resumedRef = new AtomicReference<>();
+        ExtTestSubscriber<JobChangeNotification> testSubscriber = new ExtTestSubscriber<>();
+        journal.observeJobs(Optional.of(position), (p, resumed) -> resumedRef.set(resumed)).subscribe(testSubscriber);
+
+        assertThat(resumedRef.get()).isFalse();
+        assertThat(notificationCases(testSubscriber.takeNext(3))).containsExactly(
+                NotificationCase.JOBUPDATE, NotificationCase.TASKUPDATE, NotificationCase.SNAPSHOTEND
+        );
+    }
+
+    @Test
+    public void testFallbackToSnapshotForUnknownEpoch() throws Exception {
+        emitTaskUpdate(TaskState.Launched);
+
+        AtomicReference<Boolean> resumedRef = new AtomicReference<>();
+        journal.observeJobs(Optional.of(new JobEventStreamPosition("otherEpoch", 0)), (p, resumed) -> resumedRef.set(resumed)).subscribe(new ExtTestSubscriber<>());
+
+        assertThat(resumedRef.get()).isFalse();
+    }
+
+    @Test
+    public void testJobEventStreamResubscriptionStartsNewEpoch() throws Exception {
+        emitTaskUpdate(TaskState.Launched);
+        JobEventStreamPosition position = startPosition();
+
+        ExtTestSubscriber<JobChangeNotification> liveSubscriber = new ExtTestSubscriber<>();
+        journal.observeJobs(Optional.of(position), (p, resumed) -> {
+        }).subscribe(liveSubscriber);
+        assertThat(notificationCases(liveSubscriber.takeNext(1))).containsExactly(NotificationCase.SNAPSHOTEND);
+
+        // Events emitted before the resubscription are lost.
+        PublishSubject<JobManagerEvent<?>> failedJobEvents = jobEvents;
+        jobEvents = PublishSubject.create();
+        failedJobEvents.onError(new RuntimeException("simulated backpressure overflow"));
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (!jobEvents.hasObservers() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(jobEvents.hasObservers()).isTrue();
+
+        // Live streams of the previous epoch are terminated, so their clients reconnect.
+        liveSubscriber.assertOnError(IllegalStateException.class);
+        assertThat(journal.getSize()).isZero();
+
+        AtomicReference<Pair<JobEventStreamPosition, Boolean>> startRef = new AtomicReference<>();
+        journal.observeJobs(Optional.of(position), (p, resumed) -> startRef.set(Pair.of(p, resumed))).subscribe(new ExtTestSubscriber<>());
+        assertThat(startRef.get().getRight()).isFalse();
+        assertThat(startRef.get().getLeft().getEpoch()).isNotEqualTo(position.getEpoch());
+    }
+
+    private JobEventStreamPosition startPosition() {
+        AtomicReference<JobEventStreamPosition> positionRef = new AtomicReference<>();
+        journal.observeJobs(Optional.empty(), (position, resumed) -> positionRef.set(position)).subscribe(new ExtTestSubscriber<>()).unsubscribe();
+        return positionRef.get();
+    }
+
+    private void emitJobUpdate() {
+        jobEvents.onNext(JobUpdateEvent.jobChange(job, job));
+    }
+
+    private void emitTaskUpdate(TaskState taskState) {
+        Task updated = JobFunctions.changeTaskStatus(task, taskState, "test", "test");
+        jobEvents.onNext(TaskUpdateEvent.taskChange(job, updated, task));
+    }
+
+    private List<NotificationCase> notificationCases(List<JobChangeNotification> events) {
+        List<NotificationCase> result = new ArrayList<>();
+        events.forEach(event -> result.add(event.getNotificationCase()));
+        return result;
+    }
+}
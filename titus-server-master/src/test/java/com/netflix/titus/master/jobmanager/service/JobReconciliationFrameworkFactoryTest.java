@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.netflix.fenzo.queues.QueuableTask;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.jobmanager.store.JobStore;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
+import com.netflix.titus.common.framework.reconciler.ReconciliationEngine.DifferenceResolver;
+import com.netflix.titus.common.framework.reconciler.ReconciliationFramework;
+import com.netflix.titus.common.model.sanitizer.EntitySanitizer;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.jobmanager.service.event.JobManagerReconcilerEvent;
+import com.netflix.titus.master.scheduler.SchedulingService;
+import com.netflix.titus.master.scheduler.constraint.ConstraintEvaluatorTransformer;
+import com.netflix.titus.master.scheduler.constraint.SystemHardConstraint;
+import com.netflix.titus.master.scheduler.constraint.SystemSoftConstraint;
+import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
+import com.netflix.titus.testkit.data.core.ApplicationSlaSample;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import rx.Completable;
+import rx.Observable;
+import rx.schedulers.Schedulers;
+
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskBatchJobDescriptor;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JobReconciliationFrameworkFactoryTest {
+
+    private static final int JOB_COUNT = 50;
+    private static final int JOB_SIZE = 4;
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.test();
+
+    private final JobManagerConfiguration configuration = mock(JobManagerConfiguration.class);
+    private final JobStore store = mock(JobStore.class);
+    private final SchedulingService schedulingService = mock(SchedulingService.class);
+    private final ApplicationSlaManagementService capacityGroupService = mock(ApplicationSlaManagementService.class);
+
+    private final List<Job<?>> jobs = new ArrayList<>();
+    private final Map<String, List<Task>> tasksByJobId = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        when(configuration.getBootstrapParallelism()).thenReturn(4);
+        when(configuration.getReconcilerIdleTimeoutMs()).thenReturn(100L);
+        when(configuration.getReconcilerActiveTimeoutMs()).thenReturn(1L);
+        when(capacityGroupService.getApplicationSLA(any())).thenReturn(ApplicationSlaSample.DefaultFlex.build());
+
+        // Half of the tasks of each job is Accepted, and the other half is running.
+        List<Job<BatchJobExt>> batchJobs = JobGenerator.batchJobs(JobFunctions.changeBatchJobSize(oneTaskBatchJobDescriptor(), JOB_SIZE))
+                .getAndApply(JOB_COUNT)
+                .getRight();
+        for (Job<BatchJobExt> job : batchJobs) {
+            List<Task> tasks = new ArrayList<>();
+            for (BatchJobTask task : JobGenerator.batchTasks(job).getAndApply(JOB_SIZE).getRight()) {
+                if (task.getIndex() % 2 == 0) {
+                    tasks.add(task);
+                } else {
+                    tasks.add(JobFunctions.changeTaskStatus(
+                            task.toBuilder().addToTaskContext(TaskAttributes.TASK_ATTRIBUTES_AGENT_HOST, "agent" + task.getIndex()).build(),
+                            TaskState.Started, "test", "test"
+                    ));
+                }
+            }
+            jobs.add(job);
+            tasksByJobId.put(job.getId(), tasks);
+        }
+
+        when(store.init()).thenReturn(Completable.complete());
+        when(store.retrieveJobs()).thenAnswer(invocation -> Observable.just(Pair.of(jobs, 0)));
+        when(store.retrieveTasksForJob(anyString())).thenAnswer(invocation ->
+                Observable.just(Pair.of(tasksByJobId.get(invocation.<String>getArgument(0)), 0)).subscribeOn(Schedulers.computation())
+        );
+        when(store.retrieveArchivedTasksForJob(anyString())).thenReturn(Observable.empty());
+    }
+
+    @Test
+    public void testBootstrap() {
+        ReconciliationFramework<JobManagerReconcilerEvent> framework = newFactory().newInstance();
+
+        for (Job<?> job : jobs) {
+            Optional<ReconciliationEngine<JobManagerReconcilerEvent>> engine = framework.findEngineByRootId(job.getId());
+            assertThat(engine).isPresent();
+
+            List<EntityHolder> taskHolders = engine.get().getReferenceView().getChildren();
+            assertThat(taskHolders).extracting(EntityHolder::getId)
+                    .containsExactlyElementsOf(tasksByJobId.get(job.getId()).stream().map(Task::getId)::iterator);
+        }
+
+        ArgumentCaptor<Collection<QueuableTask>> acceptedCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(schedulingService, times(1)).addTasks(acceptedCaptor.capture());
+        assertThat(acceptedCaptor.getValue()).hasSize(JOB_COUNT * JOB_SIZE / 2);
+        verify(schedulingService, times(0)).addTask(any());
+        verify(schedulingService, times(JOB_COUNT * JOB_SIZE / 2)).initRunningTask(any(), anyString());
+        verify(schedulingService, times(JOB_COUNT)).initRunningTask(any(), eq("agent1"));
+    }
+
+    @Test
+    public void testBootstrapFailsOnInconsistentTask() {
+        List<Task> firstJobTasks = tasksByJobId.get(jobs.get(0).getId());
+        Task startedTask = firstJobTasks.get(1);
+        Map<String, String> context = new HashMap<>(startedTask.getTaskContext());
+        context.remove(TaskAttributes.TASK_ATTRIBUTES_AGENT_HOST);
+        firstJobTasks.set(1, startedTask.toBuilder().withTaskContext(context).build());
+
+        assertThatThrownBy(() -> newFactory().newInstance()).isInstanceOf(IllegalStateException.class);
+    }
+
+    private JobReconciliationFrameworkFactory newFactory() {
+        return new JobReconciliationFrameworkFactory(
+                configuration,
+                mock(DifferenceResolver.class),
+                mock(DifferenceResolver.class),
+                store,
+                schedulingService,
+                capacityGroupService,
+                mock(SystemSoftConstraint.class),
+                mock(SystemHardConstraint.class),
+                mock(ConstraintEvaluatorTransformer.class),
+                mock(EntitySanitizer.class),
+                mock(EntitySanitizer.class),
+                mock(TaskTimeoutWheel.class),
+                titusRuntime,
+                Optional.of(Schedulers.test())
+        );
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.spectator.api.Tag;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobModel;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.model.ApplicationSLA;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.histogram.Histogram;
+import com.netflix.titus.master.job.V2JobOperations;
+import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
+import com.netflix.titus.testkit.data.core.ApplicationSlaSample;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TaskLivenessMetricsTest {
+
+    private static final ApplicationSLA CRITICAL_SLA = ApplicationSlaSample.CriticalSmall.build();
+    private static final ApplicationSLA DEFAULT_SLA = ApplicationSlaSample.DefaultFlex.build();
+
+    private final TestScheduler testScheduler = new TestScheduler();
+    private final TitusRuntime titusRuntime = TitusRuntimes.test(testScheduler);
+
+    private final ApplicationSlaManagementService applicationSlaManagementService = mock(ApplicationSlaManagementService.class);
+    private final V2JobOperations v2JobOperations = mock(V2JobOperations.class);
+    private final V3JobOperations v3JobOperations = mock(V3JobOperations.class);
+    private final JobManagerConfiguration configuration = mock(JobManagerConfiguration.class);
+
+    private final PublishSubject<JobManagerEvent<?>> v3JobEvents = PublishSubject.create();
+
+    private final List<Job> jobs = new ArrayList<>();
+    private final Map<String, List<Task>> tasksByJobId = new HashMap<>();
+
+    private final TaskLivenessMetrics taskLivenessMetrics = new TaskLivenessMetrics(
+            applicationSlaManagementService, v2JobOperations, v3JobOperations, v3JobEvents, Observable.never(), configuration, titusRuntime, testScheduler
+    );
+
+    @Before
+    public void setUp() throws Exception {
+        when(applicationSlaManagementService.getApplicationSLAs()).thenReturn(asList(CRITICAL_SLA, DEFAULT_SLA));
+        when(v2JobOperations.getAllJobMgrs()).thenReturn(Collections.emptyList());
+        when(v3JobOperations.getJobs()).thenReturn(jobs);
+        when(v3JobOperations.getTasks(anyString())).thenAnswer(invocation ->
+                tasksByJobId.getOrDefault((String) invocation.getArguments()[0], Collections.emptyList())
+        );
+        when(configuration.getTaskLivenessPollerIntervalMs()).thenReturn(10_000L);
+
+        // Start with a clock far enough from zero, so all task timestamps are positive
+        testScheduler.advanceTimeBy(10, TimeUnit.DAYS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        taskLivenessMetrics.shutdown();
+    }
+
+    @Test
+    public void testIncrementalCountersMatchFullScan() throws Exception {
+        Random random = new Random(123);
+        Job<ServiceJobExt> criticalJob = newJob(CRITICAL_SLA.getAppName());
+        Job<ServiceJobExt> unknownGroupJob = newJob("unknownCapacityGroup");
+        for (Job<ServiceJobExt> job : asList(criticalJob, unknownGroupJob)) {
+            List<Task> tasks = new ArrayList<>();
+            JobGenerator.serviceTasks(job).getAndApply(20).getRight().forEach(task -> tasks.add(withRandomState(task, random)));
+            tasksByJobId.put(job.getId(), tasks);
+        }
+
+        taskLivenessMetrics.enterActiveMode();
+        assertThat(taskLivenessMetrics.getCounters()).isEqualTo(fullScan());
+
+        for (int i = 0; i < 200; i++) {
+            testScheduler.advanceTimeBy(random.nextInt(180), TimeUnit.MINUTES);
+
+            Job<ServiceJobExt> job = random.nextBoolean() ? criticalJob : unknownGroupJob;
+            List<Task> tasks = tasksByJobId.get(job.getId());
+            int idx = random.nextInt(tasks.size());
+            Task previous = tasks.get(idx);
+            Task updated = withRandomState(previous, random);
+            tasks.set(idx, updated);
+            v3JobEvents.onNext(TaskUpdateEvent.taskChange(job, updated, previous));
+
+            assertThat(taskLivenessMetrics.getCounters()).isEqualTo(fullScan());
+        }
+    }
+
+    @Test
+    public void testFinishedTaskIsRemoved() throws Exception {
+        Job<ServiceJobExt> job = newJob(CRITICAL_SLA.getAppName());
+        Task task = withState(JobGenerator.serviceTasks(job).getValue(), TaskState.Started, titusRuntime.getClock().wallTime());
+        tasksByJobId.put(job.getId(), new ArrayList<>(Collections.singletonList(task)));
+
+        taskLivenessMetrics.enterActiveMode();
+        assertThat(taskLivenessMetrics.getCounters().get(CRITICAL_SLA.getAppName())).containsOnlyKeys(TaskState.Started.name());
+
+        Task finished = withState(task, TaskState.Finished, titusRuntime.getClock().wallTime());
+        tasksByJobId.get(job.getId()).set(0, finished);
+        v3JobEvents.onNext(TaskUpdateEvent.taskChange(job, finished, task));
+
+        assertThat(taskLivenessMetrics.getCounters()).isEmpty();
+    }
+
+    @Test
+    public void testGaugesAreUpdatedOnRefresh() throws Exception {
+        Job<ServiceJobExt> job = newJob(CRITICAL_SLA.getAppName());
+        Task task = withState(JobGenerator.serviceTasks(job).getValue(), TaskState.Started, titusRuntime.getClock().wallTime());
+        tasksByJobId.put(job.getId(), new ArrayList<>(Collections.singletonList(task)));
+
+        taskLivenessMetrics.enterActiveMode();
+        testScheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+        assertThat(startedTasksGaugeTotal()).isEqualTo(1);
+
+        Task finished = withState(task, TaskState.Finished, titusRuntime.getClock().wallTime());
+        v3JobEvents.onNext(TaskUpdateEvent.taskChange(job, finished, task));
+        testScheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+        assertThat(startedTasksGaugeTotal()).isEqualTo(0);
+    }
+
+    private double startedTasksGaugeTotal() {
+        return titusRuntime.getRegistry().gauges()
+                .filter(gauge -> gauge.id().name().equals("titusMaster.jobManager.taskLiveness.duration"))
+                .filter(gauge -> {
+                    for (Tag tag : gauge.id().tags()) {
+                        if (tag.key().equals("state")) {
+                            return tag.value().equals(TaskState.Started.name());
+                        }
+                    }
+                    return false;
+                })
+                .mapToDouble(gauge -> gauge.value())
+                .sum();
+    }
+
+    /**
+     * Reference implementation, that builds the histograms by traversing all tasks.
+     */
+    private Map<String, Map<String, List<Long>>> fullScan() {
+        long now = titusRuntime.getClock().wallTime();
+        Map<String, Map<String, Histogram.Builder>> builders = new HashMap<>();
+        for (Job job : jobs) {
+            String capacityGroup = job.getJobDescriptor().getCapacityGroup();
+            if (!capacityGroup.equals(CRITICAL_SLA.getAppName())) {
+                capacityGroup = ApplicationSlaManagementService.DEFAULT_APPLICATION;
+            }
+            for (Task task : tasksByJobId.get(job.getId())) {
+                String state = task.getStatus().getState().name();
+                if (TaskLivenessMetrics.TRACKED_STATES.contains(state)) {
+                    builders.computeIfAbsent(capacityGroup, g -> new HashMap<>())
+                            .computeIfAbsent(state, s -> Histogram.newBuilder(TaskLivenessMetrics.HISTOGRAM_DESCRIPTOR))
+                            .increment(now - task.getStatus().getTimestamp());
+                }
+            }
+        }
+        Map<String, Map<String, List<Long>>> result = new HashMap<>();
+        builders.forEach((capacityGroup, histograms) -> histograms.forEach((state, builder) ->
+                result.computeIfAbsent(capacityGroup, g -> new HashMap<>()).put(state, builder.build().getCounters())
+        ));
+        return result;
+    }
+
+    private Job<ServiceJobExt> newJob(String capacityGroup) {
+        Job<ServiceJobExt> job = JobGenerator.serviceJobs(JobDescriptorGenerator.oneTaskServiceJobDescriptor()).getValue();
+        Job<ServiceJobExt> updated = job.toBuilder().withJobDescriptor(job.getJobDescriptor().toBuilder().withCapacityGroup(capacityGroup).build()).build();
+        jobs.add(updated);
+        return updated;
+    }
+
+    private Task withRandomState(Task task, Random random) {
+        TaskState[] states = TaskState.values();
+        long timestamp = titusRuntime.getClock().wallTime() - random.nextInt((int) TimeUnit.DAYS.toMinutes(6)) * 60_000L;
+        return withState(task, states[random.nextInt(states.length)], timestamp);
+    }
+
+    private Task withState(Task task, TaskState state, long timestamp) {
+        return JobFunctions.changeTaskStatus(task, JobModel.newTaskStatus()
+                .withState(state)
+                .withReasonCode("test")
+                .withTimestamp(timestamp)
+                .build()
+        );
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations.Trigger;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import rx.Completable;
+import rx.schedulers.TestScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TaskStatusUpdateBatcherTest {
+
+    private static final long BATCH_WINDOW_MS = 50;
+
+    private final TestScheduler testScheduler = new TestScheduler();
+    private final TitusRuntime titusRuntime = TitusRuntimes.test(testScheduler);
+
+    private final V3JobOperations v3JobOperations = mock(V3JobOperations.class);
+    private final JobManagerConfiguration configuration = mock(JobManagerConfiguration.class);
+
+    private final TaskStatusUpdateBatcher batcher = new TaskStatusUpdateBatcher(v3JobOperations, configuration, titusRuntime, testScheduler);
+
+    private final Job<BatchJobExt> job = JobGenerator.batchJobs(JobFunctions.changeBatchJobSize(JobDescriptorGenerator.oneTaskBatchJobDescriptor(), 2)).getValue();
+    private final List<Task> tasks = (List) JobGenerator.batchTasks(job).getAndApply(2).getRight();
+
+    @Before
+    public void setUp() throws Exception {
+        when(configuration.getTaskStatusUpdateBatchWindowMs()).thenReturn(BATCH_WINDOW_MS);
+        when(v3JobOperations.updateTask(anyString(), any(), any(), anyString())).thenReturn(Completable.complete());
+        when(v3JobOperations.updateTasks(anyString(), anyMap(), any(), anyString())).thenReturn(Completable.complete());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        batcher.shutdown();
+    }
+
+    @Test
+    public void testUpdatesAreAppliedImmediatelyBeforeActivation() throws Exception {
+        Task task = tasks.get(0);
+        batcher.submit(job.getId(), task.getId(), newStateUpdater(TaskState.Launched), "launched");
+
+        verify(v3JobOperations, times(1)).updateTask(eq(task.getId()), any(), eq(Trigger.Mesos), eq("launched"));
+        verify(v3JobOperations, never()).updateTasks(anyString(), anyMap(), any(), anyString());
+    }
+
+    @Test
+    public void testUpdatesAreAppliedImmediatelyIfBatchingDisabled() throws Exception {
+        when(configuration.getTaskStatusUpdateBatchWindowMs()).thenReturn(0L);
+        batcher.enterActiveMode();
+
+        Task task = tasks.get(0);
+        batcher.submit(job.getId(), task.getId(), newStateUpdater(TaskState.Launched), "launched");
+
+        verify(v3JobOperations, times(1)).updateTask(eq(task.getId()), any(), eq(Trigger.Mesos), eq("launched"));
+    }
+
+    @Test
+    public void testUpdatesOfJobTasksAreBatched() throws Exception {
+        batcher.enterActiveMode();
+
+        batcher.submit(job.getId(), tasks.get(0).getId(), newStateUpdater(TaskState.Launched), "task0");
+        batcher.submit(job.getId(), tasks.get(1).getId(), newStateUpdater(TaskState.Launched), "task1");
+        verify(v3JobOperations, never()).updateTasks(anyString(), anyMap(), any(), anyString());
+
+        testScheduler.advanceTimeBy(BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
+
+        Map<String, Pair<Function<Task, Optional<Task>>, String>> changeFunctions = captureBatch();
+        assertThat(changeFunctions).containsOnlyKeys(tasks.get(0).getId(), tasks.get(1).getId());
+        verify(v3JobOperations, never()).updateTask(anyString(), any(), any(), anyString());
+
+        // Nothing pending, so no more updates
+        testScheduler.advanceTimeBy(BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
+        verify(v3JobOperations, times(1)).updateTasks(anyString(), anyMap(), any(), anyString());
+    }
+
+    @Test
+    public void testUpdatesOfSameTaskAreCoalescedPreservingHistory() throws Exception {
+        batcher.enterActiveMode();
+
+        Task task = tasks.get(0);
+        batcher.submit(job.getId(), task.getId(), newStateUpdater(TaskState.Launched), "launched");
+        batcher.submit(job.getId(), task.getId(), newStateUpdater(TaskState.Launched), "launched again");
+        batcher.submit(job.getId(), task.getId(), newStateUpdater(TaskState.StartInitiated), "startInitiated");
+        batcher.submit(job.getId(), task.getId(), newStateUpdater(TaskState.Started), "started");
+
+        testScheduler.advanceTimeBy(BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
+
+        Map<String, Pair<Function<Task, Optional<Task>>, String>> changeFunctions = captureBatch();
+        assertThat(changeFunctions).containsOnlyKeys(task.getId());
+
+        Task updated = changeFunctions.get(task.getId()).getLeft().apply(task).get();
+        assertThat(updated.getStatus().getState()).isEqualTo(TaskState.Started);
+        assertThat(updated.getStatusHistory()).extracting(TaskStatus::getState).contains(TaskState.Launched, TaskState.StartInitiated);
+        assertThat(changeFunctions.get(task.getId()).getRight()).contains("launched", "startInitiated", "started");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Pair<Function<Task, Optional<Task>>, String>> captureBatch() {
+        ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+        verify(v3JobOperations, times(1)).updateTasks(eq(job.getId()), captor.capture(), eq(Trigger.Mesos), anyString());
+        return captor.getValue();
+    }
+
+    /**
+     * Mimics the Mesos state updater, which ignores duplicate state updates.
+     */
+    private Function<Task, Optional<Task>> newStateUpdater(TaskState newState) {
+        return task -> task.getStatus().getState() == newState
+                ? Optional.empty()
+                : Optional.of(JobFunctions.changeTaskStatus(task, newState, "test", "test"));
+    }
+}
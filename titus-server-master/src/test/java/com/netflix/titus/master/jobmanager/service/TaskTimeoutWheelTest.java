@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.master.jobmanager.service.TaskTimeoutWheel.TaskStateTimeout;
+import com.netflix.titus.master.jobmanager.service.common.action.task.TaskTimeoutChangeActions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.schedulers.TestScheduler;
+
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.batchJobDescriptors;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchTasks;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TaskTimeoutWheelTest {
+
+    private static final long TICK_MS = 10;
+
+    private final TestScheduler testScheduler = new TestScheduler();
+    private final TitusRuntime titusRuntime = TitusRuntimes.test(testScheduler);
+
+    private final JobManagerConfiguration configuration = mock(JobManagerConfiguration.class);
+
+    private final List<TaskStateTimeout> fired = new ArrayList<>();
+
+    private TaskTimeoutWheel wheel;
+
+    @Before
+    public void setUp() throws Exception {
+        when(configuration.getTaskStateTimeoutTickMs()).thenReturn(TICK_MS);
+        wheel = new TaskTimeoutWheel(configuration, titusRuntime, testScheduler);
+        wheel.start(fired::add);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        wheel.shutdown();
+    }
+
+    @Test
+    public void testDeadlineFiresOnTick() throws Exception {
+        long deadline = now() + 1_000;
+        wheel.arm("task1", TaskState.Launched, deadline);
+        assertThat(wheel.isArmed("task1", TaskState.Launched, deadline)).isTrue();
+
+        testScheduler.advanceTimeBy(990, TimeUnit.MILLISECONDS);
+        assertThat(fired).isEmpty();
+
+        testScheduler.advanceTimeBy(2 * TICK_MS, TimeUnit.MILLISECONDS);
+        assertThat(fired).hasSize(1);
+        assertThat(fired.get(0).getTaskId()).isEqualTo("task1");
+        assertThat(fired.get(0).getTaskState()).isEqualTo(TaskState.Launched);
+        assertThat(fired.get(0).getDeadlineMs()).isEqualTo(deadline);
+        assertThat(wheel.isArmed("task1", TaskState.Launched, deadline)).isFalse();
+    }
+
+    @Test
+    public void testArmReplacesPreviousDeadline() throws Exception {
+        long firstDeadline = now() + 100;
+        long secondDeadline = now() + 500;
+        wheel.arm("task1", TaskState.Launched, firstDeadline);
+        wheel.arm("task1", TaskState.StartInitiated, secondDeadline);
+        assertThat(wheel.isArmed("task1", TaskState.Launched, firstDeadline)).isFalse();
+
+        testScheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        assertThat(fired).isEmpty();
+
+        testScheduler.advanceTimeBy(400, TimeUnit.MILLISECONDS);
+        assertThat(fired).hasSize(1);
+        assertThat(fired.get(0).getTaskState()).isEqualTo(TaskState.StartInitiated);
+    }
+
+    @Test
+    public void testDisarm() throws Exception {
+        wheel.arm("task1", TaskState.Launched, now() + 100);
+        wheel.disarm("task1");
+
+        testScheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        assertThat(fired).isEmpty();
+    }
+
+    @Test
+    public void testHandlerErrorDoesNotStopTimer() throws Exception {
+        TaskTimeoutWheel failingWheel = new TaskTimeoutWheel(configuration, titusRuntime, testScheduler);
+        List<String> handled = new ArrayList<>();
+        failingWheel.start(timeout -> {
+            handled.add(timeout.getTaskId());
+            throw new RuntimeException("simulated error");
+        });
+        try {
+            failingWheel.arm("task1", TaskState.Launched, now() + 100);
+            failingWheel.arm("task2", TaskState.Launched, now() + 100);
+            failingWheel.arm("task3", TaskState.Launched, now() + 300);
+
+            testScheduler.advanceTimeBy(400, TimeUnit.MILLISECONDS);
+            assertThat(handled).containsExactlyInAnyOrder("task1", "task2", "task3");
+        } finally {
+            failingWheel.shutdown();
+        }
+    }
+
+    @Test
+    public void testElapsedDeadlineIsNotArmedAgainUntilHandled() throws Exception {
+        when(configuration.getTaskInLaunchedStateTimeoutMs()).thenReturn(100L);
+        Job<BatchJobExt> job = batchJobs(batchJobDescriptors().getValue()).getValue();
+        BatchJobTask task = BatchJobTask.newBuilder(batchTasks(job).getValue())
+                .withStatus(TaskStatus.newBuilder().withState(TaskState.Launched).build())
+                .build();
+        EntityHolder taskHolder = TaskTimeoutChangeActions.setTimeoutOnRestoreFromStore(
+                configuration, EntityHolder.newRoot(task.getId(), task), titusRuntime.getClock(), wheel
+        );
+
+        testScheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        assertThat(fired).hasSize(1);
+
+        // Reconciler ticks while the timeout action is queued in the engine must not produce another timeout.
+        for (int i = 0; i < 5; i++) {
+            TaskTimeoutChangeActions.armIfNotTracked(taskHolder, wheel);
+            testScheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        }
+        assertThat(fired).hasSize(1);
+
+        // If the timeout action fails, and the task is still timed out, the deadline is armed again.
+        wheel.onTimeoutHandled(fired.get(0));
+        TaskTimeoutChangeActions.armIfNotTracked(taskHolder, wheel);
+        testScheduler.advanceTimeBy(2 * TICK_MS, TimeUnit.MILLISECONDS);
+        assertThat(fired).hasSize(2);
+    }
+
+    @Test
+    public void testDisarmClearsInFlightTimeout() throws Exception {
+        long deadline = now() + 100;
+        wheel.arm("task1", TaskState.Launched, deadline);
+        testScheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        assertThat(wheel.isTracked("task1", TaskState.Launched, deadline)).isTrue();
+
+        wheel.disarm("task1");
+        assertThat(wheel.isTracked("task1", TaskState.Launched, deadline)).isFalse();
+    }
+
+    private long now() {
+        return titusRuntime.getClock().wallTime();
+    }
+}
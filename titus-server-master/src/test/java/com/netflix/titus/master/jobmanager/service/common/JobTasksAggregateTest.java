@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.common;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import org.junit.Test;
+
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.batchJobDescriptors;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchJobs;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobTasksAggregateTest {
+
+    private static final int MAX_INDEX = 20;
+
+    private final Job<BatchJobExt> job = batchJobs(batchJobDescriptors().getValue()).getValue();
+
+    @Test
+    public void testIncrementalUpdatesMatchFullScan() throws Exception {
+        Random random = new Random(123);
+        EntityHolder refHolder = EntityHolder.newRoot(job.getId(), job);
+        EntityHolder runningHolder = EntityHolder.newRoot(job.getId(), job);
+
+        // Attach the aggregates to the initial versions, so all subsequent changes are applied incrementally
+        JobTasksAggregate.of(refHolder);
+        JobTasksAggregate.of(runningHolder);
+
+        for (int i = 0; i < 2_000; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 4 || refHolder.getChildren().isEmpty()) {
+                BatchJobTask task = newTask("task" + i, random.nextInt(MAX_INDEX), randomState(random));
+                refHolder = refHolder.addChild(EntityHolder.newRoot(task.getId(), task));
+            } else {
+                EntityHolder refTaskHolder = refHolder.getChildren().get(random.nextInt(refHolder.getChildren().size()));
+                if (operation < 8) {
+                    BatchJobTask task = refTaskHolder.getEntity();
+                    BatchJobTask updated = newTask(task.getId(), task.getIndex(), randomState(random));
+                    refHolder = refHolder.addChild(refTaskHolder.setEntity(updated));
+                    if (random.nextBoolean()) {
+                        runningHolder = runningHolder.addChild(refTaskHolder.setEntity(updated));
+                    }
+                } else {
+                    refHolder = refHolder.removeChild(refTaskHolder.getId()).getLeft();
+                    runningHolder = runningHolder.removeChild(refTaskHolder.getId()).getLeft();
+                }
+            }
+            checkAggregates(refHolder, runningHolder);
+        }
+    }
+
+    private void checkAggregates(EntityHolder refHolder, EntityHolder runningHolder) {
+        JobTasksAggregate refAggregate = JobTasksAggregate.of(refHolder);
+        JobTasksAggregate runningAggregate = JobTasksAggregate.of(runningHolder);
+        checkAggregate(refHolder, refAggregate);
+        checkAggregate(runningHolder, runningAggregate);
+
+        Set<String> activeNotStarted = new HashSet<>();
+        collectActiveNotStarted(refHolder, activeNotStarted);
+        collectActiveNotStarted(runningHolder, activeNotStarted);
+        assertThat(JobTasksAggregate.countActiveNotStartedTasks(refAggregate, runningAggregate)).isEqualTo(activeNotStarted.size());
+
+        boolean sameTaskIds = taskIds(refHolder).equals(taskIds(runningHolder));
+        assertThat(refAggregate.hasSameTaskIds(runningAggregate)).isEqualTo(sameTaskIds);
+    }
+
+    private void checkAggregate(EntityHolder jobHolder, JobTasksAggregate aggregate) {
+        List<Task> tasks = new ArrayList<>();
+        jobHolder.getChildren().forEach(taskHolder -> tasks.add(taskHolder.getEntity()));
+
+        assertThat(aggregate.getTaskCount()).isEqualTo(tasks.size());
+        for (TaskState state : TaskState.values()) {
+            assertThat(aggregate.getTaskCount(state)).isEqualTo((int) tasks.stream().filter(t -> t.getStatus().getState() == state).count());
+        }
+        assertThat(aggregate.getNotFinishedTaskCount()).isEqualTo((int) tasks.stream().filter(t -> TaskState.isRunning(t.getStatus().getState())).count());
+        for (int index = 0; index <= MAX_INDEX; index++) {
+            int expectedIndex = index;
+            assertThat(aggregate.hasTaskWithIndex(index)).isEqualTo(tasks.stream().anyMatch(t -> ((BatchJobTask) t).getIndex() == expectedIndex));
+        }
+    }
+
+    private void collectActiveNotStarted(EntityHolder jobHolder, Set<String> result) {
+        jobHolder.getChildren().forEach(taskHolder -> {
+            TaskState state = ((Task) taskHolder.getEntity()).getStatus().getState();
+            if (state != TaskState.Started && state != TaskState.Finished) {
+                result.add(taskHolder.getId());
+            }
+        });
+    }
+
+    private Set<String> taskIds(EntityHolder jobHolder) {
+        Set<String> taskIds = new HashSet<>();
+        jobHolder.getChildren().forEach(taskHolder -> taskIds.add(taskHolder.getId()));
+        return taskIds;
+    }
+
+    private TaskState randomState(Random random) {
+        return TaskState.values()[random.nextInt(TaskState.values().length)];
+    }
+
+    private BatchJobTask newTask(String taskId, int index, TaskState state) {
+        return BatchJobTask.newBuilder()
+                .withId(taskId)
+                .withOriginalId(taskId)
+                .withJobId(job.getId())
+                .withIndex(index)
+                .withStatus(TaskStatus.newBuilder().withState(state).build())
+                .build();
+    }
+}
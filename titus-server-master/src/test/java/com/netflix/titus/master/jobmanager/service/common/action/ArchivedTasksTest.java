@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.common.action;
+
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.common.util.time.TestClock;
+import org.junit.Test;
+
+import static com.netflix.titus.common.util.CollectionsExt.first;
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.batchJobDescriptors;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchTasks;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ArchivedTasksTest {
+
+    private static final long RETENTION_MS = 60_000;
+
+    private final TestClock testClock = Clocks.test();
+
+    private final Job<BatchJobExt> job = batchJobs(batchJobDescriptors().getValue()).getValue();
+    private final BatchJobTask task = batchTasks(job).getValue();
+
+    @Test
+    public void testOnlyDoneTasksAreArchivedAfterRetentionTime() throws Exception {
+        EntityHolder succeeded = taskHolder(TaskStatus.REASON_NORMAL);
+        assertThat(ArchivedTasks.isReadyForArchival(job, succeeded, RETENTION_MS, testClock)).isFalse();
+
+        testClock.advanceTime(RETENTION_MS, TimeUnit.MILLISECONDS);
+        assertThat(ArchivedTasks.isReadyForArchival(job, succeeded, RETENTION_MS, testClock)).isTrue();
+
+        // Job descriptors from the generator allow retries, so a failed task is not done
+        EntityHolder failed = taskHolder(TaskStatus.REASON_FAILED);
+        testClock.advanceTime(RETENTION_MS, TimeUnit.MILLISECONDS);
+        assertThat(ArchivedTasks.isReadyForArchival(job, failed, RETENTION_MS, testClock)).isFalse();
+    }
+
+    @Test
+    public void testArchiveTaskMovesItOutOfJobChildren() throws Exception {
+        EntityHolder taskHolder = taskHolder(TaskStatus.REASON_NORMAL);
+        EntityHolder jobHolder = EntityHolder.newRoot(job.getId(), job).addChild(taskHolder);
+        assertThat(first(jobHolder.getChildren()).getId()).isEqualTo(task.getId());
+
+        EntityHolder archivedJobHolder = ArchivedTasks.archiveTask(jobHolder, task.getId()).get();
+        assertThat(archivedJobHolder.getChildren()).isEmpty();
+        assertThat(ArchivedTasks.countArchivedTasks(archivedJobHolder)).isEqualTo(1);
+
+        BatchJobTask archived = (BatchJobTask) ArchivedTasks.findArchivedTask(archivedJobHolder, task.getId()).get();
+        assertThat(archived.getIndex()).isEqualTo(task.getIndex());
+        assertThat(archived.getStatus()).isEqualTo(((BatchJobTask) taskHolder.getEntity()).getStatus());
+        assertThat(archived.getStatusHistory()).isEmpty();
+
+        // Previous version is not affected, and unknown tasks are ignored
+        assertThat(ArchivedTasks.countArchivedTasks(jobHolder)).isEqualTo(0);
+        assertThat(ArchivedTasks.archiveTask(archivedJobHolder, task.getId())).isEmpty();
+    }
+
+    private EntityHolder taskHolder(String reasonCode) {
+        BatchJobTask finishedTask = BatchJobTask.newBuilder(task)
+                .withStatus(TaskStatus.newBuilder().withState(TaskState.Finished).withReasonCode(reasonCode).withTimestamp(testClock.wallTime()).build())
+                .withStatusHistory(TaskStatus.newBuilder().withState(TaskState.Started).withTimestamp(testClock.wallTime()).build())
+                .build();
+        return EntityHolder.newRoot(finishedTask.getId(), finishedTask);
+    }
+}
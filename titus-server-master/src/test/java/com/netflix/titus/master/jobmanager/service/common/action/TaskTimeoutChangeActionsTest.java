@@ -28,6 +28,7 @@ import com.netflix.titus.common.framework.reconciler.EntityHolder;
 import com.netflix.titus.common.framework.reconciler.ModelActionHolder;
 import com.netflix.titus.common.util.time.Clocks;
 import com.netflix.titus.common.util.time.TestClock;
+import com.netflix.titus.master.jobmanager.service.TaskTimeoutWheel;
 import com.netflix.titus.master.jobmanager.service.common.action.task.TaskTimeoutChangeActions;
 import com.netflix.titus.master.jobmanager.service.common.action.task.TaskTimeoutChangeActions.TimeoutStatus;
 import org.junit.Test;
@@ -37,6 +38,9 @@ import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.batchJo
 import static com.netflix.titus.testkit.model.job.JobGenerator.batchJobs;
 import static com.netflix.titus.testkit.model.job.JobGenerator.batchTasks;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 public class TaskTimeoutChangeActionsTest {
 
@@ -44,6 +48,8 @@ public class TaskTimeoutChangeActionsTest {
 
     private final TestClock testClock = Clocks.test();
 
+    private final TaskTimeoutWheel timeoutWheel = mock(TaskTimeoutWheel.class);
+
     private final Job<BatchJobExt> job = batchJobs(batchJobDescriptors().getValue()).getValue();
     private final BatchJobTask task = batchTasks(job).getValue();
 
@@ -68,11 +74,23 @@ public class TaskTimeoutChangeActionsTest {
         EntityHolder rootWithTimeout = modelActionHolders.get(0).getAction().apply(initialRoot).get().getLeft();
         assertThat(TaskTimeoutChangeActions.getTimeoutStatus(first(rootWithTimeout.getChildren()), testClock)).isEqualTo(TimeoutStatus.Pending);
 
+        // The deadline is armed only once the model update is applied
+        verifyZeroInteractions(timeoutWheel);
+        TaskTimeoutChangeActions.updateTimeoutTracking(first(rootWithTimeout.getChildren()), timeoutWheel);
+        verify(timeoutWheel).arm(launchedTask.getId(), TaskState.Launched, testClock.wallTime() + DEADLINE_INTERVAL_MS);
+
         // Advance time to trigger timeout
         testClock.advanceTime(DEADLINE_INTERVAL_MS, TimeUnit.MILLISECONDS);
         assertThat(TaskTimeoutChangeActions.getTimeoutStatus(first(rootWithTimeout.getChildren()), testClock)).isEqualTo(TimeoutStatus.TimedOut);
     }
 
+    @Test
+    public void testTaskLeavingTransientStateIsDisarmed() throws Exception {
+        BatchJobTask startedTask = createTaskInState(TaskState.Started);
+        TaskTimeoutChangeActions.updateTimeoutTracking(EntityHolder.newRoot(startedTask.getId(), startedTask), timeoutWheel);
+        verify(timeoutWheel).disarm(startedTask.getId());
+    }
+
     private EntityHolder rootFrom(Job<BatchJobExt> job, BatchJobTask task) {
         return EntityHolder.newRoot(job.getId(), job).addChild(EntityHolder.newRoot(task.getId(), task));
     }
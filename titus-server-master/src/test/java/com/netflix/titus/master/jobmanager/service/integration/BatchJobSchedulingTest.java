@@ -299,6 +299,7 @@ public class BatchJobSchedulingTest {
                 .advance()
                 .advance(JobsScenarioBuilder.START_INITIATED_TIMEOUT_MS, TimeUnit.MILLISECONDS)
                 .advance()
+                .advance()
                 .expectTaskInActiveState(0, 0, TaskState.KillInitiated)
         );
     }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.integration;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.master.jobmanager.service.integration.scenario.JobsScenarioBuilder;
+import com.netflix.titus.master.jobmanager.service.integration.scenario.ScenarioTemplates;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.netflix.titus.api.jobmanager.model.job.JobFunctions.changeBatchJobSize;
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskBatchJobDescriptor;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class BatchJobTaskArchivalTest {
+
+    private static final long RETENTION_MS = 10_000;
+
+    private final JobsScenarioBuilder jobsScenarioBuilder = new JobsScenarioBuilder();
+
+    @Before
+    public void setUp() {
+        when(jobsScenarioBuilder.getConfiguration().isFinishedTaskArchivalEnabled()).thenReturn(true);
+        when(jobsScenarioBuilder.getConfiguration().getFinishedTaskArchivalRetentionMs()).thenReturn(RETENTION_MS);
+    }
+
+    @Test
+    public void testFinishedTaskIsMovedToArchiveTierAndNotRescheduled() {
+        AtomicReference<Task> archivedTaskRef = new AtomicReference<>();
+
+        JobDescriptor<BatchJobExt> twoTaskJob = changeBatchJobSize(oneTaskBatchJobDescriptor(), 2);
+        jobsScenarioBuilder.scheduleJob(twoTaskJob, jobScenario -> jobScenario
+                .expectJobEvent()
+                .advance()
+                .inActiveTasks((taskIdx, resubmit) -> ScenarioTemplates.acceptTask(taskIdx, resubmit))
+                .inActiveTasks((taskIdx, resubmit) -> ScenarioTemplates.startTask(taskIdx, resubmit, TaskState.Started))
+                .template(ScenarioTemplates.triggerMesosFinishedEvent(0, 0, 0))
+                .firstTaskMatch(task -> ((BatchJobTask) task).getIndex() == 0, archivedTaskRef::set)
+
+                // Not archived before the retention time passes
+                .advance(RETENTION_MS / 2, TimeUnit.MILLISECONDS)
+                .allTasks(tasks -> assertThat(tasks).hasSize(2))
+
+                .advance(RETENTION_MS, TimeUnit.MILLISECONDS)
+                .expectedTaskArchivedInStore(0, 0)
+                .allTasks(tasks -> {
+                    assertThat(tasks).hasSize(1);
+                    assertThat(((BatchJobTask) tasks.get(0)).getIndex()).isEqualTo(1);
+                })
+                .andThen(() -> {
+                    Task archivedTask = jobsScenarioBuilder.getJobOperations().findTaskById(archivedTaskRef.get().getId()).get().getRight();
+                    assertThat(archivedTask.getStatus().getState()).isEqualTo(TaskState.Finished);
+                    assertThat(archivedTask.getStatus().getReasonCode()).isEqualTo(TaskStatus.REASON_NORMAL);
+                })
+                .expectNoStoreUpdate(0, 1)
+
+                // Job completes when the remaining live task finishes
+                .template(ScenarioTemplates.triggerMesosFinishedEvent(1, 0, 0))
+                .advance()
+                .advance()
+                .expectJobEvent(job -> assertThat(job.getStatus().getState()).isEqualTo(JobState.Finished))
+                .expectJobUpdatedInStore(job -> assertThat(job.getStatus().getState()).isEqualTo(JobState.Finished))
+                .expectedTaskArchivedInStore(1, 0)
+                .advance()
+                .expectJobArchivedInStore()
+        );
+    }
+}
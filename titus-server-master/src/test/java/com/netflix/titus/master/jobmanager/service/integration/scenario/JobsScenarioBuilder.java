@@ -40,6 +40,7 @@ import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.master.jobmanager.service.DefaultV3JobOperations;
 import com.netflix.titus.master.jobmanager.service.JobManagerConfiguration;
 import com.netflix.titus.master.jobmanager.service.JobReconciliationFrameworkFactory;
+import com.netflix.titus.master.jobmanager.service.TaskTimeoutWheel;
 import com.netflix.titus.master.jobmanager.service.batch.BatchDifferenceResolver;
 import com.netflix.titus.master.jobmanager.service.integration.scenario.StubbedJobStore.StoreEvent;
 import com.netflix.titus.master.jobmanager.service.service.ServiceDifferenceResolver;
@@ -65,6 +66,7 @@ public class JobsScenarioBuilder {
     public static final long LAUNCHED_TIMEOUT_MS = 5_000;
     public static final long START_INITIATED_TIMEOUT_MS = 10_000;
     public static final long KILL_INITIATED_TIMEOUT_MS = 30_000;
+    public static final long TASK_STATE_TIMEOUT_TICK_MS = 10;
 
     private final TestScheduler testScheduler = Schedulers.test();
 
@@ -95,6 +97,7 @@ public class JobsScenarioBuilder {
         when(configuration.getTaskInKillInitiatedStateTimeoutMs()).thenReturn(KILL_INITIATED_TIMEOUT_MS);
         when(configuration.getTaskRetryerResetTimeMs()).thenReturn(TimeUnit.MINUTES.toMillis(5));
         when(configuration.getTaskKillAttempts()).thenReturn(2L);
+        when(configuration.getTaskStateTimeoutTickMs()).thenReturn(TASK_STATE_TIMEOUT_TICK_MS);
 
         jobStore.events().subscribe(storeEvents);
 
@@ -121,6 +124,8 @@ public class JobsScenarioBuilder {
             }
         };
 
+        TaskTimeoutWheel taskTimeoutWheel = new TaskTimeoutWheel(configuration, titusRuntime, testScheduler);
+
         BatchDifferenceResolver batchDifferenceResolver = new BatchDifferenceResolver(
                 configuration,
                 capacityGroupService,
@@ -130,6 +135,7 @@ public class JobsScenarioBuilder {
                 constraintEvaluatorTransformer,
                 systemSoftConstraint,
                 systemHardConstraint,
+                taskTimeoutWheel,
                 titusRuntime,
                 testScheduler
         );
@@ -142,6 +148,7 @@ public class JobsScenarioBuilder {
                 constraintEvaluatorTransformer,
                 systemSoftConstraint,
                 systemHardConstraint,
+                taskTimeoutWheel,
                 titusRuntime,
                 testScheduler
         );
@@ -161,9 +168,11 @@ public class JobsScenarioBuilder {
                         constraintEvaluatorTransformer,
                         newJobSanitizer(VerifierMode.Permissive),
                         newJobSanitizer(VerifierMode.Strict),
+                        taskTimeoutWheel,
                         titusRuntime,
                         Optional.of(testScheduler)
                 ),
+                taskTimeoutWheel,
                 titusRuntime
         );
         jobOperations.enterActiveMode();
@@ -173,6 +182,14 @@ public class JobsScenarioBuilder {
         return titusRuntime;
     }
 
+    public JobManagerConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    public DefaultV3JobOperations getJobOperations() {
+        return jobOperations;
+    }
+
     public JobsScenarioBuilder trigger() {
         testScheduler.triggerActions();
         return this;
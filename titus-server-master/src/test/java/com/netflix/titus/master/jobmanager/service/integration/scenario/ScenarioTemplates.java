@@ -219,7 +219,8 @@ public class ScenarioTemplates {
     public static <E extends JobDescriptorExt> Function<JobScenarioBuilder<E>, JobScenarioBuilder<E>> passFinalKillInitiatedTimeout() {
         return jobScenario -> jobScenario
                 .advance()
-                .advance(JobsScenarioBuilder.KILL_INITIATED_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                .advance(JobsScenarioBuilder.KILL_INITIATED_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .advance();
     }
 
     public static <E extends JobDescriptorExt> Function<JobScenarioBuilder<E>, JobScenarioBuilder<E>> passKillInitiatedTimeoutWithKillReattempt(int taskIdx, int resubmit) {
@@ -227,6 +228,7 @@ public class ScenarioTemplates {
                 .advance()
                 .advance(JobsScenarioBuilder.KILL_INITIATED_TIMEOUT_MS, TimeUnit.MILLISECONDS)
                 .advance()
+                .advance()
                 .expectTaskUpdatedInStore(taskIdx, resubmit, task -> {
                     assertThat(task.getStatus().getState()).isEqualTo(TaskState.KillInitiated);
                     assertThat(task.getStatus().getReasonCode()).isEqualTo(TaskStatus.REASON_STUCK_IN_KILLING_STATE);
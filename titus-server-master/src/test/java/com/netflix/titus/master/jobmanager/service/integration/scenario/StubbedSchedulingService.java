@@ -63,6 +63,11 @@ class StubbedSchedulingService implements SchedulingService {
         queuableTasks.put(queuableTask.getId(), queuableTask);
     }
 
+    @Override
+    public void addTasks(Collection<QueuableTask> queuableTasks) {
+        queuableTasks.forEach(this::addTask);
+    }
+
     @Override
     public void removeTask(String taskid, QAttributes qAttributes, String hostname) {
         Preconditions.checkArgument(queuableTasks.containsKey(taskid));
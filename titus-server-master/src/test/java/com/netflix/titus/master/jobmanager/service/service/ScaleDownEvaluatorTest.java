@@ -16,8 +16,10 @@
 
 package com.netflix.titus.master.jobmanager.service.service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableMap;
@@ -111,6 +113,50 @@ public class ScaleDownEvaluatorTest {
         assertThat(toRemoveGrouped.get("zoneB")).hasSize(4);
     }
 
+    /**
+     * Compares the selection result with the original, iterative implementation for randomly generated task sets.
+     * Small numbers of zones, agents and distinct timestamps are used, so all tie breaking rules are exercised.
+     */
+    @Test
+    public void testSelectionIsSameAsInIterativeImplementation() {
+        ServiceJobTask template = taskDataGenerator.getValue();
+        TaskState[] states = {TaskState.Accepted, TaskState.Launched, TaskState.StartInitiated, TaskState.Started, TaskState.KillInitiated};
+
+        for (int seed = 0; seed < 500; seed++) {
+            Random random = new Random(seed);
+            int zoneCount = 1 + random.nextInt(4);
+            int agentCount = 1 + random.nextInt(20);
+            int taskCount = random.nextInt(200);
+
+            List<ServiceJobTask> tasks = new ArrayList<>();
+            for (int i = 0; i < taskCount; i++) {
+                int agentIdx = random.nextInt(agentCount);
+                tasks.add(template.toBuilder()
+                        .withId("task#" + i)
+                        .withStatus(TaskStatus.newBuilder()
+                                .withState(states[random.nextInt(states.length)])
+                                .withTimestamp(random.nextInt(20))
+                                .build()
+                        )
+                        .addAllToTaskContext(ImmutableMap.of(
+                                TaskAttributes.TASK_ATTRIBUTES_AGENT_ZONE, "zone" + (agentIdx % zoneCount),
+                                TaskAttributes.TASK_ATTRIBUTES_AGENT_INSTANCE_ID, "agent" + agentIdx
+                        ))
+                        .build()
+                );
+            }
+            int expectedSize = taskCount == 0 ? 0 : random.nextInt(taskCount);
+
+            List<String> expected = toTaskIds(IterativeScaleDownEvaluator.selectTasksToTerminate(tasks, expectedSize, TitusRuntimes.test()));
+            List<String> actual = toTaskIds(doEvaluate(tasks, expectedSize));
+            assertThat(actual).describedAs("seed=%s", seed).isEqualTo(expected);
+        }
+    }
+
+    private List<String> toTaskIds(List<ServiceJobTask> tasks) {
+        return tasks.stream().map(Task::getId).collect(Collectors.toList());
+    }
+
     private List<ServiceJobTask> doEvaluate(List<ServiceJobTask> tasks, int expectedSize) {
         List<ServiceJobTask> toRemove = ScaleDownEvaluator.selectTasksToTerminate(tasks, expectedSize, TitusRuntimes.test());
         checkAreForDuplicates(toRemove);
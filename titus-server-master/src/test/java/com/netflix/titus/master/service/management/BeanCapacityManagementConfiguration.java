@@ -27,6 +27,7 @@ public class BeanCapacityManagementConfiguration implements CapacityManagementCo
     private final long availableCapacityUpdateIntervalMs;
     private final double criticalTierBuffer;
     private final double flexTierBuffer;
+    private final long fullConsumptionEvaluationIntervalMs;
 
     public BeanCapacityManagementConfiguration(Builder builder) {
         this.defaultApplicationResourceDimension = builder.defaultApplicationResourceDimension;
@@ -34,6 +35,7 @@ public class BeanCapacityManagementConfiguration implements CapacityManagementCo
         this.availableCapacityUpdateIntervalMs = builder.availableCapacityUpdateIntervalMs;
         this.criticalTierBuffer = builder.criticalTierBuffer;
         this.flexTierBuffer = builder.flexTierBuffer;
+        this.fullConsumptionEvaluationIntervalMs = builder.fullConsumptionEvaluationIntervalMs;
     }
 
     @Override
@@ -61,6 +63,11 @@ public class BeanCapacityManagementConfiguration implements CapacityManagementCo
         return flexTierBuffer;
     }
 
+    @Override
+    public long getFullConsumptionEvaluationIntervalMs() {
+        return fullConsumptionEvaluationIntervalMs;
+    }
+
     public static Builder newBuilder() {
         return new Builder();
     }
@@ -72,6 +79,7 @@ public class BeanCapacityManagementConfiguration implements CapacityManagementCo
         private long availableCapacityUpdateIntervalMs;
         private double criticalTierBuffer;
         private double flexTierBuffer;
+        private long fullConsumptionEvaluationIntervalMs;
 
         private Builder() {
         }
@@ -105,6 +113,11 @@ public class BeanCapacityManagementConfiguration implements CapacityManagementCo
             return this;
         }
 
+        public Builder withFullConsumptionEvaluationIntervalMs(long fullConsumptionEvaluationIntervalMs) {
+            this.fullConsumptionEvaluationIntervalMs = fullConsumptionEvaluationIntervalMs;
+            return this;
+        }
+
         public BeanCapacityManagementConfiguration build() {
             return new BeanCapacityManagementConfiguration(this);
         }
@@ -23,6 +23,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
 import com.netflix.titus.api.model.ResourceDimension;
 import com.netflix.titus.master.service.management.CompositeResourceConsumption;
 import com.netflix.titus.master.service.management.ResourceConsumptionEvents.CapacityGroupRemovedEvent;
@@ -32,10 +33,17 @@ import com.netflix.titus.testkit.rx.ExtTestSubscriber;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import rx.Observable;
 import rx.schedulers.Schedulers;
 import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class DefaultResourceConsumptionServiceTest {
 
@@ -129,4 +137,35 @@ public class DefaultResourceConsumptionServiceTest {
 
         assertThat(allEvents.size()).isEqualTo(initialEvents.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testIncrementalChangeFailureDoesNotTerminateEventSubscription() throws Exception {
+        IncrementalResourceConsumptionEvaluator incrementalEvaluator = mock(IncrementalResourceConsumptionEvaluator.class);
+        when(incrementalEvaluator.getEvaluation()).thenReturn(generator.getEvaluation());
+        when(incrementalEvaluator.apply(any())).thenThrow(new RuntimeException("simulated error")).thenReturn(true);
+        PublishSubject<JobManagerEvent<?>> v3JobEvents = PublishSubject.create();
+
+        DefaultResourceConsumptionService incrementalService = new DefaultResourceConsumptionService(
+                evaluator, incrementalEvaluator, v3JobEvents, Observable.never(), TimeUnit.HOURS.toMillis(1), new DefaultRegistry(), testScheduler
+        );
+        try {
+            incrementalService.enterActiveMode().subscribe();
+            testScheduler.triggerActions();
+            verify(incrementalEvaluator, times(1)).resync();
+            assertThat(incrementalService.getSystemConsumption()).isNotEmpty();
+
+            // Failed change triggers the state rebuild.
+            v3JobEvents.onNext(mock(JobManagerEvent.class));
+            testScheduler.triggerActions();
+            verify(incrementalEvaluator, times(2)).resync();
+
+            // And the subsequent changes are still processed.
+            assertThat(v3JobEvents.hasObservers()).isTrue();
+            v3JobEvents.onNext(mock(JobManagerEvent.class));
+            testScheduler.triggerActions();
+            verify(incrementalEvaluator, times(2)).apply(any());
+        } finally {
+            incrementalService.shutdown();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.service.management.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobModel;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.model.ResourceDimension;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.job.V2JobOperations;
+import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
+import com.netflix.titus.master.service.management.BeanCapacityManagementConfiguration;
+import com.netflix.titus.master.service.management.CompositeResourceConsumption;
+import com.netflix.titus.master.service.management.ResourceConsumption;
+import com.netflix.titus.master.service.management.ResourceConsumption.ConsumptionLevel;
+import com.netflix.titus.master.service.management.ResourceConsumptions;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IncrementalResourceConsumptionEvaluatorTest {
+
+    private final BeanCapacityManagementConfiguration config = BeanCapacityManagementConfiguration.newBuilder()
+            .withCriticalTierBuffer(0.5)
+            .withFlexTierBuffer(0.5)
+            .build();
+
+    private final ApplicationSlaManagementService applicationSlaManagementService = mock(ApplicationSlaManagementService.class);
+    private final V2JobOperations v2JobOperations = mock(V2JobOperations.class);
+    private final V3JobOperations v3JobOperations = mock(V3JobOperations.class);
+
+    private final List<Pair<Job, List<Task>>> jobsAndTasks = new ArrayList<>();
+
+    private final IncrementalResourceConsumptionEvaluator incrementalEvaluator = new IncrementalResourceConsumptionEvaluator(
+            applicationSlaManagementService, v2JobOperations, v3JobOperations, config
+    );
+
+    @Before
+    public void setUp() throws Exception {
+        when(applicationSlaManagementService.getApplicationSLAs()).thenReturn(asList(
+                ConsumptionModelGenerator.DEFAULT_SLA, ConsumptionModelGenerator.CRITICAL_SLA_1, ConsumptionModelGenerator.NOT_USED_SLA
+        ));
+        when(v2JobOperations.getAllJobMgrs()).thenReturn(Collections.emptyList());
+        when(v3JobOperations.getJobsAndTasks()).thenReturn(jobsAndTasks);
+    }
+
+    @Test
+    public void testResyncMatchesFullEvaluation() throws Exception {
+        Job<ServiceJobExt> job = newServiceJob(ConsumptionModelGenerator.CRITICAL_SLA_1.getAppName(), 4);
+        List<Task> tasks = new ArrayList<>(JobGenerator.serviceTasks(job).getAndApply(3).getRight());
+        tasks.set(0, JobFunctions.changeTaskStatus(tasks.get(0), TaskState.Started, "test", "test"));
+        jobsAndTasks.add(Pair.of(job, tasks));
+
+        incrementalEvaluator.resync();
+
+        assertThat(countDrifted()).isZero();
+        assertThat(capacityGroupConsumption(ConsumptionModelGenerator.CRITICAL_SLA_1.getAppName()).getCurrentConsumption())
+                .isEqualTo(taskResources(job));
+    }
+
+    @Test
+    public void testEventBeforeResyncIsSuperseded() throws Exception {
+        Job<ServiceJobExt> job = newServiceJob(ConsumptionModelGenerator.CRITICAL_SLA_1.getAppName(), 4);
+        incrementalEvaluator.apply(JobUpdateEvent.newJob(job));
+
+        jobsAndTasks.add(Pair.of(job, new ArrayList<>(JobGenerator.serviceTasks(job).getAndApply(3).getRight())));
+        incrementalEvaluator.resync();
+        assertThat(countDrifted()).isZero();
+    }
+
+    @Test
+    public void testIncrementalUpdatesMatchFullEvaluation() throws Exception {
+        incrementalEvaluator.resync();
+
+        Job<ServiceJobExt> job = newServiceJob(ConsumptionModelGenerator.CRITICAL_SLA_1.getAppName(), 4);
+        List<Task> tasks = new ArrayList<>(JobGenerator.serviceTasks(job).getAndApply(3).getRight());
+        jobsAndTasks.add(Pair.of(job, tasks));
+
+        assertThat(incrementalEvaluator.apply(JobUpdateEvent.newJob(job))).isTrue();
+        tasks.forEach(task -> assertThat(incrementalEvaluator.apply(TaskUpdateEvent.newTask(job, task))).isFalse());
+        assertThat(countDrifted()).isZero();
+
+        // Start two tasks
+        for (int i = 0; i < 2; i++) {
+            Task previous = tasks.get(i);
+            Task started = JobFunctions.changeTaskStatus(previous, TaskState.Started, "test", "test");
+            tasks.set(i, started);
+            assertThat(incrementalEvaluator.apply(TaskUpdateEvent.taskChange(job, started, previous))).isTrue();
+        }
+        assertThat(countDrifted()).isZero();
+        assertThat(capacityGroupConsumption(ConsumptionModelGenerator.CRITICAL_SLA_1.getAppName()).getCurrentConsumption().getCpu())
+                .isEqualTo(2 * taskResources(job).getCpu());
+
+        // Repeated event for the same state is a no-op
+        assertThat(incrementalEvaluator.apply(TaskUpdateEvent.taskChange(job, tasks.get(0), tasks.get(0)))).isFalse();
+        assertThat(countDrifted()).isZero();
+    }
+
+    @Test
+    public void testFinishedJobIsRemoved() throws Exception {
+        Job<ServiceJobExt> job = newServiceJob(ConsumptionModelGenerator.CRITICAL_SLA_1.getAppName(), 2);
+        Task task = JobFunctions.changeTaskStatus(JobGenerator.serviceTasks(job).getValue(), TaskState.Started, "test", "test");
+        jobsAndTasks.add(Pair.of(job, new ArrayList<>(Collections.singletonList(task))));
+        incrementalEvaluator.resync();
+
+        Job finishedJob = JobFunctions.changeJobStatus(job, JobState.Finished, "test");
+        jobsAndTasks.clear();
+
+        assertThat(incrementalEvaluator.apply(JobUpdateEvent.jobChange(finishedJob, job))).isTrue();
+        assertThat(countDrifted()).isZero();
+        assertThat(capacityGroupConsumption(ConsumptionModelGenerator.CRITICAL_SLA_1.getAppName()).getCurrentConsumption())
+                .isEqualTo(ResourceDimension.empty());
+    }
+
+    @Test
+    public void testUndefinedCapacityGroup() throws Exception {
+        incrementalEvaluator.resync();
+
+        Job<ServiceJobExt> job = newServiceJob("undefinedCapacityGroup", 1);
+        incrementalEvaluator.apply(JobUpdateEvent.newJob(job));
+        assertThat(incrementalEvaluator.getEvaluation().getUndefinedCapacityGroups()).containsExactly("undefinedCapacityGroup");
+
+        incrementalEvaluator.apply(JobUpdateEvent.jobChange(JobFunctions.changeJobStatus(job, JobState.Finished, "test"), job));
+        assertThat(incrementalEvaluator.getEvaluation().getUndefinedCapacityGroups()).isEmpty();
+    }
+
+    private Job<ServiceJobExt> newServiceJob(String capacityGroup, int max) {
+        Job<ServiceJobExt> template = JobGenerator.serviceJobs(JobDescriptorGenerator.oneTaskServiceJobDescriptor()).getValue();
+        return template.toBuilder()
+                .withJobDescriptor(template.getJobDescriptor().toBuilder()
+                        .withCapacityGroup(capacityGroup)
+                        .withExtensions(template.getJobDescriptor().getExtensions().toBuilder()
+                                .withCapacity(JobModel.newCapacity().withMin(0).withDesired(max).withMax(max).build())
+                                .build()
+                        )
+                        .build()
+                )
+                .build();
+    }
+
+    private ResourceDimension taskResources(Job<?> job) {
+        return ResourceConsumptionEvaluator.toResourceDimension(job);
+    }
+
+    private CompositeResourceConsumption capacityGroupConsumption(String capacityGroup) {
+        ResourceConsumption consumption = ResourceConsumptions.groupBy(
+                incrementalEvaluator.getEvaluation().getSystemConsumption(), ConsumptionLevel.CapacityGroup
+        ).get(capacityGroup);
+        return (CompositeResourceConsumption) consumption;
+    }
+
+    private int countDrifted() {
+        DefaultResourceConsumptionService.ConsumptionEvaluationResult full = ResourceConsumptionEvaluator.newEvaluator(
+                applicationSlaManagementService, v2JobOperations, v3JobOperations, config
+        ).get();
+        return IncrementalResourceConsumptionEvaluator.countDriftedCapacityGroups(incrementalEvaluator.getEvaluation(), full);
+    }
+}
@@ -0,0 +1,75 @@
+package com.netflix.titus.runtime.connector.agent.replicator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.netflix.titus.api.agent.model.AgentInstance;
+import com.netflix.titus.api.agent.model.AgentInstanceGroup;
+import com.netflix.titus.api.agent.model.monitor.AgentStatus;
+import com.netflix.titus.runtime.connector.agent.AgentSnapshot;
+import com.netflix.titus.runtime.connector.common.replicator.ReplicatorCheckpointCodec;
+import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcAgentModelConverters;
+
+/**
+ * Encodes {@link AgentSnapshot} as a sequence of length delimited GRPC instance group and instance messages.
+ * The agent health status is not part of the snapshot, so a placeholder value is written.
+ */
+public class AgentSnapshotCheckpointCodec implements ReplicatorCheckpointCodec<AgentSnapshot> {
+
+    private static final int VERSION = 1;
+
+    private static final String CHECKPOINT_SOURCE = "checkpoint";
+
+    @Override
+    public int getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public void encode(AgentSnapshot snapshot, CodedOutputStream output) throws IOException {
+        List<AgentInstanceGroup> instanceGroups = snapshot.getInstanceGroups();
+        output.writeUInt32NoTag(instanceGroups.size());
+        for (AgentInstanceGroup instanceGroup : instanceGroups) {
+            output.writeMessageNoTag(GrpcAgentModelConverters.toGrpcAgentInstanceGroup(instanceGroup));
+        }
+
+        List<AgentInstance> instances = snapshot.getInstances();
+        output.writeUInt32NoTag(instances.size());
+        for (AgentInstance instance : instances) {
+            AgentStatus placeholderStatus = AgentStatus.healthy(CHECKPOINT_SOURCE, instance, CHECKPOINT_SOURCE, 0);
+            output.writeMessageNoTag(GrpcAgentModelConverters.toGrpcAgentInstance(instance, placeholderStatus));
+        }
+    }
+
+    @Override
+    public AgentSnapshot decode(CodedInputStream input) throws IOException {
+        ExtensionRegistryLite extensionRegistry = ExtensionRegistryLite.getEmptyRegistry();
+
+        int instanceGroupCount = input.readUInt32();
+        Map<String, AgentInstanceGroup> instanceGroupsById = new HashMap<>(instanceGroupCount);
+        for (int i = 0; i < instanceGroupCount; i++) {
+            com.netflix.titus.grpc.protogen.AgentInstanceGroup grpcInstanceGroup = input.readMessage(
+                    com.netflix.titus.grpc.protogen.AgentInstanceGroup.parser(), extensionRegistry
+            );
+            instanceGroupsById.put(grpcInstanceGroup.getId(), GrpcAgentModelConverters.toCoreAgentInstanceGroup(grpcInstanceGroup));
+        }
+
+        int instanceCount = input.readUInt32();
+        Map<String, List<AgentInstance>> instancesByInstanceGroupId = new HashMap<>();
+        for (int i = 0; i < instanceCount; i++) {
+            com.netflix.titus.grpc.protogen.AgentInstance grpcInstance = input.readMessage(
+                    com.netflix.titus.grpc.protogen.AgentInstance.parser(), extensionRegistry
+            );
+            instancesByInstanceGroupId.computeIfAbsent(grpcInstance.getInstanceGroupId(), g -> new ArrayList<>())
+                    .add(GrpcAgentModelConverters.toCoreAgentInstance(grpcInstance));
+        }
+
+        return new AgentSnapshot(instanceGroupsById, instancesByInstanceGroupId);
+    }
+}
@@ -1,5 +1,6 @@
 package com.netflix.titus.runtime.connector.agent.replicator;
 
+import java.io.File;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -7,7 +8,11 @@ import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.runtime.connector.agent.AgentDataReplicator;
 import com.netflix.titus.runtime.connector.agent.AgentManagementClient;
 import com.netflix.titus.runtime.connector.agent.AgentSnapshot;
+import com.netflix.titus.runtime.connector.common.replicator.CheckpointingReplicatorEventStream;
+import com.netflix.titus.runtime.connector.common.replicator.DataReplicatorConfiguration;
 import com.netflix.titus.runtime.connector.common.replicator.DataReplicatorMetrics;
+import com.netflix.titus.runtime.connector.common.replicator.ReplicatorCheckpointStore;
+import com.netflix.titus.runtime.connector.common.replicator.ReplicatorEventStream;
 import com.netflix.titus.runtime.connector.common.replicator.RetryableReplicatorEventStream;
 import com.netflix.titus.runtime.connector.common.replicator.StreamDataReplicator;
 import rx.schedulers.Schedulers;
@@ -20,15 +25,18 @@ public class DefaultAgentDataReplicator extends StreamDataReplicator<AgentSnapsh
     private static final String AGENT_REPLICATOR_GRPC_STREAM = "agentReplicatorGrpcStream";
 
     @Inject
-    public DefaultAgentDataReplicator(AgentManagementClient client, TitusRuntime titusRuntime) {
+    public DefaultAgentDataReplicator(AgentManagementClient client, DataReplicatorConfiguration configuration, TitusRuntime titusRuntime) {
         super(
-                newReplicatorEventStream(client, titusRuntime),
+                newReplicatorEventStream(client, configuration, titusRuntime),
+                configuration.isCheckpointEnabled() ? configuration.getCheckpointMaxAgeMs() : 0,
                 new DataReplicatorMetrics(AGENT_REPLICATOR, titusRuntime),
                 titusRuntime
         );
     }
 
-    private static RetryableReplicatorEventStream<AgentSnapshot> newReplicatorEventStream(AgentManagementClient client, TitusRuntime titusRuntime) {
+    private static RetryableReplicatorEventStream<AgentSnapshot> newReplicatorEventStream(AgentManagementClient client,
+                                                                                        DataReplicatorConfiguration configuration,
+                                                                                        TitusRuntime titusRuntime) {
         GrpcAgentReplicatorEventStream grpcEventStream = new GrpcAgentReplicatorEventStream(
                 client,
                 new DataReplicatorMetrics(AGENT_REPLICATOR_GRPC_STREAM, titusRuntime),
@@ -36,8 +44,20 @@ public class DefaultAgentDataReplicator extends StreamDataReplicator<AgentSnapsh
                 Schedulers.computation()
         );
 
+        ReplicatorEventStream<AgentSnapshot> eventStream = grpcEventStream;
+        if (configuration.isCheckpointEnabled()) {
+            ReplicatorCheckpointStore<AgentSnapshot> checkpointStore = new ReplicatorCheckpointStore<>(
+                    AGENT_REPLICATOR,
+                    new File(configuration.getCheckpointDirectory(), AGENT_REPLICATOR + ".checkpoint"),
+                    new AgentSnapshotCheckpointCodec(),
+                    configuration.getCheckpointMaxAgeMs(),
+                    titusRuntime
+            );
+            eventStream = new CheckpointingReplicatorEventStream<>(grpcEventStream, checkpointStore, configuration.getCheckpointIntervalMs(), Schedulers.io());
+        }
+
         return new RetryableReplicatorEventStream<>(
-                grpcEventStream,
+                eventStream,
                 new DataReplicatorMetrics(AGENT_REPLICATOR_RETRYABLE_STREAM, titusRuntime),
                 titusRuntime,
                 Schedulers.computation()
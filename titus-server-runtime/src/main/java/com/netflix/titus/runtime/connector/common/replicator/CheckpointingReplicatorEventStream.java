@@ -0,0 +1,82 @@
+package com.netflix.titus.runtime.connector.common.replicator;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.Scheduler;
+
+/**
+ * {@link ReplicatorEventStream} decorator, which emits the data loaded from a local checkpoint on the first
+ * {@link #connect()} call, before the delegate stream produces its first event. The data received from the
+ * delegate are periodically saved in a new checkpoint. Checkpoints are written on the provided scheduler, so
+ * the event stream is never blocked by the disk I/O.
+ */
+public class CheckpointingReplicatorEventStream<D> implements ReplicatorEventStream<D> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointingReplicatorEventStream.class);
+
+    private final ReplicatorEventStream<D> delegate;
+    private final ReplicatorCheckpointStore<D> checkpointStore;
+    private final long checkpointIntervalMs;
+    private final Scheduler scheduler;
+
+    private final AtomicBoolean checkpointLoaded = new AtomicBoolean();
+    private final AtomicBoolean saveInProgress = new AtomicBoolean();
+
+    private volatile D lastSavedData;
+    private volatile long lastSaveTime;
+
+    public CheckpointingReplicatorEventStream(ReplicatorEventStream<D> delegate,
+                                              ReplicatorCheckpointStore<D> checkpointStore,
+                                              long checkpointIntervalMs,
+                                              Scheduler scheduler) {
+        this.delegate = delegate;
+        this.checkpointStore = checkpointStore;
+        this.checkpointIntervalMs = checkpointIntervalMs;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Observable<ReplicatorEvent<D>> connect() {
+        return Observable.defer(() -> {
+            Observable<ReplicatorEvent<D>> liveStream = delegate.connect().doOnNext(this::checkpointIfDue);
+            if (checkpointLoaded.getAndSet(true)) {
+                return liveStream;
+            }
+            return checkpointStore.load()
+                    .map(checkpoint -> {
+                        // Do not write the loaded data back, and give the live stream time to catch up.
+                        this.lastSavedData = checkpoint.getData();
+                        this.lastSaveTime = scheduler.now();
+                        return Observable.just(checkpoint).concatWith(liveStream);
+                    })
+                    .orElse(liveStream);
+        });
+    }
+
+    private void checkpointIfDue(ReplicatorEvent<D> event) {
+        // Events re-emitted with the same data only refresh the timestamp, so there is nothing new to save.
+        if (event.getData() == lastSavedData || scheduler.now() - lastSaveTime < checkpointIntervalMs) {
+            return;
+        }
+        if (!saveInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        this.lastSavedData = event.getData();
+        this.lastSaveTime = scheduler.now();
+
+        Scheduler.Worker worker = scheduler.createWorker();
+        worker.schedule(() -> {
+            try {
+                checkpointStore.save(event);
+            } catch (Exception e) {
+                logger.warn("Unexpected error during replicator checkpoint save", e);
+            } finally {
+                saveInProgress.set(false);
+                worker.unsubscribe();
+            }
+        });
+    }
+}
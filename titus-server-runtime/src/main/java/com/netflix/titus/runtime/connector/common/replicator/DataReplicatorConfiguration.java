@@ -0,0 +1,36 @@
+package com.netflix.titus.runtime.connector.common.replicator;
+
+import com.netflix.archaius.api.annotations.Configuration;
+import com.netflix.archaius.api.annotations.DefaultValue;
+
+@Configuration(prefix = "titus.dataReplicator")
+public interface DataReplicatorConfiguration {
+
+    /**
+     * Set to true to periodically save the replicated data on the local disk, and load it during the process startup.
+     * The replicator then completes its initialization with data as old as {@link #getCheckpointMaxAgeMs()}, so
+     * only consumers tolerating stale data, like read only query endpoints in the gateway, may enable it. Components
+     * taking actions based on the replicated data (for example task relocation) must keep it disabled.
+     */
+    @DefaultValue("false")
+    boolean isCheckpointEnabled();
+
+    /**
+     * Directory in which the checkpoint files are stored.
+     */
+    @DefaultValue("/tmp/titus/dataReplicator")
+    String getCheckpointDirectory();
+
+    /**
+     * Minimum interval between two subsequent checkpoints.
+     */
+    @DefaultValue("60000")
+    long getCheckpointIntervalMs();
+
+    /**
+     * Checkpoints older than this value are not loaded during the startup. This is also the maximum staleness
+     * of the data the replicator may start with, before it catches up with the live event stream.
+     */
+    @DefaultValue("600000")
+    long getCheckpointMaxAgeMs();
+}
@@ -0,0 +1,21 @@
+package com.netflix.titus.runtime.connector.common.replicator;
+
+import java.io.IOException;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * Binary encoder/decoder of the replicated data, used by {@link ReplicatorCheckpointStore}.
+ */
+public interface ReplicatorCheckpointCodec<D> {
+
+    /**
+     * Version of the encoding format. Checkpoints with a different version are ignored during loading.
+     */
+    int getVersion();
+
+    void encode(D data, CodedOutputStream output) throws IOException;
+
+    D decode(CodedInputStream input) throws IOException;
+}
@@ -0,0 +1,232 @@
+package com.netflix.titus.runtime.connector.common.replicator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.netflix.spectator.api.Gauge;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.runtime.connector.common.replicator.ReplicatorEventStream.ReplicatorEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the replicated data snapshot in a local file, in a versioned binary format:
+ * <ul>
+ * <li>header - magic number, file format version, codec version, data timestamp, payload length and CRC32</li>
+ * <li>payload - the data encoded with {@link ReplicatorCheckpointCodec}</li>
+ * </ul>
+ * A checkpoint is written to a temporary file first, which next replaces the previous checkpoint in a single
+ * atomic move operation. Checkpoints are read via a memory mapped buffer, so the payload is decoded without first
+ * copying the whole file into the heap.
+ */
+public class ReplicatorCheckpointStore<D> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicatorCheckpointStore.class);
+
+    private static final String ROOT = "titus.dataReplicator.checkpoint.";
+
+    static final int MAGIC = 0x54495243; // 'TIRC'
+    static final int FORMAT_VERSION = 1;
+
+    // magic(4) + format version(4) + codec version(4) + timestamp(8) + payload length(4) + crc(8)
+    static final int HEADER_SIZE = 32;
+
+    private final Path checkpointFile;
+    private final ReplicatorCheckpointCodec<D> codec;
+    private final long maxAgeMs;
+    private final TitusRuntime titusRuntime;
+
+    private final Registry registry;
+    private final Id loadTimeId;
+    private final Id saveTimeId;
+    private final Id failuresId;
+    private final Gauge sizeGauge;
+
+    public ReplicatorCheckpointStore(String source,
+                                     File checkpointFile,
+                                     ReplicatorCheckpointCodec<D> codec,
+                                     long maxAgeMs,
+                                     TitusRuntime titusRuntime) {
+        this.checkpointFile = checkpointFile.toPath();
+        this.codec = codec;
+        this.maxAgeMs = maxAgeMs;
+        this.titusRuntime = titusRuntime;
+
+        this.registry = titusRuntime.getRegistry();
+        this.loadTimeId = registry.createId(ROOT + "loadTime", "source", source);
+        this.saveTimeId = registry.createId(ROOT + "saveTime", "source", source);
+        this.failuresId = registry.createId(ROOT + "failures", "source", source);
+        this.sizeGauge = registry.gauge(ROOT + "size", "source", source);
+    }
+
+    /**
+     * Loads the last checkpoint, if it exists, has the current format, and is not older than the configured maximum age.
+     * The returned event has the original data timestamp, so the data staleness is reported correctly.
+     */
+    public Optional<ReplicatorEvent<D>> load() {
+        if (!Files.exists(checkpointFile)) {
+            logger.info("No replicator checkpoint found: {}", checkpointFile);
+            return Optional.empty();
+        }
+
+        long startTime = titusRuntime.getClock().wallTime();
+        try (FileChannel channel = FileChannel.open(checkpointFile, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                logger.warn("Replicator checkpoint file {} too short: {} bytes", checkpointFile, fileSize);
+                return Optional.empty();
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+
+            int magic = buffer.getInt();
+            int formatVersion = buffer.getInt();
+            int codecVersion = buffer.getInt();
+            long timestamp = buffer.getLong();
+            int payloadLength = buffer.getInt();
+            long crc = buffer.getLong();
+
+            if (magic != MAGIC || formatVersion != FORMAT_VERSION || codecVersion != codec.getVersion()) {
+                logger.info("Ignoring replicator checkpoint {} with incompatible format: magic={}, formatVersion={}, codecVersion={}",
+                        checkpointFile, magic, formatVersion, codecVersion);
+                return Optional.empty();
+            }
+            if (payloadLength != fileSize - HEADER_SIZE) {
+                logger.warn("Ignoring truncated replicator checkpoint {}: expected payload of {} bytes, found {}", checkpointFile, payloadLength, fileSize - HEADER_SIZE);
+                return Optional.empty();
+            }
+            long age = startTime - timestamp;
+            if (age > maxAgeMs) {
+                logger.info("Ignoring replicator checkpoint {} older than {}ms: age={}ms", checkpointFile, maxAgeMs, age);
+                return Optional.empty();
+            }
+
+            ByteBuffer payload = buffer.slice();
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload.duplicate());
+            if (crc32.getValue() != crc) {
+                logger.warn("Ignoring corrupted replicator checkpoint {}: CRC mismatch", checkpointFile);
+                return Optional.empty();
+            }
+
+            // The decoder reads through ByteBuffer accessors, instead of protobuf's direct memory access to the mapped buffer.
+            CodedInputStream input = CodedInputStream.newInstance(new ByteBufferInputStream(payload));
+            input.setSizeLimit(Integer.MAX_VALUE);
+            D data = codec.decode(input);
+
+            long loadTime = titusRuntime.getClock().wallTime() - startTime;
+            registry.timer(loadTimeId).record(loadTime, TimeUnit.MILLISECONDS);
+            sizeGauge.set(fileSize);
+            logger.info("Loaded replicator checkpoint {}: size={}, age={}ms, loadTime={}ms", checkpointFile, fileSize, age, loadTime);
+
+            return Optional.of(new ReplicatorEvent<>(data, timestamp));
+        } catch (Exception e) {
+            registry.counter(failuresId.withTag("operation", "load")).increment();
+            logger.warn("Cannot load replicator checkpoint {}", checkpointFile, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Saves the given data snapshot, replacing the previous checkpoint. Returns false if the operation failed.
+     */
+    public boolean save(ReplicatorEvent<D> event) {
+        long startTime = titusRuntime.getClock().wallTime();
+        Path tmpFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try {
+            ByteArrayOutputStream payloadStream = new ByteArrayOutputStream();
+            CodedOutputStream output = CodedOutputStream.newInstance(payloadStream);
+            codec.encode(event.getData(), output);
+            output.flush();
+            byte[] payload = payloadStream.toByteArray();
+
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(FORMAT_VERSION);
+            header.putInt(codec.getVersion());
+            header.putLong(event.getLastUpdateTime());
+            header.putInt(payload.length);
+            header.putLong(crc32.getValue());
+            header.flip();
+
+            if (checkpointFile.getParent() != null) {
+                Files.createDirectories(checkpointFile.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer body = ByteBuffer.wrap(payload);
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                while (body.hasRemaining()) {
+                    channel.write(body);
+                }
+                channel.force(false);
+            }
+            Files.move(tmpFile, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            long saveTime = titusRuntime.getClock().wallTime() - startTime;
+            registry.timer(saveTimeId).record(saveTime, TimeUnit.MILLISECONDS);
+            sizeGauge.set(HEADER_SIZE + payload.length);
+            logger.debug("Saved replicator checkpoint {}: size={}, saveTime={}ms", checkpointFile, HEADER_SIZE + payload.length, saveTime);
+            return true;
+        } catch (Exception e) {
+            registry.counter(failuresId.withTag("operation", "save")).increment();
+            logger.warn("Cannot save replicator checkpoint {}", checkpointFile, e);
+            try {
+                Files.deleteIfExists(tmpFile);
+            } catch (IOException ignore) {
+            }
+            return false;
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -26,6 +26,7 @@ public abstract class StreamDataReplicator<D> implements DataReplicator<D> {
     private static final long INITIALIZATION_TIMEOUT_MS = 120_000;
 
     private final TitusRuntime titusRuntime;
+    private final long stalenessThresholdMs;
     private final Subscription subscription;
 
     private final AtomicReference<ReplicatorEventStream.ReplicatorEvent<D>> lastReplicatorEventRef = new AtomicReference<>();
@@ -36,7 +37,19 @@ public abstract class StreamDataReplicator<D> implements DataReplicator<D> {
     public StreamDataReplicator(ReplicatorEventStream<D> replicatorEventStream,
                                 DataReplicatorMetrics metrics,
                                 TitusRuntime titusRuntime) {
+        this(replicatorEventStream, STALENESS_THRESHOLD, metrics, titusRuntime);
+    }
+
+    /**
+     * @param stalenessThresholdMs maximum staleness of the data that completes the initialization. A value higher than
+     *                             the default is used when the replicator may start with the data loaded from a checkpoint.
+     */
+    public StreamDataReplicator(ReplicatorEventStream<D> replicatorEventStream,
+                                long stalenessThresholdMs,
+                                DataReplicatorMetrics metrics,
+                                TitusRuntime titusRuntime) {
         this.titusRuntime = titusRuntime;
+        this.stalenessThresholdMs = Math.max(STALENESS_THRESHOLD, stalenessThresholdMs);
 
         CountDownLatch latch = new CountDownLatch(1);
 
@@ -93,6 +106,6 @@ public abstract class StreamDataReplicator<D> implements DataReplicator<D> {
 
     private boolean isFresh(ReplicatorEventStream.ReplicatorEvent event) {
         long now = titusRuntime.getClock().wallTime();
-        return event.getLastUpdateTime() + STALENESS_THRESHOLD >= now;
+        return event.getLastUpdateTime() + stalenessThresholdMs >= now;
     }
 }
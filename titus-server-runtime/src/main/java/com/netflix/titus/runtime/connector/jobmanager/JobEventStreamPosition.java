@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.connector.jobmanager;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import io.grpc.Metadata;
+
+/**
+ * A position in the job event stream of a TitusMaster leader. Each leader assigns a new epoch value when it activates
+ * its event journal, and numbers all job and task update events it emits with consecutive sequence numbers. Snapshot
+ * events and the snapshot end marker are not numbered.
+ * <p>
+ * A client sends the position of the last event it processed in the {@link #RESUME_FROM_HEADER} request header (an
+ * empty value if it has none). The server responds with the position preceding the first numbered event of the stream
+ * in the {@link #STREAM_START_HEADER} response header, and with the {@link #RESUMED_HEADER} flag:
+ * <ul>
+ * <li>resumed - the server sends the events following the requested position, the snapshot end marker, and next
+ * the live events; the start position is equal to the requested one</li>
+ * <li>not resumed - the server sends a full snapshot, the snapshot end marker and next the live events, which are
+ * numbered from the start position + 1</li>
+ * </ul>
+ */
+public class JobEventStreamPosition {
+
+    public static final String RESUME_FROM_HEADER = "X-Titus-Job-Events-Resume-From";
+    public static final String STREAM_START_HEADER = "X-Titus-Job-Events-Start";
+    public static final String RESUMED_HEADER = "X-Titus-Job-Events-Resumed";
+
+    public static final Metadata.Key<String> RESUME_FROM_KEY = Metadata.Key.of(RESUME_FROM_HEADER, Metadata.ASCII_STRING_MARSHALLER);
+    public static final Metadata.Key<String> STREAM_START_KEY = Metadata.Key.of(STREAM_START_HEADER, Metadata.ASCII_STRING_MARSHALLER);
+    public static final Metadata.Key<String> RESUMED_KEY = Metadata.Key.of(RESUMED_HEADER, Metadata.ASCII_STRING_MARSHALLER);
+
+    private static final char SEPARATOR = '@';
+
+    private final String epoch;
+    private final long sequence;
+
+    public JobEventStreamPosition(String epoch, long sequence) {
+        this.epoch = epoch;
+        this.sequence = sequence;
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public JobEventStreamPosition next() {
+        return new JobEventStreamPosition(epoch, sequence + 1);
+    }
+
+    public String encode() {
+        return epoch + SEPARATOR + sequence;
+    }
+
+    public static Optional<JobEventStreamPosition> decode(String value) {
+        if (value == null) {
+            return Optional.empty();
+        }
+        int idx = value.lastIndexOf(SEPARATOR);
+        if (idx <= 0 || idx == value.length() - 1) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new JobEventStreamPosition(value.substring(0, idx), Long.parseLong(value.substring(idx + 1))));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        JobEventStreamPosition that = (JobEventStreamPosition) o;
+        return sequence == that.sequence &&
+                Objects.equals(epoch, that.epoch);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(epoch, sequence);
+    }
+
+    @Override
+    public String toString() {
+        return "JobEventStreamPosition{" +
+                "epoch='" + epoch + '\'' +
+                ", sequence=" + sequence +
+                '}';
+    }
+}
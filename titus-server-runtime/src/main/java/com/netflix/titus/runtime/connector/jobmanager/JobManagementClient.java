@@ -16,7 +16,9 @@
 
 package com.netflix.titus.runtime.connector.jobmanager;
 
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 import com.netflix.titus.grpc.protogen.Job;
 import com.netflix.titus.grpc.protogen.JobCapacityUpdate;
@@ -60,6 +62,18 @@ public interface JobManagementClient {
 
     Observable<JobChangeNotification> observeJobs();
 
+    /**
+     * A variant of {@link #observeJobs()}, which asks the server to continue the event stream from the given position,
+     * instead of sending a full snapshot. The stream start listener is called before the first event is emitted,
+     * with the position of the snapshot end marker, and a flag telling if the stream was resumed. The listener is not
+     * called at all if the server does not support resumable streams, in which case a full snapshot is always sent.
+     * See {@link JobEventStreamPosition} for the protocol details.
+     */
+    default Observable<JobChangeNotification> observeJobs(Optional<JobEventStreamPosition> resumeFrom,
+                                                          BiConsumer<JobEventStreamPosition, Boolean> streamStartListener) {
+        return observeJobs();
+    }
+
     Completable killJob(String jobId);
 
     Observable<Task> findTask(String taskId);
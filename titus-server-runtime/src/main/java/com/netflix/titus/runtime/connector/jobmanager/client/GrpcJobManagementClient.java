@@ -1,7 +1,9 @@
 package com.netflix.titus.runtime.connector.jobmanager.client;
 
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -26,10 +28,19 @@ import com.netflix.titus.grpc.protogen.TaskKillRequest;
 import com.netflix.titus.grpc.protogen.TaskQuery;
 import com.netflix.titus.grpc.protogen.TaskQueryResult;
 import com.netflix.titus.runtime.connector.GrpcClientConfiguration;
+import com.netflix.titus.runtime.connector.jobmanager.JobEventStreamPosition;
 import com.netflix.titus.runtime.connector.jobmanager.JobManagementClient;
 import com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil;
 import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
 import com.netflix.titus.runtime.endpoint.v3.grpc.V3GrpcModelConverters;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
 import io.grpc.stub.StreamObserver;
 import rx.Completable;
 import rx.Observable;
@@ -152,6 +163,17 @@ public class GrpcJobManagementClient implements JobManagementClient {
         });
     }
 
+    @Override
+    public Observable<JobChangeNotification> observeJobs(Optional<JobEventStreamPosition> resumeFrom,
+                                                         BiConsumer<JobEventStreamPosition, Boolean> streamStartListener) {
+        return createRequestObservable(emitter -> {
+            StreamObserver<JobChangeNotification> streamObserver = createSimpleClientResponseObserver(emitter);
+            createWrappedStub(client, callMetadataResolver)
+                    .withInterceptors(new JobEventStreamPositionInterceptor(resumeFrom, streamStartListener))
+                    .observeJobs(Empty.getDefaultInstance(), streamObserver);
+        });
+    }
+
     @Override
     public Completable killJob(String jobId) {
         return createRequestCompletable(emitter -> {
@@ -185,4 +207,39 @@ public class GrpcJobManagementClient implements JobManagementClient {
             createWrappedStub(client, callMetadataResolver, configuration.getRequestTimeout()).killTask(taskKillRequest, streamObserver);
         }, configuration.getRequestTimeout());
     }
+
+    /**
+     * Sends the requested stream position in the request header, and reports the stream start position received in
+     * the response headers.
+     */
+    private static class JobEventStreamPositionInterceptor implements ClientInterceptor {
+
+        private final Optional<JobEventStreamPosition> resumeFrom;
+        private final BiConsumer<JobEventStreamPosition, Boolean> streamStartListener;
+
+        private JobEventStreamPositionInterceptor(Optional<JobEventStreamPosition> resumeFrom,
+                                                  BiConsumer<JobEventStreamPosition, Boolean> streamStartListener) {
+            this.resumeFrom = resumeFrom;
+            this.streamStartListener = streamStartListener;
+        }
+
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+            return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+                @Override
+                public void start(Listener<RespT> responseListener, Metadata headers) {
+                    headers.put(JobEventStreamPosition.RESUME_FROM_KEY, resumeFrom.map(JobEventStreamPosition::encode).orElse(""));
+                    super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(responseListener) {
+                        @Override
+                        public void onHeaders(Metadata responseHeaders) {
+                            JobEventStreamPosition.decode(responseHeaders.get(JobEventStreamPosition.STREAM_START_KEY)).ifPresent(position ->
+                                    streamStartListener.accept(position, Boolean.parseBoolean(responseHeaders.get(JobEventStreamPosition.RESUMED_KEY)))
+                            );
+                            super.onHeaders(responseHeaders);
+                        }
+                    }, headers);
+                }
+            };
+        }
+    }
 }
@@ -1,5 +1,8 @@
 package com.netflix.titus.runtime.connector.jobmanager.client;
 
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
 import com.netflix.titus.grpc.protogen.Job;
 import com.netflix.titus.grpc.protogen.JobCapacityUpdate;
 import com.netflix.titus.grpc.protogen.JobChangeNotification;
@@ -12,6 +15,7 @@ import com.netflix.titus.grpc.protogen.Task;
 import com.netflix.titus.grpc.protogen.TaskKillRequest;
 import com.netflix.titus.grpc.protogen.TaskQuery;
 import com.netflix.titus.grpc.protogen.TaskQueryResult;
+import com.netflix.titus.runtime.connector.jobmanager.JobEventStreamPosition;
 import com.netflix.titus.runtime.connector.jobmanager.JobManagementClient;
 import rx.Completable;
 import rx.Observable;
@@ -64,6 +68,12 @@ public class JobManagementClientDelegate implements JobManagementClient {
         return delegate.observeJobs();
     }
 
+    @Override
+    public Observable<JobChangeNotification> observeJobs(Optional<JobEventStreamPosition> resumeFrom,
+                                                         BiConsumer<JobEventStreamPosition, Boolean> streamStartListener) {
+        return delegate.observeJobs(resumeFrom, streamStartListener);
+    }
+
     @Override
     public Completable killJob(String jobId) {
         return delegate.killJob(jobId);
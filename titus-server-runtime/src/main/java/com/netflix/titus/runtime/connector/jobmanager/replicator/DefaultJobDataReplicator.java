@@ -1,10 +1,15 @@
 package com.netflix.titus.runtime.connector.jobmanager.replicator;
 
+import java.io.File;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.runtime.connector.common.replicator.CheckpointingReplicatorEventStream;
+import com.netflix.titus.runtime.connector.common.replicator.DataReplicatorConfiguration;
 import com.netflix.titus.runtime.connector.common.replicator.DataReplicatorMetrics;
+import com.netflix.titus.runtime.connector.common.replicator.ReplicatorCheckpointStore;
+import com.netflix.titus.runtime.connector.common.replicator.ReplicatorEventStream;
 import com.netflix.titus.runtime.connector.common.replicator.RetryableReplicatorEventStream;
 import com.netflix.titus.runtime.connector.common.replicator.StreamDataReplicator;
 import com.netflix.titus.runtime.connector.jobmanager.JobDataReplicator;
@@ -20,23 +25,38 @@ public class DefaultJobDataReplicator extends StreamDataReplicator<JobSnapshot>
     private static final String JOB_REPLICATOR_GRPC_STREAM = "jobReplicatorGrpcStream";
 
     @Inject
-    public DefaultJobDataReplicator(JobManagementClient client, TitusRuntime titusRuntime) {
+    public DefaultJobDataReplicator(JobManagementClient client, DataReplicatorConfiguration configuration, TitusRuntime titusRuntime) {
         super(
-                newReplicatorEventStream(client, titusRuntime),
+                newReplicatorEventStream(client, configuration, titusRuntime),
+                configuration.isCheckpointEnabled() ? configuration.getCheckpointMaxAgeMs() : 0,
                 new DataReplicatorMetrics(JOB_REPLICATOR, titusRuntime),
                 titusRuntime
         );
     }
 
-    private static RetryableReplicatorEventStream<JobSnapshot> newReplicatorEventStream(JobManagementClient client, TitusRuntime titusRuntime) {
+    private static RetryableReplicatorEventStream<JobSnapshot> newReplicatorEventStream(JobManagementClient client,
+                                                                                      DataReplicatorConfiguration configuration,
+                                                                                      TitusRuntime titusRuntime) {
         GrpcJobReplicatorEventStream grpcEventStream = new GrpcJobReplicatorEventStream(
                 client,
                 new DataReplicatorMetrics(JOB_REPLICATOR_GRPC_STREAM, titusRuntime),
                 titusRuntime,
                 Schedulers.computation()
         );
+        ReplicatorEventStream<JobSnapshot> eventStream = grpcEventStream;
+        if (configuration.isCheckpointEnabled()) {
+            ReplicatorCheckpointStore<JobSnapshot> checkpointStore = new ReplicatorCheckpointStore<>(
+                    JOB_REPLICATOR,
+                    new File(configuration.getCheckpointDirectory(), JOB_REPLICATOR + ".checkpoint"),
+                    new JobSnapshotCheckpointCodec(),
+                    configuration.getCheckpointMaxAgeMs(),
+                    titusRuntime
+            );
+            eventStream = new CheckpointingReplicatorEventStream<>(grpcEventStream, checkpointStore, configuration.getCheckpointIntervalMs(), Schedulers.io());
+        }
+
         return new RetryableReplicatorEventStream<>(
-                grpcEventStream,
+                eventStream,
                 new DataReplicatorMetrics(JOB_REPLICATOR_RETRYABLE_STREAM, titusRuntime),
                 titusRuntime,
                 Schedulers.computation()
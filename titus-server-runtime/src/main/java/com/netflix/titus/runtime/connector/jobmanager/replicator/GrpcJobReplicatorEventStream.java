@@ -8,6 +8,9 @@ import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
+import com.netflix.spectator.api.DistributionSummary;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.common.runtime.TitusRuntime;
@@ -17,6 +20,7 @@ import com.netflix.titus.grpc.protogen.JobStatus;
 import com.netflix.titus.grpc.protogen.TaskStatus;
 import com.netflix.titus.runtime.connector.common.replicator.DataReplicatorMetrics;
 import com.netflix.titus.runtime.connector.common.replicator.ReplicatorEventStream;
+import com.netflix.titus.runtime.connector.jobmanager.JobEventStreamPosition;
 import com.netflix.titus.runtime.connector.jobmanager.JobManagementClient;
 import com.netflix.titus.runtime.connector.jobmanager.JobSnapshot;
 import com.netflix.titus.runtime.endpoint.v3.grpc.V3GrpcModelConverters;
@@ -25,15 +29,34 @@ import org.slf4j.LoggerFactory;
 import rx.Observable;
 import rx.Scheduler;
 
+/**
+ * {@link ReplicatorEventStream} implementation for the job data. The last snapshot, and the position of the last
+ * processed event are kept between subsequent {@link #connect()} calls, so after a reconnect only the events
+ * not seen yet are requested from the server (see {@link JobEventStreamPosition}). A full snapshot is
+ * downloaded only if the server cannot resume the stream from that position.
+ */
 public class GrpcJobReplicatorEventStream implements ReplicatorEventStream<JobSnapshot> {
 
     private static final Logger logger = LoggerFactory.getLogger(GrpcJobReplicatorEventStream.class);
 
+    private static final String METRIC_ROOT = "titus.dataReplicator.jobStream.";
+
     private final JobManagementClient client;
     private final DataReplicatorMetrics metrics;
     private final TitusRuntime titusRuntime;
     private final Scheduler scheduler;
 
+    private final Registry registry;
+    private final Id bootstrapTimeId;
+    private final Id bootstrapBytesId;
+
+    /**
+     * The last snapshot built, and the stream position it corresponds to. Only accessed from the event stream
+     * callbacks, which are serialized, but may be executed on different threads for different connections.
+     */
+    private volatile JobSnapshot lastSnapshot;
+    private volatile JobEventStreamPosition lastPosition;
+
     public GrpcJobReplicatorEventStream(JobManagementClient client,
                                         DataReplicatorMetrics metrics,
                                         TitusRuntime titusRuntime,
@@ -42,12 +65,16 @@ public class GrpcJobReplicatorEventStream implements ReplicatorEventStream<JobSn
         this.metrics = metrics;
         this.titusRuntime = titusRuntime;
         this.scheduler = scheduler;
+
+        this.registry = titusRuntime.getRegistry();
+        this.bootstrapTimeId = registry.createId(METRIC_ROOT + "bootstrapTime");
+        this.bootstrapBytesId = registry.createId(METRIC_ROOT + "bootstrapBytes");
     }
 
     @Override
     public Observable<ReplicatorEvent<JobSnapshot>> connect() {
         return Observable.fromCallable(CacheUpdater::new)
-                .flatMap(cacheUpdater -> client.observeJobs().flatMap(cacheUpdater::onEvent))
+                .flatMap(cacheUpdater -> client.observeJobs(cacheUpdater.getResumeFrom(), cacheUpdater::onStreamStart).flatMap(cacheUpdater::onEvent))
                 .compose(ObservableExt.reemiter(
                         // If there are no events in the stream, we will periodically emit the last cache instance
                         // with the updated cache update timestamp, so it does not look stale.
@@ -64,12 +91,47 @@ public class GrpcJobReplicatorEventStream implements ReplicatorEventStream<JobSn
 
     private class CacheUpdater {
 
+        private final long startTime = titusRuntime.getClock().wallTime();
+        private final JobSnapshot resumableSnapshot;
+        private final Optional<JobEventStreamPosition> resumeFrom;
+
         private List<JobChangeNotification> snapshotEvents = new ArrayList<>();
         private AtomicReference<JobSnapshot> lastJobSnapshotRef = new AtomicReference<>();
 
+        private volatile JobEventStreamPosition position;
+        private boolean bootstrapped;
+        private long bootstrapBytes;
+
+        private CacheUpdater() {
+            this.resumableSnapshot = lastSnapshot;
+            this.resumeFrom = resumableSnapshot == null ? Optional.empty() : Optional.ofNullable(lastPosition);
+        }
+
+        private Optional<JobEventStreamPosition> getResumeFrom() {
+            return resumeFrom;
+        }
+
+        /**
+         * Called before the first event is received. In the resumed mode, all events up to the snapshot end marker are
+         * applied to the snapshot built during the previous connection.
+         */
+        private void onStreamStart(JobEventStreamPosition startPosition, boolean resumed) {
+            this.position = startPosition;
+            if (resumed && resumeFrom.isPresent()) {
+                lastJobSnapshotRef.set(resumableSnapshot);
+            }
+            logger.info("Job event stream started: position={}, resumed={}", startPosition, lastJobSnapshotRef.get() != null);
+        }
+
         private Observable<ReplicatorEvent<JobSnapshot>> onEvent(JobChangeNotification event) {
             try {
+                if (!bootstrapped) {
+                    bootstrapBytes += event.getSerializedSize();
+                }
                 if (lastJobSnapshotRef.get() != null) {
+                    if (!bootstrapped && event.getNotificationCase() == JobChangeNotification.NotificationCase.SNAPSHOTEND) {
+                        return resumeFromLastSnapshot();
+                    }
                     return processCacheUpdate(event);
                 }
                 if (event.getNotificationCase() == JobChangeNotification.NotificationCase.SNAPSHOTEND) {
@@ -95,6 +157,16 @@ public class GrpcJobReplicatorEventStream implements ReplicatorEventStream<JobSn
             return Observable.empty();
         }
 
+        private Observable<ReplicatorEvent<JobSnapshot>> resumeFromLastSnapshot() {
+            JobSnapshot snapshot = lastJobSnapshotRef.get();
+            bootstrapped = true;
+            recordBootstrap("resumed");
+
+            logger.info("Job event stream resumed: position={}, jobs={}, tasks={}", position, snapshot.getJobs().size(), snapshot.getTasks().size());
+
+            return Observable.just(new ReplicatorEvent<>(snapshot, titusRuntime.getClock().wallTime()));
+        }
+
         private Observable<ReplicatorEvent<JobSnapshot>> buildInitialCache() {
             Map<String, Job<?>> jobsById = new HashMap<>();
             Map<String, List<Task>> tasksByJobId = new HashMap<>();
@@ -117,6 +189,9 @@ public class GrpcJobReplicatorEventStream implements ReplicatorEventStream<JobSn
 
             JobSnapshot initialSnapshot = new JobSnapshot(jobsById, tasksByJobId);
             lastJobSnapshotRef.set(initialSnapshot);
+            recordSnapshotPosition(initialSnapshot);
+            bootstrapped = true;
+            recordBootstrap("snapshot");
 
             logger.info("Job snapshot loaded: jobs={}, tasks={}", initialSnapshot.getJobs().size(), initialSnapshot.getTasks().size());
 
@@ -138,11 +213,35 @@ public class GrpcJobReplicatorEventStream implements ReplicatorEventStream<JobSn
                 default:
                     newSnapshot = Optional.empty();
             }
+
+            // Each job and task update event has a sequence number, even if it does not change the snapshot.
+            if (position != null && event.getNotificationCase() != JobChangeNotification.NotificationCase.SNAPSHOTEND) {
+                position = position.next();
+            }
+
             if (newSnapshot.isPresent()) {
                 lastJobSnapshotRef.set(newSnapshot.get());
-                return Observable.just(new ReplicatorEvent<>(newSnapshot.get(), titusRuntime.getClock().wallTime()));
+                recordSnapshotPosition(newSnapshot.get());
+                // While catching up in the resumed mode, we emit the snapshot only once, when the end marker is received.
+                return bootstrapped
+                        ? Observable.just(new ReplicatorEvent<>(newSnapshot.get(), titusRuntime.getClock().wallTime()))
+                        : Observable.empty();
             }
+            recordSnapshotPosition(lastSnapshot);
             return Observable.empty();
         }
+
+        private void recordSnapshotPosition(JobSnapshot snapshot) {
+            // Without a known position, we cannot resume the stream, so there is no point in keeping the snapshot.
+            GrpcJobReplicatorEventStream.this.lastSnapshot = position == null ? null : snapshot;
+            GrpcJobReplicatorEventStream.this.lastPosition = position;
+        }
+
+        private void recordBootstrap(String mode) {
+            registry.timer(bootstrapTimeId.withTag("mode", mode))
+                    .record(titusRuntime.getClock().wallTime() - startTime, TimeUnit.MILLISECONDS);
+            DistributionSummary bytes = registry.distributionSummary(bootstrapBytesId.withTag("mode", mode));
+            bytes.record(bootstrapBytes);
+        }
     }
 }
@@ -0,0 +1,66 @@
+package com.netflix.titus.runtime.connector.jobmanager.replicator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.runtime.connector.common.replicator.ReplicatorCheckpointCodec;
+import com.netflix.titus.runtime.connector.jobmanager.JobSnapshot;
+import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
+import com.netflix.titus.runtime.endpoint.v3.grpc.V3GrpcModelConverters;
+
+/**
+ * Encodes {@link JobSnapshot} as a sequence of length delimited GRPC job and task messages.
+ */
+public class JobSnapshotCheckpointCodec implements ReplicatorCheckpointCodec<JobSnapshot> {
+
+    private static final int VERSION = 1;
+
+    @Override
+    public int getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public void encode(JobSnapshot snapshot, CodedOutputStream output) throws IOException {
+        List<Job<?>> jobs = snapshot.getJobs();
+        output.writeUInt32NoTag(jobs.size());
+        for (Job<?> job : jobs) {
+            output.writeMessageNoTag(V3GrpcModelConverters.toGrpcJob(job));
+        }
+
+        List<Task> tasks = snapshot.getTasks();
+        output.writeUInt32NoTag(tasks.size());
+        for (Task task : tasks) {
+            output.writeMessageNoTag(V3GrpcModelConverters.toGrpcTask(task, EmptyLogStorageInfo.empty()));
+        }
+    }
+
+    @Override
+    public JobSnapshot decode(CodedInputStream input) throws IOException {
+        ExtensionRegistryLite extensionRegistry = ExtensionRegistryLite.getEmptyRegistry();
+
+        int jobCount = input.readUInt32();
+        Map<String, Job<?>> jobsById = new HashMap<>(jobCount);
+        for (int i = 0; i < jobCount; i++) {
+            com.netflix.titus.grpc.protogen.Job grpcJob = input.readMessage(com.netflix.titus.grpc.protogen.Job.parser(), extensionRegistry);
+            jobsById.put(grpcJob.getId(), V3GrpcModelConverters.toCoreJob(grpcJob));
+        }
+
+        int taskCount = input.readUInt32();
+        Map<String, List<Task>> tasksByJobId = new HashMap<>();
+        for (int i = 0; i < taskCount; i++) {
+            com.netflix.titus.grpc.protogen.Task grpcTask = input.readMessage(com.netflix.titus.grpc.protogen.Task.parser(), extensionRegistry);
+            tasksByJobId.computeIfAbsent(grpcTask.getJobId(), j -> new ArrayList<>()).add(V3GrpcModelConverters.toCoreTask(grpcTask));
+        }
+
+        return new JobSnapshot(jobsById, tasksByJobId);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.endpoint.common.grpc.interceptor;
+
+import com.netflix.archaius.api.annotations.Configuration;
+import com.netflix.archaius.api.annotations.DefaultValue;
+
+/**
+ * Configuration of {@link ConcurrencyLimiterServerInterceptor}. Limits are read once, when a limiter for a service is
+ * created. The remaining properties are evaluated for each call.
+ */
+@Configuration(prefix = "titus.grpcServer.concurrencyLimiter")
+public interface ConcurrencyLimiterConfiguration {
+
+    /**
+     * TODO Feature flag. Enable by default once the limits are tuned.
+     */
+    @DefaultValue("false")
+    boolean isEnabled();
+
+    @DefaultValue("50")
+    int getInitialLimit();
+
+    @DefaultValue("10")
+    int getMinLimit();
+
+    @DefaultValue("500")
+    int getMaxLimit();
+
+    /**
+     * Fraction of the current limit available to the non-priority calls (queries from callers that are not
+     * scheduling critical).
+     */
+    @DefaultValue("0.8")
+    double getNonPriorityLimitFraction();
+
+    /**
+     * How much the latency of a call may exceed the long term average, before the limit is reduced.
+     */
+    @DefaultValue("1.5")
+    double getRttTolerance();
+
+    /**
+     * Weight of a new limit estimate, when it is combined with the previous one.
+     */
+    @DefaultValue("0.2")
+    double getSmoothing();
+
+    /**
+     * Regular expression for gRPC method names (without the service name) that do not modify any state. All other
+     * methods are treated as mutating, and have priority.
+     */
+    @DefaultValue("(find|get|observe).*")
+    String getQueryMethodPattern();
+
+    /**
+     * Regular expression for caller ids (see {@link com.netflix.titus.runtime.endpoint.metadata.CallMetadata#getCallerId()})
+     * of scheduling critical callers, whose calls have priority.
+     */
+    @DefaultValue("NONE")
+    String getCriticalCallerPattern();
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.endpoint.common.grpc.interceptor;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.RegExpExt;
+import com.netflix.titus.common.util.limiter.concurrency.AdaptiveConcurrencyLimiter;
+import com.netflix.titus.runtime.endpoint.metadata.CallMetadata;
+import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Interceptor that sheds load with an {@link AdaptiveConcurrencyLimiter}, separate for each gRPC service. Mutating calls
+ * and calls from the scheduling critical callers have priority over the remaining ones (queries), which are rejected
+ * first. Rejected calls are closed with the {@link Status#RESOURCE_EXHAUSTED} status. Streaming calls are long lived,
+ * so their latency cannot be used to adjust the limit, and they are not limited.
+ * <p>
+ * The caller is resolved from the call context, so this interceptor must be invoked after {@link com.netflix.titus.runtime.endpoint.metadata.V3HeaderInterceptor}.
+ */
+public class ConcurrencyLimiterServerInterceptor implements ServerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimiterServerInterceptor.class);
+
+    private static final String METRIC_ROOT = "titus.grpcServer.concurrencyLimiter.";
+
+    private final ConcurrencyLimiterConfiguration configuration;
+    private final CallMetadataResolver callMetadataResolver;
+    private final TitusRuntime titusRuntime;
+    private final Registry registry;
+
+    private final Function<String, Matcher> queryMethodMatcher;
+    private final Function<String, Matcher> criticalCallerMatcher;
+
+    private final ConcurrentMap<String, AdaptiveConcurrencyLimiter> limitersByService = new ConcurrentHashMap<>();
+
+    private final Id rejectedId;
+
+    public ConcurrencyLimiterServerInterceptor(ConcurrencyLimiterConfiguration configuration,
+                                               CallMetadataResolver callMetadataResolver,
+                                               TitusRuntime titusRuntime) {
+        this.configuration = configuration;
+        this.callMetadataResolver = callMetadataResolver;
+        this.titusRuntime = titusRuntime;
+        this.registry = titusRuntime.getRegistry();
+        this.queryMethodMatcher = RegExpExt.dynamicMatcher(configuration::getQueryMethodPattern, "queryMethodPattern", Pattern.CASE_INSENSITIVE, logger);
+        this.criticalCallerMatcher = RegExpExt.dynamicMatcher(configuration::getCriticalCallerPattern, "criticalCallerPattern", 0, logger);
+        this.rejectedId = registry.createId(METRIC_ROOT + "rejected");
+    }
+
+    @Override
+    public <ReqT, RespT> Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        MethodDescriptor<ReqT, RespT> methodDescriptor = call.getMethodDescriptor();
+        if (!configuration.isEnabled() || methodDescriptor.getType() != MethodDescriptor.MethodType.UNARY) {
+            return next.startCall(call, headers);
+        }
+
+        String fullMethodName = methodDescriptor.getFullMethodName();
+        String serviceName = MethodDescriptor.extractFullServiceName(fullMethodName);
+        String methodName = fullMethodName.substring(fullMethodName.lastIndexOf('/') + 1);
+        AdaptiveConcurrencyLimiter limiter = limitersByService.computeIfAbsent(serviceName, this::newLimiter);
+
+        boolean priority = !queryMethodMatcher.apply(methodName).matches() || isCriticalCaller();
+        Optional<AdaptiveConcurrencyLimiter.Permit> permitOpt = limiter.tryAcquire(priority);
+        if (!permitOpt.isPresent()) {
+            registry.counter(rejectedId.withTag("service", serviceName).withTag("method", methodName).withTag("priority", Boolean.toString(priority))).increment();
+            call.close(Status.RESOURCE_EXHAUSTED.withDescription("Too many concurrent requests. Retry later."), new Metadata());
+            return new ServerCall.Listener<ReqT>() {
+            };
+        }
+
+        AdaptiveConcurrencyLimiter.Permit permit = permitOpt.get();
+        Listener<ReqT> listener;
+        try {
+            listener = next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
+                @Override
+                public void close(Status status, Metadata trailers) {
+                    release(permit, status);
+                    super.close(status, trailers);
+                }
+            }, headers);
+        } catch (RuntimeException e) {
+            permit.onIgnore();
+            throw e;
+        }
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(listener) {
+            @Override
+            public void onCancel() {
+                permit.onIgnore();
+                super.onCancel();
+            }
+
+            @Override
+            public void onComplete() {
+                permit.onIgnore();
+                super.onComplete();
+            }
+        };
+    }
+
+    private boolean isCriticalCaller() {
+        return callMetadataResolver.resolve()
+                .map(CallMetadata::getCallerId)
+                .map(callerId -> criticalCallerMatcher.apply(callerId).matches())
+                .orElse(false);
+    }
+
+    private void release(AdaptiveConcurrencyLimiter.Permit permit, Status status) {
+        switch (status.getCode()) {
+            case OK:
+                permit.onSuccess();
+                break;
+            case DEADLINE_EXCEEDED:
+            case RESOURCE_EXHAUSTED:
+            case UNAVAILABLE:
+                permit.onDropped();
+                break;
+            default:
+                // Failed calls (for example invalid requests) are usually fast, and would distort the latency estimate.
+                permit.onIgnore();
+        }
+    }
+
+    private AdaptiveConcurrencyLimiter newLimiter(String serviceName) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                configuration.getInitialLimit(),
+                configuration.getMinLimit(),
+                configuration.getMaxLimit(),
+                configuration.getNonPriorityLimitFraction(),
+                configuration.getRttTolerance(),
+                configuration.getSmoothing(),
+                titusRuntime.getClock()
+        );
+        PolledMeter.using(registry).withId(registry.createId(METRIC_ROOT + "limit", "service", serviceName)).monitorValue(limiter, AdaptiveConcurrencyLimiter::getLimit);
+        PolledMeter.using(registry).withId(registry.createId(METRIC_ROOT + "inflight", "service", serviceName)).monitorValue(limiter, AdaptiveConcurrencyLimiter::getInflight);
+        logger.info("Created concurrency limiter for gRPC service {}: initialLimit={}", serviceName, limiter.getLimit());
+        return limiter;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.runtime.endpoint.v3.grpc.query;
+
+import java.util.List;
+import java.util.TreeSet;
+
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobQuery;
+import com.netflix.titus.grpc.protogen.TaskQuery;
+import com.netflix.titus.runtime.endpoint.metadata.CallMetadata;
+import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
+
+/**
+ * Helper methods for building keys of identical queries, for example to deduplicate them or cache their results.
+ * Queries are compared with protobuf equality, which ignores the order of the filtering criteria map entries, so
+ * only the list of requested fields must be brought to a canonical form.
+ */
+public final class V3QueryKeys {
+
+    private static final String UNKNOWN_CALLER_ID = "unknownCallerId";
+
+    private V3QueryKeys() {
+    }
+
+    /**
+     * Returns a key of a query made by the current caller. Queries forwarded with the caller's identity must not be
+     * shared between callers, as the identity is used for request attribution and prioritization downstream.
+     */
+    public static Pair<String, JobQuery> callerKeyOf(CallMetadataResolver callMetadataResolver, JobQuery query) {
+        return Pair.of(resolveCallerId(callMetadataResolver), canonicalize(query));
+    }
+
+    public static Pair<String, TaskQuery> callerKeyOf(CallMetadataResolver callMetadataResolver, TaskQuery query) {
+        return Pair.of(resolveCallerId(callMetadataResolver), canonicalize(query));
+    }
+
+    public static JobQuery canonicalize(JobQuery query) {
+        if (isCanonical(query.getFieldsList())) {
+            return query;
+        }
+        return query.toBuilder()
+                .clearFields()
+                .addAllFields(new TreeSet<>(query.getFieldsList()))
+                .build();
+    }
+
+    public static TaskQuery canonicalize(TaskQuery query) {
+        if (isCanonical(query.getFieldsList())) {
+            return query;
+        }
+        return query.toBuilder()
+                .clearFields()
+                .addAllFields(new TreeSet<>(query.getFieldsList()))
+                .build();
+    }
+
+    private static String resolveCallerId(CallMetadataResolver callMetadataResolver) {
+        return callMetadataResolver.resolve().map(CallMetadata::getCallerId).orElse(UNKNOWN_CALLER_ID);
+    }
+
+    private static boolean isCanonical(List<String> fields) {
+        for (int i = 1; i < fields.size(); i++) {
+            if (fields.get(i - 1).compareTo(fields.get(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,169 @@
+package com.netflix.titus.runtime.connector.common.replicator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.runtime.connector.common.replicator.ReplicatorEventStream.ReplicatorEvent;
+import com.netflix.titus.testkit.rx.ExtTestSubscriber;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import rx.Observable;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CheckpointingReplicatorEventStreamTest {
+
+    private static final long CHECKPOINT_INTERVAL_MS = 60_000;
+    private static final long MAX_AGE_MS = 600_000;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final TestScheduler testScheduler = Schedulers.test();
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.test(testScheduler);
+
+    private final ReplicatorEventStream<String> delegate = mock(ReplicatorEventStream.class);
+
+    private final PublishSubject<ReplicatorEvent<String>> eventSubject = PublishSubject.create();
+
+    private File checkpointFile;
+
+    @Before
+    public void setUp() {
+        when(delegate.connect()).thenReturn(eventSubject);
+        checkpointFile = new File(temporaryFolder.getRoot(), "test.checkpoint");
+        testScheduler.advanceTimeBy(1, TimeUnit.DAYS);
+    }
+
+    @Test
+    public void testCheckpointSaveAndLoad() {
+        ReplicatorCheckpointStore<String> store = newStore(new StringCodec(1));
+        long timestamp = titusRuntime.getClock().wallTime();
+
+        assertThat(store.load()).isEmpty();
+        assertThat(store.save(new ReplicatorEvent<>("data1", timestamp))).isTrue();
+
+        ReplicatorEvent<String> loaded = store.load().orElseThrow(() -> new IllegalStateException("checkpoint not found"));
+        assertThat(loaded.getData()).isEqualTo("data1");
+        assertThat(loaded.getLastUpdateTime()).isEqualTo(timestamp);
+    }
+
+    @Test
+    public void testCheckpointWithDifferentCodecVersionIsIgnored() {
+        newStore(new StringCodec(1)).save(new ReplicatorEvent<>("data1", titusRuntime.getClock().wallTime()));
+        assertThat(newStore(new StringCodec(2)).load()).isEmpty();
+    }
+
+    @Test
+    public void testExpiredCheckpointIsIgnored() {
+        ReplicatorCheckpointStore<String> store = newStore(new StringCodec(1));
+        store.save(new ReplicatorEvent<>("data1", titusRuntime.getClock().wallTime()));
+
+        testScheduler.advanceTimeBy(MAX_AGE_MS + 1, TimeUnit.MILLISECONDS);
+        assertThat(store.load()).isEmpty();
+    }
+
+    @Test
+    public void testCorruptedCheckpointIsIgnored() throws Exception {
+        ReplicatorCheckpointStore<String> store = newStore(new StringCodec(1));
+        store.save(new ReplicatorEvent<>("data1", titusRuntime.getClock().wallTime()));
+
+        try (RandomAccessFile file = new RandomAccessFile(checkpointFile, "rw")) {
+            file.seek(file.length() - 1);
+            file.write('X');
+        }
+        assertThat(store.load()).isEmpty();
+    }
+
+    @Test
+    public void testStreamStartsFromCheckpointAndSavesNewData() {
+        long checkpointTime = titusRuntime.getClock().wallTime();
+        newStore(new StringCodec(1)).save(new ReplicatorEvent<>("checkpointData", checkpointTime));
+        testScheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+
+        CheckpointingReplicatorEventStream<String> stream = new CheckpointingReplicatorEventStream<>(
+                delegate, newStore(new StringCodec(1)), CHECKPOINT_INTERVAL_MS, testScheduler
+        );
+        ExtTestSubscriber<ReplicatorEvent<String>> testSubscriber = new ExtTestSubscriber<>();
+        stream.connect().subscribe(testSubscriber);
+
+        // Checkpoint data are emitted with their original timestamp, so they are reported as stale.
+        ReplicatorEvent<String> first = testSubscriber.takeNext();
+        assertThat(first.getData()).isEqualTo("checkpointData");
+        assertThat(first.getLastUpdateTime()).isEqualTo(checkpointTime);
+
+        // Live data replace the checkpoint, and are saved after the checkpoint interval passes.
+        eventSubject.onNext(new ReplicatorEvent<>("liveData1", titusRuntime.getClock().wallTime()));
+        assertThat(testSubscriber.takeNext().getData()).isEqualTo("liveData1");
+        testScheduler.triggerActions();
+        assertThat(newStore(new StringCodec(1)).load().get().getData()).isEqualTo("checkpointData");
+
+        testScheduler.advanceTimeBy(CHECKPOINT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        eventSubject.onNext(new ReplicatorEvent<>("liveData2", titusRuntime.getClock().wallTime()));
+        testScheduler.triggerActions();
+        assertThat(newStore(new StringCodec(1)).load().get().getData()).isEqualTo("liveData2");
+
+        // Checkpoint is not emitted again on reconnect.
+        testSubscriber.unsubscribe();
+        ExtTestSubscriber<ReplicatorEvent<String>> reconnectSubscriber = new ExtTestSubscriber<>();
+        stream.connect().subscribe(reconnectSubscriber);
+        assertThat(reconnectSubscriber.takeNext()).isNull();
+    }
+
+    @Test
+    public void testStreamWithoutCheckpoint() {
+        CheckpointingReplicatorEventStream<String> stream = new CheckpointingReplicatorEventStream<>(
+                delegate, newStore(new StringCodec(1)), CHECKPOINT_INTERVAL_MS, testScheduler
+        );
+        ExtTestSubscriber<ReplicatorEvent<String>> testSubscriber = new ExtTestSubscriber<>();
+        stream.connect().subscribe(testSubscriber);
+        assertThat(testSubscriber.takeNext()).isNull();
+
+        eventSubject.onNext(new ReplicatorEvent<>("liveData1", titusRuntime.getClock().wallTime()));
+        assertThat(testSubscriber.takeNext().getData()).isEqualTo("liveData1");
+        testScheduler.triggerActions();
+        assertThat(newStore(new StringCodec(1)).load().get().getData()).isEqualTo("liveData1");
+    }
+
+    private ReplicatorCheckpointStore<String> newStore(StringCodec codec) {
+        return new ReplicatorCheckpointStore<>("test", checkpointFile, codec, MAX_AGE_MS, titusRuntime);
+    }
+
+    private static class StringCodec implements ReplicatorCheckpointCodec<String> {
+
+        private final int version;
+
+        private StringCodec(int version) {
+            this.version = version;
+        }
+
+        @Override
+        public int getVersion() {
+            return version;
+        }
+
+        @Override
+        public void encode(String data, CodedOutputStream output) throws IOException {
+            output.writeStringNoTag(data);
+        }
+
+        @Override
+        public String decode(CodedInputStream input) throws IOException {
+            return input.readString();
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.netflix.titus.runtime.connector.jobmanager.replicator;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 import com.netflix.titus.api.jobmanager.model.job.Capacity;
 import com.netflix.titus.api.jobmanager.model.job.Job;
@@ -12,8 +15,10 @@ import com.netflix.titus.api.jobmanager.model.job.TaskState;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.runtime.TitusRuntimes;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
 import com.netflix.titus.runtime.connector.common.replicator.DataReplicatorMetrics;
 import com.netflix.titus.runtime.connector.common.replicator.ReplicatorEventStream.ReplicatorEvent;
+import com.netflix.titus.runtime.connector.jobmanager.JobEventStreamPosition;
 import com.netflix.titus.runtime.connector.jobmanager.JobManagementClient;
 import com.netflix.titus.runtime.connector.jobmanager.JobSnapshot;
 import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
@@ -21,10 +26,12 @@ import com.netflix.titus.testkit.model.job.JobGeneratorOrchestrator;
 import com.netflix.titus.testkit.rx.ExtTestSubscriber;
 import org.junit.Before;
 import org.junit.Test;
+import rx.Observable;
 import rx.schedulers.Schedulers;
 import rx.schedulers.TestScheduler;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -51,6 +58,7 @@ public class GrpcJobReplicatorEventStreamTest {
     @Before
     public void setUp() {
         when(client.observeJobs()).thenReturn(dataGenerator.grpcObserveJobs(true));
+        when(client.observeJobs(any(), any())).thenReturn(dataGenerator.grpcObserveJobs(true));
 
         dataGenerator.addJobTemplate(SERVICE_JOB, JobDescriptorGenerator.serviceJobDescriptors()
                 .map(jd -> jd.but(d -> d.getExtensions().toBuilder().withCapacity(Capacity.newBuilder().withDesired(SERVICE_DESIRED).withMax(10).build())))
@@ -122,6 +130,44 @@ public class GrpcJobReplicatorEventStreamTest {
         assertThat(cacheEventSubscriber.takeNext()).isNotNull();
     }
 
+    @Test
+    public void testResumeFromLastPositionAfterReconnect() {
+        AtomicReference<Optional<JobEventStreamPosition>> requestedPositionRef = new AtomicReference<>();
+        when(client.observeJobs(any(), any())).thenAnswer(invocation -> {
+            Optional<JobEventStreamPosition> resumeFrom = invocation.getArgument(0);
+            BiConsumer<JobEventStreamPosition, Boolean> streamStartListener = invocation.getArgument(1);
+            requestedPositionRef.set(resumeFrom);
+            if (resumeFrom.isPresent()) {
+                streamStartListener.accept(resumeFrom.get(), true);
+                return Observable.just(JobChangeNotification.newBuilder()
+                        .setSnapshotEnd(JobChangeNotification.SnapshotEnd.newBuilder())
+                        .build()
+                );
+            }
+            streamStartListener.accept(new JobEventStreamPosition("testEpoch", 0), false);
+            return dataGenerator.grpcObserveJobs(true);
+        });
+
+        Pair<Job, List<Task>> pair = bootstrapWithOneJobAndOneTask();
+        assertThat(requestedPositionRef.get()).isEmpty();
+
+        dataGenerator.moveTaskToState(pair.getRight().get(0), TaskState.Launched);
+        assertThat(cacheEventSubscriber.takeNext()).isNotNull();
+        cacheEventSubscriber.unsubscribe();
+
+        // Reconnect, and resume from the last position without a snapshot
+        ExtTestSubscriber<ReplicatorEvent<JobSnapshot>> resumedSubscriber = new ExtTestSubscriber<>();
+        jobStreamCache.connect().subscribe(resumedSubscriber);
+
+        assertThat(requestedPositionRef.get()).isPresent();
+        assertThat(requestedPositionRef.get().get().getEpoch()).isEqualTo("testEpoch");
+        assertThat(requestedPositionRef.get().get().getSequence()).isGreaterThan(0);
+
+        JobSnapshot snapshot = resumedSubscriber.takeNext().getData();
+        assertThat(snapshot.getJobs()).hasSize(1);
+        assertThat(snapshot.getTasks().get(0).getStatus().getState()).isEqualTo(TaskState.Launched);
+    }
+
     private Job bootstrapWithOneJobNoTasks() {
         Job job = dataGenerator.createJob(SERVICE_JOB);
         jobStreamCache.connect().subscribe(cacheEventSubscriber);
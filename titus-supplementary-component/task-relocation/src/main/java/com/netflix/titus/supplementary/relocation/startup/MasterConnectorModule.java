@@ -7,6 +7,7 @@ import com.netflix.archaius.ConfigProxyFactory;
 import com.netflix.titus.runtime.connector.GrpcClientConfiguration;
 import com.netflix.titus.runtime.connector.agent.AgentManagementClient;
 import com.netflix.titus.runtime.connector.agent.client.GrpcAgentManagementClient;
+import com.netflix.titus.runtime.connector.common.replicator.DataReplicatorConfiguration;
 import com.netflix.titus.runtime.connector.jobmanager.JobManagementClient;
 import com.netflix.titus.runtime.connector.jobmanager.client.GrpcJobManagementClient;
 import com.netflix.titus.runtime.connector.titusmaster.TitusMasterConnectorModule;
@@ -27,4 +28,35 @@ public class MasterConnectorModule extends AbstractModule {
     public GrpcClientConfiguration getGrpcClientConfiguration(ConfigProxyFactory factory) {
         return factory.newProxy(GrpcClientConfiguration.class);
     }
+
+    /**
+     * Task relocation makes eviction decisions based on the replicated data, so it must not start with a checkpoint
+     * that may be minutes old. Checkpoint warm start is always disabled here, irrespective of the configuration.
+     */
+    @Provides
+    @Singleton
+    public DataReplicatorConfiguration getDataReplicatorConfiguration(ConfigProxyFactory factory) {
+        DataReplicatorConfiguration delegate = factory.newProxy(DataReplicatorConfiguration.class);
+        return new DataReplicatorConfiguration() {
+            @Override
+            public boolean isCheckpointEnabled() {
+                return false;
+            }
+
+            @Override
+            public String getCheckpointDirectory() {
+                return delegate.getCheckpointDirectory();
+            }
+
+            @Override
+            public long getCheckpointIntervalMs() {
+                return delegate.getCheckpointIntervalMs();
+            }
+
+            @Override
+            public long getCheckpointMaxAgeMs() {
+                return delegate.getCheckpointMaxAgeMs();
+            }
+        };
+    }
 }
@@ -554,6 +554,7 @@ public class EmbeddedTitusMaster {
             grpcPort = grpcPort == 0 ? NetworkExt.findUnusedPort() : grpcPort;
 
             props.put("titus.master.audit.auditLogFolder", "build/auditLogs");
+            props.put("titus.master.audit.segmentSizeBytes", "1048576");
             props.put("titus.master.apiport", Integer.toString(apiPort));
             props.put("titus.master.grpcServer.port", Integer.toString(grpcPort));
 
@@ -22,6 +22,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import com.netflix.titus.api.connector.cloud.Instance;
@@ -47,27 +49,32 @@ public class TestableInstanceCloudConnector implements InstanceCloudConnector {
 
     private final Map<String, Pair<Instance, Integer>> instancesById = new HashMap<>();
 
+    /**
+     * Number of calls per API method, to measure how many requests a client would send to a real cloud provider.
+     */
+    private final Map<String, AtomicLong> apiCallCounters = new ConcurrentHashMap<>();
+
     @Override
     public Observable<List<InstanceGroup>> getInstanceGroups() {
-        return Observable.fromCallable(() -> instanceGroupsById.values().stream()
-                .map(Triple::getFirst).collect(Collectors.toList()));
+        return Observable.fromCallable(() -> recordApiCall("getInstanceGroups", instanceGroupsById.values().stream()
+                .map(Triple::getFirst).collect(Collectors.toList())));
     }
 
     @Override
     public Observable<List<InstanceGroup>> getInstanceGroups(List<String> instanceGroupIds) {
-        return Observable.fromCallable(() -> instanceGroupIds.stream()
+        return Observable.fromCallable(() -> recordApiCall("getInstanceGroupsById", instanceGroupIds.stream()
                 .filter(instanceGroupsById::containsKey)
                 .map(id -> instanceGroupsById.get(id).getFirst())
-                .collect(Collectors.toList()));
+                .collect(Collectors.toList())));
     }
 
     @Override
     public Observable<List<InstanceLaunchConfiguration>> getInstanceLaunchConfiguration(List<String> launchConfigurationIds) {
-        return Observable.fromCallable(() -> launchConfigurationIds.stream()
+        return Observable.fromCallable(() -> recordApiCall("getInstanceLaunchConfiguration", launchConfigurationIds.stream()
                 .filter(launchConfigurationsById::containsKey)
                 .map(launchConfigurationsById::get)
                 .collect(Collectors.toList())
-        );
+        ));
     }
 
     @Override
@@ -77,20 +84,20 @@ public class TestableInstanceCloudConnector implements InstanceCloudConnector {
 
     @Override
     public Observable<List<Instance>> getInstances(List<String> instanceIds) {
-        return Observable.fromCallable(() -> instanceIds.stream()
+        return Observable.fromCallable(() -> recordApiCall("getInstances", instanceIds.stream()
                 .filter(instancesById::containsKey)
                 .map(id -> instancesById.get(id).getLeft())
                 .collect(Collectors.toList())
-        );
+        ));
     }
 
     @Override
     public Observable<List<Instance>> getInstancesByInstanceGroupId(String instanceGroupId) {
-        return Observable.fromCallable(() -> instancesById.values().stream()
+        return Observable.fromCallable(() -> recordApiCall("getInstancesByInstanceGroupId", instancesById.values().stream()
                 .map(Pair::getLeft)
                 .filter(instance -> instance.getInstanceGroupId().equals(instanceGroupId))
                 .collect(Collectors.toList())
-        );
+        ));
     }
 
     @Override
@@ -108,6 +115,25 @@ public class TestableInstanceCloudConnector implements InstanceCloudConnector {
         return null;
     }
 
+    /**
+     * Returns the number of calls made to the given API method.
+     */
+    public long getApiCallCount(String methodName) {
+        AtomicLong counter = apiCallCounters.get(methodName);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * Returns the total number of calls made to all API methods.
+     */
+    public long getTotalApiCallCount() {
+        return apiCallCounters.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    public void resetApiCallCounters() {
+        apiCallCounters.clear();
+    }
+
     public void addInstanceGroup(InstanceGroup instanceGroup) {
         addInstanceGroup(instanceGroup, DEFAULT_INSTANCE_TYPE);
     }
@@ -175,6 +201,11 @@ public class TestableInstanceCloudConnector implements InstanceCloudConnector {
         instanceGroupsById.put(instance.getInstanceGroupId(), instanceGroupEntry.mapFirst(f -> updatedInstanceGroup));
     }
 
+    private <T> T recordApiCall(String methodName, T result) {
+        apiCallCounters.computeIfAbsent(methodName, name -> new AtomicLong()).incrementAndGet();
+        return result;
+    }
+
     public List<InstanceGroup> takeInstanceGroups() {
         return instanceGroupsById.values().stream().map(Triple::getFirst).collect(Collectors.toList());
     }